@@ -3,6 +3,9 @@ package com.makeurpicks.config;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
@@ -14,4 +17,17 @@ public class GameConfig {
 	{
 		return new RestTemplate();
 	}
+	
+	/**
+	 * Values go in and come out as the raw bytes, they are already json.
+	 */
+	@Bean
+	public RedisTemplate<String, byte[]> weekGamesRedisTemplate(RedisConnectionFactory redisConnectionFactory)
+	{
+		RedisTemplate<String, byte[]> template = new RedisTemplate<String, byte[]>();
+		template.setConnectionFactory(redisConnectionFactory);
+		template.setKeySerializer(new StringRedisSerializer());
+		template.setEnableDefaultSerializer(false);
+		return template;
+	}
 }
@@ -1,11 +1,16 @@
 package com.makeurpicks.controller;
 
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -40,10 +45,28 @@ public class GameController {
 	}
 	
 	
-	@RequestMapping(method=RequestMethod.GET, value="/weekid/{id}")
-	public @ResponseBody Iterable<Game> getGamesByWeek(@PathVariable String id)
+	@RequestMapping(method=RequestMethod.GET, value="/weekid/{id}", produces=MediaType.APPLICATION_JSON_VALUE)
+	public @ResponseBody byte[] getGamesByWeek(@PathVariable String id)
+	{
+		return gameService.getGamesByWeekJson(id);
+	}
+	
+	/**
+	 * GET /games?ids=a,b,c, keyed by game id
+	 */
+	@RequestMapping(method=RequestMethod.GET, params="ids")
+	public @ResponseBody Map<String, Game> getGamesByIds(@RequestParam List<String> ids)
+	{
+		return gameService.getGamesByIds(ids);
+	}
+	
+	/**
+	 * The same as GET /games?ids= for a list too long for a query string
+	 */
+	@RequestMapping(method=RequestMethod.POST, value="/ids")
+	public @ResponseBody Map<String, Game> postGamesByIds(@RequestBody List<String> ids)
 	{
-		return gameService.getGamesByWeek(id);
+		return gameService.getGamesByIds(ids);
 	}
 	
 	@RequestMapping(method=RequestMethod.GET, value="/{id}")
@@ -62,9 +85,9 @@ public class GameController {
 	
 	@RequestMapping(method=RequestMethod.POST, value="/autoscore")
 	@PreAuthorize("hasRole('ADMIN')")
-	public void callNFLandAutoScore(@RequestBody Week week)
+	public @ResponseBody int callNFLandAutoScore(@RequestBody Week week)
 	{
-		gameService.updateScoreFromNFL(week.getId());
+		return gameService.updateScoreFromNFL(week.getId());
 	}
 	
 	
@@ -3,8 +3,11 @@ package com.makeurpicks.domain;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Date;
 
 import javax.persistence.Entity;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
 
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.format.annotation.DateTimeFormat.ISO;
@@ -32,6 +35,10 @@ public class Game extends AbstractModel{
 //	@DateTimeFormat(pattern="YYYY-MM-DDTHH:mm:ss.sssZ")
 	private ZonedDateTime gameStart;
 	
+	//gameStart is stored as a blob, this copy is what kickoffs are queried by
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date kickoff;
+	
 	//aggegrated data
 	private String favFullName;
 	private String dogFullName;
@@ -83,6 +90,7 @@ public class Game extends AbstractModel{
 	}
 	public void setGameStart(ZonedDateTime gameStart) {
 		this.gameStart = gameStart;
+		this.kickoff = gameStart == null ? null : Date.from(gameStart.toInstant());
 	}
 	public String getWeekId() {
 		return weekId;
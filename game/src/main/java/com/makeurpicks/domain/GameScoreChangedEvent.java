@@ -0,0 +1,60 @@
+package com.makeurpicks.domain;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published once for every game whose score the NFL feed moved, after the new
+ * score has been written.
+ */
+public class GameScoreChangedEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String gameId;
+	private final String weekId;
+	private final String favId;
+	private final String dogId;
+	private final int favScore;
+	private final int dogScore;
+
+	public GameScoreChangedEvent(Object source, Game game)
+	{
+		super(source);
+		this.gameId = game.getId();
+		this.weekId = game.getWeekId();
+		this.favId = game.getFavId();
+		this.dogId = game.getDogId();
+		this.favScore = game.getFavScore();
+		this.dogScore = game.getDogScore();
+	}
+
+	public String getGameId() {
+		return gameId;
+	}
+
+	public String getWeekId() {
+		return weekId;
+	}
+
+	public String getFavId() {
+		return favId;
+	}
+
+	public String getDogId() {
+		return dogId;
+	}
+
+	public int getFavScore() {
+		return favScore;
+	}
+
+	public int getDogScore() {
+		return dogScore;
+	}
+
+	@Override
+	public String toString() {
+		return "GameScoreChangedEvent [gameId=" + gameId + ", weekId=" + weekId + ", favId=" + favId + ", dogId="
+				+ dogId + ", favScore=" + favScore + ", dogScore=" + dogScore + "]";
+	}
+}
@@ -10,6 +10,26 @@ public class Team extends AbstractModel {
 	private String theme;
 	private String feedName;
 	private String leagueType;
+	
+	//position in the team registry, 0 to the number of teams - 1
+	private int index;
+	
+	public Team()
+	{
+	}
+	
+	public Team(Team team)
+	{
+		this.id = team.id;
+		this.teamName = team.teamName;
+		this.city = team.city;
+		this.shortName = team.shortName;
+		this.theme = team.theme;
+		this.feedName = team.feedName;
+		this.leagueType = team.leagueType;
+		this.index = team.index;
+	}
+	
 	public String getTeamName() {
 		return teamName;
 	}
@@ -47,6 +67,13 @@ public class Team extends AbstractModel {
 		this.leagueType = leagueType;
 	}
 	
+	public int getIndex() {
+		return index;
+	}
+	public void setIndex(int index) {
+		this.index = index;
+	}
+	
 	public String getFullTeamName()
 	{
 		return city+" "+teamName;
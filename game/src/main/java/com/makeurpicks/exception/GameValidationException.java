@@ -11,7 +11,7 @@ public class GameValidationException extends RuntimeException {
 
 	public enum GameExceptions {
 		GAME_IS_NULL, FAVORITE_IS_NULL, DOG_IS_NULL, WEEK_IS_NULL, GAMESTART_IS_NULL, TEAM_CANNOT_PLAY_ITSELF,
-		TEAM_SHORT_TEAM_NOT_FOUND, SEASON_ID_IS_NULL, LEAGUE_SERVICE_DOWN
+		TEAM_SHORT_TEAM_NOT_FOUND, SEASON_ID_IS_NULL, LEAGUE_SERVICE_DOWN, TOO_MANY_GAME_IDS
 	}
 	
 	private Iterable<GameExceptions> exceptions;
@@ -1,5 +1,6 @@
 package com.makeurpicks.repository;
 
+import java.util.Date;
 import java.util.List;
 
 import org.springframework.data.repository.CrudRepository;
@@ -13,4 +14,6 @@ public interface GameRepository extends CrudRepository<Game, String>{
 	public List<Game> findByWeekId(String weekId);
 	public List<Game> findByWeekIdOrderByGameStart(String weekId);
 	public Game findByWeekIdAndFavIdAndDogId(String weekId, String favId, String dogId);
+	public List<Game> findByKickoffBetween(Date from, Date to);
+	public List<Game> findByKickoffIsNull();
 }
@@ -0,0 +1,119 @@
+package com.makeurpicks.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.makeurpicks.domain.Team;
+
+/**
+ * Every team, read once from the bundled teams file and never changed after.
+ * A team's id is its short name in lower case as it always has been, and it
+ * also gets an index, its position in the file.  The indexes run from 0 with
+ * no gaps, so anything that wants a small key per team can use the index and a
+ * plain array instead of hashing the id.
+ *
+ * The registry keeps its own copies of the teams it was built from and hands
+ * out copies of them, a caller changing a team it was given changes nothing
+ * for anyone else.
+ */
+public final class TeamRegistry {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	private final Team[] teams;
+	private final Map<String, Integer> indexById;
+
+	public TeamRegistry(List<Team> fromFile)
+	{
+		int size = fromFile.size();
+		Team[] byIndex = new Team[size];
+		Map<String, Integer> index = new HashMap<>(size * 2);
+		for (int i = 0; i < size; i++)
+		{
+			Team team = new Team(fromFile.get(i));
+			if (team.getShortName() == null || team.getShortName().isEmpty())
+				throw new IllegalArgumentException("team "+i+" has no short name");
+			String id = team.getShortName().toLowerCase();
+			if (index.containsKey(id))
+				throw new IllegalArgumentException("team "+id+" is in the teams file twice");
+			team.setId(id);
+			team.setIndex(i);
+			byIndex[i] = team;
+			index.put(id, i);
+		}
+		this.teams = byIndex;
+		this.indexById = Collections.unmodifiableMap(index);
+	}
+
+	/**
+	 * @param in a json array of teams, each with at least a short name
+	 */
+	public static TeamRegistry load(InputStream in) throws IOException
+	{
+		Team[] fromFile = MAPPER.readValue(in, Team[].class);
+		return new TeamRegistry(new ArrayList<>(Arrays.asList(fromFile)));
+	}
+
+	public int size()
+	{
+		return teams.length;
+	}
+
+	/**
+	 * @return the team's index, -1 if there is no such team
+	 */
+	public int indexOf(String id)
+	{
+		Integer index = id == null ? null : indexById.get(id);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException when there is no team with the index
+	 */
+	public Team get(int index)
+	{
+		return new Team(teams[index]);
+	}
+
+	/**
+	 * @return the team, null if there is no such team
+	 */
+	public Team findOne(String id)
+	{
+		int index = indexOf(id);
+		return index < 0 ? null : new Team(teams[index]);
+	}
+
+	/**
+	 * @return every team in index order, can't be modified
+	 */
+	public List<Team> getTeams()
+	{
+		List<Team> list = new ArrayList<>(teams.length);
+		for (Team team : teams)
+			list.add(new Team(team));
+		return Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * @return id -> team in index order, can't be modified
+	 */
+	public Map<String, Team> getTeamMap()
+	{
+		Map<String, Team> map = new LinkedHashMap<>(teams.length * 2);
+		for (Team team : teams)
+			map.put(team.getId(), new Team(team));
+		return Collections.unmodifiableMap(map);
+	}
+}
@@ -1,40 +1,57 @@
 package com.makeurpicks.repository;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
 import com.makeurpicks.domain.Team;
 
+/**
+ * The teams, from the {@link TeamRegistry} built from game.teams.file when the
+ * service starts.  Nothing is created on a lookup, an unknown id is just not
+ * found.
+ */
 @Component
 public class TeamRepository {
 
-	private static Map<String, Team> teams = new HashMap<>(33);
+	@Value("${game.teams.file:classpath:teams.json}")
+	private Resource teamsFile = new ClassPathResource("teams.json");
+	
+	private TeamRegistry registry;
 	
-	public void save(Team team)
+	@PostConstruct
+	public void load() throws IOException
 	{
-		teams.put(team.getId(), team);
-		
+		try (InputStream in = teamsFile.getInputStream()) {
+			registry = TeamRegistry.load(in);
+		}
 	}
 	
 	public Team findOne(String id)
 	{
-		return teams.get(id);
+		return registry.findOne(id);
 	}
 	
 	public List<Team> getTeamsByLeagueType(String leagueType)
 	{
-		return new ArrayList<Team>(teams.values());
+		return registry.getTeams();
 	}
 	
 	public Map<String, Team> getTeamMap()
 	{
-		return teams;
+		return registry.getTeamMap();
+	}
+	
+	public TeamRegistry getRegistry()
+	{
+		return registry;
 	}
 }
@@ -0,0 +1,128 @@
+package com.makeurpicks.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * A week's games as the json the games endpoint sends, shared by every game
+ * service through redis.  A hit is handed to the response as it is, nothing is
+ * read from the database or run through jackson.
+ *
+ * Entries are dropped whenever a game of the week is written, and expire after
+ * ttl-minutes in case a write reached the game table some other way.  Redis
+ * being down is never an error here, a failed read is a miss and the games
+ * are read from the database instead.
+ *
+ * Every evict also moves the week's generation on.  A miss reads the
+ * generation before it reads the database and only puts its json if the
+ * generation is still the same, so a write that lands between the read and
+ * the put can't leave the games from before it cached for the whole ttl.
+ */
+@Repository
+public class WeekGamesCache {
+
+	private Log log = LogFactory.getLog(WeekGamesCache.class);
+
+	//the json and its generation share a hash tag, the scripts touch both
+	private static final String KEY_PREFIX = "game_week_json:";
+	private static final String GENERATION_PREFIX = "game_week_gen:";
+
+	private static final byte[] PUT = ("if (redis.call('GET', KEYS[2]) or '0') == ARGV[1] then "
+			+ "redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3]) return 1 end return 0").getBytes(StandardCharsets.UTF_8);
+
+	//the generation outlives any entry it guards
+	private static final byte[] EVICT = ("redis.call('INCR', KEYS[2]) redis.call('EXPIRE', KEYS[2], ARGV[1]) "
+			+ "redis.call('DEL', KEYS[1]) return 1").getBytes(StandardCharsets.UTF_8);
+
+	@Autowired(required=false)
+	@Qualifier("weekGamesRedisTemplate")
+	private RedisTemplate<String, byte[]> redisTemplate;
+
+	@Value("${game.week-cache.ttl-minutes:60}")
+	private long ttlMinutes = 60;
+
+	private static String jsonKey(String weekId)
+	{
+		return KEY_PREFIX+"{"+weekId+"}";
+	}
+
+	private static byte[] generationKey(String weekId)
+	{
+		return bytes(GENERATION_PREFIX+"{"+weekId+"}");
+	}
+
+	private static byte[] bytes(Object value)
+	{
+		return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return the cached json, null on a miss
+	 */
+	public byte[] get(String weekId)
+	{
+		if (redisTemplate == null)
+			return null;
+		try {
+			return redisTemplate.opsForValue().get(jsonKey(weekId));
+		} catch (RuntimeException e) {
+			log.warn("unable to read the games of week "+weekId+" from redis", e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return the week's generation to hand to {@link #put}, null if it can't
+	 * be read and nothing should be cached
+	 */
+	public Long generation(String weekId)
+	{
+		if (redisTemplate == null)
+			return null;
+		try {
+			byte[] generation = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(generationKey(weekId)));
+			return generation == null ? 0L : Long.valueOf(new String(generation, StandardCharsets.UTF_8));
+		} catch (RuntimeException e) {
+			log.warn("unable to read the generation of week "+weekId+" from redis", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Caches the json unless the week was evicted since the generation was read.
+	 */
+	public void put(String weekId, long generation, byte[] json)
+	{
+		if (redisTemplate == null)
+			return;
+		try {
+			redisTemplate.execute((RedisCallback<Long>) connection -> connection.eval(PUT, ReturnType.INTEGER, 2,
+					bytes(jsonKey(weekId)), generationKey(weekId), bytes(generation), json, bytes(TimeUnit.MINUTES.toSeconds(ttlMinutes))));
+		} catch (RuntimeException e) {
+			log.warn("unable to cache the games of week "+weekId, e);
+		}
+	}
+
+	public void evict(String weekId)
+	{
+		if (redisTemplate == null || weekId == null)
+			return;
+		try {
+			redisTemplate.execute((RedisCallback<Long>) connection -> connection.eval(EVICT, ReturnType.INTEGER, 2,
+					bytes(jsonKey(weekId)), generationKey(weekId), bytes(TimeUnit.MINUTES.toSeconds(ttlMinutes * 2))));
+		} catch (RuntimeException e) {
+			//the entry lives until it expires, the next write of the week tries again
+			log.warn("unable to evict the games of week "+weekId, e);
+		}
+	}
+}
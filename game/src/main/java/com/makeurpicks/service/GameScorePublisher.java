@@ -0,0 +1,56 @@
+package com.makeurpicks.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.makeurpicks.domain.GameScoreChangedEvent;
+
+/**
+ * Relays score changes to the other services on a redis channel, one small
+ * json message per game so a subscriber never has to reload the week to find
+ * out what moved.  A failed publish is logged and dropped, the score is
+ * already saved and the next change sends it again.
+ */
+@Component
+public class GameScorePublisher {
+
+	private Log log = LogFactory.getLog(GameScorePublisher.class);
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	@Autowired(required=false)
+	private StringRedisTemplate redisTemplate;
+
+	@Value("${game.score.channel:game_scores}")
+	private String channel = "game_scores";
+
+	@EventListener
+	public void onScoreChanged(GameScoreChangedEvent event)
+	{
+		if (redisTemplate == null)
+			return;
+
+		Map<String, Object> message = new LinkedHashMap<>();
+		message.put("gameId", event.getGameId());
+		message.put("weekId", event.getWeekId());
+		message.put("favId", event.getFavId());
+		message.put("dogId", event.getDogId());
+		message.put("favScore", event.getFavScore());
+		message.put("dogScore", event.getDogScore());
+		try {
+			redisTemplate.convertAndSend(channel, MAPPER.writeValueAsString(message));
+		} catch (JsonProcessingException | RuntimeException e) {
+			log.warn("unable to publish "+event, e);
+		}
+	}
+}
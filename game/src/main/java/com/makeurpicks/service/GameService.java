@@ -1,19 +1,30 @@
 package com.makeurpicks.service;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.makeurpicks.domain.Game;
 import com.makeurpicks.domain.GameBuilder;
+import com.makeurpicks.domain.GameScoreChangedEvent;
 import com.makeurpicks.domain.NFLGame;
 import com.makeurpicks.domain.NFLWeek;
 import com.makeurpicks.domain.Team;
@@ -22,6 +33,8 @@ import com.makeurpicks.domain.WeekBuilder;
 import com.makeurpicks.exception.GameValidationException;
 import com.makeurpicks.exception.GameValidationException.GameExceptions;
 import com.makeurpicks.repository.GameRepository;
+import com.makeurpicks.repository.GameScoreRepository;
+import com.makeurpicks.repository.WeekGamesCache;
 
 @Component
 public class GameService {
@@ -31,11 +44,29 @@ public class GameService {
 	@Autowired
 	private GameRepository gameRepository;
 	
+	@Autowired
+	private GameScoreRepository gameScoreRepository;
+	
+	@Autowired
+	private WeekGamesCache weekGamesCache;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
 	@Autowired
 	private TeamService teamService;
 	
 	@Autowired
 	private WeekService weekService;
+	
+	@Autowired
+	private NFLFeedClient nflFeedClient;
+	
+	@Autowired(required=false)
+	private ApplicationEventPublisher eventPublisher;
+	
+	@Value("${game.ids.max:500}")
+	private int maxIds = 500;
 		
 	public Game createGame(Game game)
 	{
@@ -50,7 +81,9 @@ public class GameService {
 		game.setFavFullName(fav.getFullTeamName());
 		game.setDogFullName(dog.getFullTeamName());
 		
-		return gameRepository.save(game);
+		Game saved = gameRepository.save(game);
+		weekGamesCache.evict(saved.getWeekId());
+		return saved;
 	}
 	
 	public Game updateGame(Game game)
@@ -59,13 +92,22 @@ public class GameService {
 		
 		//allow only certain fields to be updated
 		Game gameFromDS = gameRepository.findOne(game.getId());
+		String previousWeekId = gameFromDS.getWeekId();
+		//a game is moved only to a week that was named, validateGame turned down an empty one
+		if (game.getWeekId() != null)
+			gameFromDS.setWeekId(game.getWeekId());
 		gameFromDS.setGameStart(game.getGameStart());
 		gameFromDS.setSpread(game.getSpread());
 		gameFromDS.setFavHome(game.isFavHome());
 		gameFromDS.setFavScore(game.getFavScore());
 		gameFromDS.setDogScore(game.getDogScore());
 		
-		return gameRepository.save(gameFromDS);
+		Game saved = gameRepository.save(gameFromDS);
+		weekGamesCache.evict(saved.getWeekId());
+		//a game moved to another week is gone from the one it was in
+		if (previousWeekId != null && !previousWeekId.equals(saved.getWeekId()))
+			weekGamesCache.evict(previousWeekId);
+		return saved;
 	}
 	
 	public Game updateGameScore(Game game)
@@ -73,17 +115,44 @@ public class GameService {
 		Game gameFromDS = gameRepository.findOne(game.getId());
 		gameFromDS.setFavScore(game.getFavScore());
 		gameFromDS.setDogScore(game.getDogScore());
-		return gameRepository.save(gameFromDS);
+		Game saved = gameRepository.save(gameFromDS);
+		weekGamesCache.evict(saved.getWeekId());
+		return saved;
 	}
 	
+	/**
+	 * @return the week's games in kickoff order, the list can't be modified
+	 */
 	public List<Game> getGamesByWeek(String weekId)
 	{
 		List<Game> games = gameRepository.findByWeekId(weekId);
 		
 		Collections.sort(games, (g1, g2)-> g1.getGameStart().compareTo(g2.getGameStart()));
-		return games;
+		return Collections.unmodifiableList(games);
 //		return gameRepository.findByWeekIdOrderByGameStart(weekId);
 	}
+	
+	/**
+	 * The week's games in kickoff order as json, from the shared cache when it
+	 * has them.  A miss reads and sorts the games once and caches the json for
+	 * every game service, unless a game of the week was written in the meantime.
+	 */
+	public byte[] getGamesByWeekJson(String weekId)
+	{
+		byte[] json = weekGamesCache.get(weekId);
+		if (json != null)
+			return json;
+		
+		Long generation = weekGamesCache.generation(weekId);
+		try {
+			json = objectMapper.writeValueAsBytes(getGamesByWeek(weekId));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("unable to write the games of week "+weekId, e);
+		}
+		if (generation != null)
+			weekGamesCache.put(weekId, generation, json);
+		return json;
+	}
 	 
 	public Game getGameById(String gameId)
 	{
@@ -91,6 +160,37 @@ public class GameService {
 		return game;
 	}
 	
+	/**
+	 * Every game asked for in one query.  Ids that aren't found are left out of
+	 * the map, the map iterates in the order the ids were asked for.
+	 */
+	public Map<String, Game> getGamesByIds(Collection<String> ids)
+	{
+		if (ids == null || ids.isEmpty())
+			return Collections.emptyMap();
+		
+		Set<String> distinct = new LinkedHashSet<>(ids);
+		distinct.remove(null);
+		distinct.remove("");
+		if (distinct.size() > maxIds)
+			throw new GameValidationException(distinct.size()+" ids, at most "+maxIds, GameExceptions.TOO_MANY_GAME_IDS);
+		if (distinct.isEmpty())
+			return Collections.emptyMap();
+		
+		Map<String, Game> found = new HashMap<>();
+		for (Game game : gameRepository.findAll(distinct))
+			found.put(game.getId(), game);
+		
+		Map<String, Game> games = new LinkedHashMap<>();
+		for (String id : distinct)
+		{
+			Game game = found.get(id);
+			if (game != null)
+				games.put(id, game);
+		}
+		return games;
+	}
+	
 	private void validateGame(Game game)
 	{
 		if (game==null)
@@ -111,47 +211,117 @@ public class GameService {
 	}
 	
 	
+	/**
+	 * Games saved before the kickoff column existed only have the blob, setting
+	 * the start again fills in the copy the range queries read.
+	 * 
+	 * @return the number of games filled in
+	 */
+	public int fillKickoffs()
+	{
+		List<Game> games = new ArrayList<>();
+		for (Game game : gameRepository.findByKickoffIsNull())
+		{
+			if (game.getGameStart() == null)
+				continue;
+			game.setGameStart(game.getGameStart());
+			games.add(game);
+		}
+		if (!games.isEmpty())
+			gameRepository.save(games);
+		return games.size();
+	}
+	
 	public NFLWeek loadFromNFL()
 	{
-		RestTemplate restTemplate = new RestTemplate();
-		restTemplate.getMessageConverters().add(new StringHttpMessageConverter());
-		return restTemplate.getForObject("http://www.nfl.com/liveupdate/scorestrip/ss.json", NFLWeek.class);
+		return nflFeedClient.getWeek();
 	}
 	
-	public void updateScoreFromNFL(String weekId)
+	/**
+	 * @return the number of games whose score changed
+	 */
+	public int updateScoreFromNFL(String weekId)
 	{
-		NFLWeek nflWeek = loadFromNFL();
-		
+		return updateScores(weekId, loadFromNFL()).size();
+	}
+	
+	/**
+	 * Loads the week's games once and matches the feed against them by team
+	 * pair, either way round since the feed only knows home and away.  Only
+	 * games whose score differs from what is stored are written, all in one
+	 * batch, so a poll during a quiet spell is one select and no writes.  A
+	 * {@link GameScoreChangedEvent} is published for each game written.
+	 * 
+	 * @return the games whose score changed
+	 */
+	public List<Game> updateScores(String weekId, NFLWeek nflWeek)
+	{
+		Map<String, Game> gamesByTeams = new HashMap<>();
+		for (Game game : gameRepository.findByWeekId(weekId))
+			gamesByTeams.put(teamPair(game.getFavId(), game.getDogId()), game);
 		
+		Map<String, Team> teams = teamService.getTeamMap();
+		List<Game> changed = new ArrayList<>();
 		for (NFLGame nflGame:nflWeek.getGms())
 		{
-			Team home = teamService.getTeam(nflGame.getH());
-			Team away = teamService.getTeam(nflGame.getV());
+			Team home = findTeam(teams, nflGame.getH());
+			Team away = findTeam(teams, nflGame.getV());
+			if (home == null || away == null)
+			{
+				log.debug("No team found for "+nflGame.getH()+ " - "+nflGame.getV());
+				continue;
+			}
 			
-			Game game = gameRepository.findByWeekIdAndFavIdAndDogId(weekId, home.getId(), away.getId());
+			int favScore = nflGame.getHs();
+			int dogScore = nflGame.getVs();
+			Game game = gamesByTeams.get(teamPair(home.getId(), away.getId()));
 			if (game == null)
 			{
-				game = gameRepository.findByWeekIdAndFavIdAndDogId(weekId, away.getId(), home.getId());
-				if (game == null)
-				{
-					log.debug("No game found for "+home.getFullTeamName()+ " - "+away.getFullTeamName());
-					//no game found, continue;
-					continue;
-				}
-				else
-				{
-					game.setFavScore(nflGame.getVs());
-					game.setDogScore(nflGame.getHs());
-				}
+				game = gamesByTeams.get(teamPair(away.getId(), home.getId()));
+				favScore = nflGame.getVs();
+				dogScore = nflGame.getHs();
 			}
-			else
+			if (game == null)
 			{
-				game.setFavScore(nflGame.getHs());
-				game.setDogScore(nflGame.getVs());
+				log.debug("No game found for "+home.getFullTeamName()+ " - "+away.getFullTeamName());
+				//no game found, continue;
+				continue;
 			}
 			
-			updateGameScore(game);
+			if (game.getFavScore() != favScore || game.getDogScore() != dogScore)
+			{
+				game.setFavScore(favScore);
+				game.setDogScore(dogScore);
+				changed.add(game);
+			}
+		}
+		
+		gameScoreRepository.updateScores(changed);
+		if (!changed.isEmpty())
+			weekGamesCache.evict(weekId);
+		log.info("scores for week "+weekId+": "+changed.size()+" of "+nflWeek.getGms().size()+" games changed");
+		if (eventPublisher != null)
+		{
+			for (Game game : changed)
+				eventPublisher.publishEvent(new GameScoreChangedEvent(this, game));
 		}
+		return changed;
+	}
+	
+	private static String teamPair(String favId, String dogId)
+	{
+		return new StringBuilder().append(favId).append('+').append(dogId).toString();
+	}
+	
+	/**
+	 * Team ids are the lower case short names, the feed sends them in upper case.
+	 */
+	private Team findTeam(Map<String, Team> teams, String shortName)
+	{
+		if (shortName == null)
+			return null;
+		Team team = teams.get(shortName);
+		return team != null ? team : teams.get(shortName.toLowerCase());
 	}
 	
 	public void autoSetupWeek(String seasonId)
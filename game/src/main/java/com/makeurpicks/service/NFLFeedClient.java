@@ -0,0 +1,120 @@
+package com.makeurpicks.service;
+
+import java.io.IOException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.makeurpicks.domain.NFLWeek;
+
+/**
+ * Reads the NFL score strip through one RestTemplate kept for the life of the
+ * service.  The conditional read sends back the ETag and Last-Modified of the
+ * last response, so an unchanged feed is a 304 with no body.  A server that
+ * sends neither still costs no writes, a body the same as the last one counts
+ * as unchanged.
+ *
+ * There is no default feed, game.nfl.feed-url has to name one, e.g. the admin
+ * app's resources/nfl_week13.json for a local run.
+ */
+@Component
+public class NFLFeedClient {
+
+	private Log log = LogFactory.getLog(NFLFeedClient.class);
+
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	@Value("${game.nfl.feed-url:}")
+	private String feedUrl;
+
+	private final RestTemplate restTemplate = new RestTemplate();
+
+	private String etag;
+	private String lastModified;
+	private String lastBody;
+
+	public boolean isConfigured()
+	{
+		return feedUrl != null && !feedUrl.isEmpty();
+	}
+
+	/**
+	 * @return the feed as it is now
+	 */
+	public NFLWeek getWeek()
+	{
+		return read(false);
+	}
+
+	/**
+	 * @return the feed, or null if it hasn't changed since the last read
+	 */
+	public NFLWeek getWeekIfChanged()
+	{
+		return read(true);
+	}
+
+	private synchronized NFLWeek read(boolean conditional)
+	{
+		if (!isConfigured())
+			throw new IllegalStateException("game.nfl.feed-url is not set");
+
+		HttpHeaders headers = new HttpHeaders();
+		if (conditional && etag != null)
+			headers.setIfNoneMatch(etag);
+		if (conditional && lastModified != null)
+			headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+
+		ResponseEntity<String> response = restTemplate.exchange(feedUrl, HttpMethod.GET, new HttpEntity<Void>(headers), String.class);
+		if (response.getStatusCode() == HttpStatus.NOT_MODIFIED)
+			return null;
+
+		String body = response.getBody();
+		if (body == null || body.isEmpty())
+			throw new RestClientException("score feed "+feedUrl+" sent no body");
+		if (conditional && body.equals(lastBody))
+		{
+			remember(response.getHeaders(), body);
+			return null;
+		}
+
+		NFLWeek week;
+		try {
+			week = MAPPER.readValue(body, NFLWeek.class);
+		} catch (IOException e) {
+			log.warn("unreadable score feed from "+feedUrl);
+			throw new RestClientException("unable to read the score feed", e);
+		}
+		remember(response.getHeaders(), body);
+		return week;
+	}
+
+	/**
+	 * Only a body that was read is remembered, a feed that sent nothing or
+	 * something unreadable is asked again in full rather than answered with a
+	 * 304 for it.
+	 */
+	private void remember(HttpHeaders headers, String body)
+	{
+		etag = headers.getETag();
+		lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+		lastBody = body;
+	}
+
+	RestTemplate getRestTemplate()
+	{
+		return restTemplate;
+	}
+}
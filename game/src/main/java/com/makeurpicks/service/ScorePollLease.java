@@ -0,0 +1,65 @@
+package com.makeurpicks.service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Elects the one game instance that polls the score feed.  The lease is a redis
+ * key holding the holder's id with a ttl, whoever finds it free takes it and
+ * the holder extends it on every poll.  If the holder stops polling the key
+ * runs out and the next instance to ask takes over.
+ *
+ * Without redis there is nothing to share, the instance always holds the lease.
+ * When redis can't be reached nobody does, scores can't be published then
+ * anyway.
+ */
+@Component
+public class ScorePollLease {
+
+	private Log log = LogFactory.getLog(ScorePollLease.class);
+
+	private static final RedisScript<Long> ACQUIRE = new DefaultRedisScript<>(
+			"local holder = redis.call('GET', KEYS[1]) "
+			+ "if holder == false then redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) return 1 end "
+			+ "if holder == ARGV[1] then redis.call('PEXPIRE', KEYS[1], ARGV[2]) return 1 end "
+			+ "return 0", Long.class);
+
+	private final String holder = UUID.randomUUID().toString();
+
+	@Autowired(required=false)
+	private StringRedisTemplate redisTemplate;
+
+	@Value("${game.nfl.poll.lease-key:score_poll_lease}")
+	private String key = "score_poll_lease";
+
+	/**
+	 * Takes the lease if it is free or extends it if this instance holds it.
+	 *
+	 * @param ttl how long the lease lasts without another call, longer than the
+	 * longest wait between polls
+	 * @return whether this instance should poll
+	 */
+	public boolean acquire(Duration ttl)
+	{
+		if (redisTemplate == null)
+			return true;
+
+		try {
+			Long held = redisTemplate.execute(ACQUIRE, Collections.singletonList(key), holder, String.valueOf(ttl.toMillis()));
+			return held != null && held == 1;
+		} catch (RuntimeException e) {
+			log.warn("unable to reach the score poll lease", e);
+			return false;
+		}
+	}
+}
@@ -0,0 +1,306 @@
+package com.makeurpicks.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import com.makeurpicks.domain.Game;
+import com.makeurpicks.domain.NFLGame;
+import com.makeurpicks.domain.NFLWeek;
+import com.makeurpicks.repository.GameRepository;
+
+/**
+ * Polls the NFL feed for scores, but only while games can be on.  Every game
+ * opens a window from a little before its kickoff until it must be over, and
+ * overlapping windows merge, so a Sunday is one window and a Tuesday is none.
+ * Outside a window nothing is polled and the next poll is the next window.
+ *
+ * Inside a window it polls every live-seconds while the feed shows a game in
+ * progress or a score moved, and doubles the wait up to max-seconds while the
+ * feed is unchanged, pregame or final.  Reads are conditional, an unchanged
+ * feed is a 304 and touches neither the feed body nor the database.
+ *
+ * Polling is off unless game.nfl.poll.enabled is set and game.nfl.feed-url
+ * names a feed.  Every instance runs the schedule but only the holder of the
+ * {@link ScorePollLease} reads the feed, so the feed is read once however many
+ * instances there are.
+ */
+@Component
+public class ScorePoller implements SchedulingConfigurer {
+
+	private Log log = LogFactory.getLog(ScorePoller.class);
+
+	//how far ahead games are looked for, a week of games plus a margin
+	private static final Duration LOOKAHEAD = Duration.ofDays(8);
+
+	@Autowired
+	private GameRepository gameRepository;
+
+	@Autowired
+	private GameService gameService;
+
+	@Autowired
+	private NFLFeedClient nflFeedClient;
+
+	@Autowired
+	private ScorePollLease scorePollLease;
+
+	@Value("${game.nfl.poll.enabled:false}")
+	private boolean enabled;
+
+	@Value("${game.nfl.poll.live-seconds:30}")
+	private long liveSeconds = 30;
+
+	@Value("${game.nfl.poll.max-seconds:300}")
+	private long maxSeconds = 300;
+
+	@Value("${game.nfl.poll.lead-minutes:10}")
+	private long leadMinutes = 10;
+
+	@Value("${game.nfl.poll.game-hours:4}")
+	private long gameHours = 4;
+
+	@Value("${game.nfl.poll.refresh-minutes:60}")
+	private long refreshMinutes = 60;
+
+	private final Clock clock;
+
+	private volatile List<Window> windows = Collections.emptyList();
+	private volatile Instant windowsLoadedAt;
+	private boolean kickoffsFilled;
+
+	private Window currentWindow;
+	private Duration delay;
+	private boolean live;
+
+	public ScorePoller()
+	{
+		this(Clock.systemUTC());
+	}
+
+	ScorePoller(Clock clock)
+	{
+		this.clock = clock;
+	}
+
+	@Override
+	public void configureTasks(ScheduledTaskRegistrar taskRegistrar)
+	{
+		if (!enabled)
+		{
+			log.info("score polling is disabled");
+			return;
+		}
+		if (!nflFeedClient.isConfigured())
+		{
+			log.warn("score polling is enabled but game.nfl.feed-url is not set, not polling");
+			return;
+		}
+		taskRegistrar.addTriggerTask(this::poll, context -> Date.from(nextPoll()));
+	}
+
+	/**
+	 * Reads the feed if a window is open and this instance holds the lease, and
+	 * applies it to every week with a game in the window.
+	 */
+	public synchronized void poll()
+	{
+		Window window = windowAt(clock.instant());
+		if (window == null)
+			return;
+
+		//the lease has to outlast the longest wait between the holder's polls
+		if (!scorePollLease.acquire(Duration.ofSeconds(maxSeconds * 2)))
+			return;
+
+		NFLWeek nflWeek;
+		try {
+			nflWeek = nflFeedClient.getWeekIfChanged();
+		} catch (RuntimeException e) {
+			log.warn("unable to read the score feed", e);
+			backOff();
+			return;
+		}
+
+		if (nflWeek == null)
+		{
+			//a 304 is cheap, keep the pace while games are on
+			if (!live)
+				backOff();
+			return;
+		}
+
+		int changed = 0;
+		for (String weekId : window.weekIds)
+		{
+			try {
+				changed += gameService.updateScores(weekId, nflWeek).size();
+			} catch (RuntimeException e) {
+				log.warn("unable to update the scores of week "+weekId, e);
+			}
+		}
+
+		live = isLive(nflWeek);
+		if (live || changed > 0)
+			delay = Duration.ofSeconds(liveSeconds);
+		else
+			backOff();
+	}
+
+	/**
+	 * @return when to poll next, a delay away inside a window or else the start
+	 * of the next window, but no later than the next reload of the games
+	 */
+	synchronized Instant nextPoll()
+	{
+		Instant now = clock.instant();
+		Window window = windowAt(now);
+		if (window != null)
+		{
+			//the windows are rebuilt on every reload, the same start is the same window
+			if (currentWindow == null || !window.start.equals(currentWindow.start))
+			{
+				currentWindow = window;
+				delay = Duration.ofSeconds(liveSeconds);
+				live = false;
+			}
+			return now.plus(delay);
+		}
+
+		currentWindow = null;
+		Instant refresh = windowsLoadedAt.plus(Duration.ofMinutes(refreshMinutes));
+		for (Window next : windows)
+		{
+			if (next.start.isAfter(now))
+				return next.start.isBefore(refresh) ? next.start : refresh;
+		}
+		return refresh;
+	}
+
+	private void backOff()
+	{
+		Duration max = Duration.ofSeconds(maxSeconds);
+		Duration doubled = delay == null ? Duration.ofSeconds(liveSeconds) : delay.multipliedBy(2);
+		delay = doubled.compareTo(max) > 0 ? max : doubled;
+	}
+
+	/**
+	 * A game is on from the end of pregame until it is final.
+	 */
+	private static boolean isLive(NFLWeek nflWeek)
+	{
+		if (nflWeek.getGms() == null)
+			return false;
+		for (NFLGame nflGame : nflWeek.getGms())
+		{
+			String quarter = nflGame.getQ();
+			if (quarter != null && !"P".equals(quarter) && !quarter.startsWith("F"))
+				return true;
+		}
+		return false;
+	}
+
+	private Window windowAt(Instant now)
+	{
+		if (windowsLoadedAt == null || !now.isBefore(windowsLoadedAt.plus(Duration.ofMinutes(refreshMinutes))))
+			loadWindows(now);
+		for (Window window : windows)
+		{
+			if (!now.isBefore(window.start) && now.isBefore(window.end))
+				return window;
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the games kicking off from a game length ago until a week ahead,
+	 * once every refresh-minutes.  If the read fails the windows already known
+	 * are kept until the next refresh.
+	 */
+	private void loadWindows(Instant now)
+	{
+		windowsLoadedAt = now;
+		Duration lead = Duration.ofMinutes(leadMinutes);
+		Duration length = Duration.ofHours(gameHours);
+
+		List<Window> gameWindows = new ArrayList<>();
+		try {
+			if (!kickoffsFilled)
+			{
+				int filled = gameService.fillKickoffs();
+				if (filled > 0)
+					log.info("filled in the kickoff of "+filled+" games");
+				kickoffsFilled = true;
+			}
+
+			for (Game game : gameRepository.findByKickoffBetween(Date.from(now.minus(length)), Date.from(now.plus(LOOKAHEAD))))
+			{
+				if (game.getGameStart() == null || game.getWeekId() == null)
+					continue;
+				Instant kickoff = game.getGameStart().toInstant();
+				gameWindows.add(new Window(kickoff.minus(lead), kickoff.plus(length), game.getWeekId()));
+			}
+		} catch (RuntimeException e) {
+			log.warn("unable to load the games to poll scores for", e);
+			return;
+		}
+
+		gameWindows.sort((w1, w2) -> w1.start.compareTo(w2.start));
+		List<Window> merged = new ArrayList<>();
+		for (Window window : gameWindows)
+		{
+			Window last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+			if (last != null && !window.start.isAfter(last.end))
+				merged.set(merged.size() - 1, last.merge(window));
+			else
+				merged.add(window);
+		}
+		windows = merged;
+		log.debug("score poll windows "+merged);
+	}
+
+	private static class Window {
+
+		private final Instant start;
+		private final Instant end;
+		private final Set<String> weekIds;
+
+		Window(Instant start, Instant end, String weekId)
+		{
+			this(start, end, Collections.singleton(weekId));
+		}
+
+		Window(Instant start, Instant end, Set<String> weekIds)
+		{
+			this.start = start;
+			this.end = end;
+			this.weekIds = weekIds;
+		}
+
+		Window merge(Window other)
+		{
+			Set<String> merged = new LinkedHashSet<>(weekIds);
+			merged.addAll(other.weekIds);
+			return new Window(start, end.isAfter(other.end) ? end : other.end, merged);
+		}
+
+		@Override
+		public String toString() {
+			return "[" + start + " - " + end + " " + weekIds + "]";
+		}
+	}
+}
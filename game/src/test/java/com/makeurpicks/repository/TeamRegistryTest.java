@@ -0,0 +1,93 @@
+package com.makeurpicks.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.makeurpicks.domain.Team;
+
+public class TeamRegistryTest {
+
+	private TeamRegistry registry;
+
+	@Before
+	public void setup() throws Exception
+	{
+		try (InputStream in = new ClassPathResource("teams.json").getInputStream()) {
+			registry = TeamRegistry.load(in);
+		}
+	}
+
+	@Test
+	public void load_bundledFile_everyTeamWithDenseIndex() {
+		assertEquals(32, registry.size());
+		assertEquals(32, registry.getTeams().size());
+		assertEquals(32, registry.getTeamMap().size());
+		for (int i = 0; i < registry.size(); i++)
+		{
+			Team team = registry.get(i);
+			assertEquals(i, team.getIndex());
+			assertEquals(team.getShortName().toLowerCase(), team.getId());
+			assertEquals(i, registry.indexOf(team.getId()));
+			assertEquals(team, registry.findOne(team.getId()));
+		}
+	}
+
+	@Test
+	public void findOne_unknownTeam_notFound() {
+		assertNull(registry.findOne("xyz"));
+		assertNull(registry.findOne(null));
+		assertEquals(-1, registry.indexOf("xyz"));
+		assertEquals(-1, registry.indexOf("NYG"));
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void getTeamMap_cannotBeModified() {
+		registry.getTeamMap().put("xyz", new Team());
+	}
+
+	@Test
+	public void findOne_returnedTeamChanged_registryUnchanged() {
+		Team team = registry.findOne("nyg");
+		String city = team.getCity();
+		team.setCity("Hartford");
+		team.setIndex(99);
+		registry.get(registry.indexOf("nyg")).setTeamName("Whalers");
+		registry.getTeams().get(registry.indexOf("nyg")).setShortName("HFD");
+		registry.getTeamMap().get("nyg").setId("hfd");
+
+		Team again = registry.findOne("nyg");
+		assertNotSame(team, again);
+		assertEquals(city, again.getCity());
+		assertEquals(registry.indexOf("nyg"), again.getIndex());
+		assertEquals("nyg", again.getId());
+		assertEquals("NYG", again.getShortName());
+		assertEquals("Giants", again.getTeamName());
+	}
+
+	@Test
+	public void load_teamChangedAfterward_registryUnchanged() {
+		Team team = new Team();
+		team.setShortName("NYG");
+		TeamRegistry fromList = new TeamRegistry(Collections.singletonList(team));
+
+		team.setShortName("HFD");
+
+		assertEquals("NYG", fromList.get(0).getShortName());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void load_duplicateTeam_rejected() throws Exception {
+		String json = "[{\"shortName\": \"NYG\"}, {\"shortName\": \"nyg\"}]";
+		TeamRegistry.load(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,151 @@
+package com.makeurpicks.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.makeurpicks.domain.Game;
+import com.makeurpicks.domain.GameBuilder;
+import com.makeurpicks.domain.GameScoreChangedEvent;
+import com.makeurpicks.domain.NFLGame;
+import com.makeurpicks.domain.NFLWeek;
+import com.makeurpicks.domain.Team;
+import com.makeurpicks.domain.TeamBuilder;
+import com.makeurpicks.repository.GameRepository;
+import com.makeurpicks.repository.GameScoreRepository;
+import com.makeurpicks.repository.WeekGamesCache;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GameScoreUpdateTest {
+
+	@InjectMocks
+	private GameService gameService;
+
+	@Mock
+	private GameRepository gameRepository;
+
+	@Mock
+	private GameScoreRepository gameScoreRepository;
+
+	@Mock
+	private WeekGamesCache weekGamesCache;
+	
+	@Mock
+	private TeamService teamService;
+	
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
+	private Game game(String favId, String dogId, int favScore, int dogScore)
+	{
+		Game game = new GameBuilder().withWeekId("w1").withFavId(favId).withDogId(dogId).build();
+		game.generateId();
+		game.setFavScore(favScore);
+		game.setDogScore(dogScore);
+		return game;
+	}
+
+	private NFLGame nflGame(String home, int homeScore, String away, int awayScore)
+	{
+		NFLGame nflGame = new NFLGame();
+		nflGame.setH(home);
+		nflGame.setHs(homeScore);
+		nflGame.setV(away);
+		nflGame.setVs(awayScore);
+		return nflGame;
+	}
+
+	private Map<String, Team> teams(String... shortNames)
+	{
+		Map<String, Team> teams = new HashMap<>();
+		for (String shortName : shortNames)
+		{
+			Team team = new TeamBuilder().withShortName(shortName).build();
+			team.setId(shortName.toLowerCase());
+			teams.put(team.getId(), team);
+		}
+		return teams;
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void updateScores_onlyChangedGamesWrittenInOneBatch() {
+		Game unchanged = game("nyg", "dal", 7, 3);
+		Game homeFav = game("phi", "was", 0, 0);
+		Game awayFav = game("ne", "nyj", 10, 0);
+		when(gameRepository.findByWeekId("w1")).thenReturn(Arrays.asList(unchanged, homeFav, awayFav));
+		when(teamService.getTeamMap()).thenReturn(teams("NYG", "DAL", "PHI", "WAS", "NE", "NYJ", "GB", "CHI"));
+		NFLWeek nflWeek = new NFLWeek();
+		nflWeek.setGms(Arrays.asList(
+				nflGame("NYG", 7, "DAL", 3),
+				nflGame("PHI", 14, "WAS", 10),
+				nflGame("NYJ", 3, "NE", 17),
+				nflGame("GB", 21, "CHI", 0)));
+
+		List<Game> changed = gameService.updateScores("w1", nflWeek);
+
+		assertEquals(Arrays.asList(homeFav, awayFav), changed);
+		ArgumentCaptor<List> written = ArgumentCaptor.forClass(List.class);
+		verify(gameScoreRepository).updateScores(written.capture());
+		assertEquals(Arrays.asList(homeFav, awayFav), written.getValue());
+		assertEquals(14, homeFav.getFavScore());
+		assertEquals(10, homeFav.getDogScore());
+		assertEquals(17, awayFav.getFavScore());
+		assertEquals(3, awayFav.getDogScore());
+		verify(gameRepository, times(1)).findByWeekId("w1");
+		verify(gameRepository, never()).findByWeekIdAndFavIdAndDogId(anyString(), anyString(), anyString());
+		verify(teamService, never()).getTeam(anyString());
+		verify(weekGamesCache).evict("w1");
+	}
+
+	@Test
+	public void updateScores_eventPublishedPerChangedGame() {
+		Game unchanged = game("nyg", "dal", 7, 3);
+		Game changedGame = game("phi", "was", 0, 0);
+		when(gameRepository.findByWeekId("w1")).thenReturn(Arrays.asList(unchanged, changedGame));
+		when(teamService.getTeamMap()).thenReturn(teams("NYG", "DAL", "PHI", "WAS"));
+		NFLWeek nflWeek = new NFLWeek();
+		nflWeek.setGms(Arrays.asList(nflGame("NYG", 7, "DAL", 3), nflGame("PHI", 14, "WAS", 10)));
+
+		gameService.updateScores("w1", nflWeek);
+
+		ArgumentCaptor<ApplicationEvent> event = ArgumentCaptor.forClass(ApplicationEvent.class);
+		verify(eventPublisher, times(1)).publishEvent(event.capture());
+		GameScoreChangedEvent scoreChanged = (GameScoreChangedEvent) event.getValue();
+		assertEquals(changedGame.getId(), scoreChanged.getGameId());
+		assertEquals("w1", scoreChanged.getWeekId());
+		assertEquals(14, scoreChanged.getFavScore());
+		assertEquals(10, scoreChanged.getDogScore());
+	}
+
+	@Test
+	public void updateScores_nothingChanged_noEvents() {
+		Game unchanged = game("nyg", "dal", 7, 3);
+		when(gameRepository.findByWeekId("w1")).thenReturn(Arrays.asList(unchanged));
+		when(teamService.getTeamMap()).thenReturn(teams("NYG", "DAL"));
+		NFLWeek nflWeek = new NFLWeek();
+		nflWeek.setGms(Arrays.asList(nflGame("NYG", 7, "DAL", 3)));
+
+		assertEquals(0, gameService.updateScores("w1", nflWeek).size());
+		verify(eventPublisher, never()).publishEvent(any(ApplicationEvent.class));
+		verify(weekGamesCache, never()).evict(anyString());
+	}
+}
@@ -0,0 +1,76 @@
+package com.makeurpicks.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.makeurpicks.domain.Game;
+import com.makeurpicks.domain.GameBuilder;
+import com.makeurpicks.exception.GameValidationException;
+import com.makeurpicks.repository.GameRepository;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GamesByIdsTest {
+
+	@InjectMocks
+	private GameService gameService;
+
+	@Mock
+	private GameRepository gameRepository;
+
+	private Game game(String favId, String dogId)
+	{
+		Game game = new GameBuilder().withWeekId("w1").withFavId(favId).withDogId(dogId).build();
+		game.generateId();
+		return game;
+	}
+
+	@Test
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public void getGamesByIds_oneQueryInRequestOrder() {
+		Game game1 = game("nyg", "dal");
+		Game game2 = game("phi", "was");
+		when(gameRepository.findAll(any(Iterable.class))).thenReturn(Arrays.asList(game2, game1));
+
+		Map<String, Game> games = gameService.getGamesByIds(Arrays.asList(game1.getId(), "missing", game2.getId(), game1.getId()));
+
+		assertEquals(Arrays.asList(game1.getId(), game2.getId()), new ArrayList<>(games.keySet()));
+		ArgumentCaptor<Iterable> ids = ArgumentCaptor.forClass(Iterable.class);
+		verify(gameRepository).findAll(ids.capture());
+		List<Object> asked = new ArrayList<>();
+		for (Object id : ids.getValue())
+			asked.add(id);
+		assertEquals(Arrays.asList(game1.getId(), "missing", game2.getId()), asked);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void getGamesByIds_noIds_noQuery() {
+		assertTrue(gameService.getGamesByIds(Collections.<String>emptyList()).isEmpty());
+		verify(gameRepository, never()).findAll(any(Iterable.class));
+	}
+
+	@Test(expected=GameValidationException.class)
+	public void getGamesByIds_tooMany_rejected() {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i <= 500; i++)
+			ids.add("game"+i);
+		gameService.getGamesByIds(ids);
+	}
+}
@@ -0,0 +1,161 @@
+package com.makeurpicks.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.makeurpicks.domain.Game;
+import com.makeurpicks.domain.GameBuilder;
+import com.makeurpicks.exception.GameValidationException;
+import com.makeurpicks.repository.GameRepository;
+import com.makeurpicks.repository.WeekGamesCache;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GamesByWeekCacheTest {
+
+	@InjectMocks
+	private GameService gameService;
+
+	@Mock
+	private GameRepository gameRepository;
+
+	@Mock
+	private WeekGamesCache weekGamesCache;
+
+	@Spy
+	private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+	private Game game(String favId, String dogId, ZonedDateTime gameStart)
+	{
+		Game game = new GameBuilder().withWeekId("w1").withFavId(favId).withDogId(dogId).withGameStartTime(gameStart).build();
+		game.generateId();
+		return game;
+	}
+
+	@Test
+	public void getGamesByWeekJson_hit_skipsDatabase() {
+		byte[] cached = "[]".getBytes(StandardCharsets.UTF_8);
+		when(weekGamesCache.get("w1")).thenReturn(cached);
+
+		assertArrayEquals(cached, gameService.getGamesByWeekJson("w1"));
+		verify(gameRepository, never()).findByWeekId(anyString());
+	}
+
+	@Test
+	public void getGamesByWeekJson_miss_cachesSortedGames() throws Exception {
+		ZonedDateTime kickoff = ZonedDateTime.now();
+		Game late = game("nyg", "dal", kickoff.plusHours(3));
+		Game early = game("phi", "was", kickoff);
+		when(gameRepository.findByWeekId("w1")).thenReturn(new ArrayList<>(Arrays.asList(late, early)));
+		when(weekGamesCache.generation("w1")).thenReturn(3L);
+
+		byte[] json = gameService.getGamesByWeekJson("w1");
+
+		ArgumentCaptor<byte[]> cached = ArgumentCaptor.forClass(byte[].class);
+		verify(weekGamesCache).put(eq("w1"), eq(3L), cached.capture());
+		assertArrayEquals(json, cached.getValue());
+		JsonNode games = objectMapper.readTree(json);
+		assertEquals(2, games.size());
+		assertEquals(early.getId(), games.get(0).get("id").asText());
+		assertEquals(late.getId(), games.get(1).get("id").asText());
+	}
+
+	@Test
+	public void getGamesByWeekJson_generationUnknown_notCached() {
+		when(gameRepository.findByWeekId("w1")).thenReturn(new ArrayList<>(Arrays.asList(game("nyg", "dal", ZonedDateTime.now()))));
+		when(weekGamesCache.generation("w1")).thenReturn(null);
+
+		gameService.getGamesByWeekJson("w1");
+
+		verify(weekGamesCache, never()).put(anyString(), anyLong(), any(byte[].class));
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void getGamesByWeek_listCannotBeModified() {
+		when(gameRepository.findByWeekId("w1")).thenReturn(new ArrayList<>(Arrays.asList(game("nyg", "dal", ZonedDateTime.now()))));
+
+		List<Game> games = gameService.getGamesByWeek("w1");
+		games.clear();
+	}
+
+	@Test
+	public void updateGameScore_evictsWeek() {
+		Game game = game("nyg", "dal", ZonedDateTime.now());
+		when(gameRepository.findOne(game.getId())).thenReturn(game);
+		when(gameRepository.save(game)).thenReturn(game);
+
+		gameService.updateGameScore(game);
+
+		verify(weekGamesCache).evict("w1");
+	}
+
+	@Test
+	public void updateGame_movedToAnotherWeek_evictsBothWeeks() {
+		Game stored = game("nyg", "dal", ZonedDateTime.now());
+		Game moved = game("nyg", "dal", ZonedDateTime.now().plusDays(7));
+		moved.setId(stored.getId());
+		moved.setWeekId("w2");
+		when(gameRepository.findOne(stored.getId())).thenReturn(stored);
+		when(gameRepository.save(stored)).thenReturn(stored);
+
+		gameService.updateGame(moved);
+
+		assertEquals("w2", stored.getWeekId());
+		verify(weekGamesCache).evict("w2");
+		verify(weekGamesCache).evict("w1");
+	}
+
+	@Test
+	public void updateGame_noWeek_staysInItsWeek() {
+		Game stored = game("nyg", "dal", ZonedDateTime.now());
+		Game update = game("nyg", "dal", ZonedDateTime.now().plusHours(1));
+		update.setId(stored.getId());
+		update.setWeekId(null);
+		when(gameRepository.findOne(stored.getId())).thenReturn(stored);
+		when(gameRepository.save(stored)).thenReturn(stored);
+
+		gameService.updateGame(update);
+
+		assertEquals("w1", stored.getWeekId());
+		verify(weekGamesCache).evict("w1");
+		verify(weekGamesCache, never()).evict(null);
+	}
+
+	@Test
+	public void updateGame_emptyWeek_rejected() {
+		Game update = game("nyg", "dal", ZonedDateTime.now());
+		update.setWeekId("");
+
+		try {
+			gameService.updateGame(update);
+			fail("an empty week is not a week");
+		} catch (GameValidationException e) {
+		}
+		verify(gameRepository, never()).save(any(Game.class));
+		verify(weekGamesCache, never()).evict(anyString());
+	}
+}
@@ -0,0 +1,122 @@
+package com.makeurpicks.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClientException;
+
+import com.makeurpicks.domain.NFLWeek;
+
+public class NFLFeedClientTest {
+
+	private static final String FEED_URL = "http://localhost/nfl_week13.json";
+
+	private NFLFeedClient client;
+	private MockRestServiceServer server;
+	private ClassPathResource week13 = new ClassPathResource("nfl_week13.json");
+
+	@Before
+	public void setup()
+	{
+		client = new NFLFeedClient();
+		ReflectionTestUtils.setField(client, "feedUrl", FEED_URL);
+		server = MockRestServiceServer.createServer(client.getRestTemplate());
+	}
+
+	private HttpHeaders etag(String etag)
+	{
+		HttpHeaders headers = new HttpHeaders();
+		headers.setETag(etag);
+		return headers;
+	}
+
+	@Test
+	public void getWeekIfChanged_notModified_returnsNull() {
+		server.expect(requestTo(FEED_URL))
+			.andRespond(withSuccess(week13, MediaType.APPLICATION_JSON).headers(etag("\"w13\"")));
+		server.expect(requestTo(FEED_URL))
+			.andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"w13\""))
+			.andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+		NFLWeek week = client.getWeekIfChanged();
+		assertNotNull(week);
+		assertEquals(13, week.getW());
+		assertEquals(16, week.getGms().size());
+
+		assertNull(client.getWeekIfChanged());
+		server.verify();
+	}
+
+	@Test
+	public void getWeekIfChanged_sameBodyWithoutValidators_returnsNull() {
+		server.expect(requestTo(FEED_URL)).andRespond(withSuccess(week13, MediaType.APPLICATION_JSON));
+		server.expect(requestTo(FEED_URL)).andRespond(withSuccess(week13, MediaType.APPLICATION_JSON));
+
+		assertNotNull(client.getWeekIfChanged());
+		assertNull(client.getWeekIfChanged());
+		server.verify();
+	}
+
+	@Test
+	public void getWeek_alwaysReturnsTheFeed() {
+		server.expect(requestTo(FEED_URL)).andRespond(withSuccess(week13, MediaType.APPLICATION_JSON));
+		server.expect(requestTo(FEED_URL)).andRespond(withSuccess(week13, MediaType.APPLICATION_JSON));
+
+		assertNotNull(client.getWeek());
+		assertNotNull(client.getWeek());
+		server.verify();
+	}
+
+	@Test
+	public void getWeekIfChanged_unreadableBody_validatorsNotSent() {
+		server.expect(requestTo(FEED_URL))
+			.andRespond(withSuccess("<html>maintenance</html>", MediaType.TEXT_HTML).headers(etag("\"down\"")));
+		server.expect(requestTo(FEED_URL))
+			.andExpect(request -> assertNull(request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH)))
+			.andRespond(withSuccess(week13, MediaType.APPLICATION_JSON).headers(etag("\"w13\"")));
+		server.expect(requestTo(FEED_URL))
+			.andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"w13\""))
+			.andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+		try {
+			client.getWeekIfChanged();
+			fail("an unreadable feed is an error");
+		} catch (RestClientException e) {
+		}
+		assertNotNull(client.getWeekIfChanged());
+		assertNull(client.getWeekIfChanged());
+		server.verify();
+	}
+
+	@Test
+	public void getWeekIfChanged_emptyBodyTwice_bothAreErrors() {
+		server.expect(requestTo(FEED_URL)).andRespond(withSuccess("", MediaType.APPLICATION_JSON).headers(etag("\"empty\"")));
+		server.expect(requestTo(FEED_URL))
+			.andExpect(request -> assertNull(request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH)))
+			.andRespond(withSuccess("", MediaType.APPLICATION_JSON).headers(etag("\"empty\"")));
+
+		for (int i=0; i<2; i++)
+		{
+			try {
+				client.getWeekIfChanged();
+				fail("an empty feed is an error");
+			} catch (RestClientException e) {
+			}
+		}
+		server.verify();
+	}
+}
@@ -0,0 +1,222 @@
+package com.makeurpicks.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.makeurpicks.domain.Game;
+import com.makeurpicks.domain.GameBuilder;
+import com.makeurpicks.domain.NFLGame;
+import com.makeurpicks.domain.NFLWeek;
+import com.makeurpicks.repository.GameRepository;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ScorePollerTest {
+
+	private static final Instant KICKOFF = Instant.parse("2016-12-04T18:00:00Z");
+
+	private MovableClock clock = new MovableClock(KICKOFF.minus(Duration.ofDays(1)));
+
+	@InjectMocks
+	private ScorePoller poller = new ScorePoller(clock);
+
+	@Mock
+	private GameRepository gameRepository;
+
+	@Mock
+	private GameService gameService;
+
+	@Mock
+	private NFLFeedClient nflFeedClient;
+
+	@Mock
+	private ScorePollLease scorePollLease;
+
+	@Before
+	public void holdLease()
+	{
+		when(scorePollLease.acquire(any(Duration.class))).thenReturn(true);
+	}
+
+	private Game game(String weekId, Instant kickoff)
+	{
+		Game game = new GameBuilder().withWeekId(weekId).withFavId("nyg").withDogId("dal")
+				.withGameStartTime(ZonedDateTime.ofInstant(kickoff, ZoneOffset.UTC)).build();
+		game.generateId();
+		return game;
+	}
+
+	private NFLWeek week(String quarter)
+	{
+		NFLGame nflGame = new NFLGame();
+		nflGame.setH("NYG");
+		nflGame.setV("DAL");
+		nflGame.setQ(quarter);
+		NFLWeek nflWeek = new NFLWeek();
+		nflWeek.setW(13);
+		nflWeek.setGms(Arrays.asList(nflGame));
+		return nflWeek;
+	}
+
+	@Test
+	public void nextPoll_outsideWindow_waitsForWindowOrRefresh() {
+		when(gameRepository.findByKickoffBetween(any(Date.class), any(Date.class))).thenReturn(Arrays.asList(game("w13", KICKOFF)));
+
+		//a day out the games are reloaded before the window opens
+		assertEquals(clock.instant().plus(Duration.ofMinutes(60)), poller.nextPoll());
+
+		clock.set(KICKOFF.minus(Duration.ofMinutes(30)));
+		assertEquals(KICKOFF.minus(Duration.ofMinutes(10)), poller.nextPoll());
+
+		poller.poll();
+		verify(nflFeedClient, never()).getWeekIfChanged();
+	}
+
+	@Test
+	public void poll_liveGames_keepsLivePace() {
+		when(gameRepository.findByKickoffBetween(any(Date.class), any(Date.class))).thenReturn(Arrays.asList(game("w13", KICKOFF)));
+		clock.set(KICKOFF.plus(Duration.ofMinutes(5)));
+		NFLWeek live = week("1");
+		when(nflFeedClient.getWeekIfChanged()).thenReturn(live, (NFLWeek) null);
+		when(gameService.updateScores("w13", live)).thenReturn(Collections.emptyList());
+
+		assertEquals(clock.instant().plusSeconds(30), poller.nextPoll());
+		poller.poll();
+		assertEquals(clock.instant().plusSeconds(30), poller.nextPoll());
+
+		//unchanged while a game is on is still the live pace
+		poller.poll();
+		assertEquals(clock.instant().plusSeconds(30), poller.nextPoll());
+		verify(gameService, times(1)).updateScores("w13", live);
+	}
+
+	@Test
+	public void poll_unchangedFeed_backsOffToMax() {
+		when(gameRepository.findByKickoffBetween(any(Date.class), any(Date.class))).thenReturn(Arrays.asList(game("w13", KICKOFF)));
+		clock.set(KICKOFF.minus(Duration.ofMinutes(5)));
+		when(nflFeedClient.getWeekIfChanged()).thenReturn(null);
+
+		assertEquals(clock.instant().plusSeconds(30), poller.nextPoll());
+		long[] expected = {60, 120, 240, 300, 300};
+		for (long seconds : expected)
+		{
+			poller.poll();
+			assertEquals(clock.instant().plusSeconds(seconds), poller.nextPoll());
+		}
+		verify(gameService, never()).updateScores(anyString(), any(NFLWeek.class));
+	}
+
+	@Test
+	public void poll_scoreChanged_resetsToLivePace() {
+		Game game = game("w13", KICKOFF);
+		when(gameRepository.findByKickoffBetween(any(Date.class), any(Date.class))).thenReturn(Arrays.asList(game));
+		clock.set(KICKOFF.plus(Duration.ofHours(3)));
+		NFLWeek pregame = week("P");
+		NFLWeek fin = week("F");
+		when(nflFeedClient.getWeekIfChanged()).thenReturn(pregame, fin);
+		when(gameService.updateScores(anyString(), any(NFLWeek.class))).thenReturn(Collections.<Game>emptyList()).thenReturn(Arrays.asList(game));
+
+		poller.nextPoll();
+		poller.poll();
+		assertEquals(clock.instant().plusSeconds(60), poller.nextPoll());
+		poller.poll();
+		assertEquals(clock.instant().plusSeconds(30), poller.nextPoll());
+	}
+
+	@Test
+	public void poll_overlappingGames_oneWindowForEveryWeek() {
+		when(gameRepository.findByKickoffBetween(any(Date.class), any(Date.class))).thenReturn(Arrays.asList(
+				game("w13", KICKOFF),
+				game("w13", KICKOFF.plus(Duration.ofHours(3))),
+				game("w14", KICKOFF.plus(Duration.ofHours(6)))));
+		NFLWeek live = week("2");
+		when(nflFeedClient.getWeekIfChanged()).thenReturn(live);
+		when(gameService.updateScores(anyString(), any(NFLWeek.class))).thenReturn(Collections.emptyList());
+
+		clock.set(KICKOFF.plus(Duration.ofHours(5)));
+		poller.poll();
+		verify(gameService).updateScores("w13", live);
+		verify(gameService).updateScores("w14", live);
+
+		//the last game's window runs to four hours after its kickoff
+		clock.set(KICKOFF.plus(Duration.ofHours(10)).plusSeconds(1));
+		poller.poll();
+		verify(nflFeedClient, times(1)).getWeekIfChanged();
+	}
+
+	@Test
+	public void poll_leaseHeldElsewhere_feedNotRead() {
+		when(gameRepository.findByKickoffBetween(any(Date.class), any(Date.class))).thenReturn(Arrays.asList(game("w13", KICKOFF)));
+		when(scorePollLease.acquire(any(Duration.class))).thenReturn(false);
+		clock.set(KICKOFF.plus(Duration.ofMinutes(5)));
+
+		poller.poll();
+
+		verify(scorePollLease).acquire(Duration.ofSeconds(600));
+		verify(nflFeedClient, never()).getWeekIfChanged();
+	}
+
+	@Test
+	public void poll_firstLoad_fillsKickoffsOnceAndQueriesTheRange() {
+		clock.set(KICKOFF);
+
+		poller.poll();
+		clock.set(KICKOFF.plus(Duration.ofHours(2)));
+		poller.poll();
+
+		verify(gameService, times(1)).fillKickoffs();
+		verify(gameRepository).findByKickoffBetween(Date.from(KICKOFF.minus(Duration.ofHours(4))), Date.from(KICKOFF.plus(Duration.ofDays(8))));
+		verify(gameRepository, times(2)).findByKickoffBetween(any(Date.class), any(Date.class));
+	}
+
+	private static class MovableClock extends Clock {
+
+		private Instant now;
+
+		MovableClock(Instant now)
+		{
+			this.now = now;
+		}
+
+		void set(Instant now)
+		{
+			this.now = now;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
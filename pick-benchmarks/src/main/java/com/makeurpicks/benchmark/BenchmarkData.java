@@ -0,0 +1,147 @@
+package com.makeurpicks.benchmark;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import com.makeurpicks.domain.DoublePick;
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+import com.makeurpicks.game.GameResponse;
+
+/**
+ * Synthetic league seasons for the benchmarks.  Ids come from a seeded random
+ * so every run, and every fork, works on the same data.
+ */
+public class BenchmarkData {
+
+	private static final String[] TEAMS = {"ari", "atl", "bal", "buf", "car", "chi", "cin", "cle",
+			"dal", "den", "det", "gb", "hou", "ind", "jax", "kc",
+			"la", "mia", "min", "ne", "no", "nyg", "nyj", "oak",
+			"phi", "pit", "sd", "sea", "sf", "tb", "ten", "was"};
+
+	private final Random random;
+
+	private final String leagueId;
+	private final List<String> playerIds;
+	private final List<String> weekIds;
+	private final List<List<GameResponse>> games;
+	private final List<List<Pick>> picks;
+	private final List<List<DoublePick>> doublePicks;
+
+	/**
+	 * @param players players in the league
+	 * @param weeks weeks played
+	 * @param gamesPerWeek games on the board each week, at most 16
+	 */
+	public BenchmarkData(int players, int weeks, int gamesPerWeek)
+	{
+		this(players, weeks, gamesPerWeek, 42L);
+	}
+
+	public BenchmarkData(int players, int weeks, int gamesPerWeek, long seed)
+	{
+		if (gamesPerWeek > TEAMS.length / 2)
+			throw new IllegalArgumentException("at most "+(TEAMS.length / 2)+" games a week");
+
+		this.random = new Random(seed);
+		this.leagueId = id();
+		this.playerIds = ids(players);
+		this.weekIds = ids(weeks);
+		this.games = new ArrayList<>(weeks);
+		this.picks = new ArrayList<>(weeks);
+		this.doublePicks = new ArrayList<>(weeks);
+
+		//kickoffs far enough out that nothing locks while a benchmark runs
+		ZonedDateTime kickoff = ZonedDateTime.now().plusYears(1);
+		for (String weekId : weekIds)
+		{
+			List<String> teams = new ArrayList<>(TEAMS.length);
+			Collections.addAll(teams, TEAMS);
+			Collections.shuffle(teams, random);
+
+			List<GameResponse> week = new ArrayList<>(gamesPerWeek);
+			for (int g=0; g<gamesPerWeek; g++)
+				week.add(new GameResponse(id(), kickoff.plusHours(g), teams.get(g * 2), teams.get(g * 2 + 1), weekId));
+			games.add(week);
+
+			List<Pick> weekPicks = new ArrayList<>(players * gamesPerWeek);
+			List<DoublePick> weekDoubles = new ArrayList<>(players);
+			for (String playerId : playerIds)
+			{
+				for (GameResponse game : week)
+				{
+					String teamId = random.nextBoolean() ? game.getFavId() : game.getDogId();
+					weekPicks.add(new PickBuilder(id()).withLeagueId(leagueId).withWeekId(weekId).withPlayerId(playerId).withGameId(game.getId()).withTeamId(teamId).build());
+				}
+				Pick doubled = weekPicks.get(weekPicks.size() - 1 - random.nextInt(gamesPerWeek));
+				weekDoubles.add(new DoublePick(leagueId, weekId, playerId, doubled.getId(), doubled.getGameId(), false));
+			}
+			picks.add(weekPicks);
+			doublePicks.add(weekDoubles);
+		}
+	}
+
+	private String id()
+	{
+		return new UUID(random.nextLong(), random.nextLong()).toString();
+	}
+
+	private List<String> ids(int count)
+	{
+		List<String> ids = new ArrayList<>(count);
+		for (int i=0; i<count; i++)
+			ids.add(id());
+		return ids;
+	}
+
+	public String getLeagueId() {
+		return leagueId;
+	}
+
+	public List<String> getPlayerIds() {
+		return playerIds;
+	}
+
+	public List<String> getWeekIds() {
+		return weekIds;
+	}
+
+	public List<GameResponse> getGames(int week) {
+		return games.get(week);
+	}
+
+	public List<Pick> getPicks(int week) {
+		return picks.get(week);
+	}
+
+	public List<DoublePick> getDoublePicks(int week) {
+		return doublePicks.get(week);
+	}
+
+	/**
+	 * @return fresh copies of the picks one player makes in a week, the way they
+	 * come in from the controller
+	 */
+	public List<Pick> newPicksForPlayer(int week, String playerId)
+	{
+		List<Pick> fresh = new ArrayList<>();
+		for (Pick pick : picks.get(week))
+		{
+			if (pick.getPlayerId().equals(playerId))
+				fresh.add(new PickBuilder().withLeagueId(pick.getLeagueId()).withWeekId(pick.getWeekId()).withPlayerId(playerId).withGameId(pick.getGameId()).withTeamId(pick.getTeamId()).build());
+		}
+		return fresh;
+	}
+
+	public List<Pick> getAllPicks()
+	{
+		List<Pick> all = new ArrayList<>();
+		for (List<Pick> week : picks)
+			all.addAll(week);
+		return all;
+	}
+}
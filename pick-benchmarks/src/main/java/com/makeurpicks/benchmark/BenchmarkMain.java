@@ -0,0 +1,42 @@
+package com.makeurpicks.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of target/benchmarks.jar.  Takes the usual jmh options and
+ * writes the results as json unless told otherwise, so runs from different
+ * builds can be compared, e.g.
+ *
+ * java -jar target/benchmarks.jar PickHydration -p players=50 -rff hydration.json
+ */
+public class BenchmarkMain {
+
+	private static final String DEFAULT_RESULT = "target/jmh-result.json";
+
+	public static void main(String[] args) throws Exception
+	{
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		if (commandLine.shouldHelp())
+		{
+			commandLine.showHelp();
+			return;
+		}
+		if (commandLine.shouldList())
+		{
+			new Runner(commandLine).list();
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+		if (!commandLine.getResultFormat().hasValue())
+			options.resultFormat(ResultFormatType.JSON);
+		if (!commandLine.getResult().hasValue())
+			options.result(DEFAULT_RESULT);
+
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,107 @@
+package com.makeurpicks.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import com.makeurpicks.domain.DoublePick;
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.repository.redis.CompactDoublePickRedisSerializer;
+import com.makeurpicks.repository.redis.CompactPickRedisSerializer;
+import com.makeurpicks.repository.redis.DoublePickCodec;
+
+/**
+ * Round trips of single values through the serializers the templates use, no
+ * redis involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PickCodecBenchmark {
+
+	private final Jackson2JsonRedisSerializer<Pick> pickJson = new Jackson2JsonRedisSerializer<>(Pick.class);
+	private final CompactPickRedisSerializer pickCompact = new CompactPickRedisSerializer(pickJson, true);
+	private final CompactDoublePickRedisSerializer doublePickCompact = new CompactDoublePickRedisSerializer(true);
+
+	private Pick pick;
+	private byte[] pickJsonBytes;
+	private byte[] pickCompactBytes;
+
+	private DoublePick doublePick;
+	private String doublePickJson;
+	private byte[] doublePickCompactBytes;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkData data = new BenchmarkData(1, 1, 16);
+		pick = data.getPicks(0).get(0);
+		pickJsonBytes = pickJson.serialize(pick);
+		pickCompactBytes = pickCompact.serialize(pick);
+
+		doublePick = data.getDoublePicks(0).get(0);
+		doublePickJson = DoublePickCodec.encode(doublePick);
+		doublePickCompactBytes = doublePickCompact.serialize(doublePick);
+	}
+
+	@Benchmark
+	public byte[] pickJsonWrite()
+	{
+		return pickJson.serialize(pick);
+	}
+
+	@Benchmark
+	public Pick pickJsonRead()
+	{
+		return pickJson.deserialize(pickJsonBytes);
+	}
+
+	@Benchmark
+	public byte[] pickCompactWrite()
+	{
+		return pickCompact.serialize(pick);
+	}
+
+	@Benchmark
+	public Pick pickCompactRead()
+	{
+		return pickCompact.deserialize(pickCompactBytes);
+	}
+
+	@Benchmark
+	public String doublePickJsonWrite()
+	{
+		return DoublePickCodec.encode(doublePick);
+	}
+
+	@Benchmark
+	public DoublePick doublePickJsonRead()
+	{
+		return DoublePickCodec.decode(doublePickJson);
+	}
+
+	@Benchmark
+	public byte[] doublePickCompactWrite()
+	{
+		return doublePickCompact.serialize(doublePick);
+	}
+
+	@Benchmark
+	public DoublePick doublePickCompactRead()
+	{
+		return doublePickCompact.deserialize(doublePickCompactBytes);
+	}
+}
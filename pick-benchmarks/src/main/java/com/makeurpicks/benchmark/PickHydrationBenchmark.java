@@ -0,0 +1,93 @@
+package com.makeurpicks.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.makeurpicks.domain.Pick;
+
+/**
+ * Loading a league week of picks: one findOne per pick, the way getPicksByWeek
+ * used to, against the findAll it does now (one pipelined round trip for the
+ * directory buckets and one for the league hashes), and the whole service call
+ * on top of the index read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PickHydrationBenchmark {
+
+	@Param({"10", "50", "200"})
+	private int players;
+
+	@Param({"4"})
+	private int weeks;
+
+	@Param({"16"})
+	private int games;
+
+	@Param({"json", "compact"})
+	private String format;
+
+	private RedisFixture fixture;
+	private String leagueId;
+	private String weekId;
+	private List<String> pickIds;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkData data = new BenchmarkData(players, weeks, games);
+		fixture = new RedisFixture("compact".equals(format));
+		fixture.load(data);
+
+		leagueId = data.getLeagueId();
+		weekId = data.getWeekIds().get(0);
+		pickIds = new ArrayList<>();
+		for (Pick pick : data.getPicks(0))
+			pickIds.add(pick.getId());
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		fixture.close();
+	}
+
+	@Benchmark
+	public void findOnePerPick(Blackhole blackhole)
+	{
+		for (String pickId : pickIds)
+			blackhole.consume(fixture.getPickRepository().findOne(pickId));
+	}
+
+	@Benchmark
+	public Iterable<Pick> findAllMultiGet()
+	{
+		return fixture.getPickRepository().findAll(pickIds);
+	}
+
+	@Benchmark
+	public Map<String, Map<String, Pick>> getPicksByWeek()
+	{
+		return fixture.getPickService().getPicksByWeek(leagueId, weekId);
+	}
+}
@@ -0,0 +1,102 @@
+package com.makeurpicks.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.makeurpicks.domain.Pick;
+
+/**
+ * Reads and writes of the league week pick index.  The writes put back picks
+ * that are already there so the data set doesn't grow between iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PickIndexBenchmark {
+
+	@Param({"50", "200"})
+	private int players;
+
+	@Param({"17"})
+	private int weeks;
+
+	@Param({"16"})
+	private int games;
+
+	@Param({"json", "compact"})
+	private String format;
+
+	private RedisFixture fixture;
+	private String leagueId;
+	private String weekId;
+	private String playerId;
+	private Pick pick;
+	private List<Pick> playerWeek;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkData data = new BenchmarkData(players, weeks, games);
+		fixture = new RedisFixture("compact".equals(format));
+		fixture.load(data);
+
+		leagueId = data.getLeagueId();
+		weekId = data.getWeekIds().get(weeks / 2);
+		playerId = data.getPlayerIds().get(0);
+		playerWeek = data.getPicks(weeks / 2).subList(0, games);
+		pick = playerWeek.get(0);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		fixture.close();
+	}
+
+	@Benchmark
+	public Map<String, Map<String, String>> findPlayersByWeek()
+	{
+		return fixture.getPicksByWeekRepository().findPlayersByWeek(leagueId, weekId);
+	}
+
+	@Benchmark
+	public Map<String, String> findGamesByPlayer()
+	{
+		return fixture.getPicksByWeekRepository().findGamesByPlayer(leagueId, weekId, playerId);
+	}
+
+	@Benchmark
+	public void createPick()
+	{
+		fixture.getPicksByWeekRepository().createPick(pick);
+	}
+
+	@Benchmark
+	public void createPicksWeek()
+	{
+		fixture.getPicksByWeekRepository().createPicks(playerWeek);
+	}
+
+	@Benchmark
+	public void savePicksWeek()
+	{
+		fixture.getPickWriteBatch().savePicks(playerWeek);
+	}
+}
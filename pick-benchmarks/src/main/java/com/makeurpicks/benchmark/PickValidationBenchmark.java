@@ -0,0 +1,83 @@
+package com.makeurpicks.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.makeurpicks.domain.DoublePick;
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickResult;
+
+/**
+ * The write paths of PickService with their validation: a week of picks
+ * through makePicks and a double pick change.  Games come from the game cache
+ * after the first call, so this is pick code and redis only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PickValidationBenchmark {
+
+	@Param({"50"})
+	private int players;
+
+	@Param({"4"})
+	private int weeks;
+
+	@Param({"16"})
+	private int games;
+
+	@Param({"json", "compact"})
+	private String format;
+
+	private BenchmarkData data;
+	private RedisFixture fixture;
+	private String playerId;
+	private String doublePickId;
+
+	@Setup
+	public void setup()
+	{
+		data = new BenchmarkData(players, weeks, games);
+		fixture = new RedisFixture("compact".equals(format));
+		fixture.load(data);
+
+		playerId = data.getPlayerIds().get(0);
+		doublePickId = data.getPicks(0).get(0).getId();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		fixture.close();
+	}
+
+	@Benchmark
+	public List<PickResult> makePicks()
+	{
+		//resubmitting the week keeps the existing pick ids, nothing piles up
+		List<Pick> picks = data.newPicksForPlayer(0, playerId);
+		return fixture.getPickService().makePicks(picks, playerId);
+	}
+
+	@Benchmark
+	public DoublePick makeDoublePick()
+	{
+		return fixture.getPickService().makeDoublePick(doublePickId, playerId);
+	}
+}
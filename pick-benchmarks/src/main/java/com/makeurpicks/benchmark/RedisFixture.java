@@ -0,0 +1,216 @@
+package com.makeurpicks.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import com.makeurpicks.domain.DoublePick;
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.game.GameCache;
+import com.makeurpicks.game.GameClient;
+import com.makeurpicks.game.GameIntegrationService;
+import com.makeurpicks.game.GameResponse;
+import com.makeurpicks.game.KickoffLockScheduler;
+import com.makeurpicks.repository.PickWriteBatch;
+import com.makeurpicks.repository.redis.CompactDoublePickRedisSerializer;
+import com.makeurpicks.repository.redis.CompactIdRedisSerializer;
+import com.makeurpicks.repository.redis.CompactPickRedisSerializer;
+import com.makeurpicks.repository.redis.RedisDoublePlckRepository;
+import com.makeurpicks.repository.redis.RedisPickChangeStream;
+import com.makeurpicks.repository.redis.RedisPickConsensusRepository;
+import com.makeurpicks.repository.redis.RedisPickRepository;
+import com.makeurpicks.repository.redis.RedisPickWriteBatch;
+import com.makeurpicks.repository.redis.RedisPicksByLeagueWeekRepository;
+import com.makeurpicks.repository.redis.RedisWeekVersionRepository;
+import com.makeurpicks.service.PickService;
+import com.makeurpicks.service.WeekPicksCache;
+
+import redis.embedded.RedisServer;
+
+/**
+ * A redis server started next to the benchmark and the pick service wired to it
+ * the same way RedisConfig does, minus spring.  The game service is replaced by
+ * {@link StubGameClient} so only pick code and redis are measured.
+ *
+ * The port comes from -Dbench.redis.port, default 16390, point it at a real
+ * redis with -Dbench.redis.external=true.
+ */
+public class RedisFixture {
+
+	private final RedisServer redisServer;
+	private final JedisConnectionFactory connectionFactory;
+
+	private final RedisPickRepository pickRepository;
+	private final RedisPicksByLeagueWeekRepository picksByWeekRepository;
+	private final RedisDoublePlckRepository doublePickRepository;
+	private final PickWriteBatch pickWriteBatch;
+	private final StubGameClient gameClient = new StubGameClient();
+	private final KickoffLockScheduler kickoffLockScheduler = new KickoffLockScheduler();
+	private final PickService pickService;
+
+	/**
+	 * @param compact write values with the compact serializers instead of json
+	 */
+	public RedisFixture(boolean compact)
+	{
+		int port = Integer.getInteger("bench.redis.port", 16390);
+		if (Boolean.getBoolean("bench.redis.external"))
+		{
+			redisServer = null;
+		}
+		else
+		{
+			try {
+				redisServer = new RedisServer(port);
+			} catch (Exception e) {
+				throw new IllegalStateException("unable to start redis on "+port, e);
+			}
+			redisServer.start();
+		}
+
+		connectionFactory = new JedisConnectionFactory();
+		connectionFactory.setPort(port);
+		connectionFactory.afterPropertiesSet();
+		connectionFactory.getConnection().flushDb();
+
+		RedisTemplate<String, Pick> pickTemplate = new RedisTemplate<>();
+		pickTemplate.setConnectionFactory(connectionFactory);
+		pickTemplate.setKeySerializer(new StringRedisSerializer());
+		pickTemplate.setHashKeySerializer(new StringRedisSerializer());
+		pickTemplate.setHashValueSerializer(new CompactPickRedisSerializer(new Jackson2JsonRedisSerializer<>(Pick.class), compact));
+		pickTemplate.afterPropertiesSet();
+
+		RedisTemplate<String, DoublePick> doublePickTemplate = new RedisTemplate<>();
+		doublePickTemplate.setConnectionFactory(connectionFactory);
+		doublePickTemplate.setKeySerializer(new StringRedisSerializer());
+		doublePickTemplate.setHashKeySerializer(new StringRedisSerializer());
+		doublePickTemplate.setHashValueSerializer(new CompactDoublePickRedisSerializer(compact));
+		doublePickTemplate.afterPropertiesSet();
+
+		RedisTemplate<String, String> indexTemplate = new RedisTemplate<>();
+		indexTemplate.setConnectionFactory(connectionFactory);
+		indexTemplate.setKeySerializer(new StringRedisSerializer());
+		indexTemplate.setValueSerializer(new StringRedisSerializer());
+		indexTemplate.setHashKeySerializer(new StringRedisSerializer());
+		indexTemplate.setHashValueSerializer(new CompactIdRedisSerializer(compact));
+		indexTemplate.afterPropertiesSet();
+
+		pickRepository = new RedisPickRepository(pickTemplate);
+		picksByWeekRepository = new RedisPicksByLeagueWeekRepository(indexTemplate);
+		doublePickRepository = new RedisDoublePlckRepository(doublePickTemplate);
+		pickWriteBatch = new RedisPickWriteBatch(indexTemplate, pickRepository, picksByWeekRepository);
+
+		GameIntegrationService gameIntegrationService = new GameIntegrationService();
+		DirectFieldAccessor games = new DirectFieldAccessor(gameIntegrationService);
+		games.setPropertyValue("gameClient", gameClient);
+		games.setPropertyValue("gameCache", new GameCache());
+
+		pickService = new PickService();
+		DirectFieldAccessor service = new DirectFieldAccessor(pickService);
+		service.setPropertyValue("pickRepository", pickRepository);
+		service.setPropertyValue("gameIntegrationService", gameIntegrationService);
+		service.setPropertyValue("kickoffLockScheduler", kickoffLockScheduler);
+		service.setPropertyValue("doublePickRepository", doublePickRepository);
+		service.setPropertyValue("picksByWeekRepository", picksByWeekRepository);
+		service.setPropertyValue("pickWriteBatch", pickWriteBatch);
+		service.setPropertyValue("pickChangeStream", new RedisPickChangeStream(indexTemplate, 100000));
+		service.setPropertyValue("pickConsensusRepository", new RedisPickConsensusRepository(new StringRedisTemplate(connectionFactory)));
+		service.setPropertyValue("weekVersionRepository", new RedisWeekVersionRepository(new StringRedisTemplate(connectionFactory)));
+
+		//measure the loads themselves, not the week cache
+		WeekPicksCache weekPicksCache = new WeekPicksCache();
+		new DirectFieldAccessor(weekPicksCache).setPropertyValue("ttlMs", 0);
+		service.setPropertyValue("weekPicksCache", weekPicksCache);
+	}
+
+	/**
+	 * Writes the whole data set, picks, index and double picks, and registers
+	 * its games with the stub game service.
+	 */
+	public void load(BenchmarkData data)
+	{
+		for (int week=0; week<data.getWeekIds().size(); week++)
+		{
+			gameClient.addWeek(data.getWeekIds().get(week), data.getGames(week));
+			pickWriteBatch.savePicks(data.getPicks(week));
+			for (DoublePick doublePick : data.getDoublePicks(week))
+				doublePickRepository.save(doublePick);
+		}
+	}
+
+	public void close()
+	{
+		kickoffLockScheduler.shutdown();
+		connectionFactory.getConnection().flushDb();
+		connectionFactory.destroy();
+		if (redisServer != null)
+			redisServer.stop();
+	}
+
+	public RedisPickRepository getPickRepository() {
+		return pickRepository;
+	}
+
+	public RedisPicksByLeagueWeekRepository getPicksByWeekRepository() {
+		return picksByWeekRepository;
+	}
+
+	public RedisDoublePlckRepository getDoublePickRepository() {
+		return doublePickRepository;
+	}
+
+	public PickWriteBatch getPickWriteBatch() {
+		return pickWriteBatch;
+	}
+
+	public PickService getPickService() {
+		return pickService;
+	}
+
+	/**
+	 * Answers game lookups from memory instead of calling the game service.
+	 */
+	static class StubGameClient extends GameClient {
+
+		private final Map<String, GameResponse> games = new HashMap<>();
+		private final Map<String, List<GameResponse>> gamesByWeek = new HashMap<>();
+
+		void addWeek(String weekId, List<GameResponse> week)
+		{
+			gamesByWeek.put(weekId, new ArrayList<>(week));
+			for (GameResponse game : week)
+				games.put(game.getId(), game);
+		}
+
+		@Override
+		public GameResponse getGameById(String id) {
+			return games.get(id);
+		}
+
+		@Override
+		public List<GameResponse> getGamesByWeek(String weekId) {
+			return gamesByWeek.get(weekId);
+		}
+
+		@Override
+		public Map<String, GameResponse> getGamesByIds(Collection<String> ids) {
+			Map<String, GameResponse> found = new HashMap<>();
+			for (String id : ids)
+			{
+				GameResponse game = games.get(id);
+				if (game != null)
+					found.put(id, game);
+			}
+			return found;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.makeurpicks.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import com.makeurpicks.repository.DoublePickRepository;
+import com.makeurpicks.repository.PickChangeStream;
+import com.makeurpicks.repository.PickConsensusRepository;
+import com.makeurpicks.repository.PickHistoryRepository;
+import com.makeurpicks.repository.PickRepository;
+import com.makeurpicks.repository.PickWriteBatch;
+import com.makeurpicks.repository.PicksByWeekRepository;
+import com.makeurpicks.repository.WeekSnapshotRepository;
+import com.makeurpicks.repository.WeekVersionRepository;
+import com.makeurpicks.repository.memory.IdInterner;
+import com.makeurpicks.repository.memory.MemoryDoublePickRepository;
+import com.makeurpicks.repository.memory.MemoryPickChangeStream;
+import com.makeurpicks.repository.memory.MemoryPickConsensusRepository;
+import com.makeurpicks.repository.memory.MemoryPickHistoryRepository;
+import com.makeurpicks.repository.memory.MemoryPickRepository;
+import com.makeurpicks.repository.memory.MemoryPickWriteBatch;
+import com.makeurpicks.repository.memory.MemoryPicksByWeekRepository;
+import com.makeurpicks.repository.memory.MemoryWeekSnapshotRepository;
+import com.makeurpicks.repository.memory.MemoryWeekVersionRepository;
+
+/**
+ * Keeps picks in the pick service's own heap instead of redis, for running
+ * locally and for load tests at season scale.  Start with the memory profile,
+ * e.g. --spring.profiles.active=local,memory, nothing survives a restart.
+ */
+@Configuration
+@Profile("memory")
+public class MemoryConfig {
+
+	@Value("${pick.changes.max-length:100000}")
+	private int changesMaxLength;
+
+	@Bean
+	public IdInterner idInterner()
+	{
+		return new IdInterner();
+	}
+
+	@Bean
+	public PickRepository pickRepository()
+	{
+		return new MemoryPickRepository(idInterner());
+	}
+
+	@Bean
+	public DoublePickRepository doublePickRepository()
+	{
+		return new MemoryDoublePickRepository(idInterner());
+	}
+
+	@Bean
+	public PicksByWeekRepository picksByWeekRepository()
+	{
+		return new MemoryPicksByWeekRepository(idInterner());
+	}
+
+	@Bean
+	public PickWriteBatch pickWriteBatch()
+	{
+		return new MemoryPickWriteBatch(pickRepository(), picksByWeekRepository());
+	}
+
+	@Bean
+	public PickChangeStream pickChangeStream()
+	{
+		return new MemoryPickChangeStream(changesMaxLength);
+	}
+
+	@Bean
+	public PickConsensusRepository pickConsensusRepository()
+	{
+		return new MemoryPickConsensusRepository();
+	}
+
+	@Bean
+	public WeekVersionRepository weekVersionRepository()
+	{
+		return new MemoryWeekVersionRepository();
+	}
+
+	@Bean
+	public PickHistoryRepository pickHistoryRepository()
+	{
+		return new MemoryPickHistoryRepository();
+	}
+
+	@Bean
+	public WeekSnapshotRepository weekSnapshotRepository()
+	{
+		return new MemoryWeekSnapshotRepository();
+	}
+}
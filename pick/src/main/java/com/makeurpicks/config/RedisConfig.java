@@ -2,25 +2,78 @@ package com.makeurpicks.config;
 
 import java.util.Map;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import com.makeurpicks.domain.DoublePick;
 import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.WeekSnapshot;
 import com.makeurpicks.repository.DoublePickRepository;
+import com.makeurpicks.repository.PickChangeStream;
+import com.makeurpicks.repository.PickConsensusRepository;
+import com.makeurpicks.repository.PickHistoryRepository;
 import com.makeurpicks.repository.PickRepository;
+import com.makeurpicks.repository.PickWriteBatch;
 import com.makeurpicks.repository.PicksByWeekRepository;
+import com.makeurpicks.repository.WeekSnapshotRepository;
+import com.makeurpicks.repository.WeekVersionRepository;
+import com.makeurpicks.repository.redis.CompactDoublePickRedisSerializer;
+import com.makeurpicks.repository.redis.CompactIdRedisSerializer;
+import com.makeurpicks.repository.redis.CompactPickRedisSerializer;
+import com.makeurpicks.repository.redis.CompactWeekSnapshotRedisSerializer;
 import com.makeurpicks.repository.redis.RedisDoublePlckRepository;
+import com.makeurpicks.repository.redis.RedisPickChangeStream;
+import com.makeurpicks.repository.redis.RedisPickConsensusRepository;
+import com.makeurpicks.repository.redis.RedisPickHistoryRepository;
 import com.makeurpicks.repository.redis.RedisPickRepository;
+import com.makeurpicks.repository.redis.RedisPickWriteBatch;
+import com.makeurpicks.repository.redis.RedisPicksByLeagueWeekRepository;
 import com.makeurpicks.repository.redis.RedisPicksByWeekRepository;
+import com.makeurpicks.repository.redis.RedisScripts;
+import com.makeurpicks.repository.redis.RedisWeekSnapshotRepository;
+import com.makeurpicks.repository.redis.RedisWeekVersionRepository;
+import com.makeurpicks.service.PickBoardService;
 
+/**
+ * Points at a single redis by default.  Setting spring.redis.cluster.nodes, or
+ * running with the cluster profile, connects to a redis cluster instead, the
+ * repositories work out which one they have, see RedisKeys.
+ */
 @Configuration
+@Profile("!memory")
 public class RedisConfig {
 
+	private Log log = LogFactory.getLog(RedisConfig.class);
+
+	/**
+	 * json or compact, only changes how values are written.  Both are always
+	 * readable so instances on either setting can run side by side.
+	 */
+	@Value("${pick.redis.serializer:json}")
+	private String serializerFormat;
+
+	@Value("${pick.changes.max-length:100000}")
+	private long changesMaxLength;
+
+	@Value("${pick.changes.shards:"+RedisPickChangeStream.DEFAULT_SHARDS+"}")
+	private int changesShards;
+
+	@Value("${pick.board.score-channel:game_scores}")
+	private String scoreChannel;
+
 	@Bean
 	public RedisTemplate<String, Pick> pickRedisTemplate(
 			RedisConnectionFactory redisConnectionFactory) {
@@ -29,26 +82,42 @@ public class RedisConfig {
 		
 		template.setHashKeySerializer(stringRedisSerializer());
 		template.setKeySerializer(stringRedisSerializer());
-		template.setHashValueSerializer(pickJsonRedisSerializer());
+		template.setHashValueSerializer(new CompactPickRedisSerializer(pickJsonRedisSerializer(), isCompact()));
 		
 		return template;
 	}  
 	
 	@Bean
-	public RedisTemplate<String, String> doublePickRedisTemplate(
+	public RedisTemplate<String, DoublePick> doublePickRedisTemplate(
 			RedisConnectionFactory redisConnectionFactory) {
-		RedisTemplate<String, String> template = new RedisTemplate<String, String>();
+		RedisTemplate<String, DoublePick> template = new RedisTemplate<String, DoublePick>();
 		template.setConnectionFactory(redisConnectionFactory);
 		
 		template.setHashKeySerializer(stringRedisSerializer());
 		template.setKeySerializer(stringRedisSerializer());
-		template.setHashValueSerializer(stringRedisSerializer());
+		template.setHashValueSerializer(new CompactDoublePickRedisSerializer(isCompact()));
 		
 		return template;
 	}
 	
 
 	
+	/**
+	 * Snapshots are always compact whatever pick.redis.serializer says, they
+	 * have no json form.
+	 */
+	@Bean
+	public RedisTemplate<String, WeekSnapshot> weekSnapshotRedisTemplate(
+			RedisConnectionFactory redisConnectionFactory) {
+		RedisTemplate<String, WeekSnapshot> template = new RedisTemplate<String, WeekSnapshot>();
+		template.setConnectionFactory(redisConnectionFactory);
+		
+		template.setKeySerializer(stringRedisSerializer());
+		template.setValueSerializer(new CompactWeekSnapshotRedisSerializer());
+		
+		return template;
+	}
+	
 	@Bean
 	public RedisTemplate<String, Map<String, Map<String, Map<String, String>>>> picksByWeekRedisTemplate(RedisConnectionFactory redisConnectionFactory)
 	{
@@ -62,6 +131,25 @@ public class RedisConfig {
 		return template;
 	}
 	
+	@Bean
+	public RedisTemplate<String, String> picksByLeagueWeekRedisTemplate(RedisConnectionFactory redisConnectionFactory)
+	{
+		RedisTemplate<String, String> template = new RedisTemplate<>();
+		template.setConnectionFactory(redisConnectionFactory);
+		
+		template.setKeySerializer(stringRedisSerializer());
+		template.setValueSerializer(stringRedisSerializer());
+		template.setHashKeySerializer(stringRedisSerializer());
+		template.setHashValueSerializer(new CompactIdRedisSerializer(isCompact()));
+		
+		return template;
+	}
+	
+	private boolean isCompact()
+	{
+		return "compact".equalsIgnoreCase(serializerFormat);
+	}
+	
 	@Bean
 	public StringRedisSerializer stringRedisSerializer()
 	{
@@ -107,10 +195,129 @@ public class RedisConfig {
 	@Bean
 	public PicksByWeekRepository picksByWeekRepository(RedisConnectionFactory redisConnectionFactory)
 	{
-		PicksByWeekRepository picksByWeekRepository = new RedisPicksByWeekRepository(picksByWeekRedisTemplate(redisConnectionFactory));
+		PicksByWeekRepository picksByWeekRepository = new RedisPicksByLeagueWeekRepository(picksByLeagueWeekRedisTemplate(redisConnectionFactory));
 		return picksByWeekRepository;
 	}
 	
+	@Bean
+	public PickWriteBatch pickWriteBatch(RedisConnectionFactory redisConnectionFactory)
+	{
+		return new RedisPickWriteBatch(picksByLeagueWeekRedisTemplate(redisConnectionFactory), 
+				pickRepository(redisConnectionFactory), picksByWeekRepository(redisConnectionFactory));
+	}
+	
+	@Bean
+	public PickChangeStream pickChangeStream(RedisConnectionFactory redisConnectionFactory)
+	{
+		return new RedisPickChangeStream(picksByLeagueWeekRedisTemplate(redisConnectionFactory), changesMaxLength, changesShards);
+	}
+	
+	@Bean
+	public PickConsensusRepository pickConsensusRepository(RedisConnectionFactory redisConnectionFactory)
+	{
+		return new RedisPickConsensusRepository(new StringRedisTemplate(redisConnectionFactory));
+	}
+	
+	@Bean
+	public WeekVersionRepository weekVersionRepository(RedisConnectionFactory redisConnectionFactory)
+	{
+		return new RedisWeekVersionRepository(new StringRedisTemplate(redisConnectionFactory));
+	}
+	
+	@Bean
+	public PickHistoryRepository pickHistoryRepository(RedisConnectionFactory redisConnectionFactory)
+	{
+		return new RedisPickHistoryRepository(new StringRedisTemplate(redisConnectionFactory));
+	}
+	
+	@Bean
+	public WeekSnapshotRepository weekSnapshotRepository(RedisConnectionFactory redisConnectionFactory)
+	{
+		return new RedisWeekSnapshotRepository(weekSnapshotRedisTemplate(redisConnectionFactory));
+	}
+	
+	/**
+	 * Hands the score changes the game service publishes to the pick boards,
+	 * the message body is already the json the boards send on.
+	 */
+	@Bean
+	public RedisMessageListenerContainer scoreListenerContainer(RedisConnectionFactory redisConnectionFactory, PickBoardService pickBoardService)
+	{
+		RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+		container.setConnectionFactory(redisConnectionFactory);
+		container.addMessageListener((message, pattern) -> 
+			pickBoardService.scoreChanged(stringRedisSerializer().deserialize(message.getBody())), new ChannelTopic(scoreChannel));
+		return container;
+	}
+	
+	/**
+	 * Loads the lua scripts so the first pick of the day doesn't pay for the
+	 * EVALSHA miss.
+	 */
+	@Bean
+	public ApplicationRunner redisScriptPreload(RedisConnectionFactory redisConnectionFactory)
+	{
+		return args -> {
+			try {
+				RedisScripts.preload(picksByLeagueWeekRedisTemplate(redisConnectionFactory));
+			} catch (RuntimeException e) {
+				log.warn("unable to preload redis scripts, they will be loaded on first use", e);
+			}
+		};
+	}
+	
+	/**
+	 * One time conversion of the old PICKS_BY_LEAGUE blobs, turn on with
+	 * pick.redis.migrate-picks-by-week=true for the first start after the upgrade.
+	 */
+	@Bean
+	@ConditionalOnProperty(name="pick.redis.migrate-picks-by-week", havingValue="true")
+	public ApplicationRunner picksByWeekMigration(RedisConnectionFactory redisConnectionFactory)
+	{
+		return args -> {
+			RedisPicksByWeekRepository legacyRepository = new RedisPicksByWeekRepository(picksByWeekRedisTemplate(redisConnectionFactory));
+			RedisPicksByLeagueWeekRepository repository = new RedisPicksByLeagueWeekRepository(picksByLeagueWeekRedisTemplate(redisConnectionFactory));
+			int leagues = repository.migrateFrom(legacyRepository);
+			log.info("migrated picks by week for "+leagues+" leagues");
+		};
+	}
+	
+	/**
+	 * One time split of the old double pick json maps into a field per player,
+	 * turn on with pick.redis.migrate-double-picks=true.
+	 */
+	@Bean
+	@ConditionalOnProperty(name="pick.redis.migrate-double-picks", havingValue="true")
+	public ApplicationRunner doublePickMigration(RedisConnectionFactory redisConnectionFactory)
+	{
+		return args -> {
+			RedisDoublePlckRepository repository = new RedisDoublePlckRepository(doublePickRedisTemplate(redisConnectionFactory));
+			int weeks = repository.migrateLegacyLayout(new StringRedisTemplate(redisConnectionFactory));
+			log.info("migrated double picks for "+weeks+" league weeks");
+		};
+	}
+	
+	/**
+	 * One time move to the hash tagged keys that keep a league's data in one
+	 * cluster slot, turn on with pick.redis.migrate-to-league-slots=true for the
+	 * first start after the upgrade, before the data is moved to a cluster.
+	 * Keys that are already tagged are skipped, so it can run again.
+	 */
+	@Bean
+	@ConditionalOnProperty(name="pick.redis.migrate-to-league-slots", havingValue="true")
+	public ApplicationRunner leagueSlotMigration(RedisConnectionFactory redisConnectionFactory)
+	{
+		return args -> {
+			int picks = new RedisPickRepository(pickRedisTemplate(redisConnectionFactory)).migrateLegacyLayout();
+			int keys = new RedisPicksByLeagueWeekRepository(picksByLeagueWeekRedisTemplate(redisConnectionFactory)).migrateUntaggedKeys()
+					+ new RedisDoublePlckRepository(doublePickRedisTemplate(redisConnectionFactory)).migrateUntaggedKeys()
+					+ new RedisPickConsensusRepository(new StringRedisTemplate(redisConnectionFactory)).migrateUntaggedKeys()
+					+ new RedisWeekVersionRepository(new StringRedisTemplate(redisConnectionFactory)).migrateUntaggedKeys()
+					+ new RedisPickChangeStream(picksByLeagueWeekRedisTemplate(redisConnectionFactory), changesMaxLength, changesShards).migrateUntaggedKeys();
+			log.info("moved "+picks+" picks to league hashes and renamed "+keys+" keys to league slots");
+		};
+	}
+	
 //	@Bean 
 //	public RedisPicksByLeagueWeekRepository redisPicksByLeagueWeekRepository(RedisConnectionFactory redisConnectionFactory)
 //	{
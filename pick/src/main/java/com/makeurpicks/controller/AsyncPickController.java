@@ -0,0 +1,180 @@
+package com.makeurpicks.controller;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.makeurpicks.domain.DoublePick;
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickResult;
+import com.makeurpicks.service.AsyncPickService;
+import com.makeurpicks.service.AsyncPickService.Versioned;
+
+/**
+ * The player facing calls of {@link PickController} answered with a
+ * DeferredResult, the request thread goes back to the container as soon as the
+ * call is queued on the {@link AsyncPickService} pool.  Reads carry the same
+ * {@link WeekEtags} as the blocking controller, so either can answer the
+ * other's If-None-Match.  A full pool answers 503 instead of queueing the
+ * request thread, and so does a call still waiting on the pool after
+ * pick.async.timeout-ms.
+ */
+@RestController
+@RequestMapping(value="/picks/async")
+public class AsyncPickController {
+
+	private Log log = LogFactory.getLog(AsyncPickController.class);
+
+	@Autowired
+	private AsyncPickService asyncPickService;
+
+	/**
+	 * The version and the body are read in one task on the pool, the body only
+	 * when the client's copy is out of date, like WebRequest.checkNotModified
+	 * does for the blocking reads.
+	 */
+	private <T> DeferredResult<ResponseEntity<T>> versioned(String ifNoneMatch, LongFunction<String> etag, HttpHeaders headers, Function<LongPredicate, CompletableFuture<Versioned<T>>> read)
+	{
+		return respond(read.apply(version -> WeekEtags.notModified(ifNoneMatch, etag.apply(version))), versioned -> {
+			headers.setETag(etag.apply(versioned.getVersion()));
+			if (!versioned.isModified())
+				return new ResponseEntity<T>(headers, HttpStatus.NOT_MODIFIED);
+			return new ResponseEntity<T>(versioned.getBody(), headers, HttpStatus.OK);
+		});
+	}
+
+	private <T> DeferredResult<ResponseEntity<T>> weekRead(String weekId, String ifNoneMatch, Function<LongPredicate, CompletableFuture<Versioned<T>>> read)
+	{
+		return versioned(ifNoneMatch, version -> WeekEtags.weekEtag(weekId, version), new HttpHeaders(), read);
+	}
+
+	private <T> DeferredResult<ResponseEntity<T>> playerRead(String weekId, String playerId, String ifNoneMatch, Function<LongPredicate, CompletableFuture<Versioned<T>>> read)
+	{
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl(WeekEtags.PRIVATE);
+		return versioned(ifNoneMatch, version -> WeekEtags.playerEtag(weekId, version, playerId), headers, read);
+	}
+
+	private <T> DeferredResult<ResponseEntity<T>> ok(CompletableFuture<T> call)
+	{
+		return respond(call, body -> ResponseEntity.ok(body));
+	}
+
+	private <T, R> DeferredResult<ResponseEntity<R>> respond(CompletableFuture<T> call, Function<T, ResponseEntity<R>> response)
+	{
+		DeferredResult<ResponseEntity<R>> result = new DeferredResult<>(asyncPickService.getTimeoutMs(), new ResponseEntity<R>(HttpStatus.SERVICE_UNAVAILABLE));
+		//a call still queued when the request gives up is skipped rather than run for nobody
+		result.onTimeout(() -> call.cancel(false));
+		call.whenComplete((body, error) -> {
+			if (error == null)
+			{
+				result.setResult(response.apply(body));
+				return;
+			}
+
+			Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+			if (cause instanceof RejectedExecutionException)
+			{
+				log.warn("async pick pool is full, turning the request away");
+				result.setResult(new ResponseEntity<R>(HttpStatus.SERVICE_UNAVAILABLE));
+			}
+			else
+				result.setErrorResult(cause);
+		});
+		return result;
+	}
+
+	@RequestMapping(method=RequestMethod.GET, value="/leagueid/{leagueid}/weekid/{weekid}")
+	public DeferredResult<ResponseEntity<Map<String, Map<String, Pick>>>> getPicksByWeek(@PathVariable String leagueid, @PathVariable String weekid, @RequestHeader(value="If-None-Match", required=false) String ifNoneMatch)
+	{
+		return weekRead(weekid, ifNoneMatch, current -> asyncPickService.getPicksByWeek(leagueid, weekid, current));
+	}
+
+	@RequestMapping(method=RequestMethod.GET, value="/consensus/leagueid/{leagueid}/weekid/{weekid}")
+	public DeferredResult<ResponseEntity<Map<String, Map<String, Long>>>> getConsensus(@PathVariable String leagueid, @PathVariable String weekid, @RequestHeader(value="If-None-Match", required=false) String ifNoneMatch)
+	{
+		return weekRead(weekid, ifNoneMatch, current -> asyncPickService.getConsensus(leagueid, weekid, current));
+	}
+
+	@RequestMapping(method=RequestMethod.GET, value="/self/leagueid/{leagueid}/weekid/{weekid}")
+	public DeferredResult<ResponseEntity<Map<String, Pick>>> getPicksByWeekAndPlayer(Principal user, @PathVariable String leagueid, @PathVariable String weekid, @RequestHeader(value="If-None-Match", required=false) String ifNoneMatch)
+	{
+		String playerId = user.getName();
+		return playerRead(weekid, playerId, ifNoneMatch, current -> asyncPickService.getPicksByWeekAndPlayer(leagueid, weekid, playerId, current));
+	}
+
+	@RequestMapping(method=RequestMethod.GET, value="/player/leagueid/{leagueid}/weekid/{weekid}/playerid/{playerid}")
+	public DeferredResult<ResponseEntity<Map<String, Pick>>> getPicksByWeekAndPlayer(@PathVariable String leagueid, @PathVariable String weekid, @PathVariable String playerid, @RequestHeader(value="If-None-Match", required=false) String ifNoneMatch)
+	{
+		return weekRead(weekid, ifNoneMatch, current -> asyncPickService.getOtherPicksByWeekAndPlayer(leagueid, weekid, playerid, current));
+	}
+
+	@RequestMapping(method=RequestMethod.GET, value="/double/leagueid/{leagueid}/weekid/{weekid}")
+	public DeferredResult<ResponseEntity<DoublePick>> getDoublePick(Principal user, @PathVariable String leagueid, @PathVariable String weekid, @RequestHeader(value="If-None-Match", required=false) String ifNoneMatch)
+	{
+		String playerId = user.getName();
+		return playerRead(weekid, playerId, ifNoneMatch, current -> asyncPickService.getDoublePickForPlayer(leagueid, weekid, playerId, current));
+	}
+
+	@RequestMapping(method=RequestMethod.GET, value="/doubles/leagueid/{leagueid}/weekid/{weekid}")
+	public DeferredResult<ResponseEntity<Map<String, DoublePick>>> getDoublePicks(@PathVariable String leagueid, @PathVariable String weekid, @RequestHeader(value="If-None-Match", required=false) String ifNoneMatch)
+	{
+		return weekRead(weekid, ifNoneMatch, current -> asyncPickService.getDoublePicks(leagueid, weekid, current));
+	}
+
+	@RequestMapping(method=RequestMethod.POST, value="/")
+	public DeferredResult<ResponseEntity<Pick>> makePick(Principal user, @RequestBody Pick pick)
+	{
+		pick.setPlayerId(user.getName());
+
+		log.debug(pick);
+
+		return ok(asyncPickService.makePick(pick));
+	}
+
+	@RequestMapping(method=RequestMethod.POST, value="/batch")
+	public DeferredResult<ResponseEntity<List<PickResult>>> makePicks(Principal user, @RequestBody List<Pick> picks)
+	{
+		log.debug(picks);
+
+		return ok(asyncPickService.makePicks(picks, user.getName()));
+	}
+
+	@RequestMapping(method=RequestMethod.PUT, value="/")
+	public DeferredResult<ResponseEntity<Pick>> updatePick(Principal user, @RequestBody Pick pick)
+	{
+		pick.setPlayerId(user.getName());
+
+		log.debug(pick);
+
+		return ok(asyncPickService.updatePick(pick));
+	}
+
+	@RequestMapping(method=RequestMethod.PUT, value="/double")
+	public DeferredResult<ResponseEntity<DoublePick>> makeDoublePick(Principal user, @RequestBody DoublePick pick)
+	{
+		log.debug(pick);
+
+		return ok(asyncPickService.makeDoublePick(pick.getPickId(), user.getName()));
+	}
+}
@@ -1,22 +1,32 @@
 package com.makeurpicks.controller;
 
 import java.security.Principal;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import javax.servlet.http.HttpServletResponse;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.makeurpicks.domain.DoublePick;
 import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickHistoryEntry;
+import com.makeurpicks.domain.PickResult;
 import com.makeurpicks.game.GameIntegrationService;
+import com.makeurpicks.service.PickBoardService;
 import com.makeurpicks.service.PickService;
 
 @RestController
@@ -28,25 +38,116 @@ public class PickController  {
 	@Autowired
 	private PickService pickService;
 	
+	@Autowired
+	private PickBoardService pickBoardService;
+	
+	/**
+	 * Every read of a league week is tagged with the week's version, see
+	 * {@link WeekEtags}, a client that sends it back in If-None-Match gets a 304
+	 * for one redis GET instead of the picks.  The version is read before the
+	 * body, the body is never older than its tag.
+	 */
+	private String weekEtag(String leagueId, String weekId)
+	{
+		return WeekEtags.weekEtag(weekId, pickService.getWeekVersion(leagueId, weekId));
+	}
+	
+	private String playerEtag(String leagueId, String weekId, String playerId, HttpServletResponse response)
+	{
+		response.setHeader(HttpHeaders.CACHE_CONTROL, WeekEtags.PRIVATE);
+		return WeekEtags.playerEtag(weekId, pickService.getWeekVersion(leagueId, weekId), playerId);
+	}
+	
 	
 	@RequestMapping(method=RequestMethod.GET, value="/leagueid/{leagueid}/weekid/{weekid}")
-	public @ResponseBody Map<String, Map<String, Pick>> getPicksByWeek(@PathVariable String leagueid, @PathVariable String weekid)
+	public @ResponseBody Map<String, Map<String, Pick>> getPicksByWeek(@PathVariable String leagueid, @PathVariable String weekid, WebRequest request)
 	{
+		long version = pickService.getWeekVersion(leagueid, weekid);
+		if (request.checkNotModified(WeekEtags.weekEtag(weekid, version)))
+			return null;
 		
-		Map<String, Map<String, Pick>> map =pickService.getPicksByWeek(leagueid, weekid);
+		Map<String, Map<String, Pick>> map =pickService.getPicksByWeek(leagueid, weekid, version);
 		log.debug("getPicksByWeek return="+map);
 		return map;
 	}
 
+	@RequestMapping(method=RequestMethod.GET, value="/board/leagueid/{leagueid}/weekid/{weekid}", produces="text/event-stream")
+	public SseEmitter streamPicksByWeek(@PathVariable String leagueid, @PathVariable String weekid)
+	{
+		return pickBoardService.subscribe(leagueid, weekid);
+	}
+
+	@RequestMapping(method=RequestMethod.GET, value="/consensus/leagueid/{leagueid}/weekid/{weekid}")
+	public @ResponseBody Map<String, Map<String, Long>> getConsensus(@PathVariable String leagueid, @PathVariable String weekid, WebRequest request)
+	{
+		if (request.checkNotModified(weekEtag(leagueid, weekid)))
+			return null;
+		return pickService.getConsensus(leagueid, weekid);
+	}
+	
+	@RequestMapping(method=RequestMethod.POST, value="/consensus/admin/leagueid/{leagueid}/weekid/{weekid}")
+	@PreAuthorize("hasRole('ADMIN')")
+	public @ResponseBody Map<String, Map<String, Long>> rebuildConsensus(@PathVariable String leagueid, @PathVariable String weekid)
+	{
+		return pickService.rebuildConsensus(leagueid, weekid);
+	}
+
+	@RequestMapping(method=RequestMethod.GET, value="/history/playerid/{playerid}/seasonid/{seasonid}")
+	public @ResponseBody List<PickHistoryEntry> getSeasonHistory(@PathVariable String playerid, @PathVariable String seasonid,
+			@RequestParam(defaultValue="0") int offset, @RequestParam(defaultValue="100") int count)
+	{
+		return pickService.getSeasonHistory(playerid, seasonid, offset, count);
+	}
+	
+	@RequestMapping(method=RequestMethod.GET, value="/history/count/playerid/{playerid}/seasonid/{seasonid}")
+	public @ResponseBody long getSeasonHistoryCount(@PathVariable String playerid, @PathVariable String seasonid)
+	{
+		return pickService.getSeasonHistoryCount(playerid, seasonid);
+	}
+	
+	@RequestMapping(method=RequestMethod.GET, value="/history/picks/playerid/{playerid}/seasonid/{seasonid}")
+	public @ResponseBody List<Pick> getSeasonPicks(@PathVariable String playerid, @PathVariable String seasonid)
+	{
+		return pickService.getSeasonPicks(playerid, seasonid);
+	}
+	
+	@RequestMapping(method=RequestMethod.POST, value="/history/admin/rebuild")
+	@PreAuthorize("hasRole('ADMIN')")
+	public @ResponseBody int rebuildSeasonHistory()
+	{
+		return pickService.rebuildSeasonHistory();
+	}
+	
+	@RequestMapping(method=RequestMethod.GET, value="/points/leagueid/{leagueid}/weekid/{weekid}")
+	public @ResponseBody Map<String, Integer> getWeekPoints(@PathVariable String leagueid, @PathVariable String weekid)
+	{
+		return pickService.getWeekPoints(leagueid, weekid);
+	}
+	
+	/**
+	 * @return the frozen week's points
+	 */
+	@RequestMapping(method=RequestMethod.POST, value="/snapshot/admin/leagueid/{leagueid}/weekid/{weekid}")
+	@PreAuthorize("hasRole('ADMIN')")
+	public @ResponseBody Map<String, Integer> freezeWeek(@PathVariable String leagueid, @PathVariable String weekid,
+			@RequestParam(defaultValue="false") boolean evict)
+	{
+		return pickService.freezeWeek(leagueid, weekid, evict).getPoints();
+	}
+
 	@RequestMapping(method=RequestMethod.GET, value="/self/leagueid/{leagueid}/weekid/{weekid}")
-	public @ResponseBody Map<String, Pick> getPicksByWeekAndPlayer(Principal user, @PathVariable String leagueid, @PathVariable String weekid)
+	public @ResponseBody Map<String, Pick> getPicksByWeekAndPlayer(Principal user, @PathVariable String leagueid, @PathVariable String weekid, WebRequest request, HttpServletResponse response)
 	{
+		if (request.checkNotModified(playerEtag(leagueid, weekid, user.getName(), response)))
+			return null;
 		return pickService.getPicksByWeekAndPlayer(leagueid, weekid, user.getName());
 	}
 	
 	@RequestMapping(method=RequestMethod.GET, value="/player/leagueid/{leagueid}/weekid/{weekid}/playerid/{playerid}")
-	public @ResponseBody Map<String, Pick> getPicksByWeekAndPlayer(Principal user, @PathVariable String leagueid, @PathVariable String weekid, @PathVariable String playerid)
+	public @ResponseBody Map<String, Pick> getPicksByWeekAndPlayer(Principal user, @PathVariable String leagueid, @PathVariable String weekid, @PathVariable String playerid, WebRequest request)
 	{
+		if (request.checkNotModified(weekEtag(leagueid, weekid)))
+			return null;
 		return pickService.getOtherPicksByWeekAndPlayer(leagueid, weekid, playerid);
 	}
 	
@@ -72,6 +173,14 @@ public class PickController  {
 		return pickService.makePick(pick);
 	}
 	
+	@RequestMapping(method=RequestMethod.POST, value="/batch")
+	public @ResponseBody List<PickResult> makePicks(Principal user, @RequestBody List<Pick> picks)
+	{
+		log.debug(picks);
+		
+		return pickService.makePicks(picks, user.getName());
+	}
+	
 	@RequestMapping(method=RequestMethod.PUT, value="/")
 	public @ResponseBody Pick updatePick(Principal user, @RequestBody Pick pick)
 	{
@@ -104,14 +213,18 @@ public class PickController  {
 	}
 	
 	@RequestMapping(method=RequestMethod.GET, value="/double/leagueid/{leagueid}/weekid/{weekid}")
-	public @ResponseBody DoublePick getDoublePick(Principal user, @PathVariable String leagueid, @PathVariable String weekid)
+	public @ResponseBody DoublePick getDoublePick(Principal user, @PathVariable String leagueid, @PathVariable String weekid, WebRequest request, HttpServletResponse response)
 	{
+		if (request.checkNotModified(playerEtag(leagueid, weekid, user.getName(), response)))
+			return null;
 		return pickService.getDoublePickForPlayer(leagueid, weekid, user.getName());
 	}
 	
 	@RequestMapping(method=RequestMethod.GET, value="/doubles/leagueid/{leagueid}/weekid/{weekid}")
-	public @ResponseBody Map<String, DoublePick> getDoublePick(@PathVariable String leagueid, @PathVariable String weekid)
+	public @ResponseBody Map<String, DoublePick> getDoublePick(@PathVariable String leagueid, @PathVariable String weekid, WebRequest request)
 	{
+		if (request.checkNotModified(weekEtag(leagueid, weekid)))
+			return null;
 		return pickService.getDoublePicks(leagueid, weekid);
 	}
 	
@@ -0,0 +1,47 @@
+package com.makeurpicks.controller;
+
+/**
+ * The ETags both pick controllers put on league week reads, so either can
+ * answer the other's If-None-Match.  A week read is tagged with the week's
+ * version, the version covers the whole week so a player's own picks are sent
+ * again when anyone in the league changes a pick.  The signed in player's own
+ * reads have the same url for everyone, their tag also names the player and
+ * the response is marked private.
+ */
+final class WeekEtags {
+
+	static final String PRIVATE = "private";
+
+	private WeekEtags()
+	{
+	}
+
+	static String weekEtag(String weekId, long version)
+	{
+		return new StringBuilder("\"").append(weekId).append(':').append(version).append('"').toString();
+	}
+
+	static String playerEtag(String weekId, long version, String playerId)
+	{
+		return new StringBuilder("\"").append(weekId).append(':').append(version).append(':').append(playerId).append('"').toString();
+	}
+
+	/**
+	 * If-None-Match matching for the responses that don't go through
+	 * WebRequest.checkNotModified, weak tags match their strong form.
+	 */
+	static boolean notModified(String ifNoneMatch, String etag)
+	{
+		if (ifNoneMatch == null)
+			return false;
+		for (String match : ifNoneMatch.split(","))
+		{
+			match = match.trim();
+			if (match.startsWith("W/"))
+				match = match.substring(2);
+			if (match.equals("*") || match.equals(etag))
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,159 @@
+package com.makeurpicks.domain;
+
+/**
+ * One change to a player's picks, in the order it was made.  Consumers keep
+ * their own views of a league week up to date from these instead of reading
+ * the whole week again.
+ *
+ * For a pick the teams are the team picked before and after, oldTeamId is null
+ * for a new pick.  For a double pick gameId is the game that is now the double
+ * and previousGameId the one it moved off, if any.
+ */
+public class PickChangeEvent {
+
+	public enum Type {
+		PICK_CREATED, PICK_UPDATED, DOUBLE_PICK_CHANGED
+	}
+
+	//assigned by the stream when the event is appended
+	private long sequence;
+	private Type type;
+	private String leagueId;
+	private String weekId;
+	private String playerId;
+	private String gameId;
+	private String pickId;
+	private String oldTeamId;
+	private String newTeamId;
+	private String previousGameId;
+	private long timestamp = System.currentTimeMillis();
+
+	public PickChangeEvent()
+	{
+
+	}
+
+	public PickChangeEvent(Type type, Pick pick, String oldTeamId)
+	{
+		this.type = type;
+		this.leagueId = pick.getLeagueId();
+		this.weekId = pick.getWeekId();
+		this.playerId = pick.getPlayerId();
+		this.gameId = pick.getGameId();
+		this.pickId = pick.getId();
+		this.oldTeamId = oldTeamId;
+		this.newTeamId = pick.getTeamId();
+	}
+
+	public static PickChangeEvent created(Pick pick)
+	{
+		return new PickChangeEvent(Type.PICK_CREATED, pick, null);
+	}
+
+	public static PickChangeEvent updated(Pick pick, String oldTeamId)
+	{
+		return new PickChangeEvent(Type.PICK_UPDATED, pick, oldTeamId);
+	}
+
+	public static PickChangeEvent doublePicked(Pick pick, String previousGameId)
+	{
+		PickChangeEvent event = new PickChangeEvent(Type.DOUBLE_PICK_CHANGED, pick, pick.getTeamId());
+		event.setPreviousGameId(previousGameId);
+		return event;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public void setType(Type type) {
+		this.type = type;
+	}
+
+	public String getLeagueId() {
+		return leagueId;
+	}
+
+	public void setLeagueId(String leagueId) {
+		this.leagueId = leagueId;
+	}
+
+	public String getWeekId() {
+		return weekId;
+	}
+
+	public void setWeekId(String weekId) {
+		this.weekId = weekId;
+	}
+
+	public String getPlayerId() {
+		return playerId;
+	}
+
+	public void setPlayerId(String playerId) {
+		this.playerId = playerId;
+	}
+
+	public String getGameId() {
+		return gameId;
+	}
+
+	public void setGameId(String gameId) {
+		this.gameId = gameId;
+	}
+
+	public String getPickId() {
+		return pickId;
+	}
+
+	public void setPickId(String pickId) {
+		this.pickId = pickId;
+	}
+
+	public String getOldTeamId() {
+		return oldTeamId;
+	}
+
+	public void setOldTeamId(String oldTeamId) {
+		this.oldTeamId = oldTeamId;
+	}
+
+	public String getNewTeamId() {
+		return newTeamId;
+	}
+
+	public void setNewTeamId(String newTeamId) {
+		this.newTeamId = newTeamId;
+	}
+
+	public String getPreviousGameId() {
+		return previousGameId;
+	}
+
+	public void setPreviousGameId(String previousGameId) {
+		this.previousGameId = previousGameId;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public void setTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return "PickChangeEvent [sequence=" + sequence + ", type=" + type + ", leagueId=" + leagueId + ", weekId="
+				+ weekId + ", playerId=" + playerId + ", gameId=" + gameId + ", oldTeamId=" + oldTeamId
+				+ ", newTeamId=" + newTeamId + "]";
+	}
+}
@@ -0,0 +1,86 @@
+package com.makeurpicks.domain;
+
+import java.util.Objects;
+
+/**
+ * Where one of a player's picks lives, an entry in the player's season history.
+ * Enough to load the pick itself from its league.
+ */
+public class PickHistoryEntry {
+
+	private String leagueId;
+	private String weekId;
+	private String gameId;
+	private String pickId;
+
+	public PickHistoryEntry()
+	{
+
+	}
+
+	public PickHistoryEntry(String leagueId, String weekId, String gameId, String pickId)
+	{
+		this.leagueId = leagueId;
+		this.weekId = weekId;
+		this.gameId = gameId;
+		this.pickId = pickId;
+	}
+
+	public static PickHistoryEntry of(Pick pick)
+	{
+		return new PickHistoryEntry(pick.getLeagueId(), pick.getWeekId(), pick.getGameId(), pick.getId());
+	}
+
+	public String getLeagueId() {
+		return leagueId;
+	}
+
+	public void setLeagueId(String leagueId) {
+		this.leagueId = leagueId;
+	}
+
+	public String getWeekId() {
+		return weekId;
+	}
+
+	public void setWeekId(String weekId) {
+		this.weekId = weekId;
+	}
+
+	public String getGameId() {
+		return gameId;
+	}
+
+	public void setGameId(String gameId) {
+		this.gameId = gameId;
+	}
+
+	public String getPickId() {
+		return pickId;
+	}
+
+	public void setPickId(String pickId) {
+		this.pickId = pickId;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(leagueId, weekId, gameId, pickId);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof PickHistoryEntry))
+			return false;
+		PickHistoryEntry other = (PickHistoryEntry) obj;
+		return Objects.equals(leagueId, other.leagueId) && Objects.equals(weekId, other.weekId)
+				&& Objects.equals(gameId, other.gameId) && Objects.equals(pickId, other.pickId);
+	}
+
+	@Override
+	public String toString() {
+		return "PickHistoryEntry [leagueId=" + leagueId + ", weekId=" + weekId + ", gameId=" + gameId + ", pickId=" + pickId + "]";
+	}
+}
@@ -0,0 +1,62 @@
+package com.makeurpicks.domain;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.makeurpicks.exception.PickValidationException.PickExceptions;
+
+/**
+ * Outcome of one pick in a batch, either saved or the reasons it was turned away.
+ */
+public class PickResult {
+
+	private Pick pick;
+	private boolean accepted;
+	private List<PickExceptions> exceptions;
+
+	public PickResult()
+	{
+
+	}
+
+	public PickResult(Pick pick, List<PickExceptions> exceptions)
+	{
+		this.pick = pick;
+		this.accepted = exceptions.isEmpty();
+		this.exceptions = exceptions;
+	}
+
+	public static PickResult accepted(Pick pick)
+	{
+		return new PickResult(pick, Collections.emptyList());
+	}
+
+	public Pick getPick() {
+		return pick;
+	}
+
+	public void setPick(Pick pick) {
+		this.pick = pick;
+	}
+
+	public boolean isAccepted() {
+		return accepted;
+	}
+
+	public void setAccepted(boolean accepted) {
+		this.accepted = accepted;
+	}
+
+	public List<PickExceptions> getExceptions() {
+		return exceptions;
+	}
+
+	public void setExceptions(List<PickExceptions> exceptions) {
+		this.exceptions = exceptions;
+	}
+
+	@Override
+	public String toString() {
+		return "PickResult [pick=" + pick + ", accepted=" + accepted + ", exceptions=" + exceptions + "]";
+	}
+}
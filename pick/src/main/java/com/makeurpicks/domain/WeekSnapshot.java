@@ -0,0 +1,365 @@
+package com.makeurpicks.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.makeurpicks.game.GameResponse;
+
+/**
+ * A finished league week, frozen.  Players, teams and games are each kept once
+ * in a dictionary and everything else refers to them by position: a game is its
+ * fav and dog team positions and its result, and a player's pick in a game is a
+ * single byte of which side they took and how it turned out.  Results and
+ * points are worked out when the week is frozen, reading a past week never
+ * scores it again.
+ *
+ * Nothing changes once it is built.  The arrays handed out are the snapshot's
+ * own, for the serializer, and must not be modified.
+ */
+public final class WeekSnapshot {
+
+	//a pick byte, the side taken and what became of it
+	public static final int SIDE_MASK = 0x03;
+	public static final int SIDE_NONE = 0;
+	public static final int SIDE_FAV = 1;
+	public static final int SIDE_DOG = 2;
+	public static final int PICKED = 0x04;
+	public static final int DOUBLE = 0x08;
+	public static final int WON = 0x10;
+	public static final int NO_PICK = 0x20;
+	public static final int ADMIN_OVERRIDE = 0x40;
+	public static final int DOUBLE_ADMIN_OVERRIDE = 0x80;
+
+	//a game's result, the side that covered
+	public static final byte RESULT_NONE = 0;
+	public static final byte RESULT_FAV = SIDE_FAV;
+	public static final byte RESULT_DOG = SIDE_DOG;
+
+	private final String leagueId;
+	private final String weekId;
+	private final long frozenAt;
+
+	private final String[] players;
+	private final String[] teams;
+	private final String[] games;
+	private final int[] favs;
+	private final int[] dogs;
+	private final byte[] results;
+
+	//game -> player -> pick byte, and the id of that pick or null
+	private final byte[][] picks;
+	private final String[][] pickIds;
+
+	private final int[] points;
+
+	public WeekSnapshot(String leagueId, String weekId, long frozenAt, String[] players, String[] teams,
+			String[] games, int[] favs, int[] dogs, byte[] results, byte[][] picks, String[][] pickIds)
+	{
+		if (favs.length != games.length || dogs.length != games.length || results.length != games.length
+				|| picks.length != games.length || pickIds.length != games.length)
+			throw new IllegalArgumentException("every game needs its teams, result and picks");
+
+		this.leagueId = leagueId;
+		this.weekId = weekId;
+		this.frozenAt = frozenAt;
+		this.players = players;
+		this.teams = teams;
+		this.games = games;
+		this.favs = favs;
+		this.dogs = dogs;
+		this.results = results;
+		this.picks = picks;
+		this.pickIds = pickIds;
+
+		this.points = new int[players.length];
+		for (int game = 0; game < games.length; game++)
+		{
+			if (picks[game].length != players.length || pickIds[game].length != players.length)
+				throw new IllegalArgumentException("game "+games[game]+" needs a pick for every player");
+			for (int player = 0; player < players.length; player++)
+			{
+				int pick = picks[game][player];
+				if ((pick & WON) != 0)
+					points[player] += (pick & DOUBLE) != 0 ? 2 : 1;
+			}
+		}
+	}
+
+	/**
+	 * Freezes a week's picks and doubles against its games.  Games are ordered by
+	 * kickoff and players by id, so the same week always freezes to the same bytes.
+	 * A pick for a game that isn't in the week is dropped, as is a team that
+	 * isn't playing in the game, the pick keeps its place with no side.
+	 *
+	 * @param picksByPlayer playerId -> gameId -> pick, as {@code PickService.getPicksByWeek} returns it
+	 * @param doubles playerId -> double pick, may be null
+	 */
+	public static WeekSnapshot freeze(String leagueId, String weekId, Map<String, Map<String, Pick>> picksByPlayer,
+			Map<String, DoublePick> doubles, Collection<GameResponse> weekGames, long frozenAt)
+	{
+		List<GameResponse> sortedGames = new ArrayList<>(weekGames);
+		sortedGames.sort(Comparator.comparingLong(WeekSnapshot::kickoff).thenComparing(GameResponse::getId));
+
+		TreeSet<String> playerIds = new TreeSet<>(picksByPlayer.keySet());
+		if (doubles != null)
+			playerIds.addAll(doubles.keySet());
+		String[] players = playerIds.toArray(new String[playerIds.size()]);
+
+		Map<String, Integer> teamIndex = new LinkedHashMap<>();
+		Map<String, Integer> gameIndex = new HashMap<>();
+		int gameCount = sortedGames.size();
+		String[] games = new String[gameCount];
+		int[] favs = new int[gameCount];
+		int[] dogs = new int[gameCount];
+		byte[] results = new byte[gameCount];
+		byte[][] picks = new byte[gameCount][players.length];
+		String[][] pickIds = new String[gameCount][players.length];
+		for (int game = 0; game < gameCount; game++)
+		{
+			GameResponse response = sortedGames.get(game);
+			games[game] = response.getId();
+			gameIndex.put(response.getId(), game);
+			favs[game] = teamIndex.computeIfAbsent(response.getFavId(), team -> teamIndex.size());
+			dogs[game] = teamIndex.computeIfAbsent(response.getDogId(), team -> teamIndex.size());
+			results[game] = result(response);
+		}
+
+		for (int player = 0; player < players.length; player++)
+		{
+			Map<String, Pick> playerPicks = picksByPlayer.get(players[player]);
+			if (playerPicks != null)
+			{
+				for (Pick pick : playerPicks.values())
+				{
+					Integer game = pick == null ? null : gameIndex.get(pick.getGameId());
+					if (game == null)
+						continue;
+					picks[game][player] = code(pick, sortedGames.get(game), results[game]);
+					pickIds[game][player] = pick.getId();
+				}
+			}
+
+			DoublePick doublePick = doubles == null ? null : doubles.get(players[player]);
+			Integer game = doublePick == null ? null : gameIndex.get(doublePick.getGameId());
+			if (game != null)
+			{
+				int pick = picks[game][player] | DOUBLE;
+				if (doublePick.isAdminOverride())
+					pick |= DOUBLE_ADMIN_OVERRIDE;
+				picks[game][player] = (byte) pick;
+				if (pickIds[game][player] == null)
+					pickIds[game][player] = doublePick.getPickId();
+			}
+		}
+
+		String[] teams = teamIndex.keySet().toArray(new String[teamIndex.size()]);
+		return new WeekSnapshot(leagueId, weekId, frozenAt, players, teams, games, favs, dogs, results, picks, pickIds);
+	}
+
+	/**
+	 * The dog covers when its score plus the spread beats the fav's, the same
+	 * rule the gateway scores the pick board with.  A game that hasn't started
+	 * or has no score yet has no result.
+	 */
+	public static byte result(GameResponse game)
+	{
+		if (game.getGameStart() == null || !game.getHasGameStarted() || (game.getFavScore() == 0 && game.getDogScore() == 0))
+			return RESULT_NONE;
+		return game.getDogScore() + game.getSpread() > game.getFavScore() ? RESULT_DOG : RESULT_FAV;
+	}
+
+	private static byte code(Pick pick, GameResponse game, byte result)
+	{
+		int side = SIDE_NONE;
+		if (pick.getTeamId() != null && pick.getTeamId().equals(game.getFavId()))
+			side = SIDE_FAV;
+		else if (pick.getTeamId() != null && pick.getTeamId().equals(game.getDogId()))
+			side = SIDE_DOG;
+
+		int code = PICKED | side;
+		if (side != SIDE_NONE && side == result)
+			code |= WON;
+		if (pick.isNoPick())
+			code |= NO_PICK;
+		if (pick.isAdminOverride())
+			code |= ADMIN_OVERRIDE;
+		return (byte) code;
+	}
+
+	private static long kickoff(GameResponse game)
+	{
+		return game.getGameStart() == null ? 0 : game.getGameStart().toInstant().toEpochMilli();
+	}
+
+	/**
+	 * @return playerId -> gameId -> pick, the shape of a live week.  The picks
+	 * are rebuilt, the last updated time of each is when the week was frozen.
+	 */
+	public Map<String, Map<String, Pick>> toPicksByPlayer()
+	{
+		Map<String, Map<String, Pick>> picksByPlayer = new HashMap<>(players.length * 2);
+		for (int player = 0; player < players.length; player++)
+		{
+			Map<String, Pick> playerPicks = new HashMap<>();
+			for (int game = 0; game < games.length; game++)
+			{
+				if ((picks[game][player] & PICKED) != 0)
+					playerPicks.put(games[game], toPick(game, player));
+			}
+			if (!playerPicks.isEmpty())
+				picksByPlayer.put(players[player], playerPicks);
+		}
+		return picksByPlayer;
+	}
+
+	/**
+	 * @return the player's pick for the game, null if they didn't make one
+	 */
+	public Pick findPick(String playerId, String gameId)
+	{
+		int player = indexOf(players, playerId);
+		int game = indexOf(games, gameId);
+		if (player < 0 || game < 0 || (picks[game][player] & PICKED) == 0)
+			return null;
+		return toPick(game, player);
+	}
+
+	private Pick toPick(int game, int player)
+	{
+		int code = picks[game][player];
+		Pick pick = new Pick();
+		pick.setId(pickIds[game][player]);
+		pick.setLeagueId(leagueId);
+		pick.setWeekId(weekId);
+		pick.setGameId(games[game]);
+		pick.setPlayerId(players[player]);
+		pick.setTeamId(teamOf(game, code & SIDE_MASK));
+		pick.setNoPick((code & NO_PICK) != 0);
+		pick.setAdminOverride((code & ADMIN_OVERRIDE) != 0);
+		pick.setPickLastUpdated(frozenAt);
+		return pick;
+	}
+
+	/**
+	 * @return playerId -> double pick, null when nobody had one like the repositories
+	 */
+	public Map<String, DoublePick> toDoublePicks()
+	{
+		Map<String, DoublePick> doublePicks = new HashMap<>();
+		for (int game = 0; game < games.length; game++)
+		{
+			for (int player = 0; player < players.length; player++)
+			{
+				int code = picks[game][player];
+				if ((code & DOUBLE) == 0)
+					continue;
+				DoublePick doublePick = new DoublePick(leagueId, weekId, players[player], pickIds[game][player], games[game], true);
+				doublePick.setAdminOverride((code & DOUBLE_ADMIN_OVERRIDE) != 0);
+				doublePicks.put(players[player], doublePick);
+			}
+		}
+		return doublePicks.isEmpty() ? null : doublePicks;
+	}
+
+	/**
+	 * @return playerId -> points, a win is worth one and a winning double two
+	 */
+	public Map<String, Integer> getPoints()
+	{
+		Map<String, Integer> byPlayer = new HashMap<>(players.length * 2);
+		for (int player = 0; player < players.length; player++)
+			byPlayer.put(players[player], points[player]);
+		return byPlayer;
+	}
+
+	/**
+	 * @return gameId -> the team that covered, games without a result are left out
+	 */
+	public Map<String, String> getWinners()
+	{
+		Map<String, String> winners = new HashMap<>(games.length * 2);
+		for (int game = 0; game < games.length; game++)
+		{
+			String team = teamOf(game, results[game]);
+			if (team != null)
+				winners.put(games[game], team);
+		}
+		return winners;
+	}
+
+	private String teamOf(int game, int side)
+	{
+		if (side == SIDE_FAV)
+			return teams[favs[game]];
+		if (side == SIDE_DOG)
+			return teams[dogs[game]];
+		return null;
+	}
+
+	private static int indexOf(String[] values, String value)
+	{
+		for (int i = 0; i < values.length; i++)
+		{
+			if (values[i].equals(value))
+				return i;
+		}
+		return -1;
+	}
+
+	public String getLeagueId() {
+		return leagueId;
+	}
+
+	public String getWeekId() {
+		return weekId;
+	}
+
+	public long getFrozenAt() {
+		return frozenAt;
+	}
+
+	public String[] getPlayers() {
+		return players;
+	}
+
+	public String[] getTeams() {
+		return teams;
+	}
+
+	public String[] getGames() {
+		return games;
+	}
+
+	public int[] getFavs() {
+		return favs;
+	}
+
+	public int[] getDogs() {
+		return dogs;
+	}
+
+	public byte[] getResults() {
+		return results;
+	}
+
+	public byte[][] getPicks() {
+		return picks;
+	}
+
+	public String[][] getPickIds() {
+		return pickIds;
+	}
+
+	@Override
+	public String toString() {
+		return "WeekSnapshot [leagueId=" + leagueId + ", weekId=" + weekId + ", frozenAt=" + frozenAt
+				+ ", players=" + players.length + ", games=" + games.length + "]";
+	}
+}
@@ -18,7 +18,8 @@ public class PickValidationException extends RuntimeException {
 	
 	public enum PickExceptions {PICK_IS_NULL, GAME_IS_NULL, TEAM_IS_NULL, WEEK_IS_NULL, LEAGUE_IS_NULL, 
 		PLAYER_IS_NUll, TEAM_NOT_PLAYING_IN_GAME, GAME_HAS_ALREADY_STARTED, WEEK_IS_NOT_VALID, PLAYER_NOT_IN_LEAGUE,
-		UNAUTHORIZED_USER, GAME_SERVICE_IS_DOWN, LEAGUE_SERVICE_IS_DOWN}
+		UNAUTHORIZED_USER, GAME_SERVICE_IS_DOWN, LEAGUE_SERVICE_IS_DOWN, LEAGUE_IS_NOT_VALID, GAME_PICKED_TWICE,
+		WEEK_IS_NOT_FINAL}
 	
 	private Iterable<PickExceptions> exceptions;
 	
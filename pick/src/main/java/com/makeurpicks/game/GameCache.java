@@ -0,0 +1,167 @@
+package com.makeurpicks.game;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local copy of the games picks are validated against.  There are only about 16
+ * games a week and they hardly change, so the expiry follows the kickoff time:
+ *
+ * - more than the kickoff window out, an entry lives for the normal ttl but never
+ *   past the start of the window
+ * - inside the window it lives for the short kickoff ttl and never past kickoff,
+ *   so a flexed or delayed start is picked up before it matters
+ * - after kickoff it goes back to the normal ttl
+ *
+ * Expired entries are dropped on read and swept out on a schedule.  Hits and
+ * misses show up under /metrics as gameCache.*.
+ */
+@Component
+public class GameCache implements PublicMetrics {
+
+	private Log log = LogFactory.getLog(GameCache.class);
+
+	private final Map<String, Entry> games = new ConcurrentHashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final Clock clock;
+
+	@Value("${pick.game-cache.ttl-seconds:600}")
+	private long ttlSeconds = 600;
+
+	@Value("${pick.game-cache.kickoff-window-seconds:900}")
+	private long kickoffWindowSeconds = 900;
+
+	@Value("${pick.game-cache.kickoff-ttl-seconds:30}")
+	private long kickoffTtlSeconds = 30;
+
+	public GameCache()
+	{
+		this(Clock.systemUTC());
+	}
+
+	GameCache(Clock clock)
+	{
+		this.clock = clock;
+	}
+
+	public GameResponse get(String id)
+	{
+		Entry entry = games.get(id);
+		if (entry != null && entry.isLive(clock.instant()))
+		{
+			hits.incrementAndGet();
+			return entry.game;
+		}
+
+		if (entry != null)
+			games.remove(id, entry);
+		misses.incrementAndGet();
+		return null;
+	}
+
+	public void put(GameResponse game)
+	{
+		games.put(game.getId(), new Entry(game, expiresAt(game, clock.instant())));
+	}
+
+	public void evict(String id)
+	{
+		games.remove(id);
+	}
+
+	Instant expiresAt(GameResponse game, Instant now)
+	{
+		Instant expiresAt = now.plusSeconds(ttlSeconds);
+		if (game.getGameStart() == null)
+			return expiresAt;
+
+		Instant kickoff = game.getGameStart().toInstant();
+		Instant windowStart = kickoff.minusSeconds(kickoffWindowSeconds);
+		if (now.isBefore(windowStart))
+			return min(expiresAt, windowStart);
+		if (now.isBefore(kickoff))
+			return min(now.plusSeconds(kickoffTtlSeconds), kickoff);
+		return expiresAt;
+	}
+
+	@Scheduled(fixedDelayString = "${pick.game-cache.sweep-ms:30000}")
+	public void evictExpired()
+	{
+		Instant now = clock.instant();
+		int evicted = 0;
+		for (Map.Entry<String, Entry> entry : games.entrySet())
+		{
+			if (!entry.getValue().isLive(now) && games.remove(entry.getKey(), entry.getValue()))
+				evicted++;
+		}
+		if (evicted > 0)
+		{
+			evictions.addAndGet(evicted);
+			log.debug("evicted "+evicted+" games from the cache");
+		}
+	}
+
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	public int size()
+	{
+		return games.size();
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics()
+	{
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<Long>("gameCache.hits", hits.get()));
+		metrics.add(new Metric<Long>("gameCache.misses", misses.get()));
+		metrics.add(new Metric<Long>("gameCache.evictions", evictions.get()));
+		metrics.add(new Metric<Integer>("gameCache.size", games.size()));
+		return metrics;
+	}
+
+	private static Instant min(Instant a, Instant b)
+	{
+		return a.isBefore(b) ? a : b;
+	}
+
+	private static class Entry {
+		private final GameResponse game;
+		private final Instant expiresAt;
+
+		Entry(GameResponse game, Instant expiresAt)
+		{
+			this.game = game;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isLive(Instant now)
+		{
+			return now.isBefore(expiresAt);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package com.makeurpicks.game;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.oauth2.client.OAuth2RestOperations;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import com.makeurpicks.exception.PickValidationException;
+import com.makeurpicks.exception.PickValidationException.PickExceptions;
+import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
+import com.netflix.hystrix.contrib.javanica.annotation.HystrixProperty;
+
+/**
+ * The calls to the game service.  Kept apart from {@link GameIntegrationService}
+ * so the hystrix proxy still wraps them when they are made from the cache.
+ */
+@Service
+public class GameClient {
+
+	private Log log = LogFactory.getLog(GameClient.class);
+
+	private static final ParameterizedTypeReference<Map<String, GameResponse>> GAMES_BY_ID =
+			new ParameterizedTypeReference<Map<String, GameResponse>>() {};
+
+	@Autowired
+    @Qualifier("loadBalancedRestTemplate")
+    @LoadBalanced
+    RestTemplate restTemplate;
+
+	@Autowired
+    @LoadBalanced
+    private OAuth2RestOperations secureRestTemplate;
+
+    @HystrixCommand(fallbackMethod = "stubGame",
+            commandProperties = {
+                    @HystrixProperty(name = "execution.isolation.strategy", value = "SEMAPHORE")
+            }
+    )
+    public GameResponse getGameById(String id)
+    {
+//    	final GameResponse response = secureRestTemplate.getForObject("http://game/games/{id}", GameResponse.class, id);
+    	log.debug("gameId = "+id);
+
+    	final GameResponse response = secureRestTemplate.exchange("http://game/games/{id}", HttpMethod.GET, null, GameResponse.class, id).getBody();
+        return response;
+    }
+
+    @HystrixCommand(fallbackMethod = "stubGamesByWeek",
+            commandProperties = {
+                    @HystrixProperty(name = "execution.isolation.strategy", value = "SEMAPHORE")
+            }
+    )
+    public List<GameResponse> getGamesByWeek(String weekId)
+    {
+    	log.debug("weekId = "+weekId);
+
+    	final GameResponse[] response = secureRestTemplate.exchange("http://game/games/weekid/{id}", HttpMethod.GET, null, GameResponse[].class, weekId).getBody();
+    	if (response == null)
+    		return Collections.emptyList();
+        return Arrays.asList(response);
+    }
+
+    /**
+     * Every game asked for in one call, keyed by game id.  Posted rather than
+     * put on the query string so a long list still fits, games the game
+     * service doesn't know are left out.
+     */
+    @HystrixCommand(fallbackMethod = "stubGamesByIds",
+            commandProperties = {
+                    @HystrixProperty(name = "execution.isolation.strategy", value = "SEMAPHORE")
+            }
+    )
+    public Map<String, GameResponse> getGamesByIds(Collection<String> ids)
+    {
+    	log.debug("gameIds = "+ids);
+
+    	final Map<String, GameResponse> response = secureRestTemplate.exchange("http://game/games/ids", HttpMethod.POST, new HttpEntity<Collection<String>>(ids), GAMES_BY_ID).getBody();
+    	if (response == null)
+    		return Collections.emptyMap();
+    	return response;
+    }
+
+    @SuppressWarnings("unused")
+    private GameResponse stubGame(final String id) {
+    	throw new PickValidationException(PickExceptions.GAME_SERVICE_IS_DOWN);
+    }
+
+    @SuppressWarnings("unused")
+    private List<GameResponse> stubGamesByWeek(final String weekId) {
+    	throw new PickValidationException(PickExceptions.GAME_SERVICE_IS_DOWN);
+    }
+
+    @SuppressWarnings("unused")
+    private Map<String, GameResponse> stubGamesByIds(final Collection<String> ids) {
+    	throw new PickValidationException(PickExceptions.GAME_SERVICE_IS_DOWN);
+    }
+}
@@ -1,50 +1,81 @@
 package com.makeurpicks.game;
 
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.cloud.client.loadbalancer.LoadBalanced;
-import org.springframework.http.HttpMethod;
-import org.springframework.security.oauth2.client.OAuth2RestOperations;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-
-import com.makeurpicks.exception.PickValidationException;
-import com.makeurpicks.exception.PickValidationException.PickExceptions;
-import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
-import com.netflix.hystrix.contrib.javanica.annotation.HystrixProperty;
 
 @Service
 public class GameIntegrationService {
 
-	private Log log = LogFactory.getLog(GameIntegrationService.class);
-	
 	@Autowired
-    @Qualifier("loadBalancedRestTemplate")
-    @LoadBalanced
-    RestTemplate restTemplate;
+	private GameClient gameClient;
 
 	@Autowired
-    @LoadBalanced
-    private OAuth2RestOperations secureRestTemplate;
-	
-    @HystrixCommand(fallbackMethod = "stubGame",
-            commandProperties = {
-                    @HystrixProperty(name = "execution.isolation.strategy", value = "SEMAPHORE")
-            }
-    )
+	private GameCache gameCache;
+
+	/**
+	 * Games come out of {@link GameCache} and only go to the game service on a
+	 * miss.  Has the game started is worked out from the kickoff time on every
+	 * call so a cached game still locks on the second it kicks off.
+	 */
     public GameResponse getGameById(String id)
     {
-//    	final GameResponse response = secureRestTemplate.getForObject("http://game/games/{id}", GameResponse.class, id);
-    	log.debug("gameId = "+id);
+    	GameResponse game = gameCache.get(id);
+    	if (game != null)
+    		return game;
 
-    	final GameResponse response = secureRestTemplate.exchange("http://game/games/{id}", HttpMethod.GET, null, GameResponse.class, id).getBody();
-        return response;
+    	game = gameClient.getGameById(id);
+    	if (game != null)
+    		gameCache.put(game);
+        return game;
     }
-    
-    @SuppressWarnings("unused")
-    private GameResponse stubGame(final String id) {
-    	throw new PickValidationException(PickExceptions.GAME_SERVICE_IS_DOWN);
+
+    /**
+     * Games the cache has are served from it and the rest come from the game
+     * service in a single call, however many there are.  Ids the game service
+     * doesn't know are left out of the map.
+     */
+    public Map<String, GameResponse> getGamesByIds(Collection<String> ids)
+    {
+    	Map<String, GameResponse> games = new HashMap<>();
+    	List<String> misses = new ArrayList<>();
+    	for (String id : new LinkedHashSet<>(ids))
+    	{
+    		GameResponse game = gameCache.get(id);
+    		if (game != null)
+    			games.put(id, game);
+    		else
+    			misses.add(id);
+    	}
+    	if (misses.isEmpty())
+    		return games;
+
+    	for (GameResponse game : gameClient.getGamesByIds(misses).values())
+    	{
+    		gameCache.put(game);
+    		games.put(game.getId(), game);
+    	}
+    	return games;
+    }
+
+    /**
+     * One call for every game in the week, keyed by game id.  The games also
+     * go into the cache so single lookups for the same week hit it afterwards.
+     */
+    public Map<String, GameResponse> getGamesByWeek(String weekId)
+    {
+    	Map<String, GameResponse> games = new HashMap<>();
+    	for (GameResponse game : gameClient.getGamesByWeek(weekId))
+    	{
+    		gameCache.put(game);
+    		games.put(game.getId(), game);
+    	}
+    	return games;
     }
 }
@@ -0,0 +1,43 @@
+package com.makeurpicks.game;
+
+import java.time.Instant;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by {@link KickoffLockScheduler} when a game kicks off and picks on it
+ * can no longer change.
+ */
+public class GameLockedEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String gameId;
+	private final String weekId;
+	private final Instant kickoff;
+
+	public GameLockedEvent(Object source, String gameId, String weekId, Instant kickoff)
+	{
+		super(source);
+		this.gameId = gameId;
+		this.weekId = weekId;
+		this.kickoff = kickoff;
+	}
+
+	public String getGameId() {
+		return gameId;
+	}
+
+	public String getWeekId() {
+		return weekId;
+	}
+
+	public Instant getKickoff() {
+		return kickoff;
+	}
+
+	@Override
+	public String toString() {
+		return "GameLockedEvent [gameId=" + gameId + ", weekId=" + weekId + ", kickoff=" + kickoff + "]";
+	}
+}
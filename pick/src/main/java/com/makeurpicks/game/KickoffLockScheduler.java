@@ -0,0 +1,234 @@
+package com.makeurpicks.game;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Answers whether a game has kicked off for pick validation, and announces the
+ * kickoff with a {@link GameLockedEvent}.
+ *
+ * The answer always comes from the kickoff and the clock, a game is locked
+ * from its kickoff on whatever the timer is doing.  A game without a kickoff
+ * can't be shown to be in the future and is locked too.  Every game it is told
+ * about also gets a task on a delay queue that publishes the event at kickoff,
+ * straight away if the kickoff has already passed.  Listeners run on their own
+ * thread so a slow one never holds up the timer.  The weeks of those games are
+ * reloaded from the game service on a schedule so a flexed or delayed kickoff
+ * moves its task, and a game asked about with a kickoff other than the one it
+ * was scheduled for is rescheduled there and then.
+ *
+ * A game is forgotten once its kickoff is older than the retention, it is
+ * long over by then and is answered as locked without being tracked again.
+ */
+@Component
+public class KickoffLockScheduler {
+
+	private Log log = LogFactory.getLog(KickoffLockScheduler.class);
+
+	//a game, and a week once its last game, is dropped when it kicked off this long ago
+	private static final Duration RETENTION = Duration.ofDays(2);
+
+	@Autowired(required=false)
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired(required=false)
+	private GameClient gameClient;
+
+	//the games whose event has been published
+	private final Set<String> announced = ConcurrentHashMap.newKeySet();
+	private final Map<String, Kickoff> kickoffs = new ConcurrentHashMap<>();
+	private final Map<String, Instant> lastKickoffByWeek = new ConcurrentHashMap<>();
+
+	private final Clock clock;
+	private final ScheduledThreadPoolExecutor executor;
+	private final ExecutorService listeners;
+
+	public KickoffLockScheduler()
+	{
+		this(Clock.systemUTC());
+	}
+
+	KickoffLockScheduler(Clock clock)
+	{
+		this.clock = clock;
+		this.executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			private final ThreadFactory delegate = Executors.defaultThreadFactory();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = delegate.newThread(runnable);
+				thread.setName("kickoff-lock");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.executor.setRemoveOnCancelPolicy(true);
+		this.listeners = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			private final ThreadFactory delegate = Executors.defaultThreadFactory();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = delegate.newThread(runnable);
+				thread.setName("kickoff-lock-events");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * @return true once the game has kicked off or if it has no kickoff, a game
+	 * it hasn't seen yet or whose kickoff moved is scheduled for its event
+	 */
+	public boolean isLocked(GameResponse game)
+	{
+		if (game.getGameStart() == null)
+			return true;
+
+		Instant kickoff = game.getGameStart().toInstant();
+		Instant now = clock.instant();
+		Kickoff known = kickoffs.get(game.getId());
+		if (known == null || !known.at.equals(kickoff))
+		{
+			if (known != null || !kickoff.isBefore(now.minus(RETENTION)))
+				schedule(game);
+		}
+		return !now.isBefore(kickoff);
+	}
+
+	/**
+	 * @return true once a game it is tracking has kicked off
+	 */
+	public boolean isLocked(String gameId)
+	{
+		Kickoff known = kickoffs.get(gameId);
+		return known != null && !clock.instant().isBefore(known.at);
+	}
+
+	public synchronized void schedule(GameResponse game)
+	{
+		if (game.getGameStart() == null)
+			return;
+
+		Instant kickoff = game.getGameStart().toInstant();
+		Kickoff previous = kickoffs.get(game.getId());
+		if (previous != null && previous.at.equals(kickoff))
+			return;
+		if (previous != null && previous.task != null)
+			previous.task.cancel(false);
+
+		if (game.getWeekId() != null)
+			lastKickoffByWeek.merge(game.getWeekId(), kickoff, (a, b) -> a.isAfter(b) ? a : b);
+
+		long delay = Duration.between(clock.instant(), kickoff).toMillis();
+		if (delay <= 0)
+		{
+			kickoffs.put(game.getId(), new Kickoff(kickoff, null));
+			lock(game.getId(), game.getWeekId(), kickoff);
+			return;
+		}
+
+		if (announced.remove(game.getId()))
+			log.info("game "+game.getId()+" moved to "+kickoff+", unlocked");
+
+		ScheduledFuture<?> task = executor.schedule(() -> lock(game.getId(), game.getWeekId(), kickoff), delay, TimeUnit.MILLISECONDS);
+		kickoffs.put(game.getId(), new Kickoff(kickoff, task));
+	}
+
+	/**
+	 * Reloads the weeks that still have games to play, or only just finished, so
+	 * schedule changes are picked up.
+	 */
+	@Scheduled(fixedDelayString = "${pick.kickoff-lock.refresh-ms:300000}")
+	public void refreshWeeks()
+	{
+		Instant cutoff = clock.instant().minus(RETENTION);
+		prune(cutoff);
+		if (gameClient == null)
+			return;
+
+		for (Map.Entry<String, Instant> week : lastKickoffByWeek.entrySet())
+		{
+			if (week.getValue().isBefore(cutoff))
+			{
+				lastKickoffByWeek.remove(week.getKey());
+				continue;
+			}
+
+			try {
+				for (GameResponse game : gameClient.getGamesByWeek(week.getKey()))
+					schedule(game);
+			} catch (RuntimeException e) {
+				log.warn("unable to refresh kickoff times for week "+week.getKey(), e);
+			}
+		}
+	}
+
+	/**
+	 * Forgets the games that kicked off before the cutoff, their tasks have
+	 * long since run.
+	 */
+	private synchronized void prune(Instant cutoff)
+	{
+		for (Map.Entry<String, Kickoff> game : kickoffs.entrySet())
+		{
+			if (game.getValue().at.isBefore(cutoff))
+			{
+				kickoffs.remove(game.getKey());
+				announced.remove(game.getKey());
+			}
+		}
+	}
+
+	boolean isTracked(String gameId)
+	{
+		return kickoffs.containsKey(gameId);
+	}
+
+	private void lock(String gameId, String weekId, Instant kickoff)
+	{
+		if (!announced.add(gameId))
+			return;
+
+		log.debug("game "+gameId+" kicked off at "+kickoff+", locked");
+		if (eventPublisher != null)
+			listeners.execute(() -> eventPublisher.publishEvent(new GameLockedEvent(this, gameId, weekId, kickoff)));
+	}
+
+	@PreDestroy
+	public void shutdown()
+	{
+		executor.shutdownNow();
+		listeners.shutdownNow();
+	}
+
+	private static class Kickoff {
+		private final Instant at;
+		private final ScheduledFuture<?> task;
+
+		Kickoff(Instant at, ScheduledFuture<?> task)
+		{
+			this.at = at;
+			this.task = task;
+		}
+	}
+}
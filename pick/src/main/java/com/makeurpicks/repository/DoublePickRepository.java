@@ -12,6 +12,7 @@ public interface DoublePickRepository extends Repository<String, String> {
 	public DoublePick findDoubleForPlayer(String leagueId, String weekId, String playerId);
 	public void delete(DoublePick doublePick);
 	public void save(DoublePick doublePick);
+	public void deleteWeek(String leagueId, String weekId);
 	public void deleteAll();
 	
 	
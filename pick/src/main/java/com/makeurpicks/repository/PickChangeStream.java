@@ -0,0 +1,47 @@
+package com.makeurpicks.repository;
+
+import java.util.List;
+
+import com.makeurpicks.domain.PickChangeEvent;
+
+/**
+ * Append only, ordered log of pick changes, split into shards by league so the
+ * writes of every league don't land on one key.  A league's changes always go
+ * to the same shard, in order.  Every event gets the next sequence number of
+ * its shard, readers remember the last one they saw in each shard and ask for
+ * what came after.  Old events are trimmed once a shard passes its maximum
+ * length, a reader that falls further behind than that has to reload the weeks
+ * it follows.
+ */
+public interface PickChangeStream {
+
+	/**
+	 * @return the number of shards, numbered from 0
+	 */
+	public int getShards();
+
+	/**
+	 * @return the shard the league's changes go to
+	 */
+	public int shardOf(String leagueId);
+
+	/**
+	 * Appends the events in order, setting their sequence numbers.
+	 */
+	public void append(List<PickChangeEvent> events);
+
+	/**
+	 * @return up to count events of the shard with a sequence after the one
+	 * given, oldest first
+	 */
+	public List<PickChangeEvent> readAfter(int shard, long sequence, int count);
+
+	/**
+	 * @return the sequence of the shard's newest event, 0 when nothing was
+	 * appended to it yet
+	 */
+	public long lastSequence(int shard);
+
+	public void deleteAll();
+
+}
@@ -0,0 +1,32 @@
+package com.makeurpicks.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.makeurpicks.domain.Pick;
+
+/**
+ * How many players in a league week are on each team of each game, kept up to
+ * date as picks are saved so the split for a week is one read.
+ */
+public interface PickConsensusRepository {
+
+	/**
+	 * Counts each pick for its team, taking it off the team it was counted for
+	 * before if it moved.  A pick counted for the same team again changes nothing.
+	 */
+	public void record(Collection<Pick> picks);
+
+	/**
+	 * @return gameId -> teamId -> number of picks on that team
+	 */
+	public Map<String, Map<String, Long>> findByWeek(String leagueId, String weekId);
+
+	/**
+	 * Throws away a week's counters and counts the picks given instead.
+	 */
+	public void rebuild(String leagueId, String weekId, Collection<Pick> picks);
+
+	public void deleteAll();
+
+}
@@ -0,0 +1,36 @@
+package com.makeurpicks.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickHistoryEntry;
+
+/**
+ * Every pick a player made in a season across all their leagues, kept as picks
+ * are saved so a profile page doesn't have to walk every league week.  Entries
+ * only say where each pick is, load the picks with
+ * {@link PickRepository#findAllByLeague(java.util.Map)}.
+ */
+public interface PickHistoryRepository {
+
+	/**
+	 * Adds each pick to its player's season, ordered by the value the order
+	 * function gives it, the game's kickoff.  A pick already in the season just
+	 * takes its new place.
+	 */
+	public void record(String seasonId, Collection<Pick> picks, ToLongFunction<Pick> order);
+
+	public void remove(String seasonId, Pick pick);
+
+	/**
+	 * @return count entries of the player's season starting at offset, in order
+	 */
+	public List<PickHistoryEntry> findBySeason(String playerId, String seasonId, int offset, int count);
+
+	public long countBySeason(String playerId, String seasonId);
+
+	public void deleteAll();
+
+}
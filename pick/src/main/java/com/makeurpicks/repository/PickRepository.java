@@ -1,9 +1,27 @@
 package com.makeurpicks.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.data.repository.CrudRepository;
 
 import com.makeurpicks.domain.Pick;
 
 public interface PickRepository extends CrudRepository<Pick, String> {
 
+	/**
+	 * Picks of one league by id, in the order asked for with null where there
+	 * is no pick.  Cheaper than {@link #findAll(Iterable)} when the league is
+	 * known, the redis repository keeps each league's picks together.
+	 */
+	Iterable<Pick> findAll(String leagueId, Iterable<String> pickIds);
+
+	/**
+	 * Picks of several leagues at once, the redis repository asks every league
+	 * in one round trip.
+	 *
+	 * @return the picks found, league by league, ids with no pick are left out
+	 */
+	List<Pick> findAllByLeague(Map<String, ? extends Collection<String>> pickIdsByLeague);
 }
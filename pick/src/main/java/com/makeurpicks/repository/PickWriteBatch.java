@@ -0,0 +1,14 @@
+package com.makeurpicks.repository;
+
+import java.util.Collection;
+
+import com.makeurpicks.domain.Pick;
+
+/**
+ * Writes picks along with their league week index entries as one unit of work.
+ */
+public interface PickWriteBatch {
+
+	public void savePicks(Collection<Pick> picks);
+
+}
@@ -1,5 +1,6 @@
 package com.makeurpicks.repository;
 
+import java.util.Collection;
 import java.util.Map;
 
 import org.springframework.data.repository.Repository;
@@ -17,6 +18,17 @@ public interface PicksByWeekRepository extends Repository<Map<String, Map<String
 	public Map<String, String> findGamesByPlayer(String leagueId, String weekId, String playerId);
 	public String findPicksByGame(String leagueId, String weekId, String playerId, String gameId);
 	public Pick createPick(Pick pick);
+	/**
+	 * Adds the picks to their league week index.  A player's game that already
+	 * has a pick keeps it, the pick being added is given that pick's id, so
+	 * saves racing to create the same pick share one id.  The check and the
+	 * write are one atomic step.
+	 */
+	public void createPicks(Collection<Pick> picks);
+	/**
+	 * Drops the week's index, the league no longer lists the week.
+	 */
+	public void deleteWeek(String leagueId, String weekId);
 	public void deleteAll();
 	
 }
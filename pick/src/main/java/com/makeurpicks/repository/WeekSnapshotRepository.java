@@ -0,0 +1,23 @@
+package com.makeurpicks.repository;
+
+import com.makeurpicks.domain.WeekSnapshot;
+
+/**
+ * Frozen league weeks, kept apart from the live picks so a week's raw picks can
+ * be dropped once it is frozen.  A snapshot is written once and never replaced.
+ */
+public interface WeekSnapshotRepository {
+
+	/**
+	 * @return false if the week was already frozen, the stored snapshot is kept
+	 */
+	public boolean save(WeekSnapshot snapshot);
+
+	/**
+	 * @return the week's snapshot, null while the week isn't frozen
+	 */
+	public WeekSnapshot findOne(String leagueId, String weekId);
+
+	public void deleteAll();
+
+}
@@ -0,0 +1,22 @@
+package com.makeurpicks.repository;
+
+/**
+ * A counter per league week that goes up every time a pick or double pick in
+ * the week is saved, so readers can tell whether what they have is current
+ * without reading the picks again.
+ */
+public interface WeekVersionRepository {
+
+	/**
+	 * @return the week's version, 0 if nothing in the week was ever saved
+	 */
+	public long findVersion(String leagueId, String weekId);
+
+	/**
+	 * @return the new version
+	 */
+	public long increment(String leagueId, String weekId);
+
+	public void deleteAll();
+
+}
@@ -0,0 +1,217 @@
+package com.makeurpicks.repository.memory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hands out a dense int for every league, week, player, game, team and pick id
+ * so the in memory repositories can store ints instead of strings.
+ *
+ * Almost every id is a lower case uuid, those are kept as their two longs in an
+ * open addressing table, 16 bytes each instead of a 36 char String.  Anything
+ * else, team ids, test ids, goes through a plain HashMap.  Shared by all the in
+ * memory repositories so an id has the same int everywhere.
+ */
+public class IdInterner {
+
+	public static final int NONE = -1;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	//by int id, strings[id] is null when the id is a uuid
+	private long[] mostSignificant = new long[1024];
+	private long[] leastSignificant = new long[1024];
+	private String[] strings = new String[1024];
+	private int count;
+
+	//open addressing table of int ids keyed by their uuid bits, NONE is free
+	private int[] uuidTable = newTable(2048);
+	private int uuids;
+
+	private final Map<String, Integer> otherIds = new HashMap<>();
+
+	private static int[] newTable(int capacity)
+	{
+		int[] table = new int[capacity];
+		Arrays.fill(table, NONE);
+		return table;
+	}
+
+	/**
+	 * @return the id's int, assigning the next one if it hasn't been seen, NONE for null
+	 */
+	public int intern(String id)
+	{
+		if (id == null)
+			return NONE;
+
+		int existing = find(id);
+		if (existing != NONE)
+			return existing;
+
+		lock.writeLock().lock();
+		try {
+			existing = findLocked(id);
+			if (existing != NONE)
+				return existing;
+			return add(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the id's int, NONE if it has never been interned
+	 */
+	public int find(String id)
+	{
+		if (id == null)
+			return NONE;
+
+		lock.readLock().lock();
+		try {
+			return findLocked(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the id for an int from {@link #intern(String)}, null for NONE
+	 */
+	public String get(int id)
+	{
+		if (id == NONE)
+			return null;
+
+		lock.readLock().lock();
+		try {
+			if (id < 0 || id >= count)
+				throw new IllegalArgumentException("unknown id "+id);
+			String string = strings[id];
+			return string != null ? string : new UUID(mostSignificant[id], leastSignificant[id]).toString();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int size()
+	{
+		lock.readLock().lock();
+		try {
+			return count;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private int findLocked(String id)
+	{
+		if (!isUuid(id))
+		{
+			Integer other = otherIds.get(id);
+			return other == null ? NONE : other;
+		}
+
+		long most = hex(id, 0, 8) << 32 | hex(id, 9, 13) << 16 | hex(id, 14, 18);
+		long least = hex(id, 19, 23) << 48 | hex(id, 24, 36);
+		int mask = uuidTable.length - 1;
+		for (int i = slot(most, least, mask); uuidTable[i] != NONE; i = (i + 1) & mask)
+		{
+			int candidate = uuidTable[i];
+			if (mostSignificant[candidate] == most && leastSignificant[candidate] == least)
+				return candidate;
+		}
+		return NONE;
+	}
+
+	private int add(String id)
+	{
+		int next = count;
+		if (next == strings.length)
+		{
+			int capacity = next << 1;
+			mostSignificant = Arrays.copyOf(mostSignificant, capacity);
+			leastSignificant = Arrays.copyOf(leastSignificant, capacity);
+			strings = Arrays.copyOf(strings, capacity);
+		}
+
+		if (isUuid(id))
+		{
+			mostSignificant[next] = hex(id, 0, 8) << 32 | hex(id, 9, 13) << 16 | hex(id, 14, 18);
+			leastSignificant[next] = hex(id, 19, 23) << 48 | hex(id, 24, 36);
+			if ((uuids + 1) * 4 > uuidTable.length * 3)
+				rehash(uuidTable.length << 1);
+			insert(uuidTable, next);
+			uuids++;
+		}
+		else
+		{
+			strings[next] = id;
+			otherIds.put(id, next);
+		}
+		count++;
+		return next;
+	}
+
+	private void insert(int[] table, int id)
+	{
+		int mask = table.length - 1;
+		int i = slot(mostSignificant[id], leastSignificant[id], mask);
+		while (table[i] != NONE)
+			i = (i + 1) & mask;
+		table[i] = id;
+	}
+
+	private void rehash(int capacity)
+	{
+		int[] table = newTable(capacity);
+		for (int id : uuidTable)
+		{
+			if (id != NONE)
+				insert(table, id);
+		}
+		uuidTable = table;
+	}
+
+	private static int slot(long most, long least, int mask)
+	{
+		long h = most * 0x9e3779b97f4a7c15L ^ least;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return (int) h & mask;
+	}
+
+	/**
+	 * Only the canonical lower case form, so UUID.toString gives back the same string.
+	 */
+	static boolean isUuid(String id)
+	{
+		if (id.length() != 36)
+			return false;
+		for (int i = 0; i < 36; i++)
+		{
+			char c = id.charAt(i);
+			if (i == 8 || i == 13 || i == 18 || i == 23)
+			{
+				if (c != '-')
+					return false;
+			}
+			else if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f'))
+				return false;
+		}
+		return true;
+	}
+
+	private static long hex(String id, int from, int to)
+	{
+		long value = 0;
+		for (int i = from; i < to; i++)
+			value = value << 4 | Character.digit(id.charAt(i), 16);
+		return value;
+	}
+}
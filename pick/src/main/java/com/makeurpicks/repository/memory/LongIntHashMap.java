@@ -0,0 +1,194 @@
+package com.makeurpicks.repository.memory;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from long keys to non negative int values, linear probing
+ * over two flat arrays so an entry costs 12 bytes instead of a HashMap node with
+ * a boxed key and value.  A value of -1 marks a free slot, so -1 can't be
+ * stored and doubles as "missing" on lookups.
+ *
+ * Not thread safe, the repositories guard it with their own lock.
+ */
+public class LongIntHashMap {
+
+	public static final int MISSING = -1;
+
+	private static final float LOAD_FACTOR = 0.75f;
+
+	public interface Visitor {
+		void visit(long key, int value);
+	}
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+	private int resizeAt;
+
+	public LongIntHashMap()
+	{
+		this(16);
+	}
+
+	public LongIntHashMap(int expected)
+	{
+		int capacity = Integer.highestOneBit(Math.max(4, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, MISSING);
+		mask = capacity - 1;
+		resizeAt = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private int slot(long key)
+	{
+		//murmur3 finalizer, the packed ids are small and sequential
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int) h & mask;
+	}
+
+	public int get(long key)
+	{
+		for (int i = slot(key); values[i] != MISSING; i = (i + 1) & mask)
+		{
+			if (keys[i] == key)
+				return values[i];
+		}
+		return MISSING;
+	}
+
+	public boolean containsKey(long key)
+	{
+		return get(key) != MISSING;
+	}
+
+	/**
+	 * @return the previous value, or MISSING
+	 */
+	public int put(long key, int value)
+	{
+		if (value < 0)
+			throw new IllegalArgumentException("values must not be negative");
+
+		int i = slot(key);
+		for (; values[i] != MISSING; i = (i + 1) & mask)
+		{
+			if (keys[i] == key)
+			{
+				int previous = values[i];
+				values[i] = value;
+				return previous;
+			}
+		}
+
+		keys[i] = key;
+		values[i] = value;
+		if (++size > resizeAt)
+			rehash(keys.length << 1);
+		return MISSING;
+	}
+
+	/**
+	 * @return the removed value, or MISSING
+	 */
+	public int remove(long key)
+	{
+		int i = slot(key);
+		for (; values[i] != MISSING; i = (i + 1) & mask)
+		{
+			if (keys[i] == key)
+				break;
+		}
+		int removed = values[i];
+		if (removed == MISSING)
+			return MISSING;
+
+		//shift the rest of the probe run back so lookups never stop at a hole
+		int hole = i;
+		for (int j = (i + 1) & mask; values[j] != MISSING; j = (j + 1) & mask)
+		{
+			int home = slot(keys[j]);
+			boolean movable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+			if (movable)
+			{
+				keys[hole] = keys[j];
+				values[hole] = values[j];
+				hole = j;
+			}
+		}
+		values[hole] = MISSING;
+		size--;
+		return removed;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(values, MISSING);
+		size = 0;
+	}
+
+	public void forEach(Visitor visitor)
+	{
+		for (int i = 0; i < values.length; i++)
+		{
+			if (values[i] != MISSING)
+				visitor.visit(keys[i], values[i]);
+		}
+	}
+
+	private void rehash(int capacity)
+	{
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldValues.length; i++)
+		{
+			if (oldValues[i] == MISSING)
+				continue;
+			int j = slot(oldKeys[i]);
+			while (values[j] != MISSING)
+				j = (j + 1) & mask;
+			keys[j] = oldKeys[i];
+			values[j] = oldValues[i];
+		}
+	}
+
+	/**
+	 * Packs two ids into one key, high in the upper half.
+	 */
+	public static long pack(int high, int low)
+	{
+		return ((long) high << 32) | (low & 0xffffffffL);
+	}
+
+	public static int high(long key)
+	{
+		return (int) (key >>> 32);
+	}
+
+	public static int low(long key)
+	{
+		return (int) key;
+	}
+}
@@ -0,0 +1,206 @@
+package com.makeurpicks.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.makeurpicks.domain.DoublePick;
+import com.makeurpicks.repository.DoublePickRepository;
+
+/**
+ * Double picks in memory, a row of interned ids per player and league week.
+ * Rows are found through one primitive map keyed by the packed league week and
+ * player ids, a double pick's id already is its league and week.  Listing a
+ * week walks every row, there is only one per player and week so that stays
+ * cheap next to the picks.
+ */
+public class MemoryDoublePickRepository implements DoublePickRepository {
+
+	private static final byte STARTED = 1;
+	private static final byte ADMIN_OVERRIDE = 2;
+
+	private final IdInterner ids;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	//league week and player -> row
+	private final LongIntHashMap rows = new LongIntHashMap();
+
+	private int[] leagueWeeks = new int[64];
+	private int[] players = new int[64];
+	private int[] picks = new int[64];
+	private int[] games = new int[64];
+	private int[] previousGames = new int[64];
+	private byte[] flags = new byte[64];
+	private int[] freeRows = new int[64];
+	private int free;
+	private int used;
+
+	public MemoryDoublePickRepository(IdInterner ids)
+	{
+		this.ids = ids;
+	}
+
+	private static String leagueWeek(String leagueId, String weekId)
+	{
+		return new StringBuilder(leagueId).append("+").append(weekId).toString();
+	}
+
+	/**
+	 * @return null when nobody has a double pick for the week, like the redis repository
+	 */
+	@Override
+	public Map<String, DoublePick> findAllForLeagueAndWeek(String leagueId, String weekId) {
+		int leagueWeek = ids.find(leagueWeek(leagueId, weekId));
+		if (leagueWeek == IdInterner.NONE)
+			return null;
+
+		lock.readLock().lock();
+		try {
+			Map<String, DoublePick> doublePicks = new HashMap<>();
+			rows.forEach((key, row) -> {
+				if (LongIntHashMap.high(key) == leagueWeek)
+				{
+					DoublePick doublePick = load(row);
+					doublePicks.put(doublePick.getPlayerId(), doublePick);
+				}
+			});
+			return doublePicks.isEmpty() ? null : doublePicks;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public DoublePick findDoubleForPlayer(String leagueId, String weekId, String playerId) {
+		int leagueWeek = ids.find(leagueWeek(leagueId, weekId));
+		int player = ids.find(playerId);
+		if (leagueWeek == IdInterner.NONE || player == IdInterner.NONE)
+			return null;
+
+		lock.readLock().lock();
+		try {
+			int row = rows.get(LongIntHashMap.pack(leagueWeek, player));
+			return row == LongIntHashMap.MISSING ? null : load(row);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void delete(DoublePick doublePick) {
+		int leagueWeek = ids.find(doublePick.getId());
+		int player = ids.find(doublePick.getPlayerId());
+		if (leagueWeek == IdInterner.NONE || player == IdInterner.NONE)
+			return;
+
+		lock.writeLock().lock();
+		try {
+			freeRow(rows.remove(LongIntHashMap.pack(leagueWeek, player)));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void save(DoublePick doublePick) {
+		int leagueWeek = ids.intern(doublePick.getId());
+		int player = ids.intern(doublePick.getPlayerId());
+		int pick = ids.intern(doublePick.getPickId());
+		int game = ids.intern(doublePick.getGameId());
+		int previousGame = ids.intern(doublePick.getPreviousDoubleGameId());
+
+		lock.writeLock().lock();
+		try {
+			long key = LongIntHashMap.pack(leagueWeek, player);
+			int row = rows.get(key);
+			if (row == LongIntHashMap.MISSING)
+			{
+				row = newRow();
+				rows.put(key, row);
+			}
+			leagueWeeks[row] = leagueWeek;
+			players[row] = player;
+			picks[row] = pick;
+			games[row] = game;
+			previousGames[row] = previousGame;
+			flags[row] = (byte) ((doublePick.isHasDoubleGameStarted() ? STARTED : 0) | (doublePick.isAdminOverride() ? ADMIN_OVERRIDE : 0));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void deleteWeek(String leagueId, String weekId) {
+		int leagueWeek = ids.find(leagueWeek(leagueId, weekId));
+		if (leagueWeek == IdInterner.NONE)
+			return;
+
+		lock.writeLock().lock();
+		try {
+			List<Long> keys = new ArrayList<>();
+			rows.forEach((key, row) -> {
+				if (LongIntHashMap.high(key) == leagueWeek)
+					keys.add(key);
+			});
+			for (long key : keys)
+				freeRow(rows.remove(key));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void deleteAll() {
+		lock.writeLock().lock();
+		try {
+			rows.clear();
+			free = 0;
+			used = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void freeRow(int row)
+	{
+		if (row == LongIntHashMap.MISSING)
+			return;
+		if (free == freeRows.length)
+			freeRows = Arrays.copyOf(freeRows, free << 1);
+		freeRows[free++] = row;
+	}
+
+	private int newRow()
+	{
+		if (free > 0)
+			return freeRows[--free];
+
+		if (used == players.length)
+		{
+			int capacity = used << 1;
+			leagueWeeks = Arrays.copyOf(leagueWeeks, capacity);
+			players = Arrays.copyOf(players, capacity);
+			picks = Arrays.copyOf(picks, capacity);
+			games = Arrays.copyOf(games, capacity);
+			previousGames = Arrays.copyOf(previousGames, capacity);
+			flags = Arrays.copyOf(flags, capacity);
+		}
+		return used++;
+	}
+
+	private DoublePick load(int row)
+	{
+		DoublePick doublePick = new DoublePick();
+		doublePick.setId(ids.get(leagueWeeks[row]));
+		doublePick.setPlayerId(ids.get(players[row]));
+		doublePick.setPickId(ids.get(picks[row]));
+		doublePick.setGameId(ids.get(games[row]));
+		doublePick.setPreviousDoubleGameId(ids.get(previousGames[row]));
+		doublePick.setHasDoubleGameStarted((flags[row] & STARTED) != 0);
+		doublePick.setAdminOverride((flags[row] & ADMIN_OVERRIDE) != 0);
+		return doublePick;
+	}
+}
@@ -0,0 +1,70 @@
+package com.makeurpicks.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.makeurpicks.domain.PickChangeEvent;
+import com.makeurpicks.repository.PickChangeStream;
+
+/**
+ * The pick change log in the service's heap, for the memory profile and tests.
+ * Sequences are contiguous so a read finds its starting point by subtraction,
+ * the oldest events are dropped in bulk once the log is twice its length.
+ * There is nothing to spread out in memory, it is a single shard.
+ */
+public class MemoryPickChangeStream implements PickChangeStream {
+
+	private final List<PickChangeEvent> events = new ArrayList<>();
+	private final int maxLength;
+	private long sequence;
+
+	public MemoryPickChangeStream(int maxLength)
+	{
+		this.maxLength = maxLength;
+	}
+
+	public int getShards()
+	{
+		return 1;
+	}
+
+	public int shardOf(String leagueId)
+	{
+		return 0;
+	}
+
+	public synchronized void append(List<PickChangeEvent> appended)
+	{
+		for (PickChangeEvent event : appended)
+		{
+			event.setSequence(++sequence);
+			events.add(event);
+		}
+		if (events.size() > maxLength * 2)
+			events.subList(0, events.size() - maxLength).clear();
+	}
+
+	public synchronized List<PickChangeEvent> readAfter(int shard, long after, int count)
+	{
+		if (after >= sequence)
+			return Collections.emptyList();
+
+		//everything before the last maxLength counts as trimmed, even if it is still here
+		long oldest = Math.max(events.get(0).getSequence(), sequence - maxLength + 1);
+		int from = (int) (Math.max(after + 1, oldest) - events.get(0).getSequence());
+		int to = Math.min(events.size(), from + count);
+		return new ArrayList<>(events.subList(from, to));
+	}
+
+	public synchronized long lastSequence(int shard)
+	{
+		return sequence;
+	}
+
+	public synchronized void deleteAll()
+	{
+		events.clear();
+		sequence = 0;
+	}
+}
@@ -0,0 +1,90 @@
+package com.makeurpicks.repository.memory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.repository.PickConsensusRepository;
+
+/**
+ * Pick counts per team in the service's heap, for the memory profile.  Keeps
+ * the team each pick is counted for, the same as the redis repository, so a
+ * pick is only ever counted once.
+ */
+public class MemoryPickConsensusRepository implements PickConsensusRepository {
+
+	//league+week -> that week's counts
+	private final Map<String, Week> weeks = new HashMap<>();
+
+	private static String weekKey(String leagueId, String weekId)
+	{
+		return new StringBuilder(leagueId).append("+").append(weekId).toString();
+	}
+
+	@Override
+	public synchronized void record(Collection<Pick> picks)
+	{
+		for (Pick pick : picks)
+		{
+			if (pick.getTeamId() == null)
+				continue;
+			Week week = weeks.computeIfAbsent(weekKey(pick.getLeagueId(), pick.getWeekId()), key -> new Week());
+			week.count(pick);
+		}
+	}
+
+	@Override
+	public synchronized Map<String, Map<String, Long>> findByWeek(String leagueId, String weekId)
+	{
+		Map<String, Map<String, Long>> games = new HashMap<>();
+		Week week = weeks.get(weekKey(leagueId, weekId));
+		if (week == null)
+			return games;
+		for (Map.Entry<String, Map<String, Long>> game : week.counts.entrySet())
+		{
+			if (!game.getValue().isEmpty())
+				games.put(game.getKey(), new HashMap<>(game.getValue()));
+		}
+		return games;
+	}
+
+	@Override
+	public synchronized void rebuild(String leagueId, String weekId, Collection<Pick> picks)
+	{
+		Week week = new Week();
+		for (Pick pick : picks)
+		{
+			if (pick.getTeamId() != null)
+				week.count(pick);
+		}
+		weeks.put(weekKey(leagueId, weekId), week);
+	}
+
+	@Override
+	public synchronized void deleteAll()
+	{
+		weeks.clear();
+	}
+
+	private static class Week {
+		//gameId -> teamId -> picks
+		private final Map<String, Map<String, Long>> counts = new HashMap<>();
+		//pickId -> game and team it is counted for
+		private final Map<String, String[]> counted = new HashMap<>();
+
+		void count(Pick pick)
+		{
+			String[] previous = counted.put(pick.getId(), new String[] {pick.getGameId(), pick.getTeamId()});
+			if (previous != null)
+			{
+				if (previous[0].equals(pick.getGameId()) && previous[1].equals(pick.getTeamId()))
+					return;
+				Map<String, Long> teams = counts.get(previous[0]);
+				if (teams.merge(previous[1], -1L, Long::sum) <= 0)
+					teams.remove(previous[1]);
+			}
+			counts.computeIfAbsent(pick.getGameId(), key -> new HashMap<>()).merge(pick.getTeamId(), 1L, Long::sum);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.makeurpicks.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.ToLongFunction;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickHistoryEntry;
+import com.makeurpicks.repository.PickHistoryRepository;
+
+/**
+ * Season histories in the service's heap, for the memory profile.  Sorted the
+ * same way as the redis sorted sets, by kickoff and then by league, week, game
+ * and pick id.
+ */
+public class MemoryPickHistoryRepository implements PickHistoryRepository {
+
+	//player+season -> that season's entries
+	private final Map<String, Season> seasons = new HashMap<>();
+
+	private static String seasonKey(String playerId, String seasonId)
+	{
+		return new StringBuilder(playerId).append("+").append(seasonId).toString();
+	}
+
+	private static String member(Pick pick)
+	{
+		return new StringBuilder(pick.getLeagueId()).append("+").append(pick.getWeekId()).append("+")
+				.append(pick.getGameId()).append("+").append(pick.getId()).toString();
+	}
+
+	@Override
+	public synchronized void record(String seasonId, Collection<Pick> picks, ToLongFunction<Pick> order)
+	{
+		for (Pick pick : picks)
+		{
+			Season season = seasons.computeIfAbsent(seasonKey(pick.getPlayerId(), seasonId), key -> new Season());
+			season.add(new Entry(member(pick), order.applyAsLong(pick), PickHistoryEntry.of(pick)));
+		}
+	}
+
+	@Override
+	public synchronized void remove(String seasonId, Pick pick)
+	{
+		Season season = seasons.get(seasonKey(pick.getPlayerId(), seasonId));
+		if (season != null)
+			season.remove(member(pick));
+	}
+
+	@Override
+	public synchronized List<PickHistoryEntry> findBySeason(String playerId, String seasonId, int offset, int count)
+	{
+		Season season = seasons.get(seasonKey(playerId, seasonId));
+		if (season == null || count <= 0)
+			return Collections.emptyList();
+
+		List<PickHistoryEntry> entries = new ArrayList<>(Math.min(count, season.sorted.size()));
+		int position = 0;
+		for (Entry entry : season.sorted)
+		{
+			if (position++ < offset)
+				continue;
+			if (entries.size() == count)
+				break;
+			entries.add(entry.entry);
+		}
+		return entries;
+	}
+
+	@Override
+	public synchronized long countBySeason(String playerId, String seasonId)
+	{
+		Season season = seasons.get(seasonKey(playerId, seasonId));
+		return season == null ? 0 : season.sorted.size();
+	}
+
+	@Override
+	public synchronized void deleteAll()
+	{
+		seasons.clear();
+	}
+
+	private static class Entry implements Comparable<Entry> {
+		private final String member;
+		private final long order;
+		private final PickHistoryEntry entry;
+
+		Entry(String member, long order, PickHistoryEntry entry)
+		{
+			this.member = member;
+			this.order = order;
+			this.entry = entry;
+		}
+
+		@Override
+		public int compareTo(Entry other)
+		{
+			int compare = Long.compare(order, other.order);
+			return compare != 0 ? compare : member.compareTo(other.member);
+		}
+	}
+
+	private static class Season {
+		private final Map<String, Entry> byMember = new HashMap<>();
+		private final TreeSet<Entry> sorted = new TreeSet<>();
+
+		void add(Entry entry)
+		{
+			remove(entry.member);
+			byMember.put(entry.member, entry);
+			sorted.add(entry);
+		}
+
+		void remove(String member)
+		{
+			Entry previous = byMember.remove(member);
+			if (previous != null)
+				sorted.remove(previous);
+		}
+	}
+}
@@ -0,0 +1,242 @@
+package com.makeurpicks.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.repository.PickRepository;
+
+/**
+ * Picks kept in memory as columns of interned ids, indexed by the pick id's own
+ * int.  A pick is about 40 bytes plus its id in the {@link IdInterner}, so a
+ * full season for thousands of leagues fits in a few hundred MB.  Every read
+ * builds a new Pick, the same as reading one back from redis.
+ */
+public class MemoryPickRepository implements PickRepository {
+
+	private static final byte PRESENT = 1;
+	private static final byte NO_PICK = 2;
+	private static final byte ADMIN_OVERRIDE = 4;
+
+	private final IdInterner ids;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private int[] teams = new int[0];
+	private int[] leagues = new int[0];
+	private int[] weeks = new int[0];
+	private int[] players = new int[0];
+	private int[] games = new int[0];
+	private long[] updated = new long[0];
+	private byte[] flags = new byte[0];
+	private int count;
+
+	public MemoryPickRepository(IdInterner ids)
+	{
+		this.ids = ids;
+	}
+
+	@Override
+	public <S extends Pick> S save(S pick) {
+		int id = ids.intern(pick.getId());
+		int team = ids.intern(pick.getTeamId());
+		int league = ids.intern(pick.getLeagueId());
+		int week = ids.intern(pick.getWeekId());
+		int player = ids.intern(pick.getPlayerId());
+		int game = ids.intern(pick.getGameId());
+
+		lock.writeLock().lock();
+		try {
+			ensureCapacity(id);
+			if ((flags[id] & PRESENT) == 0)
+				count++;
+			teams[id] = team;
+			leagues[id] = league;
+			weeks[id] = week;
+			players[id] = player;
+			games[id] = game;
+			updated[id] = pick.getPickLastUpdated();
+			flags[id] = (byte) (PRESENT | (pick.isNoPick() ? NO_PICK : 0) | (pick.isAdminOverride() ? ADMIN_OVERRIDE : 0));
+		} finally {
+			lock.writeLock().unlock();
+		}
+		return pick;
+	}
+
+	@Override
+	public <S extends Pick> Iterable<S> save(Iterable<S> picks) {
+		List<S> saved = new ArrayList<>();
+		for (S pick : picks)
+			saved.add(save(pick));
+		return saved;
+	}
+
+	@Override
+	public Pick findOne(String id) {
+		int pickId = ids.find(id);
+		lock.readLock().lock();
+		try {
+			return load(pickId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean exists(String id) {
+		int pickId = ids.find(id);
+		lock.readLock().lock();
+		try {
+			return isPresent(pickId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Iterable<Pick> findAll() {
+		lock.readLock().lock();
+		try {
+			List<Pick> picks = new ArrayList<>(count);
+			for (int id = 0; id < flags.length; id++)
+			{
+				if (isPresent(id))
+					picks.add(load(id));
+			}
+			return picks;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the picks in the order asked for, null where there is no pick, like HMGET
+	 */
+	@Override
+	public Iterable<Pick> findAll(Iterable<String> pickIds) {
+		List<Integer> found = new ArrayList<>();
+		for (String pickId : pickIds)
+			found.add(ids.find(pickId));
+
+		lock.readLock().lock();
+		try {
+			List<Pick> picks = new ArrayList<>(found.size());
+			for (int pickId : found)
+				picks.add(load(pickId));
+			return picks;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Every pick is in one array here, the league makes no difference.
+	 */
+	@Override
+	public Iterable<Pick> findAll(String leagueId, Iterable<String> pickIds) {
+		return findAll(pickIds);
+	}
+
+	@Override
+	public List<Pick> findAllByLeague(Map<String, ? extends Collection<String>> pickIdsByLeague) {
+		List<String> pickIds = new ArrayList<>();
+		for (Collection<String> league : pickIdsByLeague.values())
+			pickIds.addAll(league);
+
+		List<Pick> picks = new ArrayList<>(pickIds.size());
+		for (Pick pick : findAll(pickIds))
+		{
+			if (pick != null)
+				picks.add(pick);
+		}
+		return picks;
+	}
+
+	@Override
+	public long count() {
+		lock.readLock().lock();
+		try {
+			return count;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void delete(String id) {
+		int pickId = ids.find(id);
+		lock.writeLock().lock();
+		try {
+			if (isPresent(pickId))
+			{
+				flags[pickId] = 0;
+				count--;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void delete(Pick pick) {
+		delete(pick.getId());
+	}
+
+	@Override
+	public void delete(Iterable<? extends Pick> picks) {
+		for (Pick pick : picks)
+			delete(pick);
+	}
+
+	@Override
+	public void deleteAll() {
+		lock.writeLock().lock();
+		try {
+			Arrays.fill(flags, (byte) 0);
+			count = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private boolean isPresent(int id)
+	{
+		return id >= 0 && id < flags.length && (flags[id] & PRESENT) != 0;
+	}
+
+	private Pick load(int id)
+	{
+		if (!isPresent(id))
+			return null;
+
+		Pick pick = new Pick();
+		pick.setId(ids.get(id));
+		pick.setTeamId(ids.get(teams[id]));
+		pick.setLeagueId(ids.get(leagues[id]));
+		pick.setWeekId(ids.get(weeks[id]));
+		pick.setPlayerId(ids.get(players[id]));
+		pick.setGameId(ids.get(games[id]));
+		pick.setPickLastUpdated(updated[id]);
+		pick.setNoPick((flags[id] & NO_PICK) != 0);
+		pick.setAdminOverride((flags[id] & ADMIN_OVERRIDE) != 0);
+		return pick;
+	}
+
+	private void ensureCapacity(int id)
+	{
+		if (id < flags.length)
+			return;
+
+		int capacity = Math.max(1024, Math.max(id + 1, flags.length + (flags.length >> 1)));
+		teams = Arrays.copyOf(teams, capacity);
+		leagues = Arrays.copyOf(leagues, capacity);
+		weeks = Arrays.copyOf(weeks, capacity);
+		players = Arrays.copyOf(players, capacity);
+		games = Arrays.copyOf(games, capacity);
+		updated = Arrays.copyOf(updated, capacity);
+		flags = Arrays.copyOf(flags, capacity);
+	}
+}
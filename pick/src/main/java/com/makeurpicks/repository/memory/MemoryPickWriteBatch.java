@@ -0,0 +1,33 @@
+package com.makeurpicks.repository.memory;
+
+import java.util.Collection;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.repository.PickRepository;
+import com.makeurpicks.repository.PickWriteBatch;
+import com.makeurpicks.repository.PicksByWeekRepository;
+
+/**
+ * Nothing to pipeline in memory, the index entries are claimed and the picks
+ * written under the ids that won, one after the other.
+ */
+public class MemoryPickWriteBatch implements PickWriteBatch {
+
+	private final PickRepository pickRepository;
+	private final PicksByWeekRepository picksByWeekRepository;
+
+	public MemoryPickWriteBatch(PickRepository pickRepository, PicksByWeekRepository picksByWeekRepository)
+	{
+		this.pickRepository = pickRepository;
+		this.picksByWeekRepository = picksByWeekRepository;
+	}
+
+	public void savePicks(Collection<Pick> picks)
+	{
+		if (picks.isEmpty())
+			return;
+
+		picksByWeekRepository.createPicks(picks);
+		pickRepository.save(picks);
+	}
+}
@@ -0,0 +1,212 @@
+package com.makeurpicks.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.repository.PicksByWeekRepository;
+
+/**
+ * The league week pick index in memory, one primitive map per league week from
+ * the packed player and game ids to the pick id, the same shape as the
+ * picks_by_league_week hashes in redis.
+ */
+public class MemoryPicksByWeekRepository implements PicksByWeekRepository {
+
+	private final IdInterner ids;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	//league and week -> slot in weekIndexes
+	private final LongIntHashMap slotsByWeek = new LongIntHashMap();
+	private final List<LongIntHashMap> weekIndexes = new ArrayList<>();
+	private final List<Long> weekKeys = new ArrayList<>();
+
+	public MemoryPicksByWeekRepository(IdInterner ids)
+	{
+		this.ids = ids;
+	}
+
+	@Override
+	public Map<String, Map<String, Map<String, String>>> findWeeksByLeague(String leagueId) {
+		int league = ids.find(leagueId);
+		if (league == IdInterner.NONE)
+			return Collections.emptyMap();
+
+		lock.readLock().lock();
+		try {
+			Map<String, Map<String, Map<String, String>>> weekMap = new HashMap<>();
+			for (int slot = 0; slot < weekKeys.size(); slot++)
+			{
+				long key = weekKeys.get(slot);
+				if (LongIntHashMap.high(key) == league && !weekIndexes.get(slot).isEmpty())
+					weekMap.put(ids.get(LongIntHashMap.low(key)), groupByPlayer(weekIndexes.get(slot), IdInterner.NONE));
+			}
+			return weekMap;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Map<String, Map<String, String>> findPlayersByWeek(String leagueId, String weekId) {
+		lock.readLock().lock();
+		try {
+			LongIntHashMap index = findIndex(leagueId, weekId);
+			if (index == null)
+				return Collections.emptyMap();
+			return groupByPlayer(index, IdInterner.NONE);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Map<String, String> findGamesByPlayer(String leagueId, String weekId, String playerId) {
+		int player = ids.find(playerId);
+		if (player == IdInterner.NONE)
+			return Collections.emptyMap();
+
+		lock.readLock().lock();
+		try {
+			LongIntHashMap index = findIndex(leagueId, weekId);
+			if (index == null)
+				return Collections.emptyMap();
+			Map<String, String> games = groupByPlayer(index, player).get(playerId);
+			return games == null ? Collections.<String, String>emptyMap() : games;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String findPicksByGame(String leagueId, String weekId, String playerId, String gameId) {
+		int player = ids.find(playerId);
+		int game = ids.find(gameId);
+		lock.readLock().lock();
+		try {
+			LongIntHashMap index = findIndex(leagueId, weekId);
+			if (index == null || player == IdInterner.NONE || game == IdInterner.NONE)
+				return "";
+			int pick = index.get(LongIntHashMap.pack(player, game));
+			return pick == LongIntHashMap.MISSING ? "" : ids.get(pick);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Pick createPick(Pick pick) {
+		createPicks(Collections.singletonList(pick));
+		return pick;
+	}
+
+	@Override
+	public void createPicks(Collection<Pick> picks) {
+		int[][] interned = new int[picks.size()][];
+		int i = 0;
+		for (Pick pick : picks)
+		{
+			interned[i++] = new int[] {ids.intern(pick.getLeagueId()), ids.intern(pick.getWeekId()),
+					ids.intern(pick.getPlayerId()), ids.intern(pick.getGameId()), ids.intern(pick.getId())};
+		}
+
+		lock.writeLock().lock();
+		try {
+			i = 0;
+			for (Pick pick : picks)
+			{
+				int[] fields = interned[i++];
+				LongIntHashMap index = indexFor(fields[0], fields[1]);
+				long key = LongIntHashMap.pack(fields[2], fields[3]);
+				int existing = index.get(key);
+				if (existing == LongIntHashMap.MISSING)
+					index.put(key, fields[4]);
+				else
+					pick.setId(ids.get(existing));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void deleteWeek(String leagueId, String weekId) {
+		lock.writeLock().lock();
+		try {
+			LongIntHashMap index = findIndex(leagueId, weekId);
+			if (index != null)
+				index.clear();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void deleteAll() {
+		lock.writeLock().lock();
+		try {
+			slotsByWeek.clear();
+			weekIndexes.clear();
+			weekKeys.clear();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private LongIntHashMap findIndex(String leagueId, String weekId)
+	{
+		int league = ids.find(leagueId);
+		int week = ids.find(weekId);
+		if (league == IdInterner.NONE || week == IdInterner.NONE)
+			return null;
+		int slot = slotsByWeek.get(LongIntHashMap.pack(league, week));
+		return slot == LongIntHashMap.MISSING ? null : weekIndexes.get(slot);
+	}
+
+	private LongIntHashMap indexFor(int league, int week)
+	{
+		long key = LongIntHashMap.pack(league, week);
+		int slot = slotsByWeek.get(key);
+		if (slot != LongIntHashMap.MISSING)
+			return weekIndexes.get(slot);
+
+		LongIntHashMap index = new LongIntHashMap(256);
+		slotsByWeek.put(key, weekIndexes.size());
+		weekIndexes.add(index);
+		weekKeys.add(key);
+		return index;
+	}
+
+	/**
+	 * @param onlyPlayer a player's int to keep just that player, NONE for everyone
+	 */
+	private Map<String, Map<String, String>> groupByPlayer(LongIntHashMap index, int onlyPlayer)
+	{
+		if (index.isEmpty())
+			return Collections.emptyMap();
+
+		Map<Integer, Map<String, String>> byPlayer = new HashMap<>();
+		index.forEach((key, pick) -> {
+			int player = LongIntHashMap.high(key);
+			if (onlyPlayer != IdInterner.NONE && player != onlyPlayer)
+				return;
+			Map<String, String> games = byPlayer.get(player);
+			if (games == null)
+			{
+				games = new HashMap<>();
+				byPlayer.put(player, games);
+			}
+			games.put(ids.get(LongIntHashMap.low(key)), ids.get(pick));
+		});
+
+		Map<String, Map<String, String>> playerMap = new HashMap<>(byPlayer.size() * 2);
+		for (Map.Entry<Integer, Map<String, String>> player : byPlayer.entrySet())
+			playerMap.put(ids.get(player.getKey()), player.getValue());
+		return playerMap;
+	}
+}
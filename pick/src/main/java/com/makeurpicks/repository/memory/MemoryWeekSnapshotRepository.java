@@ -0,0 +1,38 @@
+package com.makeurpicks.repository.memory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.makeurpicks.domain.WeekSnapshot;
+import com.makeurpicks.repository.WeekSnapshotRepository;
+
+/**
+ * Frozen league weeks in the service's heap, for the memory profile.
+ */
+public class MemoryWeekSnapshotRepository implements WeekSnapshotRepository {
+
+	private final Map<String, WeekSnapshot> snapshots = new ConcurrentHashMap<>();
+
+	private static String weekKey(String leagueId, String weekId)
+	{
+		return new StringBuilder(leagueId).append("+").append(weekId).toString();
+	}
+
+	@Override
+	public boolean save(WeekSnapshot snapshot)
+	{
+		return snapshots.putIfAbsent(weekKey(snapshot.getLeagueId(), snapshot.getWeekId()), snapshot) == null;
+	}
+
+	@Override
+	public WeekSnapshot findOne(String leagueId, String weekId)
+	{
+		return snapshots.get(weekKey(leagueId, weekId));
+	}
+
+	@Override
+	public void deleteAll()
+	{
+		snapshots.clear();
+	}
+}
@@ -0,0 +1,39 @@
+package com.makeurpicks.repository.memory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.makeurpicks.repository.WeekVersionRepository;
+
+/**
+ * League week versions in the service's heap, for the memory profile.
+ */
+public class MemoryWeekVersionRepository implements WeekVersionRepository {
+
+	private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+	private static String weekKey(String leagueId, String weekId)
+	{
+		return new StringBuilder(leagueId).append("+").append(weekId).toString();
+	}
+
+	@Override
+	public long findVersion(String leagueId, String weekId)
+	{
+		AtomicLong version = versions.get(weekKey(leagueId, weekId));
+		return version == null ? 0 : version.get();
+	}
+
+	@Override
+	public long increment(String leagueId, String weekId)
+	{
+		return versions.computeIfAbsent(weekKey(leagueId, weekId), key -> new AtomicLong()).incrementAndGet();
+	}
+
+	@Override
+	public void deleteAll()
+	{
+		versions.clear();
+	}
+}
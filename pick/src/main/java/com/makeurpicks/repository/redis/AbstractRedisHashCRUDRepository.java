@@ -1,85 +1,304 @@
 package com.makeurpicks.repository.redis;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.util.CloseableIterator;
 
-import com.makeurpicks.domain.AbstractModel;
+/**
+ * Entities kept as fields of hashes, one hash per league or league week.  The
+ * bulk calls every hash repository shares live here: writes are chunked into
+ * variadic HMSET/HDEL commands that go out in one pipeline, or join the
+ * caller's pipeline when there already is one, reads of several hashes are
+ * HMGETs in one pipeline, counts are HLEN, and full reads walk the hashes with
+ * HSCAN rather than pulling them into memory with HVALS.
+ *
+ * A cluster connection can't pipeline, there the commands go one at a time,
+ * see {@link RedisKeys#pipelined(RedisTemplate, Runnable)}.
+ */
+public abstract class AbstractRedisHashCRUDRepository<T> {
 
-public abstract class AbstractRedisHashCRUDRepository<T extends AbstractModel>
-		{
+	//fields per HMSET/HDEL, keeps a single command from blocking redis on a season import
+	protected static final int BATCH_SIZE = 500;
+	protected static final int SCAN_COUNT = 1000;
 
+	protected final RedisTemplate<String, T> redisTemplate;
 	protected final HashOperations<String, String, T> hashOps;
 
-	public abstract String getKey();
-
-	public AbstractRedisHashCRUDRepository(RedisTemplate<String, T> redisTemplate) {
+	public AbstractRedisHashCRUDRepository(RedisTemplate<String, T> redisTemplate)
+	{
+		this.redisTemplate = redisTemplate;
 		this.hashOps = redisTemplate.opsForHash();
 	}
 
-	public long count() {
-		return hashOps.keys(getKey()).size();
+	/**
+	 * @return the number of fields in the hash
+	 */
+	protected long count(String key)
+	{
+		return hashOps.size(key);
 	}
 
-	public void delete(String id) {
-		hashOps.delete(getKey(), id);
-	}
+	/**
+	 * @return the number of fields in all the hashes, one HLEN each in one
+	 * pipeline
+	 */
+	@SuppressWarnings("unchecked")
+	protected long count(Collection<String> keys)
+	{
+		RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+		boolean pipeline = !RedisKeys.isCluster(redisTemplate.getConnectionFactory());
+		List<Object> lengths = redisTemplate.execute(new RedisCallback<List<Object>>() {
+			@Override
+			public List<Object> doInRedis(RedisConnection connection) throws DataAccessException {
+				if (!pipeline)
+				{
+					List<Object> found = new ArrayList<>(keys.size());
+					for (String key : keys)
+						found.add(connection.hLen(keySerializer.serialize(key)));
+					return found;
+				}
 
-	public void delete(T league) {
-		hashOps.delete(getKey(), league.getId());
+				connection.openPipeline();
+				for (String key : keys)
+					connection.hLen(keySerializer.serialize(key));
+				return connection.closePipeline();
+			}
+		});
+
+		long count = 0;
+		for (Object length : lengths)
+			count += length == null ? 0 : (Long) length;
+		return count;
 	}
 
-	public void delete(Iterable<? extends T> leagues) {
-		for (T league : leagues) {
-			delete(league);
+	/**
+	 * Writes the fields in chunks of {@link #BATCH_SIZE}.
+	 */
+	protected static <V> void putAll(HashOperations<String, String, V> ops, String key, Map<String, V> fields)
+	{
+		Map<String, V> batch = new LinkedHashMap<>();
+		for (Map.Entry<String, V> field : fields.entrySet())
+		{
+			batch.put(field.getKey(), field.getValue());
+			if (batch.size() == BATCH_SIZE)
+			{
+				ops.putAll(key, batch);
+				batch.clear();
+			}
 		}
+		if (!batch.isEmpty())
+			ops.putAll(key, batch);
 	}
 
-	public void deleteAll() {
-		Set<String> ids = hashOps.keys(getKey());
-		for (String id : ids) {
-			delete(id);
+	/**
+	 * Removes the fields with one variadic HDEL per {@link #BATCH_SIZE}.
+	 */
+	protected static void deleteFields(HashOperations<String, String, ?> ops, String key, List<String> fields)
+	{
+		for (int from = 0; from < fields.size(); from += BATCH_SIZE)
+			ops.delete(key, fields.subList(from, Math.min(from + BATCH_SIZE, fields.size())).toArray());
+	}
+
+	/**
+	 * HMGETs of several hashes in one pipeline, a hash with no fields to read
+	 * is answered empty without asking.  On a cluster they go one after another.
+	 *
+	 * @return each hash's values in the order of its fields
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<List<byte[]>> hMGet(List<byte[]> keys, List<byte[][]> fields)
+	{
+		List<Integer> asked = new ArrayList<>(keys.size());
+		for (int i=0; i<keys.size(); i++)
+		{
+			if (fields.get(i).length > 0)
+				asked.add(i);
 		}
+		if (asked.isEmpty())
+			return emptyLists(keys.size());
+
+		boolean pipeline = asked.size() > 1 && !RedisKeys.isCluster(redisTemplate.getConnectionFactory());
+		List<Object> replies = redisTemplate.execute(new RedisCallback<List<Object>>() {
+			@Override
+			public List<Object> doInRedis(RedisConnection connection) throws DataAccessException {
+				if (!pipeline)
+				{
+					List<Object> found = new ArrayList<>(asked.size());
+					for (int i : asked)
+						found.add(connection.hMGet(keys.get(i), fields.get(i)));
+					return found;
+				}
+
+				connection.openPipeline();
+				for (int i : asked)
+					connection.hMGet(keys.get(i), fields.get(i));
+				return connection.closePipeline();
+			}
+		});
+
+		List<List<byte[]>> values = emptyLists(keys.size());
+		for (int i=0; i<asked.size(); i++)
+			values.set(asked.get(i), (List<byte[]>) replies.get(i));
+		return values;
 	}
 
-	public boolean exists(String id) {
-		return hashOps.hasKey(getKey(), id);
+	private static List<List<byte[]>> emptyLists(int size)
+	{
+		List<List<byte[]>> lists = new ArrayList<>(size);
+		for (int i=0; i<size; i++)
+			lists.add(Collections.<byte[]>emptyList());
+		return lists;
 	}
 
-	public Iterable<T> findAll() {
-		return hashOps.values(getKey());
+	protected static byte[][] serialize(RedisSerializer<String> serializer, Collection<String> values)
+	{
+		byte[][] bytes = new byte[values.size()][];
+		int i = 0;
+		for (String value : values)
+			bytes[i++] = serializer.serialize(value);
+		return bytes;
 	}
 
-	public Iterable<T> findAll(Iterable<String> ids) {
-		return hashOps.multiGet(getKey(), convertIterableToList(ids));
+	/**
+	 * @return the hash's values a page of HSCAN at a time, see {@link ScanIterable}
+	 */
+	@SuppressWarnings("unchecked")
+	protected ScanIterable<Map.Entry<byte[], byte[]>, T> scan(String key, int count)
+	{
+		RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+		RedisSerializer<T> valueSerializer = (RedisSerializer<T>) redisTemplate.getHashValueSerializer();
+		byte[] rawKey = keySerializer.serialize(key);
+		ScanOptions options = ScanOptions.scanOptions().count(count).build();
+
+		return new ScanIterable<>(redisTemplate.getConnectionFactory(),
+				connection -> connection.hScan(rawKey, options),
+				entry -> valueSerializer.deserialize(entry.getValue()));
 	}
 
-	public T findOne(String id) {
-		return hashOps.get(getKey(), id);
+	/**
+	 * @return the values of every hash a page of HSCAN at a time, one hash
+	 * after another
+	 */
+	protected KeysScan scan(List<String> keys, int count)
+	{
+		return new KeysScan(keys, count);
 	}
 
-	public <S extends T> S save(S league) {
-		hashOps.put(getKey(), league.getId(), league);
-		return league;
+	protected void pipelined(Runnable commands)
+	{
+		RedisKeys.pipelined(redisTemplate, commands);
 	}
 
-	public <S extends T> Iterable<S> save(Iterable<S> leagues) {
-		List<S> result = new ArrayList<S>();
-		for (S entity : leagues) {
-			save(entity);
-			result.add(entity);
-		}
-		return result;
+	/**
+	 * Deletes every key under the prefixes, for deleteAll.
+	 */
+	protected void deleteKeys(String... prefixes)
+	{
+		List<String> keys = new ArrayList<>();
+		for (String prefix : prefixes)
+			keys.addAll(RedisKeys.findKeys(redisTemplate, prefix + "*"));
+		if (!keys.isEmpty())
+			redisTemplate.delete(keys);
+	}
+
+	/**
+	 * Renames the untagged keys written before the key scheme moved to hash
+	 * tags, see {@link RedisKeys#retagKeys(RedisTemplate, String)}.
+	 *
+	 * @return the number of keys renamed
+	 */
+	protected int retagKeys(String... prefixes)
+	{
+		int renamed = 0;
+		for (String prefix : prefixes)
+			renamed += RedisKeys.retagKeys(redisTemplate, prefix);
+		return renamed;
 	}
 
-	private <T> List<T> convertIterableToList(Iterable<T> iterable) {
-		List<T> list = new ArrayList<T>();
-		for (T object : iterable) {
+	protected static <E> List<E> toList(Iterable<E> iterable)
+	{
+		List<E> list = new ArrayList<>();
+		for (E object : iterable)
 			list.add(object);
-		}
 		return list;
 	}
+
+	public class KeysScan implements Iterable<T> {
+
+		private final List<String> keys;
+		private final int count;
+
+		KeysScan(List<String> keys, int count)
+		{
+			this.keys = keys;
+			this.count = count;
+		}
+
+		@Override
+		public CloseableIterator<T> iterator()
+		{
+			return new KeysIterator(keys, count);
+		}
+	}
+
+	/**
+	 * Scans the hashes one after another, holding one hash's cursor at a time.
+	 */
+	private class KeysIterator implements CloseableIterator<T> {
+
+		private final Iterator<String> keys;
+		private final int count;
+		private CloseableIterator<T> hash;
+
+		KeysIterator(List<String> keys, int count)
+		{
+			this.keys = keys.iterator();
+			this.count = count;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			while (hash == null || !hash.hasNext())
+			{
+				if (!keys.hasNext())
+					return false;
+				if (hash != null)
+					hash.close();
+				hash = scan(keys.next(), count).iterator();
+			}
+			return true;
+		}
+
+		@Override
+		public T next()
+		{
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return hash.next();
+		}
+
+		@Override
+		public void close()
+		{
+			if (hash != null)
+				hash.close();
+			while (keys.hasNext())
+				keys.next();
+		}
+	}
 }
@@ -1,78 +1,77 @@
 package com.makeurpicks.repository.redis;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Set;
 
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
-import com.makeurpicks.domain.Pick;
+/**
+ * A hash repository that also keeps sets, e.g. an index and the set of weeks it
+ * has.  Adds and removes are variadic SADD/SREM in chunks of
+ * {@link #BATCH_SIZE}, counts are SCARD and full reads walk the set with SSCAN
+ * rather than SMEMBERS.
+ */
+public abstract class AbstractRedisSetCRUDRepository<T> extends AbstractRedisHashCRUDRepository<T> {
 
-public abstract class AbstractRedisSetCRUDRepository {
+	protected final SetOperations<String, T> setOps;
 
-	protected final SetOperations<String, String> setOps;
-	
-	public AbstractRedisSetCRUDRepository(RedisTemplate<String, String> redisTemplate)
+	public AbstractRedisSetCRUDRepository(RedisTemplate<String, T> redisTemplate)
 	{
+		super(redisTemplate);
 		this.setOps = redisTemplate.opsForSet();
 	}
 
-	 
-	public long count(String key) {
-		return setOps.size(key);
-	}
-
-	public void delete(String key, String value) {
-		setOps.remove(key, value);
-	}
-
-//	public void delete(T league) {
-//		setOps.delete(getKey(), league.getId());
-//	}
-
-	public void delete(String key, String... values) {
-		for (String value : values) {
-			delete(key, value);
-		}
-	}
-
-	public void deleteAll(String key) {
-		Set<String> ids = setOps.members(key);
-		for (String id : ids) {
-			delete(key, id);
-		}
+	/**
+	 * @return the number of members in the set
+	 */
+	protected long countMembers(String key)
+	{
+		Long size = setOps.size(key);
+		return size == null ? 0 : size;
 	}
 
-	public boolean exists(String key, String value) {
+	protected boolean isMember(String key, T value)
+	{
 		return setOps.isMember(key, value);
 	}
 
-	public Iterable<String> findAll(String key) {
+	protected Set<T> members(String key)
+	{
 		return setOps.members(key);
 	}
 
-//	public Iterable<T> findAll(Iterable<String> ids) {
-//		return setOps.multiGet(getKey(), convertIterableToList(ids));
-//	}
-
-//	public String findOne(String id) {
-//		return setOps.pop(getKey(), id);
-//	}
-
-	public void add(String key, String... values) {
-		setOps.add(key, values);
-		return;
+	@SuppressWarnings("unchecked")
+	protected void addMembers(String key, Collection<? extends T> values)
+	{
+		Object[] all = values.toArray();
+		for (int from = 0; from < all.length; from += BATCH_SIZE)
+			setOps.add(key, (T[]) Arrays.copyOfRange(all, from, Math.min(from + BATCH_SIZE, all.length)));
 	}
 
-//	public <S extends T> Iterable<S> save(Iterable<S> leagues) {
-//		List<S> result = new ArrayList<S>();
-//		for (S entity : leagues) {
-//			save(entity);
-//			result.add(entity);
-//		}
-//		return result;
-//	}
+	protected void removeMembers(String key, Collection<? extends T> values)
+	{
+		Object[] all = values.toArray();
+		for (int from = 0; from < all.length; from += BATCH_SIZE)
+			setOps.remove(key, Arrays.copyOfRange(all, from, Math.min(from + BATCH_SIZE, all.length)));
+	}
 
+	/**
+	 * @return the members a page of SSCAN at a time, see {@link ScanIterable}
+	 */
+	@SuppressWarnings("unchecked")
+	protected ScanIterable<byte[], T> scanMembers(String key, int count)
+	{
+		RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+		RedisSerializer<T> valueSerializer = (RedisSerializer<T>) redisTemplate.getValueSerializer();
+		byte[] rawKey = keySerializer.serialize(key);
+		ScanOptions options = ScanOptions.scanOptions().count(count).build();
+
+		return new ScanIterable<>(redisTemplate.getConnectionFactory(),
+				connection -> connection.sScan(rawKey, options),
+				valueSerializer::deserialize);
+	}
 }
-
@@ -0,0 +1,68 @@
+package com.makeurpicks.repository.redis;
+
+import com.makeurpicks.domain.DoublePick;
+
+public class CompactDoublePickRedisSerializer extends CompactRedisSerializer<DoublePick> {
+
+	//tags are part of the stored format, never reuse or renumber them
+	private static final int ID = 1;
+	private static final int PICK_ID = 2;
+	private static final int GAME_ID = 3;
+	private static final int PLAYER_ID = 4;
+	private static final int HAS_DOUBLE_GAME_STARTED = 5;
+	private static final int PREVIOUS_DOUBLE_GAME_ID = 6;
+	private static final int ADMIN_OVERRIDE = 7;
+
+	public CompactDoublePickRedisSerializer(boolean writeCompact)
+	{
+		super(TYPE_DOUBLE_PICK, DoublePickCodec.JSON, writeCompact);
+	}
+
+	@Override
+	protected void writeFields(DoublePick doublePick, CompactWriter writer)
+	{
+		writer.writeString(ID, doublePick.getId());
+		writer.writeString(PICK_ID, doublePick.getPickId());
+		writer.writeString(GAME_ID, doublePick.getGameId());
+		writer.writeString(PLAYER_ID, doublePick.getPlayerId());
+		writer.writeBoolean(HAS_DOUBLE_GAME_STARTED, doublePick.isHasDoubleGameStarted());
+		writer.writeString(PREVIOUS_DOUBLE_GAME_ID, doublePick.getPreviousDoubleGameId());
+		writer.writeBoolean(ADMIN_OVERRIDE, doublePick.isAdminOverride());
+	}
+
+	@Override
+	protected DoublePick readFields(CompactReader reader)
+	{
+		DoublePick doublePick = new DoublePick();
+		while (reader.hasNext())
+		{
+			switch (reader.readTag())
+			{
+				case ID:
+					doublePick.setId(reader.readString());
+					break;
+				case PICK_ID:
+					doublePick.setPickId(reader.readString());
+					break;
+				case GAME_ID:
+					doublePick.setGameId(reader.readString());
+					break;
+				case PLAYER_ID:
+					doublePick.setPlayerId(reader.readString());
+					break;
+				case HAS_DOUBLE_GAME_STARTED:
+					doublePick.setHasDoubleGameStarted(reader.readBoolean());
+					break;
+				case PREVIOUS_DOUBLE_GAME_ID:
+					doublePick.setPreviousDoubleGameId(reader.readString());
+					break;
+				case ADMIN_OVERRIDE:
+					doublePick.setAdminOverride(reader.readBoolean());
+					break;
+				default:
+					reader.skip();
+			}
+		}
+		return doublePick;
+	}
+}
@@ -0,0 +1,36 @@
+package com.makeurpicks.repository.redis;
+
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+/**
+ * Pick ids in the league week index, 20 bytes instead of 36.
+ */
+public class CompactIdRedisSerializer extends CompactRedisSerializer<String> {
+
+	private static final int ID = 1;
+
+	public CompactIdRedisSerializer(boolean writeCompact)
+	{
+		super(TYPE_ID, new StringRedisSerializer(), writeCompact);
+	}
+
+	@Override
+	protected void writeFields(String value, CompactWriter writer)
+	{
+		writer.writeString(ID, value);
+	}
+
+	@Override
+	protected String readFields(CompactReader reader)
+	{
+		String id = null;
+		while (reader.hasNext())
+		{
+			if (reader.readTag() == ID)
+				id = reader.readString();
+			else
+				reader.skip();
+		}
+		return id;
+	}
+}
@@ -0,0 +1,86 @@
+package com.makeurpicks.repository.redis;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Ids in this service are almost all random UUIDs, 36 characters as text but
+ * only 16 bytes of data.  Only the lower case form that UUID.toString() produces
+ * is packed so reading it back always gives the exact same string.
+ */
+final class CompactIds {
+
+	static final int UUID_LENGTH = 36;
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private CompactIds()
+	{
+
+	}
+
+	static boolean isUuid(String value)
+	{
+		return value.length() == UUID_LENGTH && matchesUuid(value, 0);
+	}
+
+	/**
+	 * The league and week ids joined with a '+', the way double picks are keyed.
+	 */
+	static boolean isUuidPair(String value)
+	{
+		return value.length() == UUID_LENGTH*2+1
+				&& value.charAt(UUID_LENGTH) == '+'
+				&& matchesUuid(value, 0)
+				&& matchesUuid(value, UUID_LENGTH+1);
+	}
+
+	private static boolean matchesUuid(String value, int offset)
+	{
+		for (int i=0; i<UUID_LENGTH; i++)
+		{
+			char c = value.charAt(offset+i);
+			if (i == 8 || i == 13 || i == 18 || i == 23)
+			{
+				if (c != '-')
+					return false;
+			}
+			else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f')))
+				return false;
+		}
+		return true;
+	}
+
+	static void writeUuid(String value, int offset, ByteArrayOutputStream out)
+	{
+		int high = -1;
+		for (int i=0; i<UUID_LENGTH; i++)
+		{
+			char c = value.charAt(offset+i);
+			if (c == '-')
+				continue;
+			int nibble = c <= '9' ? c - '0' : c - 'a' + 10;
+			if (high < 0)
+				high = nibble;
+			else
+			{
+				out.write((high << 4) | nibble);
+				high = -1;
+			}
+		}
+	}
+
+	static String readUuid(byte[] bytes, int offset)
+	{
+		char[] chars = new char[UUID_LENGTH];
+		int c = 0;
+		for (int i=0; i<16; i++)
+		{
+			if (i == 4 || i == 6 || i == 8 || i == 10)
+				chars[c++] = '-';
+			int b = bytes[offset+i] & 0xFF;
+			chars[c++] = HEX[b >>> 4];
+			chars[c++] = HEX[b & 0x0F];
+		}
+		return new String(chars);
+	}
+}
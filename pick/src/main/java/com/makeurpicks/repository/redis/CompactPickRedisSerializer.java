@@ -0,0 +1,81 @@
+package com.makeurpicks.repository.redis;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.makeurpicks.domain.Pick;
+
+public class CompactPickRedisSerializer extends CompactRedisSerializer<Pick> {
+
+	//tags are part of the stored format, never reuse or renumber them
+	private static final int ID = 1;
+	private static final int TEAM_ID = 2;
+	private static final int LEAGUE_ID = 3;
+	private static final int PLAYER_ID = 4;
+	private static final int WEEK_ID = 5;
+	private static final int GAME_ID = 6;
+	private static final int NO_PICK = 7;
+	private static final int PICK_LAST_UPDATED = 8;
+	private static final int ADMIN_OVERRIDE = 9;
+
+	public CompactPickRedisSerializer(RedisSerializer<Pick> fallback, boolean writeCompact)
+	{
+		super(TYPE_PICK, fallback, writeCompact);
+	}
+
+	@Override
+	protected void writeFields(Pick pick, CompactWriter writer)
+	{
+		writer.writeString(ID, pick.getId());
+		writer.writeString(TEAM_ID, pick.getTeamId());
+		writer.writeString(LEAGUE_ID, pick.getLeagueId());
+		writer.writeString(PLAYER_ID, pick.getPlayerId());
+		writer.writeString(WEEK_ID, pick.getWeekId());
+		writer.writeString(GAME_ID, pick.getGameId());
+		writer.writeBoolean(NO_PICK, pick.isNoPick());
+		writer.writeLong(PICK_LAST_UPDATED, pick.getPickLastUpdated());
+		writer.writeBoolean(ADMIN_OVERRIDE, pick.isAdminOverride());
+	}
+
+	@Override
+	protected Pick readFields(CompactReader reader)
+	{
+		Pick pick = new Pick();
+		pick.setPickLastUpdated(0);
+		while (reader.hasNext())
+		{
+			switch (reader.readTag())
+			{
+				case ID:
+					pick.setId(reader.readString());
+					break;
+				case TEAM_ID:
+					pick.setTeamId(reader.readString());
+					break;
+				case LEAGUE_ID:
+					pick.setLeagueId(reader.readString());
+					break;
+				case PLAYER_ID:
+					pick.setPlayerId(reader.readString());
+					break;
+				case WEEK_ID:
+					pick.setWeekId(reader.readString());
+					break;
+				case GAME_ID:
+					pick.setGameId(reader.readString());
+					break;
+				case NO_PICK:
+					pick.setNoPick(reader.readBoolean());
+					break;
+				case PICK_LAST_UPDATED:
+					pick.setPickLastUpdated(reader.readLong());
+					break;
+				case ADMIN_OVERRIDE:
+					pick.setAdminOverride(reader.readBoolean());
+					break;
+				default:
+					reader.skip();
+			}
+		}
+		return pick;
+	}
+}
@@ -0,0 +1,122 @@
+package com.makeurpicks.repository.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Reads the tagged fields written by {@link CompactWriter}.  Tags a reader does
+ * not know are skipped so a newer writer can add fields without breaking
+ * instances that are still on the older code.
+ */
+class CompactReader {
+
+	private final byte[] bytes;
+	private int position;
+	private int wireType;
+
+	CompactReader(byte[] bytes, int offset)
+	{
+		this.bytes = bytes;
+		this.position = offset;
+	}
+
+	boolean hasNext()
+	{
+		return position < bytes.length;
+	}
+
+	/**
+	 * @return the tag of the next field, its value must be read or skipped next
+	 */
+	int readTag()
+	{
+		int key = (int) readVarint();
+		wireType = key & 0x07;
+		return key >>> 3;
+	}
+
+	String readString()
+	{
+		switch (wireType)
+		{
+			case CompactRedisSerializer.WIRE_UUID:
+				return CompactIds.readUuid(bytes, advance(16));
+			case CompactRedisSerializer.WIRE_UUID_PAIR:
+				return new StringBuilder(CompactIds.UUID_LENGTH*2+1)
+						.append(CompactIds.readUuid(bytes, advance(16)))
+						.append('+')
+						.append(CompactIds.readUuid(bytes, advance(16)))
+						.toString();
+			case CompactRedisSerializer.WIRE_BYTES:
+				int length = (int) readVarint();
+				return new String(bytes, advance(length), length, StandardCharsets.UTF_8);
+			default:
+				throw new SerializationException("field is not a string, wire type "+wireType);
+		}
+	}
+
+	byte[] readBytes()
+	{
+		if (wireType != CompactRedisSerializer.WIRE_BYTES)
+			throw new SerializationException("field is not bytes, wire type "+wireType);
+		int length = (int) readVarint();
+		return Arrays.copyOfRange(bytes, advance(length), position);
+	}
+
+	boolean readBoolean()
+	{
+		return readLong() != 0;
+	}
+
+	long readLong()
+	{
+		if (wireType != CompactRedisSerializer.WIRE_VARINT)
+			throw new SerializationException("field is not a number, wire type "+wireType);
+		return readVarint();
+	}
+
+	void skip()
+	{
+		switch (wireType)
+		{
+			case CompactRedisSerializer.WIRE_VARINT:
+				readVarint();
+				break;
+			case CompactRedisSerializer.WIRE_UUID:
+				advance(16);
+				break;
+			case CompactRedisSerializer.WIRE_UUID_PAIR:
+				advance(32);
+				break;
+			case CompactRedisSerializer.WIRE_BYTES:
+				advance((int) readVarint());
+				break;
+			default:
+				throw new SerializationException("unknown wire type "+wireType);
+		}
+	}
+
+	private int advance(int length)
+	{
+		int start = position;
+		if (length < 0 || start + length > bytes.length)
+			throw new SerializationException("compact value is truncated");
+		position += length;
+		return start;
+	}
+
+	private long readVarint()
+	{
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			byte b = bytes[advance(1)];
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new SerializationException("malformed varint");
+	}
+}
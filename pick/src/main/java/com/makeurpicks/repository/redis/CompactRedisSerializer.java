@@ -0,0 +1,88 @@
+package com.makeurpicks.repository.redis;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Binary layout for the values we keep the most of in redis.
+ *
+ * <pre>
+ * magic (0xC1) | version | type | field*
+ * field = varint(tag &lt;&lt; 3 | wire type) value
+ * </pre>
+ *
+ * Wire types are a varint, a 16 byte uuid, two uuids joined by '+' and length
+ * prefixed utf-8.  0xC1 can never start a utf-8 string so values that don't
+ * begin with it are handed to the fallback serializer, which is what lets json
+ * and compact values sit side by side while a rollout is in progress.  Writes
+ * only use the compact layout when it is switched on, so it is safe to deploy
+ * everywhere first and flip pick.redis.serializer to compact afterwards.
+ */
+public abstract class CompactRedisSerializer<T> implements RedisSerializer<T> {
+
+	static final int MAGIC = 0xC1;
+	static final int VERSION = 1;
+
+	static final int WIRE_VARINT = 0;
+	static final int WIRE_UUID = 1;
+	static final int WIRE_UUID_PAIR = 2;
+	static final int WIRE_BYTES = 3;
+
+	static final int TYPE_ID = 1;
+	static final int TYPE_PICK = 2;
+	static final int TYPE_DOUBLE_PICK = 3;
+	static final int TYPE_WEEK_SNAPSHOT = 4;
+
+	private static final int HEADER_LENGTH = 3;
+
+	private final int type;
+	private final RedisSerializer<T> fallback;
+	private final boolean writeCompact;
+
+	protected CompactRedisSerializer(int type, RedisSerializer<T> fallback, boolean writeCompact)
+	{
+		this.type = type;
+		this.fallback = fallback;
+		this.writeCompact = writeCompact;
+	}
+
+	protected abstract void writeFields(T value, CompactWriter writer);
+
+	protected abstract T readFields(CompactReader reader);
+
+	@Override
+	public byte[] serialize(T value) throws SerializationException
+	{
+		if (!writeCompact)
+			return fallback.serialize(value);
+		if (value == null)
+			return new byte[0];
+
+		CompactWriter writer = new CompactWriter(type);
+		writeFields(value, writer);
+		return writer.toByteArray();
+	}
+
+	@Override
+	public T deserialize(byte[] bytes) throws SerializationException
+	{
+		if (bytes == null || bytes.length == 0)
+			return null;
+		if (!isCompact(bytes))
+			return fallback.deserialize(bytes);
+
+		if (bytes.length < HEADER_LENGTH)
+			throw new SerializationException("compact value is truncated");
+		if (bytes[1] > VERSION)
+			throw new SerializationException("compact value version "+bytes[1]+" is newer than "+VERSION);
+		if (bytes[2] != type)
+			throw new SerializationException("compact value has type "+bytes[2]+", expected "+type);
+
+		return readFields(new CompactReader(bytes, HEADER_LENGTH));
+	}
+
+	public static boolean isCompact(byte[] bytes)
+	{
+		return bytes != null && bytes.length > 0 && (bytes[0] & 0xFF) == MAGIC;
+	}
+}
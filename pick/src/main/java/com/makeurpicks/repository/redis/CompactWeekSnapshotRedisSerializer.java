@@ -0,0 +1,179 @@
+package com.makeurpicks.repository.redis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.makeurpicks.domain.WeekSnapshot;
+
+/**
+ * Week snapshots only ever exist in the compact layout, there is no json form
+ * to fall back to.  The dictionaries are repeated fields in order, then each
+ * game is its id, its fav and dog positions in the team dictionary, its result
+ * and one packed byte per player.  The pick ids follow in game then player
+ * order, one for every pick byte marked picked, so a uuid costs 16 bytes and
+ * nothing else is stored per pick.
+ */
+public class CompactWeekSnapshotRedisSerializer extends CompactRedisSerializer<WeekSnapshot> {
+
+	//tags are part of the stored format, never reuse or renumber them
+	private static final int LEAGUE_ID = 1;
+	private static final int WEEK_ID = 2;
+	private static final int FROZEN_AT = 3;
+	private static final int PLAYER = 4;
+	private static final int TEAM = 5;
+	private static final int GAME = 6;
+	private static final int GAME_FAV = 7;
+	private static final int GAME_DOG = 8;
+	private static final int GAME_RESULT = 9;
+	private static final int GAME_PICKS = 10;
+	private static final int PICK_ID = 11;
+
+	public CompactWeekSnapshotRedisSerializer()
+	{
+		super(TYPE_WEEK_SNAPSHOT, new NoFallback(), true);
+	}
+
+	@Override
+	protected void writeFields(WeekSnapshot snapshot, CompactWriter writer)
+	{
+		writer.writeString(LEAGUE_ID, snapshot.getLeagueId());
+		writer.writeString(WEEK_ID, snapshot.getWeekId());
+		writer.writeLong(FROZEN_AT, snapshot.getFrozenAt());
+		for (String player : snapshot.getPlayers())
+			writer.writeString(PLAYER, player);
+		for (String team : snapshot.getTeams())
+			writer.writeString(TEAM, team);
+
+		String[] games = snapshot.getGames();
+		for (int game = 0; game < games.length; game++)
+		{
+			writer.writeString(GAME, games[game]);
+			writer.writeLong(GAME_FAV, snapshot.getFavs()[game]);
+			writer.writeLong(GAME_DOG, snapshot.getDogs()[game]);
+			writer.writeLong(GAME_RESULT, snapshot.getResults()[game]);
+			writer.writeBytes(GAME_PICKS, snapshot.getPicks()[game]);
+		}
+
+		for (int game = 0; game < games.length; game++)
+		{
+			byte[] picks = snapshot.getPicks()[game];
+			for (int player = 0; player < picks.length; player++)
+			{
+				if ((picks[player] & WeekSnapshot.PICKED) == 0)
+					continue;
+				//an empty string holds the place of a pick without an id
+				String pickId = snapshot.getPickIds()[game][player];
+				writer.writeString(PICK_ID, pickId == null ? "" : pickId);
+			}
+		}
+	}
+
+	@Override
+	protected WeekSnapshot readFields(CompactReader reader)
+	{
+		String leagueId = null;
+		String weekId = null;
+		long frozenAt = 0;
+		List<String> players = new ArrayList<>();
+		List<String> teams = new ArrayList<>();
+		List<String> games = new ArrayList<>();
+		List<Integer> favs = new ArrayList<>();
+		List<Integer> dogs = new ArrayList<>();
+		List<Byte> results = new ArrayList<>();
+		List<byte[]> picks = new ArrayList<>();
+		List<String> pickIds = new ArrayList<>();
+		while (reader.hasNext())
+		{
+			switch (reader.readTag())
+			{
+				case LEAGUE_ID:
+					leagueId = reader.readString();
+					break;
+				case WEEK_ID:
+					weekId = reader.readString();
+					break;
+				case FROZEN_AT:
+					frozenAt = reader.readLong();
+					break;
+				case PLAYER:
+					players.add(reader.readString());
+					break;
+				case TEAM:
+					teams.add(reader.readString());
+					break;
+				case GAME:
+					games.add(reader.readString());
+					break;
+				case GAME_FAV:
+					favs.add((int) reader.readLong());
+					break;
+				case GAME_DOG:
+					dogs.add((int) reader.readLong());
+					break;
+				case GAME_RESULT:
+					results.add((byte) reader.readLong());
+					break;
+				case GAME_PICKS:
+					picks.add(reader.readBytes());
+					break;
+				case PICK_ID:
+					pickIds.add(reader.readString());
+					break;
+				default:
+					reader.skip();
+			}
+		}
+
+		int gameCount = games.size();
+		if (favs.size() != gameCount || dogs.size() != gameCount || results.size() != gameCount || picks.size() != gameCount)
+			throw new SerializationException("week snapshot has "+gameCount+" games but not every game is complete");
+
+		int[] favArray = new int[gameCount];
+		int[] dogArray = new int[gameCount];
+		byte[] resultArray = new byte[gameCount];
+		String[][] pickIdArray = new String[gameCount][players.size()];
+		int nextPickId = 0;
+		for (int game = 0; game < gameCount; game++)
+		{
+			favArray[game] = favs.get(game);
+			dogArray[game] = dogs.get(game);
+			resultArray[game] = results.get(game);
+			byte[] gamePicks = picks.get(game);
+			for (int player = 0; player < gamePicks.length && player < players.size(); player++)
+			{
+				if ((gamePicks[player] & WeekSnapshot.PICKED) == 0)
+					continue;
+				if (nextPickId == pickIds.size())
+					throw new SerializationException("week snapshot is missing pick ids");
+				String pickId = pickIds.get(nextPickId++);
+				pickIdArray[game][player] = pickId.isEmpty() ? null : pickId;
+			}
+		}
+
+		try {
+			return new WeekSnapshot(leagueId, weekId, frozenAt, players.toArray(new String[players.size()]),
+					teams.toArray(new String[teams.size()]), games.toArray(new String[gameCount]),
+					favArray, dogArray, resultArray, picks.toArray(new byte[gameCount][]), pickIdArray);
+		} catch (IllegalArgumentException e) {
+			throw new SerializationException("week snapshot is malformed", e);
+		}
+	}
+
+	private static class NoFallback implements RedisSerializer<WeekSnapshot> {
+
+		@Override
+		public byte[] serialize(WeekSnapshot snapshot) throws SerializationException
+		{
+			throw new SerializationException("week snapshots are always compact");
+		}
+
+		@Override
+		public WeekSnapshot deserialize(byte[] bytes) throws SerializationException
+		{
+			throw new SerializationException("week snapshot is not in the compact layout");
+		}
+	}
+}
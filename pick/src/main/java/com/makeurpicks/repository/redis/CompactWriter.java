@@ -0,0 +1,87 @@
+package com.makeurpicks.repository.redis;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the tagged fields of the compact layout, see {@link CompactRedisSerializer}.
+ * Null strings and false booleans are left out entirely, byte arrays are
+ * always written, empty or not.
+ */
+class CompactWriter {
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream(96);
+
+	CompactWriter(int type)
+	{
+		out.write(CompactRedisSerializer.MAGIC);
+		out.write(CompactRedisSerializer.VERSION);
+		out.write(type);
+	}
+
+	void writeString(int tag, String value)
+	{
+		if (value == null)
+			return;
+
+		if (CompactIds.isUuid(value))
+		{
+			writeKey(tag, CompactRedisSerializer.WIRE_UUID);
+			CompactIds.writeUuid(value, 0, out);
+		}
+		else if (CompactIds.isUuidPair(value))
+		{
+			writeKey(tag, CompactRedisSerializer.WIRE_UUID_PAIR);
+			CompactIds.writeUuid(value, 0, out);
+			CompactIds.writeUuid(value, CompactIds.UUID_LENGTH+1, out);
+		}
+		else
+		{
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeKey(tag, CompactRedisSerializer.WIRE_BYTES);
+			writeVarint(bytes.length);
+			out.write(bytes, 0, bytes.length);
+		}
+	}
+
+	void writeBoolean(int tag, boolean value)
+	{
+		if (!value)
+			return;
+		writeKey(tag, CompactRedisSerializer.WIRE_VARINT);
+		out.write(1);
+	}
+
+	void writeLong(int tag, long value)
+	{
+		writeKey(tag, CompactRedisSerializer.WIRE_VARINT);
+		writeVarint(value);
+	}
+
+	void writeBytes(int tag, byte[] value)
+	{
+		writeKey(tag, CompactRedisSerializer.WIRE_BYTES);
+		writeVarint(value.length);
+		out.write(value, 0, value.length);
+	}
+
+	byte[] toByteArray()
+	{
+		return out.toByteArray();
+	}
+
+	private void writeKey(int tag, int wireType)
+	{
+		writeVarint((tag << 3) | wireType);
+	}
+
+	private void writeVarint(long value)
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+}
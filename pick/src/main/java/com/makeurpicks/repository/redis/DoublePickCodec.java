@@ -0,0 +1,85 @@
+package com.makeurpicks.repository.redis;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.makeurpicks.domain.DoublePick;
+
+/**
+ * Json encoding for double picks.  ObjectReader and ObjectWriter are immutable
+ * and thread safe so one of each is built up front and shared by every call.
+ */
+public final class DoublePickCodec {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final ObjectReader READER = MAPPER.readerFor(DoublePick.class);
+	private static final ObjectWriter WRITER = MAPPER.writerFor(DoublePick.class);
+	private static final ObjectReader LEGACY_READER = MAPPER.readerFor(new TypeReference<Map<String, DoublePick>>() {});
+
+	/**
+	 * The json layout as a redis serializer, what the compact serializer falls
+	 * back to.
+	 */
+	public static final RedisSerializer<DoublePick> JSON = new RedisSerializer<DoublePick>() {
+		@Override
+		public byte[] serialize(DoublePick doublePick) throws SerializationException {
+			if (doublePick == null)
+				return new byte[0];
+			return encode(doublePick).getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public DoublePick deserialize(byte[] bytes) throws SerializationException {
+			if (bytes == null || bytes.length == 0)
+				return null;
+			return decode(new String(bytes, StandardCharsets.UTF_8));
+		}
+	};
+
+	private DoublePickCodec()
+	{
+
+	}
+
+	public static String encode(DoublePick doublePick)
+	{
+		try {
+			return WRITER.writeValueAsString(doublePick);
+		} catch (JsonProcessingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static DoublePick decode(String json)
+	{
+		if (json == null)
+			return null;
+		try {
+			return READER.readValue(json);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Reads the old layout where every player's double pick for a league and week
+	 * was one json map keyed by player id.
+	 */
+	public static Map<String, DoublePick> decodeLegacy(String json)
+	{
+		try {
+			return LEGACY_READER.readValue(json);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
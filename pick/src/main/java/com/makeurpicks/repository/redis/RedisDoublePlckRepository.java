@@ -1,104 +1,115 @@
 package com.makeurpicks.repository.redis;
 
-import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.RedisTemplate;
 
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.makeurpicks.domain.DoublePick;
 import com.makeurpicks.repository.DoublePickRepository;
 
-public class RedisDoublePlckRepository implements DoublePickRepository {
+/**
+ * Double picks stored as one hash per league and week with a field per player.
+ *
+ * double_pick:{leagueId}+weekId -> playerId -> double pick
+ *
+ * Reading or changing one player's double is a single HGET, HSET or HDEL and
+ * never touches the other players in the league.  The league is the hash tag,
+ * a cluster keeps the doubles next to the league's picks.
+ */
+public class RedisDoublePlckRepository extends AbstractRedisHashCRUDRepository<DoublePick> implements DoublePickRepository {
 
-	protected final HashOperations<String, String, String> hashOps;
-	
-	public RedisDoublePlckRepository(RedisTemplate<String, String> redisTemplate)
+	private Log log = LogFactory.getLog(RedisDoublePlckRepository.class);
+
+	public static final String DOUBLE_PICK_KEY = "double_pick:";
+
+	//the old layout, one json map per league and week under a single hash
+	public static final String LEGACY_KEY = "double_pick";
+
+	public RedisDoublePlckRepository(RedisTemplate<String, DoublePick> redisTemplate)
 	{
-		this.hashOps = redisTemplate.opsForHash();
+		super(redisTemplate);
 	}
 
-//	@Override
-	public String getKey() {
-		return "double_pick";
-	}
-	
-	private String buildKey(String leagueId, String weekId)
+	protected String buildKey(String leagueId, String weekId)
 	{
-		return new StringBuilder(leagueId).append("+").append(weekId).toString();
+		return RedisKeys.leagueWeek(DOUBLE_PICK_KEY, leagueId, weekId);
 	}
-	
-	public Map<String, DoublePick> findAllForLeagueAndWeek(String leagueId, String weekId)
+
+	protected String buildKey(String leagueAndWeek)
 	{
-		String hashkey = buildKey(leagueId, weekId);
-		return findAllForLeagueAndWeek(hashkey);
+		return RedisKeys.leagueWeek(DOUBLE_PICK_KEY, leagueAndWeek);
 	}
-	
-	public Map<String, DoublePick> findAllForLeagueAndWeek(String hashkey)
+
+	public Map<String, DoublePick> findAllForLeagueAndWeek(String leagueId, String weekId)
 	{
-		String json = hashOps.get(getKey(), hashkey);
-		if (json == null)
+		Map<String, DoublePick> doublePicks = hashOps.entries(buildKey(leagueId, weekId));
+		if (doublePicks == null || doublePicks.isEmpty())
 			return null;
-		
-		TypeReference<HashMap<String,DoublePick>> typeRef  = new TypeReference<HashMap<String,DoublePick>>() {};
-		Map<String, DoublePick> doublePicks;
-		try {
-			doublePicks = new ObjectMapper().readValue(json, typeRef);
-		} catch (JsonParseException e) {
-			throw new RuntimeException(e);
-		} catch (JsonMappingException e) {
-			throw new RuntimeException(e);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
 		return doublePicks;
 	}
-	
+
 	public DoublePick findDoubleForPlayer(String leagueId, String weekId, String playerId)
 	{
-		Map<String, DoublePick> doublePicks = findAllForLeagueAndWeek(leagueId, weekId);
-		if (doublePicks==null || doublePicks.isEmpty())
-			return null;
-		
-		return doublePicks.get(playerId);
-		
+		return hashOps.get(buildKey(leagueId, weekId), playerId);
 	}
-	
+
 	public void deleteAll()
 	{
-		for (String key:hashOps.keys(getKey()))
-		{
-			hashOps.delete(getKey(), key);
-		}
+		deleteKeys(DOUBLE_PICK_KEY);
+		redisTemplate.delete(LEGACY_KEY);
 	}
-	
+
 	public void delete(DoublePick doublePick)
 	{
-		Map<String, DoublePick> doublePicks = findAllForLeagueAndWeek(doublePick.getId());
-		doublePicks.remove(doublePick.getPlayerId());
+		hashOps.delete(buildKey(doublePick.getId()), doublePick.getPlayerId());
 	}
-	
+
 	public void save(DoublePick doublePick)
 	{
-		Map<String, DoublePick> doublePicks = findAllForLeagueAndWeek(doublePick.getId());
-		if (doublePicks == null)
-			doublePicks = new HashMap<>();
-		
-		doublePicks.put(doublePick.getPlayerId(), doublePick);
-		
-		try {
-			String json = new ObjectMapper().writeValueAsString(doublePicks);
-			hashOps.put(getKey(), doublePick.getId(), json);
-		} catch (JsonProcessingException e) {
-			throw new RuntimeException(e);
+		hashOps.put(buildKey(doublePick.getId()), doublePick.getPlayerId(), doublePick);
+	}
+
+	public void deleteWeek(String leagueId, String weekId)
+	{
+		redisTemplate.delete(buildKey(leagueId, weekId));
+	}
+
+	/**
+	 * Splits the league and week json maps from the old layout into a field per
+	 * player, then removes them.  A player that already has a field in the new
+	 * layout saved after the switch over and is left alone.
+	 *
+	 * @param legacyTemplate a template with string hash values to read the old maps
+	 * @return the number of league weeks that were migrated
+	 */
+	public int migrateLegacyLayout(RedisTemplate<String, String> legacyTemplate)
+	{
+		HashOperations<String, String, String> legacyOps = legacyTemplate.opsForHash();
+		int migrated = 0;
+		for (Map.Entry<String, String> entry : legacyOps.entries(LEGACY_KEY).entrySet())
+		{
+			String key = buildKey(entry.getKey());
+			for (Map.Entry<String, DoublePick> doublePick : DoublePickCodec.decodeLegacy(entry.getValue()).entrySet())
+				hashOps.putIfAbsent(key, doublePick.getKey(), doublePick.getValue());
+
+			legacyOps.delete(LEGACY_KEY, entry.getKey());
+			migrated++;
+			log.debug("migrated double picks for "+entry.getKey());
 		}
+		return migrated;
+	}
 
+	/**
+	 * Renames the untagged keys written before the key scheme moved to hash
+	 * tags, see {@link RedisKeys#retagKeys(RedisTemplate, String)}.
+	 *
+	 * @return the number of keys renamed
+	 */
+	public int migrateUntaggedKeys()
+	{
+		return retagKeys(DOUBLE_PICK_KEY);
 	}
 }
-
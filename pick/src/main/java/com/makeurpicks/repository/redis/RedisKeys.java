@@ -0,0 +1,199 @@
+package com.makeurpicks.repository.redis;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The key scheme shared by the redis repositories, and what they do differently
+ * when redis is a cluster.
+ *
+ * Everything that belongs to a league carries the league id as a hash tag,
+ * prefix{leagueId} or prefix{leagueId}+weekId, so a cluster puts a league's
+ * picks, week index, doubles, counts and versions in one slot.  The scripts and
+ * multi key commands on a league never cross slots, and leagues spread over
+ * the nodes.
+ *
+ * The cluster connection we have can't pipeline, MULTI or SCAN.  Commands that
+ * would be pipelined are sent one at a time there, and keys are found with KEYS
+ * on every node instead of SCAN.  Keys are looked for by deleteAll, the
+ * migrations and the PickRepository.findAll() behind the admin history
+ * rebuild, never on a request path.
+ */
+public final class RedisKeys {
+
+	private static final Log log = LogFactory.getLog(RedisKeys.class);
+
+	private static final Map<RedisConnectionFactory, Boolean> CLUSTERS = new ConcurrentHashMap<>();
+
+	private static final int SCAN_COUNT = 1000;
+
+	private RedisKeys()
+	{
+
+	}
+
+	/**
+	 * @return prefix{tag}
+	 */
+	public static String tag(String prefix, String tag)
+	{
+		return new StringBuilder(prefix).append('{').append(tag).append('}').toString();
+	}
+
+	/**
+	 * @return prefix{leagueId}+weekId
+	 */
+	public static String leagueWeek(String prefix, String leagueId, String weekId)
+	{
+		return new StringBuilder(prefix).append('{').append(leagueId).append("}+").append(weekId).toString();
+	}
+
+	/**
+	 * @return prefix{leagueId}+weekId for an id already in leagueId+weekId form,
+	 * like a double pick's, or prefix{leagueId} for a bare league id
+	 */
+	public static String leagueWeek(String prefix, String leagueAndWeek)
+	{
+		int split = leagueAndWeek.indexOf('+');
+		if (split < 0)
+			return tag(prefix, leagueAndWeek);
+		return new StringBuilder(tag(prefix, leagueAndWeek.substring(0, split))).append(leagueAndWeek.substring(split)).toString();
+	}
+
+	/**
+	 * Tags a key from the old layout, prefix leagueId or prefix leagueId+weekId
+	 * become prefix{leagueId} and prefix{leagueId}+weekId.
+	 *
+	 * @return the tagged key, or null if the key is already tagged
+	 */
+	public static String retag(String prefix, String key)
+	{
+		if (!key.startsWith(prefix) || key.indexOf('{', prefix.length()) >= 0)
+			return null;
+
+		return leagueWeek(prefix, key.substring(prefix.length()));
+	}
+
+	/**
+	 * @return true when the factory hands out cluster connections, worked out
+	 * once per factory
+	 */
+	public static boolean isCluster(RedisConnectionFactory connectionFactory)
+	{
+		if (connectionFactory == null)
+			return false;
+
+		return CLUSTERS.computeIfAbsent(connectionFactory, factory -> {
+			RedisConnection connection = factory.getConnection();
+			try {
+				return connection instanceof RedisClusterConnection;
+			} finally {
+				connection.close();
+			}
+		});
+	}
+
+	/**
+	 * Sends the commands in one round trip.  When the connection is already bound,
+	 * e.g. inside RedisPickWriteBatch, they just join that pipeline, opening a
+	 * nested one would close the caller's.  On a cluster they run one at a time.
+	 */
+	public static void pipelined(RedisTemplate<?, ?> redisTemplate, Runnable commands)
+	{
+		RedisConnectionFactory connectionFactory = redisTemplate.getConnectionFactory();
+		if (TransactionSynchronizationManager.hasResource(connectionFactory) || isCluster(connectionFactory))
+		{
+			commands.run();
+			return;
+		}
+
+		redisTemplate.executePipelined(new SessionCallback<Object>() {
+			@Override
+			public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+				commands.run();
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @return every key matching the pattern, with SCAN or on a cluster KEYS
+	 * against each node
+	 */
+	public static List<String> findKeys(RedisTemplate<String, ?> redisTemplate, String pattern)
+	{
+		//StringRedisTemplate wraps the connection, ask the factory rather than the connection
+		boolean cluster = isCluster(redisTemplate.getConnectionFactory());
+		return redisTemplate.execute(new RedisCallback<List<String>>() {
+			@Override
+			public List<String> doInRedis(RedisConnection connection) throws DataAccessException {
+				List<String> keys = new ArrayList<>();
+				if (cluster)
+				{
+					Set<byte[]> found = connection.keys(pattern.getBytes(StandardCharsets.UTF_8));
+					if (found != null)
+					{
+						for (byte[] key : found)
+							keys.add(new String(key, StandardCharsets.UTF_8));
+					}
+					return keys;
+				}
+
+				Cursor<byte[]> cursor = connection.scan(ScanOptions.scanOptions().match(pattern).count(SCAN_COUNT).build());
+				try {
+					while (cursor.hasNext())
+						keys.add(new String(cursor.next(), StandardCharsets.UTF_8));
+				} finally {
+					try {
+						cursor.close();
+					} catch (IOException e) {
+						log.warn("unable to close scan cursor", e);
+					}
+				}
+				return keys;
+			}
+		});
+	}
+
+	/**
+	 * Renames the old layout's keys under a prefix to their tagged names.  A key
+	 * whose tagged name was already written by an upgraded instance is left as
+	 * it is and logged, nothing is overwritten.
+	 *
+	 * @return the number of keys renamed
+	 */
+	public static int retagKeys(RedisTemplate<String, ?> redisTemplate, String prefix)
+	{
+		int renamed = 0;
+		for (String key : findKeys(redisTemplate, prefix + "*"))
+		{
+			String tagged = retag(prefix, key);
+			if (tagged == null)
+				continue;
+			if (redisTemplate.renameIfAbsent(key, tagged))
+				renamed++;
+			else
+				log.warn("not moving "+key+", "+tagged+" already exists");
+		}
+		return renamed;
+	}
+}
@@ -0,0 +1,183 @@
+package com.makeurpicks.repository.redis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.makeurpicks.domain.PickChangeEvent;
+import com.makeurpicks.repository.PickChangeStream;
+
+/**
+ * The pick change log as sorted sets scored by sequence number, one per shard.
+ *
+ * {pick_changes:shard}:seq -> last sequence handed out in the shard
+ * {pick_changes:shard}     -> "sequence:event json" scored by sequence
+ *
+ * The redis we run predates streams, a sorted set gives the same ordered,
+ * read from an offset log.  Appending is a script so the sequence numbers, the
+ * adds and the trim happen as one step and two instances can't interleave.
+ * A league's changes go to the shard its id hashes to, each shard is tagged
+ * on its own so a cluster spreads the shards, and the pick writes, over its
+ * nodes.  The maximum length is per shard.
+ */
+public class RedisPickChangeStream implements PickChangeStream {
+
+	public static final String CHANGES_KEY = "pick_changes:";
+	public static final String SEQUENCE_SUFFIX = ":seq";
+
+	public static final int DEFAULT_SHARDS = 8;
+
+	//the keys before they were tagged, and then before they were sharded
+	public static final String LEGACY_CHANGES_KEY = "pick_changes";
+	public static final String LEGACY_SEQUENCE_KEY = "pick_changes:seq";
+	public static final String UNSHARDED_CHANGES_KEY = "{pick_changes}";
+	public static final String UNSHARDED_SEQUENCE_KEY = "{pick_changes}:seq";
+
+	private static final ObjectMapper MAPPER = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+	private static final ObjectReader READER = MAPPER.readerFor(PickChangeEvent.class);
+	private static final ObjectWriter WRITER = MAPPER.writerFor(PickChangeEvent.class);
+
+	private final RedisTemplate<String, String> redisTemplate;
+	private final long maxLength;
+	private final int shards;
+
+	public RedisPickChangeStream(RedisTemplate<String, String> redisTemplate, long maxLength)
+	{
+		this(redisTemplate, maxLength, DEFAULT_SHARDS);
+	}
+
+	public RedisPickChangeStream(RedisTemplate<String, String> redisTemplate, long maxLength, int shards)
+	{
+		this.redisTemplate = redisTemplate;
+		this.maxLength = maxLength;
+		this.shards = shards;
+	}
+
+	static String changesKey(int shard)
+	{
+		return RedisKeys.tag("", CHANGES_KEY + shard);
+	}
+
+	static String sequenceKey(int shard)
+	{
+		return changesKey(shard) + SEQUENCE_SUFFIX;
+	}
+
+	public int getShards()
+	{
+		return shards;
+	}
+
+	public int shardOf(String leagueId)
+	{
+		return leagueId == null ? 0 : (leagueId.hashCode() & 0x7fffffff) % shards;
+	}
+
+	/**
+	 * One script call per shard the events fall in, a batch of one league's
+	 * picks is one call.
+	 */
+	public void append(List<PickChangeEvent> events)
+	{
+		if (events.isEmpty())
+			return;
+
+		Map<Integer, List<PickChangeEvent>> byShard = new LinkedHashMap<>();
+		for (PickChangeEvent event : events)
+			byShard.computeIfAbsent(shardOf(event.getLeagueId()), shard -> new ArrayList<>()).add(event);
+
+		for (Map.Entry<Integer, List<PickChangeEvent>> shard : byShard.entrySet())
+		{
+			List<PickChangeEvent> shardEvents = shard.getValue();
+			Object[] args = new Object[shardEvents.size() + 1];
+			args[0] = maxLength;
+			for (int i=0; i<shardEvents.size(); i++)
+				args[i + 1] = encode(shardEvents.get(i));
+
+			Long first = RedisScripts.execute(redisTemplate, RedisScripts.APPEND_PICK_CHANGES, RedisScripts.ARGS, new GenericToStringSerializer<>(Long.class),
+					Arrays.asList(sequenceKey(shard.getKey()), changesKey(shard.getKey())), args);
+			for (int i=0; i<shardEvents.size(); i++)
+				shardEvents.get(i).setSequence(first + i);
+		}
+	}
+
+	public List<PickChangeEvent> readAfter(int shard, long sequence, int count)
+	{
+		Set<String> entries = redisTemplate.opsForZSet().rangeByScore(changesKey(shard), sequence + 1, Double.POSITIVE_INFINITY, 0, count);
+		if (entries == null || entries.isEmpty())
+			return Collections.emptyList();
+
+		List<PickChangeEvent> events = new ArrayList<>(entries.size());
+		for (String entry : entries)
+			events.add(decode(entry));
+		return events;
+	}
+
+	public long lastSequence(int shard)
+	{
+		String sequence = redisTemplate.opsForValue().get(sequenceKey(shard));
+		return sequence == null ? 0 : Long.parseLong(sequence);
+	}
+
+	public void deleteAll()
+	{
+		for (int shard=0; shard<shards; shard++)
+			redisTemplate.delete(Arrays.asList(changesKey(shard), sequenceKey(shard)));
+	}
+
+	/**
+	 * Renames the single log of the untagged or the unsharded layout, and its
+	 * sequence, to shard 0, unless an upgraded instance already started it.
+	 * Readers start from the end of every shard, the events moved over are
+	 * kept only so nothing is left behind.
+	 *
+	 * @return the number of keys renamed
+	 */
+	public int migrateUntaggedKeys()
+	{
+		int renamed = 0;
+		for (String[] keys : new String[][] {{LEGACY_SEQUENCE_KEY, LEGACY_CHANGES_KEY}, {UNSHARDED_SEQUENCE_KEY, UNSHARDED_CHANGES_KEY}})
+		{
+			if (redisTemplate.hasKey(keys[0]) && redisTemplate.renameIfAbsent(keys[0], sequenceKey(0)))
+				renamed++;
+			if (redisTemplate.hasKey(keys[1]) && redisTemplate.renameIfAbsent(keys[1], changesKey(0)))
+				renamed++;
+		}
+		return renamed;
+	}
+
+	private static String encode(PickChangeEvent event)
+	{
+		try {
+			return WRITER.writeValueAsString(event);
+		} catch (JsonProcessingException e) {
+			throw new SerializationException("unable to write pick change", e);
+		}
+	}
+
+	private static PickChangeEvent decode(String entry)
+	{
+		int split = entry.indexOf(':');
+		try {
+			PickChangeEvent event = READER.readValue(entry.substring(split + 1));
+			event.setSequence(Long.parseLong(entry.substring(0, split)));
+			return event;
+		} catch (IOException e) {
+			throw new SerializationException("unable to read pick change "+entry, e);
+		}
+	}
+}
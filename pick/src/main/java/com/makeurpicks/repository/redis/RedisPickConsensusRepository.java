@@ -0,0 +1,158 @@
+package com.makeurpicks.repository.redis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.repository.PickConsensusRepository;
+
+/**
+ * Pick counts per team kept in two hashes per league and week.
+ *
+ * pick_consensus:{leagueId}+weekId       -> gameId:teamId -> picks on that team
+ * pick_consensus_picks:{leagueId}+weekId -> pickId -> gameId:teamId it is counted in
+ *
+ * The second hash is what makes the counts exact, the record script moves a
+ * pick from the field it was counted in rather than trusting the caller to know
+ * the old team, so two saves of the same pick racing each other can't both
+ * take it off the same team.
+ */
+public class RedisPickConsensusRepository extends AbstractRedisHashCRUDRepository<String> implements PickConsensusRepository {
+
+	public static final String COUNTS_KEY = "pick_consensus:";
+	public static final String PICKS_KEY = "pick_consensus_picks:";
+
+	private static final char FIELD_SEPARATOR = ':';
+
+	public RedisPickConsensusRepository(StringRedisTemplate redisTemplate)
+	{
+		super(redisTemplate);
+	}
+
+	protected String buildKey(String prefix, String leagueId, String weekId)
+	{
+		return RedisKeys.leagueWeek(prefix, leagueId, weekId);
+	}
+
+	protected String buildField(Pick pick)
+	{
+		return new StringBuilder(pick.getGameId()).append(FIELD_SEPARATOR).append(pick.getTeamId()).toString();
+	}
+
+	/**
+	 * One script call per league week, a batch of picks is nearly always a
+	 * single week.
+	 */
+	@Override
+	public void record(Collection<Pick> picks)
+	{
+		Map<String, List<Pick>> byWeek = new LinkedHashMap<>();
+		for (Pick pick : picks)
+		{
+			if (pick.getTeamId() == null)
+				continue;
+			String key = buildKey(COUNTS_KEY, pick.getLeagueId(), pick.getWeekId());
+			List<Pick> week = byWeek.get(key);
+			if (week == null)
+			{
+				week = new ArrayList<>();
+				byWeek.put(key, week);
+			}
+			week.add(pick);
+		}
+
+		for (List<Pick> week : byWeek.values())
+		{
+			Pick first = week.get(0);
+			Object[] args = new Object[week.size() * 2];
+			for (int i=0; i<week.size(); i++)
+			{
+				args[i * 2] = week.get(i).getId();
+				args[i * 2 + 1] = buildField(week.get(i));
+			}
+			RedisScripts.execute(redisTemplate, RedisScripts.RECORD_PICK_CONSENSUS, RedisScripts.ARGS, new GenericToStringSerializer<>(Long.class),
+					Arrays.asList(buildKey(COUNTS_KEY, first.getLeagueId(), first.getWeekId()), buildKey(PICKS_KEY, first.getLeagueId(), first.getWeekId())), args);
+		}
+	}
+
+	@Override
+	public Map<String, Map<String, Long>> findByWeek(String leagueId, String weekId)
+	{
+		Map<String, String> counts = hashOps.entries(buildKey(COUNTS_KEY, leagueId, weekId));
+		Map<String, Map<String, Long>> games = new HashMap<>();
+		for (Map.Entry<String, String> count : counts.entrySet())
+		{
+			int split = count.getKey().indexOf(FIELD_SEPARATOR);
+			String gameId = count.getKey().substring(0, split);
+			Map<String, Long> teams = games.get(gameId);
+			if (teams == null)
+			{
+				teams = new HashMap<>();
+				games.put(gameId, teams);
+			}
+			teams.put(count.getKey().substring(split + 1), Long.valueOf(count.getValue()));
+		}
+		return games;
+	}
+
+	/**
+	 * Replaces both hashes in one script call so readers never see a half built
+	 * week, a script rather than MULTI so it also runs on a cluster.
+	 */
+	@Override
+	public void rebuild(String leagueId, String weekId, Collection<Pick> picks)
+	{
+		Map<String, String> counted = new HashMap<>();
+		Map<String, Long> counts = new HashMap<>();
+		for (Pick pick : picks)
+		{
+			if (pick.getTeamId() == null)
+				continue;
+			String field = buildField(pick);
+			counted.put(pick.getId(), field);
+			counts.merge(field, 1L, Long::sum);
+		}
+		Object[] args = new Object[1 + counts.size() * 2 + counted.size() * 2];
+		int arg = 0;
+		args[arg++] = counts.size();
+		for (Map.Entry<String, Long> count : counts.entrySet())
+		{
+			args[arg++] = count.getKey();
+			args[arg++] = count.getValue();
+		}
+		for (Map.Entry<String, String> pick : counted.entrySet())
+		{
+			args[arg++] = pick.getKey();
+			args[arg++] = pick.getValue();
+		}
+
+		RedisScripts.execute(redisTemplate, RedisScripts.REBUILD_PICK_CONSENSUS, RedisScripts.ARGS, new GenericToStringSerializer<>(Long.class),
+				Arrays.asList(buildKey(COUNTS_KEY, leagueId, weekId), buildKey(PICKS_KEY, leagueId, weekId)), args);
+	}
+
+	@Override
+	public void deleteAll()
+	{
+		deleteKeys(COUNTS_KEY, PICKS_KEY);
+	}
+
+	/**
+	 * Renames the untagged keys written before the key scheme moved to hash
+	 * tags, see {@link RedisKeys#retagKeys(RedisTemplate, String)}.
+	 *
+	 * @return the number of keys renamed
+	 */
+	public int migrateUntaggedKeys()
+	{
+		return retagKeys(COUNTS_KEY, PICKS_KEY);
+	}
+}
@@ -0,0 +1,132 @@
+package com.makeurpicks.repository.redis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickHistoryEntry;
+import com.makeurpicks.repository.PickHistoryRepository;
+
+/**
+ * A sorted set per player and season.
+ *
+ * pick_history:{playerId}+seasonId -> leagueId+weekId+gameId+pickId scored by kickoff
+ *
+ * Tagged by player, a player's seasons sit on one cluster node whatever leagues
+ * they play in.  A page is one ZRANGE, the entries are ordered by kickoff and
+ * then by league so the same page always comes back in the same order.
+ */
+public class RedisPickHistoryRepository implements PickHistoryRepository {
+
+	public static final String HISTORY_KEY = "pick_history:";
+
+	private static final char SEPARATOR = '+';
+
+	private final StringRedisTemplate redisTemplate;
+	private final ZSetOperations<String, String> zSetOps;
+
+	public RedisPickHistoryRepository(StringRedisTemplate redisTemplate)
+	{
+		this.redisTemplate = redisTemplate;
+		this.zSetOps = redisTemplate.opsForZSet();
+	}
+
+	protected String buildKey(String playerId, String seasonId)
+	{
+		return new StringBuilder(RedisKeys.tag(HISTORY_KEY, playerId)).append(SEPARATOR).append(seasonId).toString();
+	}
+
+	protected String buildMember(Pick pick)
+	{
+		return new StringBuilder(pick.getLeagueId()).append(SEPARATOR).append(pick.getWeekId()).append(SEPARATOR)
+				.append(pick.getGameId()).append(SEPARATOR).append(pick.getId()).toString();
+	}
+
+	protected PickHistoryEntry parseMember(String member)
+	{
+		String[] parts = member.split("\\+", 4);
+		if (parts.length < 4)
+			return null;
+		return new PickHistoryEntry(parts[0], parts[1], parts[2], parts[3]);
+	}
+
+	/**
+	 * One ZADD per player, a batch of picks is nearly always one player.  Not
+	 * pipelined, the connection can't send a ZADD of several members in one,
+	 * and on a cluster it can't send one at all so the members go one by one.
+	 */
+	@Override
+	public void record(String seasonId, Collection<Pick> picks, ToLongFunction<Pick> order)
+	{
+		Map<String, Set<TypedTuple<String>>> byPlayer = new LinkedHashMap<>();
+		for (Pick pick : picks)
+		{
+			byPlayer.computeIfAbsent(buildKey(pick.getPlayerId(), seasonId), key -> new LinkedHashSet<>())
+				.add(new DefaultTypedTuple<>(buildMember(pick), (double) order.applyAsLong(pick)));
+		}
+		boolean cluster = RedisKeys.isCluster(redisTemplate.getConnectionFactory());
+		for (Map.Entry<String, Set<TypedTuple<String>>> player : byPlayer.entrySet())
+		{
+			if (!cluster)
+			{
+				zSetOps.add(player.getKey(), player.getValue());
+				continue;
+			}
+			for (TypedTuple<String> entry : player.getValue())
+				zSetOps.add(player.getKey(), entry.getValue(), entry.getScore());
+		}
+	}
+
+	@Override
+	public void remove(String seasonId, Pick pick)
+	{
+		zSetOps.remove(buildKey(pick.getPlayerId(), seasonId), buildMember(pick));
+	}
+
+	@Override
+	public List<PickHistoryEntry> findBySeason(String playerId, String seasonId, int offset, int count)
+	{
+		if (count <= 0)
+			return Collections.emptyList();
+
+		Set<String> members = zSetOps.range(buildKey(playerId, seasonId), offset, (long) offset + count - 1);
+		if (members == null)
+			return Collections.emptyList();
+
+		List<PickHistoryEntry> entries = new ArrayList<>(members.size());
+		for (String member : members)
+		{
+			PickHistoryEntry entry = parseMember(member);
+			if (entry != null)
+				entries.add(entry);
+		}
+		return entries;
+	}
+
+	@Override
+	public long countBySeason(String playerId, String seasonId)
+	{
+		Long count = zSetOps.zCard(buildKey(playerId, seasonId));
+		return count == null ? 0 : count;
+	}
+
+	@Override
+	public void deleteAll()
+	{
+		List<String> keys = RedisKeys.findKeys(redisTemplate, HISTORY_KEY + "*");
+		if (!keys.isEmpty())
+			redisTemplate.delete(keys);
+	}
+}
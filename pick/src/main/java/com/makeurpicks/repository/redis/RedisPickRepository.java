@@ -1,22 +1,358 @@
 package com.makeurpicks.repository.redis;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 import com.makeurpicks.domain.Pick;
 import com.makeurpicks.repository.PickRepository;
 
+/**
+ * Picks stored as one hash per league, with a directory to find a pick's league
+ * from its id alone.
+ *
+ * picks:{leagueId}     -> pickId -> pick
+ * pick_league:{bucket} -> pickId -> leagueId, the bucket is the pick id's hash
+ *
+ * The league's hash is tagged like its week index and doubles, so a cluster
+ * keeps them on one node, and a week is read with one HMGET when the league is
+ * known.  Lookups by id alone go through the directory first, it is spread over
+ * buckets so it isn't a single hot key either.
+ *
+ * Bulk saves and deletes, the pipelined reads and the HSCAN walk of every
+ * league come from {@link AbstractRedisHashCRUDRepository}, the directory is
+ * written with the same chunked calls.
+ */
 public class RedisPickRepository extends AbstractRedisHashCRUDRepository<Pick> implements PickRepository {
 
-public static final String PICK_KEY = "picks";
-	
+	private Log log = LogFactory.getLog(RedisPickRepository.class);
+
+	public static final String PICK_KEY = "picks:";
+	public static final String LEAGUE_KEY = "pick_league:";
+
+	//the old layout, every pick in one hash
+	public static final String LEGACY_KEY = "picks";
+
+	protected static final int DIRECTORY_BUCKETS = 1024;
+
+	protected final StringRedisTemplate directoryTemplate;
+	protected final HashOperations<String, String, String> directoryOps;
+
 	public RedisPickRepository(RedisTemplate<String, Pick> redisTemplate)
 	{
 		super(redisTemplate);
+		this.directoryTemplate = new StringRedisTemplate(redisTemplate.getConnectionFactory());
+		this.directoryOps = directoryTemplate.opsForHash();
+	}
+
+	protected String buildKey(String leagueId)
+	{
+		return RedisKeys.tag(PICK_KEY, leagueId);
+	}
+
+	protected String buildDirectoryKey(String pickId)
+	{
+		return RedisKeys.tag(LEAGUE_KEY, String.valueOf((pickId.hashCode() & 0x7fffffff) % DIRECTORY_BUCKETS));
+	}
+
+	/**
+	 * The directory holds a field per pick and its buckets are known up front,
+	 * their lengths are the count without looking for the league hashes.
+	 */
+	@Override
+	public long count()
+	{
+		List<String> buckets = new ArrayList<>(DIRECTORY_BUCKETS);
+		for (int bucket = 0; bucket < DIRECTORY_BUCKETS; bucket++)
+			buckets.add(RedisKeys.tag(LEAGUE_KEY, String.valueOf(bucket)));
+		return count(buckets);
+	}
+
+	@Override
+	public boolean exists(String id)
+	{
+		return directoryOps.hasKey(buildDirectoryKey(id), id);
+	}
+
+	/**
+	 * Looks the league up in the directory, then reads the pick from the
+	 * league's hash.  Two round trips, the league's hash is only known once the
+	 * directory answers and can live on another node of a cluster.
+	 */
+	@Override
+	public Pick findOne(String id)
+	{
+		String leagueId = directoryOps.get(buildDirectoryKey(id), id);
+		if (leagueId == null)
+			return null;
+		return hashOps.get(buildKey(leagueId), id);
+	}
+
+	@Override
+	public Iterable<Pick> findAll(String leagueId, Iterable<String> pickIds)
+	{
+		List<String> ids = toList(pickIds);
+		if (ids.isEmpty())
+			return Collections.emptyList();
+		return hashOps.multiGet(buildKey(leagueId), ids);
+	}
+
+	/**
+	 * Finds the leagues in the directory first, one HMGET per bucket, then one
+	 * HMGET per league.  Each set of HMGETs goes out in one pipeline, so it is
+	 * two round trips however many buckets and leagues the ids are spread over,
+	 * except on a cluster, see {@link #hMGet(List, List)}.  Use
+	 * {@link #findAll(String, Iterable)} when the league is known.
+	 *
+	 * @return the picks in the order asked for, null where there is no pick
+	 */
+	@Override
+	public Iterable<Pick> findAll(Iterable<String> pickIds)
+	{
+		List<String> ids = toList(pickIds);
+		if (ids.isEmpty())
+			return Collections.emptyList();
+
+		RedisSerializer<String> strings = directoryTemplate.getStringSerializer();
+		Map<String, List<String>> buckets = group(ids, this::buildDirectoryKey);
+		List<byte[]> bucketKeys = new ArrayList<>(buckets.size());
+		List<byte[][]> bucketFields = new ArrayList<>(buckets.size());
+		for (Map.Entry<String, List<String>> bucket : buckets.entrySet())
+		{
+			bucketKeys.add(strings.serialize(bucket.getKey()));
+			bucketFields.add(serialize(strings, bucket.getValue()));
+		}
+
+		Map<String, String> leagues = new HashMap<>();
+		Iterator<List<byte[]>> leagueIds = hMGet(bucketKeys, bucketFields).iterator();
+		for (List<String> bucketIds : buckets.values())
+		{
+			List<byte[]> bucketLeagues = leagueIds.next();
+			for (int i=0; i<bucketLeagues.size(); i++)
+			{
+				if (bucketLeagues.get(i) != null)
+					leagues.put(bucketIds.get(i), strings.deserialize(bucketLeagues.get(i)));
+			}
+		}
+
+		Map<String, List<String>> byLeague = group(new ArrayList<>(leagues.keySet()), leagues::get);
+		Map<String, Pick> found = new HashMap<>();
+		Iterator<List<Pick>> picksByLeague = findByLeague(byLeague).iterator();
+		for (List<String> leaguePickIds : byLeague.values())
+		{
+			List<Pick> picks = picksByLeague.next();
+			for (int i=0; i<picks.size(); i++)
+				found.put(leaguePickIds.get(i), picks.get(i));
+		}
+
+		List<Pick> picks = new ArrayList<>(ids.size());
+		for (String id : ids)
+			picks.add(found.get(id));
+		return picks;
+	}
+
+	/**
+	 * One HMGET per league, sent together in one pipeline, or one after another
+	 * on a cluster where the leagues can be on different nodes.
+	 */
+	@Override
+	public List<Pick> findAllByLeague(Map<String, ? extends Collection<String>> pickIdsByLeague)
+	{
+		List<Pick> picks = new ArrayList<>();
+		for (List<Pick> league : findByLeague(pickIdsByLeague))
+		{
+			for (Pick pick : league)
+			{
+				if (pick != null)
+					picks.add(pick);
+			}
+		}
+		return picks;
+	}
+
+	/**
+	 * @return each league's picks in the order asked for, null where there is
+	 * no pick, leagues in the map's order
+	 */
+	@SuppressWarnings("unchecked")
+	private List<List<Pick>> findByLeague(Map<String, ? extends Collection<String>> pickIdsByLeague)
+	{
+		List<byte[]> keys = new ArrayList<>(pickIdsByLeague.size());
+		List<byte[][]> fields = new ArrayList<>(pickIdsByLeague.size());
+		RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+		RedisSerializer<String> fieldSerializer = (RedisSerializer<String>) redisTemplate.getHashKeySerializer();
+		for (Map.Entry<String, ? extends Collection<String>> league : pickIdsByLeague.entrySet())
+		{
+			keys.add(keySerializer.serialize(buildKey(league.getKey())));
+			fields.add(serialize(fieldSerializer, league.getValue()));
+		}
+
+		RedisSerializer<Pick> valueSerializer = (RedisSerializer<Pick>) redisTemplate.getHashValueSerializer();
+		List<List<Pick>> leagues = new ArrayList<>(keys.size());
+		for (List<byte[]> values : hMGet(keys, fields))
+		{
+			List<Pick> picks = new ArrayList<>(values.size());
+			for (byte[] value : values)
+				picks.add(valueSerializer.deserialize(value));
+			leagues.add(picks);
+		}
+		return leagues;
+	}
+
+	@Override
+	public Iterable<Pick> findAll()
+	{
+		return scan(SCAN_COUNT);
+	}
+
+	/**
+	 * @return the picks of every league a page of HSCAN at a time, one league
+	 * after another, see {@link ScanIterable}
+	 */
+	public KeysScan scan(int count)
+	{
+		return scan(RedisKeys.findKeys(redisTemplate, PICK_KEY + "*"), count);
+	}
+
+	@Override
+	public <S extends Pick> S save(S pick)
+	{
+		pipelined(() -> {
+			hashOps.put(buildKey(pick.getLeagueId()), pick.getId(), pick);
+			directoryOps.put(buildDirectoryKey(pick.getId()), pick.getId(), pick.getLeagueId());
+		});
+		return pick;
 	}
 
 	@Override
-	public String getKey() {
-		return PICK_KEY;
-	}	
+	public <S extends Pick> Iterable<S> save(Iterable<S> picks)
+	{
+		List<S> result = toList(picks);
+		if (result.isEmpty())
+			return result;
+
+		Map<String, Map<String, Pick>> byLeague = new LinkedHashMap<>();
+		Map<String, Map<String, String>> byBucket = new LinkedHashMap<>();
+		for (S pick : result)
+		{
+			byLeague.computeIfAbsent(buildKey(pick.getLeagueId()), key -> new LinkedHashMap<>()).put(pick.getId(), pick);
+			byBucket.computeIfAbsent(buildDirectoryKey(pick.getId()), key -> new LinkedHashMap<>()).put(pick.getId(), pick.getLeagueId());
+		}
 
+		pipelined(() -> {
+			for (Map.Entry<String, Map<String, Pick>> league : byLeague.entrySet())
+				putAll(hashOps, league.getKey(), league.getValue());
+			for (Map.Entry<String, Map<String, String>> bucket : byBucket.entrySet())
+				putAll(directoryOps, bucket.getKey(), bucket.getValue());
+		});
+		return result;
+	}
+
+	@Override
+	public void delete(String id)
+	{
+		String leagueId = directoryOps.get(buildDirectoryKey(id), id);
+		if (leagueId == null)
+			return;
+		pipelined(() -> {
+			hashOps.delete(buildKey(leagueId), id);
+			directoryOps.delete(buildDirectoryKey(id), id);
+		});
+	}
+
+	@Override
+	public void delete(Pick pick)
+	{
+		delete(Collections.singletonList(pick));
+	}
+
+	@Override
+	public void delete(Iterable<? extends Pick> picks)
+	{
+		Map<String, List<String>> byLeague = new LinkedHashMap<>();
+		Map<String, List<String>> byBucket = new LinkedHashMap<>();
+		for (Pick pick : picks)
+		{
+			byLeague.computeIfAbsent(buildKey(pick.getLeagueId()), key -> new ArrayList<>()).add(pick.getId());
+			byBucket.computeIfAbsent(buildDirectoryKey(pick.getId()), key -> new ArrayList<>()).add(pick.getId());
+		}
+		if (byLeague.isEmpty())
+			return;
+
+		pipelined(() -> {
+			for (Map.Entry<String, List<String>> league : byLeague.entrySet())
+				deleteFields(hashOps, league.getKey(), league.getValue());
+			for (Map.Entry<String, List<String>> bucket : byBucket.entrySet())
+				deleteFields(directoryOps, bucket.getKey(), bucket.getValue());
+		});
+	}
+
+	@Override
+	public void deleteAll()
+	{
+		deleteKeys(PICK_KEY, LEAGUE_KEY);
+		redisTemplate.delete(LEGACY_KEY);
+	}
+
+	/**
+	 * Moves the picks from the single hash of the old layout into their
+	 * league's hash and the directory, a page of HSCAN at a time, then removes
+	 * the old hash.  A pick already saved in the new layout is newer and kept.
+	 *
+	 * @return the number of picks that were migrated
+	 */
+	public int migrateLegacyLayout()
+	{
+		ScanIterable<Map.Entry<byte[], byte[]>, Pick> legacy = scan(LEGACY_KEY, SCAN_COUNT);
+
+		int migrated = 0;
+		List<Pick> batch = new ArrayList<>(BATCH_SIZE);
+		for (Pick pick : legacy)
+		{
+			batch.add(pick);
+			if (batch.size() == BATCH_SIZE)
+			{
+				migrated += saveIfAbsent(batch);
+				batch.clear();
+			}
+		}
+		migrated += saveIfAbsent(batch);
+
+		redisTemplate.delete(LEGACY_KEY);
+		log.debug("migrated "+migrated+" picks to league hashes");
+		return migrated;
+	}
+
+	private int saveIfAbsent(List<Pick> picks)
+	{
+		List<Pick> absent = new ArrayList<>(picks.size());
+		for (Pick pick : picks)
+		{
+			if (!exists(pick.getId()))
+				absent.add(pick);
+		}
+		save(absent);
+		return absent.size();
+	}
+
+	private static Map<String, List<String>> group(List<String> ids, Function<String, String> keyOf)
+	{
+		Map<String, List<String>> groups = new LinkedHashMap<>();
+		for (String id : ids)
+			groups.computeIfAbsent(keyOf.apply(id), key -> new ArrayList<>()).add(id);
+		return groups;
+	}
 }
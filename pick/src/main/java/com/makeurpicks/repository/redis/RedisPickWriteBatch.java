@@ -0,0 +1,46 @@
+package com.makeurpicks.repository.redis;
+
+import java.util.Collection;
+
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.repository.PickRepository;
+import com.makeurpicks.repository.PickWriteBatch;
+import com.makeurpicks.repository.PicksByWeekRepository;
+
+/**
+ * Claims the picks' places in the league week index with the index's atomic
+ * script, then saves the picks inside one pipeline under the ids that won.
+ * executePipelined binds the pipelined connection to the thread, so the pick
+ * repository's own template picks it up as long as they share the connection
+ * factory, and a whole week of picks goes out in a single round trip.  The
+ * script is one more, its reply is the ids and it can't join the pipeline.  A
+ * cluster connection can't pipeline, there the pick writes go out one command
+ * at a time.
+ *
+ * The index is written first, so for a moment a reader can find an index
+ * entry for a pick that isn't saved yet, readers skip it.
+ */
+public class RedisPickWriteBatch implements PickWriteBatch {
+
+	private final RedisTemplate<?, ?> redisTemplate;
+	private final PickRepository pickRepository;
+	private final PicksByWeekRepository picksByWeekRepository;
+
+	public RedisPickWriteBatch(RedisTemplate<?, ?> redisTemplate, PickRepository pickRepository, PicksByWeekRepository picksByWeekRepository)
+	{
+		this.redisTemplate = redisTemplate;
+		this.pickRepository = pickRepository;
+		this.picksByWeekRepository = picksByWeekRepository;
+	}
+
+	public void savePicks(Collection<Pick> picks)
+	{
+		if (picks.isEmpty())
+			return;
+
+		picksByWeekRepository.createPicks(picks);
+		RedisKeys.pipelined(redisTemplate, () -> pickRepository.save(picks));
+	}
+}
@@ -0,0 +1,254 @@
+package com.makeurpicks.repository.redis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.repository.PicksByWeekRepository;
+
+/**
+ * Pick index stored as one hash per league and week instead of one blob per league.
+ *
+ * picks_by_league_week:{leagueId}+weekId -> playerId:gameId -> pickId
+ * weeks_by_league:{leagueId}              -> set of weekIds that have picks
+ *
+ * Picks are added with one atomic script call per league week, however many
+ * there are, and reading a week is one HGETALL no matter how many weeks the
+ * league has played.  The braces are hash tags, both keys of the script are in
+ * the league's slot on a cluster.
+ */
+public class RedisPicksByLeagueWeekRepository extends AbstractRedisSetCRUDRepository<String> implements PicksByWeekRepository {
+
+	private Log log = LogFactory.getLog(RedisPicksByLeagueWeekRepository.class);
+
+	public static final String PICKS_KEY = "picks_by_league_week:";
+	public static final String WEEKS_KEY = "weeks_by_league:";
+
+	private static final char FIELD_SEPARATOR = ':';
+
+	private final RedisSerializer<String> pickIdSerializer;
+
+	public RedisPicksByLeagueWeekRepository(RedisTemplate<String, String> redisTemplate)
+	{
+		super(redisTemplate);
+		this.pickIdSerializer = pickIdSerializer(redisTemplate);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static RedisSerializer<String> pickIdSerializer(RedisTemplate<String, String> redisTemplate)
+	{
+		RedisSerializer<?> serializer = redisTemplate.getHashValueSerializer();
+		return serializer == null ? new StringRedisSerializer() : (RedisSerializer<String>) serializer;
+	}
+
+	protected String buildKey(String leagueId, String weekId)
+	{
+		return RedisKeys.leagueWeek(PICKS_KEY, leagueId, weekId);
+	}
+
+	protected String buildWeeksKey(String leagueId)
+	{
+		return RedisKeys.tag(WEEKS_KEY, leagueId);
+	}
+
+	protected String buildField(String playerId, String gameId)
+	{
+		return new StringBuilder(playerId).append(FIELD_SEPARATOR).append(gameId).toString();
+	}
+
+	public Map<String, Map<String, Map<String, String>>> findWeeksByLeague(String leagueId)
+	{
+		Set<String> weekIds = members(buildWeeksKey(leagueId));
+		if (weekIds == null || weekIds.isEmpty())
+			return Collections.emptyMap();
+
+		List<String> orderedWeekIds = new ArrayList<>(weekIds);
+		if (RedisKeys.isCluster(redisTemplate.getConnectionFactory()))
+		{
+			Map<String, Map<String, Map<String, String>>> weekMap = new HashMap<>();
+			for (String weekId : orderedWeekIds)
+				weekMap.put(weekId, findPlayersByWeek(leagueId, weekId));
+			return weekMap;
+		}
+
+		List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+				RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+				for (String weekId : orderedWeekIds)
+					ops.opsForHash().entries(buildKey(leagueId, weekId));
+				return null;
+			}
+		});
+
+		Map<String, Map<String, Map<String, String>>> weekMap = new HashMap<>();
+		for (int i=0; i<orderedWeekIds.size(); i++)
+		{
+			@SuppressWarnings("unchecked")
+			Map<String, String> entries = (Map<String, String>) results.get(i);
+			weekMap.put(orderedWeekIds.get(i), groupByPlayer(entries));
+		}
+		return weekMap;
+	}
+
+	public Map<String, Map<String, String>> findPlayersByWeek(String leagueId, String weekId)
+	{
+		Map<String, String> entries = hashOps.entries(buildKey(leagueId, weekId));
+		return groupByPlayer(entries);
+	}
+
+	public Map<String, String> findGamesByPlayer(String leagueId, String weekId, String playerId)
+	{
+		Map<String, Map<String, String>> gamesByPlayer = findPlayersByWeek(leagueId, weekId);
+		Map<String, String> gameMap = gamesByPlayer.get(playerId);
+		if (gameMap == null)
+			return Collections.emptyMap();
+		return gameMap;
+	}
+
+	public String findPicksByGame(String leagueId, String weekId, String playerId, String gameId)
+	{
+		String pickId = hashOps.get(buildKey(leagueId, weekId), buildField(playerId, gameId));
+		if (pickId == null)
+			return "";
+		return pickId;
+	}
+
+	public Pick createPick(Pick pick)
+	{
+		createPicks(Collections.singletonList(pick));
+		return pick;
+	}
+
+	/**
+	 * One script call per league week, a week's picks and the week's entry in
+	 * the league's set of weeks go in together or not at all.  A player:game
+	 * that already has a pick keeps it and the pick takes that id, see
+	 * {@link PicksByWeekRepository#createPicks(Collection)}.  The script's reply
+	 * is the ids, so this can't run inside a pipeline.
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public void createPicks(Collection<Pick> picks)
+	{
+		Map<String, List<Pick>> picksByKey = new LinkedHashMap<>();
+		for (Pick pick : picks)
+			picksByKey.computeIfAbsent(buildKey(pick.getLeagueId(), pick.getWeekId()), key -> new ArrayList<>()).add(pick);
+
+		for (Map.Entry<String, List<Pick>> week : picksByKey.entrySet())
+		{
+			Pick first = week.getValue().get(0);
+			List<String> keys = Arrays.asList(week.getKey(), buildWeeksKey(first.getLeagueId()));
+			Object[] args = new Object[1 + week.getValue().size() * 2];
+			args[0] = first.getWeekId();
+			int i = 1;
+			for (Pick pick : week.getValue())
+			{
+				args[i++] = buildField(pick.getPlayerId(), pick.getGameId());
+				args[i++] = pickIdSerializer.serialize(pick.getId());
+			}
+			List<String> claimed = RedisScripts.execute(redisTemplate, RedisScripts.CREATE_PICK, RedisScripts.ARGS, (RedisSerializer) pickIdSerializer, keys, args);
+			for (int p = 0; p < week.getValue().size(); p++)
+				week.getValue().get(p).setId(claimed.get(p));
+		}
+	}
+
+	public void deleteWeek(String leagueId, String weekId)
+	{
+		redisTemplate.delete(buildKey(leagueId, weekId));
+		removeMembers(buildWeeksKey(leagueId), Collections.singletonList(weekId));
+	}
+
+	public void deleteAll()
+	{
+		deleteKeys(PICKS_KEY, WEEKS_KEY);
+	}
+
+	/**
+	 * Converts every league blob written by {@link RedisPicksByWeekRepository} into
+	 * the per league and week layout, then removes the blob.  Fields that already
+	 * exist in the new layout were written after the switch over and are kept.
+	 *
+	 * @return the number of leagues that were migrated
+	 */
+	public int migrateFrom(RedisPicksByWeekRepository legacyRepository)
+	{
+		int migrated = 0;
+		for (String leagueId : legacyRepository.findLeagueIds())
+		{
+			Map<String, Map<String, Map<String, String>>> weekMap = legacyRepository.findWeeksByLeague(leagueId);
+			if (weekMap != null && !weekMap.isEmpty())
+			{
+				pipelined(() -> {
+					for (Map.Entry<String, Map<String, Map<String, String>>> week : weekMap.entrySet())
+					{
+						String key = buildKey(leagueId, week.getKey());
+						for (Map.Entry<String, Map<String, String>> player : week.getValue().entrySet())
+						{
+							for (Map.Entry<String, String> game : player.getValue().entrySet())
+								hashOps.putIfAbsent(key, buildField(player.getKey(), game.getKey()), game.getValue());
+						}
+					}
+					addMembers(buildWeeksKey(leagueId), weekMap.keySet());
+				});
+			}
+
+			legacyRepository.delete(leagueId);
+			migrated++;
+			log.debug("migrated picks by week for league "+leagueId);
+		}
+		return migrated;
+	}
+
+	/**
+	 * Renames the untagged keys written before the key scheme moved to hash
+	 * tags, see {@link RedisKeys#retagKeys(RedisTemplate, String)}.
+	 *
+	 * @return the number of keys renamed
+	 */
+	public int migrateUntaggedKeys()
+	{
+		return retagKeys(PICKS_KEY, WEEKS_KEY);
+	}
+
+	private Map<String, Map<String, String>> groupByPlayer(Map<String, String> entries)
+	{
+		if (entries == null || entries.isEmpty())
+			return Collections.emptyMap();
+
+		Map<String, Map<String, String>> playerMap = new HashMap<>();
+		for (Map.Entry<String, String> entry : entries.entrySet())
+		{
+			String field = entry.getKey();
+			//game ids never contain the separator, player ids might
+			int split = field.lastIndexOf(FIELD_SEPARATOR);
+			String playerId = field.substring(0, split);
+			String gameId = field.substring(split+1);
+
+			Map<String, String> gameMap = playerMap.get(playerId);
+			if (gameMap == null)
+			{
+				gameMap = new HashMap<>();
+				playerMap.put(playerId, gameMap);
+			}
+			gameMap.put(gameId, entry.getValue());
+		}
+		return playerMap;
+	}
+}
@@ -1,5 +1,6 @@
 package com.makeurpicks.repository.redis;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -30,6 +31,23 @@ public class RedisPicksByWeekRepository implements PicksByWeekRepository {
 		}
 	}
 	
+	public Set<String> findLeagueIds()
+	{
+		return hashOps.keys(key);
+	}
+	
+	public void delete(String leagueId)
+	{
+		hashOps.delete(key, leagueId);
+	}
+	
+	public void deleteWeek(String leagueId, String weekId)
+	{
+		Map<String, Map<String, Map<String, String>>> weekMap = findWeeksByLeague(leagueId);
+		if (weekMap != null && weekMap.remove(weekId) != null)
+			hashOps.put(key, leagueId, weekMap);
+	}
+	
 	public Map<String, Map<String, Map<String, String>>> findWeeksByLeague(String leagueId)
 	{
 		Map<String, Map<String, Map<String, String>>> weekMap = hashOps.get(key, leagueId);
@@ -65,6 +83,12 @@ public class RedisPicksByWeekRepository implements PicksByWeekRepository {
 		return pickId;
 	}
 
+	public void createPicks(Collection<Pick> picks)
+	{
+		for (Pick pick : picks)
+			createPick(pick);
+	}
+	
 	public Pick createPick(Pick pick)
 	{
 		String weekId = pick.getWeekId();
@@ -86,7 +110,10 @@ public class RedisPicksByWeekRepository implements PicksByWeekRepository {
 			gameMap = new HashMap<>();
 		
 		weekMap.put(weekId, playerMap);
-		gameMap.put(gameId, pickId);
+		//a game that already has a pick keeps it, like the league week index
+		String existing = gameMap.putIfAbsent(gameId, pickId);
+		if (existing != null)
+			pick.setId(existing);
 		playerMap.put(playerId, gameMap);
 		
 		hashOps.put(key, leagueId, weekMap);
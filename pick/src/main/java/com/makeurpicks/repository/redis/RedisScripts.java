@@ -0,0 +1,154 @@
+package com.makeurpicks.repository.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.scripting.support.ResourceScriptSource;
+
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Lua scripts used by the redis repositories.  RedisTemplate calls them with
+ * EVALSHA and only falls back to EVAL if the server does not know the sha, so
+ * {@link #preload(RedisTemplate)} is run at startup to keep every call a single
+ * round trip.
+ *
+ * The cluster connection can't run scripts, so repositories go through
+ * {@link #execute(RedisTemplate, RedisScript, RedisSerializer, RedisSerializer, List, Object...)},
+ * on a cluster it sends the script straight to the JedisCluster, which routes it
+ * to the node owning the keys.  Every key of a script call has to carry the same
+ * hash tag, see {@link RedisKeys}.
+ */
+public final class RedisScripts {
+
+	private static final List<RedisScript<?>> SCRIPTS = new ArrayList<>();
+
+	@SuppressWarnings("rawtypes")
+	public static final RedisScript<List> CREATE_PICK = load("scripts/create_pick.lua", List.class);
+	public static final RedisScript<Long> APPEND_PICK_CHANGES = load("scripts/append_pick_changes.lua", Long.class);
+	public static final RedisScript<Long> RECORD_PICK_CONSENSUS = load("scripts/record_pick_consensus.lua", Long.class);
+	public static final RedisScript<Long> REBUILD_PICK_CONSENSUS = load("scripts/rebuild_pick_consensus.lua", Long.class);
+
+	/**
+	 * Script arguments go to different places with different serializers, so
+	 * callers serialize values themselves and pass the bytes through this,
+	 * plain strings are written as utf-8.
+	 */
+	public static final RedisSerializer<Object> ARGS = new RedisSerializer<Object>() {
+		@Override
+		public byte[] serialize(Object value) throws SerializationException {
+			if (value instanceof byte[])
+				return (byte[]) value;
+			return value == null ? null : value.toString().getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public Object deserialize(byte[] bytes) throws SerializationException {
+			return bytes;
+		}
+	};
+
+	private RedisScripts()
+	{
+
+	}
+
+	private static <T> RedisScript<T> load(String path, Class<T> resultType)
+	{
+		DefaultRedisScript<T> script = new DefaultRedisScript<>();
+		script.setScriptSource(new ResourceScriptSource(new ClassPathResource(path)));
+		script.setResultType(resultType);
+		SCRIPTS.add(script);
+		return script;
+	}
+
+	public static List<RedisScript<?>> getScripts()
+	{
+		return Collections.unmodifiableList(SCRIPTS);
+	}
+
+	/**
+	 * Nothing is loaded on a cluster, the first EVALSHA miss on each node loads
+	 * the script there.
+	 */
+	public static void preload(RedisTemplate<?, ?> redisTemplate)
+	{
+		if (RedisKeys.isCluster(redisTemplate.getConnectionFactory()))
+			return;
+
+		redisTemplate.execute(new RedisCallback<Object>() {
+			@Override
+			public Object doInRedis(RedisConnection connection) throws DataAccessException {
+				for (RedisScript<?> script : SCRIPTS)
+					connection.scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Runs the script with the template, or on a cluster with EVALSHA against
+	 * the JedisCluster and EVAL when the node doesn't have it yet.  The scripts
+	 * only return integers, bulk strings and lists of them, bulk strings go
+	 * through the result serializer the same as with the template.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T execute(RedisTemplate<String, ?> redisTemplate, RedisScript<T> script, RedisSerializer<?> argsSerializer,
+			RedisSerializer<T> resultSerializer, List<String> keys, Object... args)
+	{
+		RedisConnectionFactory connectionFactory = redisTemplate.getConnectionFactory();
+		if (!RedisKeys.isCluster(connectionFactory))
+			return redisTemplate.execute(script, argsSerializer, resultSerializer, keys, args);
+
+		RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+		byte[][] params = new byte[keys.size() + args.length][];
+		for (int i=0; i<keys.size(); i++)
+			params[i] = keySerializer.serialize(keys.get(i));
+		for (int i=0; i<args.length; i++)
+			params[keys.size() + i] = ((RedisSerializer<Object>) argsSerializer).serialize(args[i]);
+
+		return redisTemplate.execute(new RedisCallback<T>() {
+			@Override
+			public T doInRedis(RedisConnection connection) throws DataAccessException {
+				JedisCluster cluster = (JedisCluster) connection.getNativeConnection();
+				Object result;
+				try {
+					try {
+						result = cluster.evalsha(script.getSha1().getBytes(StandardCharsets.UTF_8), keys.size(), params);
+					} catch (JedisDataException e) {
+						if (e.getMessage() == null || !e.getMessage().startsWith("NOSCRIPT"))
+							throw e;
+						result = cluster.eval(script.getScriptAsString().getBytes(StandardCharsets.UTF_8), keys.size(), params);
+					}
+				} catch (JedisException e) {
+					DataAccessException translated = connectionFactory.translateExceptionIfPossible(e);
+					throw translated != null ? translated : e;
+				}
+				if (result instanceof List)
+				{
+					List<Object> values = new ArrayList<>();
+					for (Object value : (List<?>) result)
+						values.add(value instanceof byte[] ? resultSerializer.deserialize((byte[]) value) : value);
+					return (T) values;
+				}
+				if (result instanceof byte[])
+					return resultSerializer.deserialize((byte[]) result);
+				return (T) result;
+			}
+		});
+	}
+}
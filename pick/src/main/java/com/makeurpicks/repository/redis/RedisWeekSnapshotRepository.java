@@ -0,0 +1,52 @@
+package com.makeurpicks.repository.redis;
+
+import java.util.List;
+
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.makeurpicks.domain.WeekSnapshot;
+import com.makeurpicks.repository.WeekSnapshotRepository;
+
+/**
+ * pick_week_snapshot:{leagueId}+weekId -> compact snapshot, written with SETNX
+ *
+ * Tagged by league like the rest of the week, see
+ * {@link CompactWeekSnapshotRedisSerializer} for the layout.
+ */
+public class RedisWeekSnapshotRepository implements WeekSnapshotRepository {
+
+	public static final String SNAPSHOT_KEY = "pick_week_snapshot:";
+
+	private final RedisTemplate<String, WeekSnapshot> redisTemplate;
+
+	public RedisWeekSnapshotRepository(RedisTemplate<String, WeekSnapshot> redisTemplate)
+	{
+		this.redisTemplate = redisTemplate;
+	}
+
+	protected String buildKey(String leagueId, String weekId)
+	{
+		return RedisKeys.leagueWeek(SNAPSHOT_KEY, leagueId, weekId);
+	}
+
+	@Override
+	public boolean save(WeekSnapshot snapshot)
+	{
+		Boolean saved = redisTemplate.opsForValue().setIfAbsent(buildKey(snapshot.getLeagueId(), snapshot.getWeekId()), snapshot);
+		return saved != null && saved;
+	}
+
+	@Override
+	public WeekSnapshot findOne(String leagueId, String weekId)
+	{
+		return redisTemplate.opsForValue().get(buildKey(leagueId, weekId));
+	}
+
+	@Override
+	public void deleteAll()
+	{
+		List<String> keys = RedisKeys.findKeys(redisTemplate, SNAPSHOT_KEY + "*");
+		if (!keys.isEmpty())
+			redisTemplate.delete(keys);
+	}
+}
@@ -0,0 +1,60 @@
+package com.makeurpicks.repository.redis;
+
+import java.util.List;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.makeurpicks.repository.WeekVersionRepository;
+
+/**
+ * pick_week_version:{leagueId}+weekId -> version, bumped with INCR
+ */
+public class RedisWeekVersionRepository implements WeekVersionRepository {
+
+	public static final String VERSION_KEY = "pick_week_version:";
+
+	private final StringRedisTemplate redisTemplate;
+
+	public RedisWeekVersionRepository(StringRedisTemplate redisTemplate)
+	{
+		this.redisTemplate = redisTemplate;
+	}
+
+	protected String buildKey(String leagueId, String weekId)
+	{
+		return RedisKeys.leagueWeek(VERSION_KEY, leagueId, weekId);
+	}
+
+	@Override
+	public long findVersion(String leagueId, String weekId)
+	{
+		String version = redisTemplate.opsForValue().get(buildKey(leagueId, weekId));
+		return version == null ? 0 : Long.parseLong(version);
+	}
+
+	@Override
+	public long increment(String leagueId, String weekId)
+	{
+		return redisTemplate.opsForValue().increment(buildKey(leagueId, weekId), 1);
+	}
+
+	@Override
+	public void deleteAll()
+	{
+		List<String> keys = RedisKeys.findKeys(redisTemplate, VERSION_KEY + "*");
+		if (!keys.isEmpty())
+			redisTemplate.delete(keys);
+	}
+
+	/**
+	 * Renames the untagged keys written before the key scheme moved to hash
+	 * tags, see {@link RedisKeys#retagKeys(RedisTemplate, String)}.
+	 *
+	 * @return the number of keys renamed
+	 */
+	public int migrateUntaggedKeys()
+	{
+		return RedisKeys.retagKeys(redisTemplate, VERSION_KEY);
+	}
+}
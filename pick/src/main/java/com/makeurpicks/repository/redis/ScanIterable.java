@@ -0,0 +1,94 @@
+package com.makeurpicks.repository.redis;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisConnectionUtils;
+import org.springframework.data.util.CloseableIterator;
+
+/**
+ * Walks a HSCAN/SSCAN cursor a page at a time instead of loading the whole
+ * structure with HVALS or SMEMBERS.
+ *
+ * Every iterator holds its own connection for as long as the scan runs, the
+ * template's cursors give theirs back to the pool straight away while the cursor
+ * still needs it.  The connection is released once the cursor is exhausted, a
+ * caller that stops early has to close the iterator.  Don't iterate inside a
+ * pipeline, the scan replies only come back when the pipeline closes.
+ */
+public class ScanIterable<S, T> implements Iterable<T> {
+
+	private static final Log log = LogFactory.getLog(ScanIterable.class);
+
+	private final RedisConnectionFactory connectionFactory;
+	private final Function<RedisConnection, Cursor<S>> scan;
+	private final Function<S, T> converter;
+
+	public ScanIterable(RedisConnectionFactory connectionFactory, Function<RedisConnection, Cursor<S>> scan, Function<S, T> converter)
+	{
+		this.connectionFactory = connectionFactory;
+		this.scan = scan;
+		this.converter = converter;
+	}
+
+	@Override
+	public CloseableIterator<T> iterator() {
+		RedisConnection connection = RedisConnectionUtils.getConnection(connectionFactory);
+		try {
+			return new ScanIterator(connection, scan.apply(connection));
+		} catch (RuntimeException e) {
+			RedisConnectionUtils.releaseConnection(connection, connectionFactory);
+			throw e;
+		}
+	}
+
+	private class ScanIterator implements CloseableIterator<T> {
+
+		private final RedisConnection connection;
+		private final Cursor<S> cursor;
+		private boolean closed;
+
+		ScanIterator(RedisConnection connection, Cursor<S> cursor)
+		{
+			this.connection = connection;
+			this.cursor = cursor;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (closed)
+				return false;
+			if (cursor.hasNext())
+				return true;
+			close();
+			return false;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return converter.apply(cursor.next());
+		}
+
+		@Override
+		public void close() {
+			if (closed)
+				return;
+			closed = true;
+			try {
+				cursor.close();
+			} catch (IOException e) {
+				log.warn("unable to close scan cursor", e);
+			} finally {
+				RedisConnectionUtils.releaseConnection(connection, connectionFactory);
+			}
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package com.makeurpicks.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.makeurpicks.domain.DoublePick;
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickResult;
+
+/**
+ * The {@link PickService} calls the async controller makes, each run on a small
+ * fixed pool and handed back as a future.  The servlet thread is released as
+ * soon as the call is queued, so a kickoff burst is held by the pool and its
+ * queue instead of by hundreds of request threads all waiting on redis.
+ *
+ * Redis is still reached through the blocking repositories, keep the pool no
+ * bigger than spring.redis.pool.max-active or the extra threads just wait for a
+ * connection.  When the queue is full the future fails with a
+ * {@link RejectedExecutionException} straight away rather than the call waiting.
+ *
+ * A league week read is a single task on the pool: the week version is read
+ * first and the body only when the caller's copy is older, so a read is never
+ * turned away half done.  pick.async.timeout-ms is how long a caller should
+ * wait for a task, give it room for a full queue drained by the threads.
+ */
+@Component
+public class AsyncPickService {
+
+	private Log log = LogFactory.getLog(AsyncPickService.class);
+
+	@Autowired
+	private PickService pickService;
+
+	@Value("${pick.async.threads:8}")
+	private int threads = 8;
+
+	@Value("${pick.async.queue-capacity:2000}")
+	private int queueCapacity = 2000;
+
+	@Value("${pick.async.timeout-ms:10000}")
+	private long timeoutMs = 10000;
+
+	private Executor executor;
+	private ThreadPoolExecutor pool;
+
+	@PostConstruct
+	void start()
+	{
+		if (executor != null)
+			return;
+
+		pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), new ThreadFactory() {
+			private final ThreadFactory delegate = Executors.defaultThreadFactory();
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = delegate.newThread(runnable);
+				thread.setName("pick-async-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor = pool;
+		log.info("async pick calls run on "+threads+" threads, "+queueCapacity+" queued at most");
+	}
+
+	@PreDestroy
+	void stop()
+	{
+		if (pool != null)
+			pool.shutdown();
+	}
+
+	private <T> CompletableFuture<T> submit(Supplier<T> call)
+	{
+		try {
+			return CompletableFuture.supplyAsync(call, executor);
+		} catch (RejectedExecutionException e) {
+			CompletableFuture<T> rejected = new CompletableFuture<>();
+			rejected.completeExceptionally(e);
+			return rejected;
+		}
+	}
+
+	/**
+	 * @param current whether the caller already has the week at this version,
+	 * the read is skipped when it does
+	 */
+	private <T> CompletableFuture<Versioned<T>> versioned(String leagueId, String weekId, LongPredicate current, LongFunction<T> read)
+	{
+		return submit(() -> {
+			long version = pickService.getWeekVersion(leagueId, weekId);
+			if (current.test(version))
+				return new Versioned<T>(version);
+			return new Versioned<T>(version, read.apply(version));
+		});
+	}
+
+	public long getTimeoutMs()
+	{
+		return timeoutMs;
+	}
+
+	public CompletableFuture<Versioned<Map<String, Map<String, Pick>>>> getPicksByWeek(String leagueId, String weekId, LongPredicate current)
+	{
+		return versioned(leagueId, weekId, current, version -> pickService.getPicksByWeek(leagueId, weekId, version));
+	}
+
+	public CompletableFuture<Versioned<Map<String, Pick>>> getPicksByWeekAndPlayer(String leagueId, String weekId, String playerId, LongPredicate current)
+	{
+		return versioned(leagueId, weekId, current, version -> pickService.getPicksByWeekAndPlayer(leagueId, weekId, playerId));
+	}
+
+	public CompletableFuture<Versioned<Map<String, Pick>>> getOtherPicksByWeekAndPlayer(String leagueId, String weekId, String playerId, LongPredicate current)
+	{
+		return versioned(leagueId, weekId, current, version -> pickService.getOtherPicksByWeekAndPlayer(leagueId, weekId, playerId));
+	}
+
+	public CompletableFuture<Versioned<Map<String, Map<String, Long>>>> getConsensus(String leagueId, String weekId, LongPredicate current)
+	{
+		return versioned(leagueId, weekId, current, version -> pickService.getConsensus(leagueId, weekId));
+	}
+
+	public CompletableFuture<Versioned<DoublePick>> getDoublePickForPlayer(String leagueId, String weekId, String playerId, LongPredicate current)
+	{
+		return versioned(leagueId, weekId, current, version -> pickService.getDoublePickForPlayer(leagueId, weekId, playerId));
+	}
+
+	public CompletableFuture<Versioned<Map<String, DoublePick>>> getDoublePicks(String leagueId, String weekId, LongPredicate current)
+	{
+		return versioned(leagueId, weekId, current, version -> pickService.getDoublePicks(leagueId, weekId));
+	}
+
+	public CompletableFuture<Pick> makePick(Pick pick)
+	{
+		return submit(() -> pickService.makePick(pick));
+	}
+
+	public CompletableFuture<List<PickResult>> makePicks(List<Pick> picks, String playerId)
+	{
+		return submit(() -> pickService.makePicks(picks, playerId));
+	}
+
+	public CompletableFuture<Pick> updatePick(Pick pick)
+	{
+		return submit(() -> pickService.updatePick(pick));
+	}
+
+	public CompletableFuture<DoublePick> makeDoublePick(String pickId, String loggedInPlayerId)
+	{
+		return submit(() -> pickService.makeDoublePick(pickId, loggedInPlayerId));
+	}
+
+	/**
+	 * A league week read and the week version it was read at, without a body
+	 * when the caller's copy was current.
+	 */
+	public static class Versioned<T> {
+		private final long version;
+		private final boolean modified;
+		private final T body;
+
+		Versioned(long version)
+		{
+			this.version = version;
+			this.modified = false;
+			this.body = null;
+		}
+
+		Versioned(long version, T body)
+		{
+			this.version = version;
+			this.modified = true;
+			this.body = body;
+		}
+
+		public long getVersion()
+		{
+			return version;
+		}
+
+		public boolean isModified()
+		{
+			return modified;
+		}
+
+		public T getBody()
+		{
+			return body;
+		}
+	}
+}
@@ -0,0 +1,480 @@
+package com.makeurpicks.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.makeurpicks.domain.PickChangeEvent;
+import com.makeurpicks.game.GameLockedEvent;
+import com.makeurpicks.repository.PickChangeStream;
+
+/**
+ * Pushes a league week's pick board to browsers over server sent events so the
+ * view picks page doesn't have to poll.
+ *
+ * A subscriber gets a snapshot of the week's picks and doubles, then one small
+ * event per cell that changes: "pick" and "double" from the {@link PickChangeStream},
+ * "locked" when a game kicks off and "score" when the game service reports a
+ * score change.  Every shard of the stream is tailed on a schedule so changes
+ * made on any instance reach every instance's subscribers, a board's changes
+ * are all in its league's shard.  Emitters run on the servlet
+ * container's async support, an idle subscriber holds a socket but no thread,
+ * and each event is written as json once however many subscribers get it.
+ *
+ * Each subscriber has its own queue of up to queue-capacity events, written
+ * in order by a small pool of sender threads, so neither the poll nor the
+ * other subscribers wait on a slow browser.  A subscriber only holds a sender
+ * thread while it has events waiting.  One that falls queue-capacity events
+ * behind, or whose current write has been blocked for over send-timeout-ms
+ * when the next event comes, is dropped on its own, a heartbeat comes at
+ * least every heartbeat-ms.  Browsers reconnect on their own and start again
+ * from a fresh snapshot.
+ */
+@Component
+public class PickBoardService {
+
+	private Log log = LogFactory.getLog(PickBoardService.class);
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	@Autowired
+	private PickService pickService;
+
+	@Autowired
+	private PickChangeStream pickChangeStream;
+
+	@Autowired(required=false)
+	private ApplicationEventPublisher eventPublisher;
+
+	@Value("${pick.board.timeout-ms:1800000}")
+	private long timeout = 1800000;
+
+	@Value("${pick.board.batch-size:1000}")
+	private int batchSize = 1000;
+
+	@Value("${pick.board.send-timeout-ms:5000}")
+	private long sendTimeout = 5000;
+
+	//events waiting per subscriber
+	@Value("${pick.board.queue-capacity:1000}")
+	private int queueCapacity = 1000;
+
+	@Value("${pick.board.sender-threads:8}")
+	private int senderThreads = 8;
+
+	private ThreadPoolExecutor sender;
+
+	//league+week -> that board's subscribers
+	private final Map<String, Board> boards = new ConcurrentHashMap<>();
+
+	//last change read from each shard of the log, null until the first poll
+	private long[] positions;
+
+	@PostConstruct
+	void start()
+	{
+		if (sender != null)
+			return;
+
+		//a subscriber is queued at most once at a time, the queue never holds more than there are subscribers
+		sender = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadFactory() {
+			private final ThreadFactory delegate = Executors.defaultThreadFactory();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = delegate.newThread(runnable);
+				thread.setName("pick-board-" + thread.getName());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		sender.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	void stop()
+	{
+		if (sender != null)
+			sender.shutdownNow();
+	}
+
+	private static String boardKey(String leagueId, String weekId)
+	{
+		return new StringBuilder(leagueId).append("+").append(weekId).toString();
+	}
+
+	/**
+	 * Sends the snapshot and registers the emitter for the deltas after it.  The
+	 * snapshot is read outside the dispatch lock, anything the poller sent while
+	 * it was being built is replayed to this emitter before it joins the board.
+	 * The replay is queued for the emitter ahead of any delta sent after it
+	 * joins.  A delta the snapshot already has just sets the cell to the same
+	 * value.
+	 */
+	public SseEmitter subscribe(String leagueId, String weekId)
+	{
+		return subscribe(leagueId, weekId, new SseEmitter(timeout));
+	}
+
+	SseEmitter subscribe(String leagueId, String weekId, SseEmitter emitter)
+	{
+		int shard = pickChangeStream.shardOf(leagueId);
+		long snapshotPosition = position(shard);
+
+		Map<String, Object> snapshot = new HashMap<>();
+		snapshot.put("picks", pickService.getPicksByWeek(leagueId, weekId));
+		snapshot.put("doubles", pickService.getDoublePicks(leagueId, weekId));
+		if (!send(emitter, "snapshot", String.valueOf(snapshotPosition), snapshot))
+			return emitter;
+
+		synchronized (this)
+		{
+			Board board = boards.computeIfAbsent(boardKey(leagueId, weekId), key -> new Board(leagueId, weekId));
+			Subscriber subscriber = new Subscriber(board, emitter);
+			long position = positions[shard];
+			if (position > snapshotPosition)
+			{
+				for (PickChangeEvent event : pickChangeStream.readAfter(shard, snapshotPosition, (int) (position - snapshotPosition)))
+				{
+					if (!leagueId.equals(event.getLeagueId()) || !weekId.equals(event.getWeekId()))
+						continue;
+					String json = toJson(event);
+					if (json != null && !subscriber.offer(event(eventName(event), String.valueOf(event.getSequence()), json)))
+						return emitter;
+				}
+			}
+
+			board.subscribers.add(subscriber);
+			emitter.onCompletion(subscriber::gone);
+			emitter.onTimeout(subscriber::gone);
+		}
+		return emitter;
+	}
+
+	/**
+	 * Tails every shard of the change log, each change is published to the
+	 * application, so {@link WeekPicksCache} hears about picks saved on other
+	 * instances, and sent to the board it belongs to.  A shard that can't be
+	 * read is tried again on the next poll, the others go on.
+	 */
+	@Scheduled(fixedDelayString = "${pick.board.poll-ms:500}")
+	public synchronized void poll()
+	{
+		if (positions == null)
+		{
+			try {
+				startPositions();
+			} catch (RuntimeException e) {
+				log.warn("unable to find the end of the pick change log", e);
+			}
+			return;
+		}
+
+		for (int shard=0; shard<positions.length; shard++)
+		{
+			try {
+				poll(shard);
+			} catch (RuntimeException e) {
+				log.warn("unable to read pick changes of shard "+shard+" after "+positions[shard], e);
+			}
+		}
+	}
+
+	private void poll(int shard)
+	{
+		List<PickChangeEvent> events;
+		do {
+			events = pickChangeStream.readAfter(shard, positions[shard], batchSize);
+			for (PickChangeEvent event : events)
+			{
+				positions[shard] = event.getSequence();
+				if (eventPublisher != null)
+					eventPublisher.publishEvent(event);
+				Board board = boards.get(boardKey(event.getLeagueId(), event.getWeekId()));
+				if (board != null)
+					broadcast(board, eventName(event), String.valueOf(event.getSequence()), event);
+			}
+		} while (events.size() == batchSize);
+	}
+
+	/**
+	 * A score change from the game service's channel, sent on to the boards of
+	 * the game's week as it came.
+	 */
+	public void scoreChanged(String message)
+	{
+		String weekId;
+		try {
+			JsonNode score = MAPPER.readTree(message);
+			weekId = score.path("weekId").asText(null);
+		} catch (IOException e) {
+			log.warn("unreadable score change "+message, e);
+			return;
+		}
+		if (weekId == null)
+			return;
+
+		for (Board board : boards.values())
+		{
+			if (board.weekId.equals(weekId))
+				broadcast(board, () -> event("score", null, message));
+		}
+	}
+
+	@EventListener
+	public void gameLocked(GameLockedEvent event)
+	{
+		Map<String, Object> locked = new HashMap<>();
+		locked.put("gameId", event.getGameId());
+		locked.put("kickoff", event.getKickoff().toEpochMilli());
+		for (Board board : boards.values())
+		{
+			if (board.weekId.equals(event.getWeekId()))
+				broadcast(board, "locked", null, locked);
+		}
+	}
+
+	/**
+	 * A comment line every so often keeps proxies from closing idle connections
+	 * and finds subscribers that went away without closing theirs.
+	 */
+	@Scheduled(fixedDelayString = "${pick.board.heartbeat-ms:20000}")
+	public void heartbeat()
+	{
+		for (Board board : boards.values())
+			broadcast(board, () -> SseEmitter.event().comment(""));
+	}
+
+	public int getSubscriberCount()
+	{
+		int count = 0;
+		for (Board board : boards.values())
+			count += board.subscribers.size();
+		return count;
+	}
+
+	private synchronized long position(int shard)
+	{
+		if (positions == null)
+			startPositions();
+		return positions[shard];
+	}
+
+	private void startPositions()
+	{
+		long[] start = new long[pickChangeStream.getShards()];
+		for (int shard=0; shard<start.length; shard++)
+			start[shard] = pickChangeStream.lastSequence(shard);
+		positions = start;
+	}
+
+	private void broadcast(Board board, String name, String id, Object data)
+	{
+		String json = toJson(data);
+		if (json != null)
+			broadcast(board, () -> event(name, id, json));
+	}
+
+	/**
+	 * A builder can only be sent once, each subscriber gets its own from the
+	 * supplier, all of them over the same json.
+	 */
+	private void broadcast(Board board, Supplier<SseEmitter.SseEventBuilder> event)
+	{
+		for (Subscriber subscriber : board.subscribers)
+			subscriber.offer(event.get());
+	}
+
+	private boolean send(SseEmitter emitter, String name, String id, Object data)
+	{
+		String json = toJson(data);
+		try {
+			if (json != null)
+				emitter.send(event(name, id, json));
+			return true;
+		} catch (IOException | IllegalStateException e) {
+			emitter.completeWithError(e);
+			return false;
+		}
+	}
+
+	private static SseEmitter.SseEventBuilder event(String name, String id, String json)
+	{
+		SseEmitter.SseEventBuilder event = SseEmitter.event().name(name).data(json);
+		return id == null ? event : event.id(id);
+	}
+
+	private synchronized void remove(Subscriber subscriber)
+	{
+		Board board = subscriber.board;
+		board.subscribers.remove(subscriber);
+		if (board.subscribers.isEmpty())
+			boards.remove(boardKey(board.leagueId, board.weekId), board);
+	}
+
+	private static String eventName(PickChangeEvent event)
+	{
+		return event.getType() == PickChangeEvent.Type.DOUBLE_PICK_CHANGED ? "double" : "pick";
+	}
+
+	private String toJson(Object data)
+	{
+		try {
+			return MAPPER.writeValueAsString(data);
+		} catch (JsonProcessingException e) {
+			log.warn("unable to write board event "+data, e);
+			return null;
+		}
+	}
+
+	private static class Board {
+		private final String leagueId;
+		private final String weekId;
+		private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+		Board(String leagueId, String weekId)
+		{
+			this.leagueId = leagueId;
+			this.weekId = weekId;
+		}
+	}
+
+	/**
+	 * A browser's emitter and the events waiting for it.  The subscriber is
+	 * handed to the sender when its first event is queued and writes until the
+	 * queue is empty, one thread at a time, so its events go out in order.
+	 */
+	private class Subscriber implements Runnable {
+		private final Board board;
+		private final SseEmitter emitter;
+		private final BlockingQueue<SseEmitter.SseEventBuilder> events = new ArrayBlockingQueue<>(queueCapacity);
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		private final AtomicBoolean completed = new AtomicBoolean();
+		//System.nanoTime() the write in progress started, 0 between writes
+		private volatile long writing;
+		private volatile boolean closed;
+
+		Subscriber(Board board, SseEmitter emitter)
+		{
+			this.board = board;
+			this.emitter = emitter;
+		}
+
+		/**
+		 * @return false if the subscriber is gone, or was too slow to take the
+		 * event and has been dropped
+		 */
+		boolean offer(SseEmitter.SseEventBuilder event)
+		{
+			if (closed)
+				return false;
+
+			long started = writing;
+			if (started != 0 && TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) > sendTimeout)
+			{
+				log.debug("board subscriber took over "+sendTimeout+"ms to take an event, dropped");
+				close();
+				return false;
+			}
+			if (!events.offer(event))
+			{
+				log.debug("board subscriber is "+queueCapacity+" events behind, dropped");
+				close();
+				return false;
+			}
+			schedule();
+			return true;
+		}
+
+		/**
+		 * The emitter completed, timed out or failed, there is nothing to close.
+		 */
+		void gone()
+		{
+			completed.set(true);
+			close();
+		}
+
+		/**
+		 * Stops queueing events and has the sender complete the emitter, a
+		 * blocked write holds the emitter so it isn't completed on the caller's
+		 * thread.
+		 */
+		private void close()
+		{
+			closed = true;
+			events.clear();
+			remove(this);
+			schedule();
+		}
+
+		private void schedule()
+		{
+			if (!scheduled.compareAndSet(false, true))
+				return;
+			try {
+				sender.execute(this);
+			} catch (RejectedExecutionException e) {
+				//shutting down
+				closed = true;
+				events.clear();
+				remove(this);
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			do {
+				SseEmitter.SseEventBuilder event;
+				while (!closed && (event = events.poll()) != null)
+					write(event);
+				scheduled.set(false);
+			} while (!closed && !events.isEmpty() && scheduled.compareAndSet(false, true));
+
+			if (closed && completed.compareAndSet(false, true))
+				emitter.complete();
+		}
+
+		private void write(SseEmitter.SseEventBuilder event)
+		{
+			writing = System.nanoTime();
+			try {
+				emitter.send(event);
+			} catch (IOException | IllegalStateException e) {
+				gone();
+			} finally {
+				writing = 0;
+			}
+		}
+	}
+}
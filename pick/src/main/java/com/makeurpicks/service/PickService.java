@@ -1,42 +1,63 @@
 package com.makeurpicks.service;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import com.makeurpicks.domain.DoublePick;
 import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickChangeEvent;
+import com.makeurpicks.domain.PickHistoryEntry;
+import com.makeurpicks.domain.PickResult;
+import com.makeurpicks.domain.WeekSnapshot;
 import com.makeurpicks.exception.PickValidationException;
 import com.makeurpicks.exception.PickValidationException.PickExceptions;
 import com.makeurpicks.game.GameIntegrationService;
 import com.makeurpicks.game.GameResponse;
+import com.makeurpicks.game.KickoffLockScheduler;
 import com.makeurpicks.league.LeagueIntegrationService;
 import com.makeurpicks.league.LeagueResponse;
 import com.makeurpicks.repository.DoublePickRepository;
+import com.makeurpicks.repository.PickChangeStream;
+import com.makeurpicks.repository.PickConsensusRepository;
+import com.makeurpicks.repository.PickHistoryRepository;
 import com.makeurpicks.repository.PickRepository;
+import com.makeurpicks.repository.PickWriteBatch;
 import com.makeurpicks.repository.PicksByWeekRepository;
+import com.makeurpicks.repository.WeekSnapshotRepository;
+import com.makeurpicks.repository.WeekVersionRepository;
 
 @Component
 public class PickService {
 
 	private Log log = LogFactory.getLog(PickService.class);
 	
+	//picks filed at a time by rebuildSeasonHistory
+	private static final int HISTORY_PAGE = 1000;
+	
 	@Autowired
 	private PickRepository pickRepository;
 	
 	@Autowired
 	private GameIntegrationService gameIntegrationService;
 	
+	@Autowired
+	private KickoffLockScheduler kickoffLockScheduler;
+	
 //	@Autowired 
 //	private LeagueIntegrationService leagueIntegrationService;
 	
@@ -45,6 +66,34 @@ public class PickService {
 	
 	@Autowired
 	private PicksByWeekRepository picksByWeekRepository;
+	
+	@Autowired
+	private PickWriteBatch pickWriteBatch;
+	
+	@Autowired
+	private PickChangeStream pickChangeStream;
+	
+	@Autowired
+	private PickConsensusRepository pickConsensusRepository;
+	
+	@Autowired
+	private WeekPicksCache weekPicksCache;
+	
+	@Autowired
+	private WeekVersionRepository weekVersionRepository;
+	
+	@Autowired
+	private PickHistoryRepository pickHistoryRepository;
+	
+	@Autowired
+	private WeekSnapshotRepository weekSnapshotRepository;
+	
+	/**
+	 * How long after kickoff a scored game is taken to be over, a week is only
+	 * frozen once every game in it is.
+	 */
+	@Value("${pick.snapshot.final-after-hours:6}")
+	private long finalAfterHours = 6;
 
 	public Pick makePick(Pick pick)
 	{
@@ -59,6 +108,235 @@ public class PickService {
 //		picksByWeekRepository.createPick(pick);		
 		return pick;
 	}
+	
+	/**
+	 * Validates a whole week of picks for one player against a single fetch of
+	 * the week's games and saves the ones that pass in one write.  A pick for a
+	 * game the player already picked keeps the existing pick id, so resubmitting
+	 * the week replaces picks instead of piling up new ones.  The index settles
+	 * the ids when the picks are written, two submits racing to create the same
+	 * pick both end up with the id of the one that got there first.
+	 */
+	public List<PickResult> makePicks(List<Pick> picks, String playerId)
+	{
+		if (picks == null || picks.isEmpty())
+			return Collections.emptyList();
+		
+		//the first pick decides which league week the batch is for
+		String leagueId = null;
+		String weekId = null;
+		for (Pick pick : picks)
+		{
+			if (pick != null)
+			{
+				leagueId = pick.getLeagueId();
+				weekId = pick.getWeekId();
+				break;
+			}
+		}
+		
+		Map<String, GameResponse> games = Collections.emptyMap();
+		Map<String, String> existingPicks = Collections.emptyMap();
+		if (weekId != null && !"".equals(weekId) && leagueId != null && !"".equals(leagueId))
+		{
+			games = gameIntegrationService.getGamesByWeek(weekId);
+			existingPicks = picksByWeekRepository.findGamesByPlayer(leagueId, weekId, playerId);
+		}
+		
+		List<PickResult> results = new ArrayList<>(picks.size());
+		List<Pick> accepted = new ArrayList<>(picks.size());
+		Set<String> pickedGames = new HashSet<>();
+		for (Pick pick : picks)
+		{
+			if (pick == null)
+			{
+				results.add(new PickResult(null, Collections.singletonList(PickExceptions.PICK_IS_NULL)));
+				continue;
+			}
+			
+			pick.setPlayerId(playerId);
+			List<PickExceptions> codes = new ArrayList<PickExceptions>();
+			checkPickFields(pick, codes);
+			if (codes.isEmpty())
+			{
+				if (!pick.getLeagueId().equals(leagueId))
+					codes.add(PickExceptions.LEAGUE_IS_NOT_VALID);
+				if (!pick.getWeekId().equals(weekId))
+					codes.add(PickExceptions.WEEK_IS_NOT_VALID);
+				if (!pickedGames.add(pick.getGameId()))
+					codes.add(PickExceptions.GAME_PICKED_TWICE);
+				
+				GameResponse game = games.get(pick.getGameId());
+				if (game == null)
+					codes.add(PickExceptions.GAME_IS_NULL);
+				else
+					checkPickAgainstGame(pick, game, false, codes);
+			}
+			
+			if (codes.isEmpty())
+			{
+				String existingPickId = existingPicks.get(pick.getGameId());
+				pick.setId(existingPickId != null ? existingPickId : UUID.randomUUID().toString());
+				accepted.add(pick);
+			}
+			results.add(new PickResult(pick, codes));
+		}
+		
+		Map<String, Pick> replaced = findReplaced(leagueId, accepted, existingPicks);
+		pickWriteBatch.savePicks(accepted);
+		List<PickChangeEvent> changes = changesFor(accepted, replaced);
+		count(accepted);
+		if (!accepted.isEmpty())
+			picksChanged(leagueId, weekId);
+		publish(changes);
+		remember(accepted, games);
+		log.debug("saved "+accepted.size()+" of "+picks.size()+" picks for "+playerId+" in week "+weekId);
+		return results;
+	}
+	
+	/**
+	 * Reads the picks being replaced in one go to find the team they had, a
+	 * resubmitted pick on the same team isn't a change.
+	 * 
+	 * @return the picks as they were before the write, by id
+	 */
+	private Map<String, Pick> findReplaced(String leagueId, List<Pick> accepted, Map<String, String> existingPicks)
+	{
+		List<String> replacedIds = new ArrayList<>();
+		for (Pick pick : accepted)
+		{
+			if (pick.getId().equals(existingPicks.get(pick.getGameId())))
+				replacedIds.add(pick.getId());
+		}
+		Map<String, Pick> replaced = new HashMap<>();
+		if (!replacedIds.isEmpty())
+		{
+			for (Pick previous : pickRepository.findAll(leagueId, replacedIds))
+			{
+				if (previous != null)
+					replaced.put(previous.getId(), previous);
+			}
+		}
+		return replaced;
+	}
+	
+	/**
+	 * Runs after the write, so a pick that lost the race to create it carries
+	 * the id that won.  That pick wasn't read as replaced, it's reported as
+	 * created.
+	 */
+	private List<PickChangeEvent> changesFor(List<Pick> accepted, Map<String, Pick> replaced)
+	{
+		List<PickChangeEvent> changes = new ArrayList<>(accepted.size());
+		for (Pick pick : accepted)
+		{
+			Pick previous = replaced.get(pick.getId());
+			if (previous == null)
+				changes.add(PickChangeEvent.created(pick));
+			else if (!pick.getTeamId().equals(previous.getTeamId()))
+				changes.add(PickChangeEvent.updated(pick, previous.getTeamId()));
+		}
+		return changes;
+	}
+	
+	/**
+	 * The version goes up after the write and after everything derived from it
+	 * that a week's ETag covers, the consensus counts and the doubles.  A reader
+	 * that got the old version can only have the new picks tagged as old, never
+	 * the other way round.
+	 */
+	private void picksChanged(String leagueId, String weekId)
+	{
+		weekPicksCache.evict(leagueId, weekId);
+		weekVersionRepository.increment(leagueId, weekId);
+	}
+	
+	/**
+	 * @return the league week's version, it goes up with every saved pick or double pick
+	 */
+	public long getWeekVersion(String leagueId, String weekId)
+	{
+		return weekVersionRepository.findVersion(leagueId, weekId);
+	}
+	
+	/**
+	 * The change log is derived data, a pick that saved stays saved even if the
+	 * event can't be written.
+	 */
+	private void publish(List<PickChangeEvent> changes)
+	{
+		if (changes.isEmpty())
+			return;
+		try {
+			pickChangeStream.append(changes);
+		} catch (RuntimeException e) {
+			log.warn("unable to append "+changes.size()+" pick changes", e);
+		}
+	}
+	
+	/**
+	 * Like the change log the counters are derived, if they can't be updated
+	 * the week is put right with {@link #rebuildConsensus(String, String)}.
+	 */
+	private void count(List<Pick> picks)
+	{
+		if (picks.isEmpty())
+			return;
+		try {
+			pickConsensusRepository.record(picks);
+		} catch (RuntimeException e) {
+			log.warn("unable to count "+picks.size()+" picks for the consensus", e);
+		}
+	}
+	
+	/**
+	 * The season history is derived as well.  A pick whose game has no season
+	 * isn't added, there is nothing to file it under.
+	 */
+	private void remember(Collection<Pick> picks, Map<String, GameResponse> games)
+	{
+		Map<String, List<Pick>> bySeason = new HashMap<>();
+		for (Pick pick : picks)
+		{
+			GameResponse game = games.get(pick.getGameId());
+			if (game != null && game.getSeasonId() != null)
+				bySeason.computeIfAbsent(game.getSeasonId(), key -> new ArrayList<>()).add(pick);
+		}
+		try {
+			for (Map.Entry<String, List<Pick>> season : bySeason.entrySet())
+				pickHistoryRepository.record(season.getKey(), season.getValue(), pick -> kickoff(games.get(pick.getGameId())));
+		} catch (RuntimeException e) {
+			log.warn("unable to add "+picks.size()+" picks to the season history", e);
+		}
+	}
+	
+	private static long kickoff(GameResponse game)
+	{
+		return game.getGameStart() == null ? 0 : game.getGameStart().toInstant().toEpochMilli();
+	}
+	
+	/**
+	 * @return gameId -> teamId -> number of players in the league on that team
+	 */
+	public Map<String, Map<String, Long>> getConsensus(String leagueId, String weekId)
+	{
+		return pickConsensusRepository.findByWeek(leagueId, weekId);
+	}
+	
+	/**
+	 * Recounts a week from the picks themselves.  The week's version goes up so
+	 * the consensus isn't answered from a cache with the old counts.
+	 */
+	public Map<String, Map<String, Long>> rebuildConsensus(String leagueId, String weekId)
+	{
+		List<Pick> picks = new ArrayList<>();
+		for (Map<String, Pick> games : getPicksByWeek(leagueId, weekId).values())
+			picks.addAll(games.values());
+		pickConsensusRepository.rebuild(leagueId, weekId, picks);
+		weekVersionRepository.increment(leagueId, weekId);
+		log.info("rebuilt the consensus for league "+leagueId+" week "+weekId+" from "+picks.size()+" picks");
+		return getConsensus(leagueId, weekId);
+	}
 
 
 	public Pick updatePick(Pick pick)
@@ -83,14 +361,135 @@ public class PickService {
 		
 		//save pick by pick id
 		pickRepository.save(pick);
+		count(Collections.singletonList(pick));
+		picksChanged(pick.getLeagueId(), pick.getWeekId());
+		
+		if (!pick.getTeamId().equals(pickFromDS.getTeamId()))
+			publish(Collections.singletonList(PickChangeEvent.updated(pick, pickFromDS.getTeamId())));
+		if (!PickHistoryEntry.of(pick).equals(PickHistoryEntry.of(pickFromDS)))
+			moveInHistory(pickFromDS, pick);
 		
 		return pick;
 	}
 	
+	/**
+	 * An update that moves the pick to another game files it again, under the
+	 * new game's kickoff.  A team change leaves the history as it is.
+	 */
+	private void moveInHistory(Pick previous, Pick pick)
+	{
+		try {
+			GameResponse game = gameIntegrationService.getGameById(pick.getGameId());
+			if (game == null || game.getSeasonId() == null)
+				return;
+			pickHistoryRepository.remove(game.getSeasonId(), previous);
+			pickHistoryRepository.record(game.getSeasonId(), Collections.singletonList(pick), p -> kickoff(game));
+		} catch (RuntimeException e) {
+			log.warn("unable to move pick "+pick.getId()+" in the season history", e);
+		}
+	}
+	
+	/**
+	 * @return a page of the player's picks this season across every league, in
+	 * kickoff order, where each pick is rather than the pick itself
+	 */
+	public List<PickHistoryEntry> getSeasonHistory(String playerId, String seasonId, int offset, int count)
+	{
+		return pickHistoryRepository.findBySeason(playerId, seasonId, offset, count);
+	}
+	
+	public long getSeasonHistoryCount(String playerId, String seasonId)
+	{
+		return pickHistoryRepository.countBySeason(playerId, seasonId);
+	}
+	
+	/**
+	 * The player's whole season in kickoff order, one read for the history and
+	 * one for the picks of every league in it.
+	 */
+	public List<Pick> getSeasonPicks(String playerId, String seasonId)
+	{
+		List<PickHistoryEntry> entries = pickHistoryRepository.findBySeason(playerId, seasonId, 0, Integer.MAX_VALUE);
+		if (entries.isEmpty())
+			return Collections.emptyList();
+		
+		Map<String, List<String>> byLeague = new LinkedHashMap<>();
+		for (PickHistoryEntry entry : entries)
+			byLeague.computeIfAbsent(entry.getLeagueId(), key -> new ArrayList<>()).add(entry.getPickId());
+		
+		Map<String, Pick> picksById = new HashMap<>(entries.size() * 2);
+		for (Pick pick : pickRepository.findAllByLeague(byLeague))
+			picksById.put(pick.getId(), pick);
+		
+		//picks of a frozen week may have been evicted, they come from its snapshot
+		Map<String, WeekSnapshot> snapshots = new HashMap<>();
+		List<Pick> picks = new ArrayList<>(entries.size());
+		for (PickHistoryEntry entry : entries)
+		{
+			Pick pick = picksById.get(entry.getPickId());
+			if (pick == null)
+			{
+				WeekSnapshot snapshot = snapshots.computeIfAbsent(entry.getLeagueId()+"+"+entry.getWeekId(),
+						key -> weekSnapshotRepository.findOne(entry.getLeagueId(), entry.getWeekId()));
+				pick = snapshot == null ? null : snapshot.findPick(playerId, entry.getGameId());
+			}
+			if (pick != null)
+				picks.add(pick);
+		}
+		return picks;
+	}
+	
+	/**
+	 * Files every stored pick in its season history, for picks saved before the
+	 * history was kept.  Picks are read a page at a time and the games looked up
+	 * once per week.  Recording a pick again changes nothing, so it can be rerun.
+	 *
+	 * @return the number of picks filed
+	 */
+	public int rebuildSeasonHistory()
+	{
+		Map<String, Map<String, GameResponse>> gamesByWeek = new HashMap<>();
+		List<Pick> page = new ArrayList<>(HISTORY_PAGE);
+		Map<String, GameResponse> pageGames = new HashMap<>();
+		int filed = 0;
+		for (Pick pick : pickRepository.findAll())
+		{
+			if (pick == null || pick.getWeekId() == null)
+				continue;
+			Map<String, GameResponse> games = gamesByWeek.computeIfAbsent(pick.getWeekId(), gameIntegrationService::getGamesByWeek);
+			GameResponse game = games == null ? null : games.get(pick.getGameId());
+			if (game == null)
+				continue;
+			page.add(pick);
+			pageGames.put(game.getId(), game);
+			if (page.size() == HISTORY_PAGE)
+			{
+				remember(page, pageGames);
+				filed += page.size();
+				page.clear();
+				pageGames.clear();
+			}
+		}
+		remember(page, pageGames);
+		filed += page.size();
+		log.info("filed "+filed+" picks in the season history");
+		return filed;
+	}
+	
+	/**
+	 * The live index is read first, a frozen week is only looked for when the
+	 * index has nothing for the week.
+	 */
 	public Map<String, Pick>getPicksByWeekAndPlayer(String leagueId, String weekId, String playerId)
 	{
 		Map<String, Map<String, String>> map = picksByWeekRepository.findPlayersByWeek(leagueId, weekId);
-		return getPicksByWeekAndPlayer(map, weekId, playerId);
+		if (map == null || map.isEmpty())
+		{
+			WeekSnapshot snapshot = weekSnapshotRepository.findOne(leagueId, weekId);
+			Map<String, Pick> picks = snapshot == null ? null : snapshot.toPicksByPlayer().get(playerId);
+			return picks == null ? Collections.<String, Pick>emptyMap() : picks;
+		}
+		return getPicksByWeekAndPlayer(map, leagueId, playerId);
 	}
 	
 	public Map<String, Pick> getOtherPicksByWeekAndPlayer(String leagueId, String weekId, String playerId)
@@ -103,49 +502,105 @@ public class PickService {
 		return picks;
 	}
 	
-	private Map<String, Pick>getPicksByWeekAndPlayer(Map<String, Map<String, String>> map, String weekId, String playerId)
+	private Map<String, Pick>getPicksByWeekAndPlayer(Map<String, Map<String, String>> map, String leagueId, String playerId)
 	{
 //		Map<String, Map<String, String>> map = picksByWeekRepository.getPlayersByWeek(weekId);
 		if (map==null || map.isEmpty())
 			return Collections.emptyMap();
 		Map<String, String> games = map.get(playerId);
-		Set<String> subkeys = new TreeSet<>();
-		if (games != null)
-			subkeys = games.keySet();
-		
-		Map<String, Pick> pickMap = new HashMap<>();
-		for (String gameId : subkeys) {
-			String pickId = games.get(gameId);
-			Pick pick = pickRepository.findOne(pickId);
-			pickMap.put(gameId, pick);
-		}
-		return pickMap;
+		if (games == null)
+			return Collections.emptyMap();
 		
+		Map<String, Pick> picksById = findPicksById(leagueId, Collections.singletonList(games));
+		return toPickMap(games, picksById);
 	}
 	
-//	Map<String, Map<String, Pick>>
-	
+	/**
+	 * Concurrent reads of the same week share one load, see {@link WeekPicksCache}.
+	 */
 	public Map<String, Map<String, Pick>>getPicksByWeek(String leagueId, String weekId)
+	{
+		return getPicksByWeek(leagueId, weekId, getWeekVersion(leagueId, weekId));
+	}
+	
+	/**
+	 * @param weekVersion the version the caller read, e.g. to tag the response
+	 * with, the picks are at least as new
+	 */
+	public Map<String, Map<String, Pick>>getPicksByWeek(String leagueId, String weekId, long weekVersion)
+	{
+		return weekPicksCache.get(leagueId, weekId, weekVersion, () -> loadPicksByWeek(leagueId, weekId));
+	}
+	
+	/**
+	 * A frozen week is served from its snapshot, whether or not the raw picks
+	 * are still there.
+	 */
+	private Map<String, Map<String, Pick>> loadPicksByWeek(String leagueId, String weekId)
+	{
+		WeekSnapshot snapshot = weekSnapshotRepository.findOne(leagueId, weekId);
+		if (snapshot != null)
+			return snapshot.toPicksByPlayer();
+		return loadLivePicksByWeek(leagueId, weekId);
+	}
+	
+	private Map<String, Map<String, Pick>> loadLivePicksByWeek(String leagueId, String weekId)
 	{
 		Map<String, Map<String, String>> map = picksByWeekRepository.findPlayersByWeek(leagueId, weekId);
 		if (map==null)
 			return Collections.emptyMap();
 		
-		Set<String>players = map.keySet();
+		//load every pick for the week with one multi get instead of one call per pick
+		Map<String, Pick> picksById = findPicksById(leagueId, map.values());
 		
 		Map<String, Map<String, Pick>> gameMap = new HashMap<>();
-		for (String playerId:players)
+		for (Map.Entry<String, Map<String, String>> player : map.entrySet())
 		{
-			
-			Map<String, Pick> pickMap = getPicksByWeekAndPlayer(map, weekId, playerId);
-			gameMap.put(playerId, pickMap);
-			
+			gameMap.put(player.getKey(), toPickMap(player.getValue(), picksById));
 		}
 		
-		
 		return gameMap;
 	}
 	
+	private Map<String, Pick> findPicksById(String leagueId, Collection<Map<String, String>> gamesByPlayer)
+	{
+		List<String> pickIds = new ArrayList<>();
+		for (Map<String, String> games : gamesByPlayer)
+		{
+			if (games != null)
+				pickIds.addAll(games.values());
+		}
+		if (pickIds.isEmpty())
+			return Collections.emptyMap();
+		
+		Map<String, Pick> picksById = new HashMap<>(pickIds.size() * 2);
+		Iterable<Pick> picks = pickRepository.findAll(leagueId, pickIds);
+		if (picks != null)
+		{
+			for (Pick pick : picks)
+			{
+				if (pick != null)
+					picksById.put(pick.getId(), pick);
+			}
+		}
+		return picksById;
+	}
+	
+	private Map<String, Pick> toPickMap(Map<String, String> games, Map<String, Pick> picksById)
+	{
+		Map<String, Pick> pickMap = new HashMap<>();
+		if (games == null)
+			return pickMap;
+		
+		for (Map.Entry<String, String> game : games.entrySet()) {
+			//the index is written before the pick, a pick in between isn't there yet
+			Pick pick = picksById.get(game.getValue());
+			if (pick != null)
+				pickMap.put(game.getKey(), pick);
+		}
+		return pickMap;
+	}
+	
 //	public Iterable<Pick> getPicksByLeagueAndWeek(String leagueId, String weekId)
 //	{ 
 //		Iterable<String> ids = picksByLeagueWeekRepository.getPicksForLeagueAndWeek(leagueId, weekId);
@@ -176,20 +631,7 @@ public class PickService {
 			throw new PickValidationException(PickExceptions.PICK_IS_NULL);
 		}
 		
-		if (pick.getGameId()==null || "".equals(pick.getGameId()))
-			codes.add(PickExceptions.GAME_IS_NULL);
-		
-		if (pick.getTeamId()==null || "".equals(pick.getTeamId()))
-			codes.add(PickExceptions.TEAM_IS_NULL);
-		
-		if (pick.getWeekId()==null||"".equals(pick.getWeekId()))
-			codes.add(PickExceptions.WEEK_IS_NULL);
-		
-		if (pick.getLeagueId()==null||"".equals(pick.getLeagueId()))
-			codes.add(PickExceptions.LEAGUE_IS_NULL);
-				
-		if (pick.getPlayerId()==null||"".equals(pick.getPlayerId()))
-			codes.add(PickExceptions.PLAYER_IS_NUll);
+		checkPickFields(pick, codes);
 		
 		if (!codes.isEmpty())
 			throw new PickValidationException(codes.toArray(new PickExceptions[codes.size()]));
@@ -202,13 +644,7 @@ public class PickService {
 		if (!codes.isEmpty())
 			throw new PickValidationException(codes.toArray(new PickExceptions[codes.size()]));
 		
-//		//load the game to make sure that the team passed is actually playing in the game
-		if (!game.getFavId().equals(pick.getTeamId()) && !game.getDogId().equals(pick.getTeamId()))
-			codes.add(PickExceptions.TEAM_NOT_PLAYING_IN_GAME);
-//				
-//		//check to make sure that the game hasn't started
-		if (!isUpdate && game.getHasGameStarted())
-			codes.add(PickExceptions.GAME_HAS_ALREADY_STARTED);
+		checkPickAgainstGame(pick, game, isUpdate, codes);
 //		
 //		//make sure the week matches the game
 ////		if (game.getWeek().getId()!=pick.getWeek().getId())
@@ -219,10 +655,45 @@ public class PickService {
 			throw new PickValidationException(codes.toArray(new PickExceptions[codes.size()]));
 	}
 	
+	private void checkPickFields(Pick pick, List<PickExceptions> codes)
+	{
+		if (pick.getGameId()==null || "".equals(pick.getGameId()))
+			codes.add(PickExceptions.GAME_IS_NULL);
+		
+		if (pick.getTeamId()==null || "".equals(pick.getTeamId()))
+			codes.add(PickExceptions.TEAM_IS_NULL);
+		
+		if (pick.getWeekId()==null||"".equals(pick.getWeekId()))
+			codes.add(PickExceptions.WEEK_IS_NULL);
+		
+		if (pick.getLeagueId()==null||"".equals(pick.getLeagueId()))
+			codes.add(PickExceptions.LEAGUE_IS_NULL);
+				
+		if (pick.getPlayerId()==null||"".equals(pick.getPlayerId()))
+			codes.add(PickExceptions.PLAYER_IS_NUll);
+	}
+	
+	private void checkPickAgainstGame(Pick pick, GameResponse game, boolean isUpdate, List<PickExceptions> codes)
+	{
+		//load the game to make sure that the team passed is actually playing in the game
+		if (!game.getFavId().equals(pick.getTeamId()) && !game.getDogId().equals(pick.getTeamId()))
+			codes.add(PickExceptions.TEAM_NOT_PLAYING_IN_GAME);
+				
+		//check to make sure that the game hasn't started
+		if (!isUpdate && kickoffLockScheduler.isLocked(game))
+			codes.add(PickExceptions.GAME_HAS_ALREADY_STARTED);
+	}
+	
 	
 	public DoublePick getDoublePickForPlayer(String leagueId, String weekId, String playerId)
 	{
-		return doublePickRepository.findDoubleForPlayer(leagueId, weekId, playerId);
+		DoublePick doublePick = doublePickRepository.findDoubleForPlayer(leagueId, weekId, playerId);
+		if (doublePick != null)
+			return doublePick;
+		
+		WeekSnapshot snapshot = weekSnapshotRepository.findOne(leagueId, weekId);
+		Map<String, DoublePick> frozen = snapshot == null ? null : snapshot.toDoublePicks();
+		return frozen == null ? null : frozen.get(playerId);
 	}
 	
 	public Map<String, DoublePick> getDoublePicks(String leagueId, String weekId)
@@ -239,8 +710,94 @@ public class PickService {
 //		}
 //		
 //		return doublePicks;
+		WeekSnapshot snapshot = weekSnapshotRepository.findOne(leagueId, weekId);
+		if (snapshot != null)
+			return snapshot.toDoublePicks();
 		return doublePickRepository.findAllForLeagueAndWeek(leagueId, weekId);
 	}
+	
+	/**
+	 * @return playerId -> points for the week, straight from the snapshot once
+	 * the week is frozen, scored against the games' current scores until then
+	 */
+	public Map<String, Integer> getWeekPoints(String leagueId, String weekId)
+	{
+		WeekSnapshot snapshot = weekSnapshotRepository.findOne(leagueId, weekId);
+		if (snapshot != null)
+			return snapshot.getPoints();
+		
+		Map<String, GameResponse> games = gameIntegrationService.getGamesByWeek(weekId);
+		if (games == null || games.isEmpty())
+			return Collections.emptyMap();
+		return WeekSnapshot.freeze(leagueId, weekId, loadLivePicksByWeek(leagueId, weekId),
+				doublePickRepository.findAllForLeagueAndWeek(leagueId, weekId), games.values(), System.currentTimeMillis()).getPoints();
+	}
+	
+	/**
+	 * Freezes a finished league week into a {@link WeekSnapshot}, every game in
+	 * the week has to be scored and over.  The snapshot is written once, freezing
+	 * a frozen week just returns it.  Picks saved to the week afterwards, by an
+	 * admin, don't change the snapshot and aren't read any more.
+	 *
+	 * @param evict also drop the week's raw picks, its index and its doubles,
+	 * reads of the week and the season histories go to the snapshot from then on
+	 */
+	public WeekSnapshot freezeWeek(String leagueId, String weekId, boolean evict)
+	{
+		WeekSnapshot snapshot = weekSnapshotRepository.findOne(leagueId, weekId);
+		boolean frozen = false;
+		if (snapshot == null)
+		{
+			Map<String, GameResponse> games = gameIntegrationService.getGamesByWeek(weekId);
+			if (games == null || games.isEmpty())
+				throw new PickValidationException(PickExceptions.WEEK_IS_NOT_VALID);
+			
+			long now = System.currentTimeMillis();
+			for (GameResponse game : games.values())
+			{
+				if (!isFinal(game, now))
+					throw new PickValidationException(PickExceptions.WEEK_IS_NOT_FINAL);
+			}
+			
+			snapshot = WeekSnapshot.freeze(leagueId, weekId, loadLivePicksByWeek(leagueId, weekId),
+					doublePickRepository.findAllForLeagueAndWeek(leagueId, weekId), games.values(), now);
+			if (weekSnapshotRepository.save(snapshot))
+				log.info("froze league "+leagueId+" week "+weekId+", "+snapshot.getPlayers().length+" players in "+snapshot.getGames().length+" games");
+			else
+				snapshot = weekSnapshotRepository.findOne(leagueId, weekId);
+			frozen = true;
+		}
+		
+		try {
+			if (evict)
+				evictWeek(leagueId, weekId);
+		} finally {
+			if (frozen)
+				picksChanged(leagueId, weekId);
+		}
+		return snapshot;
+	}
+	
+	private boolean isFinal(GameResponse game, long now)
+	{
+		return WeekSnapshot.result(game) != WeekSnapshot.RESULT_NONE
+				&& kickoff(game) + TimeUnit.HOURS.toMillis(finalAfterHours) <= now;
+	}
+	
+	/**
+	 * Picks first and the index last, if it fails part way the index still
+	 * finds whatever is left and the eviction can be run again.
+	 */
+	private void evictWeek(String leagueId, String weekId)
+	{
+		Map<String, Map<String, String>> map = picksByWeekRepository.findPlayersByWeek(leagueId, weekId);
+		Collection<Pick> picks = map == null ? Collections.<Pick>emptyList() : findPicksById(leagueId, map.values()).values();
+		if (!picks.isEmpty())
+			pickRepository.delete(picks);
+		doublePickRepository.deleteWeek(leagueId, weekId);
+		picksByWeekRepository.deleteWeek(leagueId, weekId);
+		log.info("evicted "+picks.size()+" raw picks of frozen league "+leagueId+" week "+weekId);
+	}
 
 	public DoublePick makeDoublePick(String pickId, String loggedInPlayerId)
 	{
@@ -251,7 +808,7 @@ public class PickService {
 		
 		GameResponse game = gameIntegrationService.getGameById(pick.getGameId());
 		//check to see if the newly selected double has started
-		if (game.getHasGameStarted())
+		if (kickoffLockScheduler.isLocked(game))
 		{
 			//you can't change to a game that has started
 			throw new PickValidationException(PickExceptions.GAME_HAS_ALREADY_STARTED);
@@ -270,7 +827,7 @@ public class PickService {
 			String orginalPickId = orginialDoublePick.getPickId();
 			Pick orginalPick = pickRepository.findOne(orginalPickId);
 			GameResponse orginalGame = gameIntegrationService.getGameById(orginalPick.getGameId());
-			if (orginalGame.getHasGameStarted())
+			if (kickoffLockScheduler.isLocked(orginalGame))
 			{
 				throw new PickValidationException(PickExceptions.GAME_HAS_ALREADY_STARTED);
 			}
@@ -281,12 +838,16 @@ public class PickService {
 			orginialDoublePick.setHasDoubleGameStarted(false);
 			orginialDoublePick.setPreviousDoubleGameId(orginalGame.getId());
 			doublePickRepository.save(orginialDoublePick);			
+			weekVersionRepository.increment(pick.getLeagueId(), pick.getWeekId());
+			publish(Collections.singletonList(PickChangeEvent.doublePicked(pick, orginalGame.getId())));
 			
 			return orginialDoublePick;
 		}
 		// there is no orginal pick, so create a new one
-		DoublePick doublePick = new DoublePick(pick.getLeagueId(), pick.getWeekId(), pick.getPlayerId(), pickId, game.getId(), game.getHasGameStarted());
+		DoublePick doublePick = new DoublePick(pick.getLeagueId(), pick.getWeekId(), pick.getPlayerId(), pickId, game.getId(), kickoffLockScheduler.isLocked(game));
 		doublePickRepository.save(doublePick);
+		weekVersionRepository.increment(pick.getLeagueId(), pick.getWeekId());
+		publish(Collections.singletonList(PickChangeEvent.doublePicked(pick, null)));
 		
 		return doublePick;
 	}
@@ -0,0 +1,76 @@
+package com.makeurpicks.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one load per key at a time.  A caller that asks for a key that
+ * is already being loaded waits for that load and gets the same result, or the
+ * same exception, instead of starting its own.  Nothing is kept once the load
+ * finishes, caching the result is up to the caller.
+ */
+public class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+
+	public V execute(K key, Supplier<V> loader)
+	{
+		calls.increment();
+		CompletableFuture<V> load = new CompletableFuture<>();
+		CompletableFuture<V> running = inFlight.putIfAbsent(key, load);
+		if (running != null)
+			return join(running);
+
+		loads.increment();
+		try {
+			V value = loader.get();
+			load.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, load);
+		}
+	}
+
+	private V join(CompletableFuture<V> running)
+	{
+		try {
+			return running.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return every call to {@link #execute(Object, Supplier)}
+	 */
+	public long getCalls()
+	{
+		return calls.sum();
+	}
+
+	/**
+	 * @return the calls that ran the loader, the rest shared a load already running
+	 */
+	public long getLoads()
+	{
+		return loads.sum();
+	}
+
+	public int getInFlight()
+	{
+		return inFlight.size();
+	}
+}
@@ -0,0 +1,201 @@
+package com.makeurpicks.service;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickChangeEvent;
+
+/**
+ * Shares league week pick reads between the requests that ask at the same time.
+ * The whole league opens the view picks page at kickoff, so concurrent reads of
+ * a week run one load from redis through a {@link SingleFlight}, and the result
+ * is kept for a short while after.
+ *
+ * A kept week is dropped as soon as a pick in it changes: straight away for
+ * picks saved on this instance, and when the change reaches the change log
+ * poller for picks saved anywhere else.  The ttl is only a backstop for changes
+ * that never made it to the log.  A load that started before a change is not
+ * kept, so a week that was just changed can't be put back stale.  Set the ttl
+ * to 0 to only share loads.
+ *
+ * Each kept week also remembers the redis week version read before its load.
+ * A read asks for the version it is going to tag the response with, a kept
+ * week older than that is loaded again, so a change saved on another instance
+ * is never served under the new version before the poller gets to it.  Loads
+ * are only shared between reads of the same version for the same reason.
+ *
+ * Shows up under /metrics as pickWeekCache.*, coalescingRatio is the share of
+ * reads that didn't need their own load.
+ */
+@Component
+public class WeekPicksCache implements PublicMetrics {
+
+	//changes are tracked in stripes of league weeks so the counters don't grow with the season
+	private static final int STRIPES = 1024;
+
+	private final SingleFlight<Load, Map<String, Map<String, Pick>>> loads = new SingleFlight<>();
+	private final Map<String, Entry> weeks = new ConcurrentHashMap<>();
+	private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+	private final AtomicLong reads = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final Clock clock;
+
+	@Value("${pick.week-cache.ttl-ms:10000}")
+	private long ttlMs = 10000;
+
+	public WeekPicksCache()
+	{
+		this(Clock.systemUTC());
+	}
+
+	WeekPicksCache(Clock clock)
+	{
+		this.clock = clock;
+	}
+
+	private static String weekKey(String leagueId, String weekId)
+	{
+		return new StringBuilder(leagueId).append("+").append(weekId).toString();
+	}
+
+	private static int stripe(String key)
+	{
+		return (key.hashCode() & 0x7fffffff) % STRIPES;
+	}
+
+	/**
+	 * @param weekVersion the redis version of the week read before this call,
+	 * the picks returned are at least that new
+	 */
+	public Map<String, Map<String, Pick>> get(String leagueId, String weekId, long weekVersion, Supplier<Map<String, Map<String, Pick>>> loader)
+	{
+		reads.incrementAndGet();
+		String key = weekKey(leagueId, weekId);
+		Entry entry = weeks.get(key);
+		long now = clock.millis();
+		if (entry != null && now < entry.expiresAt && entry.weekVersion >= weekVersion)
+		{
+			hits.incrementAndGet();
+			return entry.picks;
+		}
+
+		return loads.execute(new Load(key, weekVersion), () -> {
+			long version = versions.get(stripe(key));
+			Map<String, Map<String, Pick>> picks = loader.get();
+			if (ttlMs > 0 && versions.get(stripe(key)) == version)
+			{
+				Entry loaded = new Entry(picks, weekVersion, clock.millis() + ttlMs);
+				weeks.merge(key, loaded, (kept, next) -> kept.weekVersion > next.weekVersion ? kept : next);
+			}
+			return picks;
+		});
+	}
+
+	public void evict(String leagueId, String weekId)
+	{
+		String key = weekKey(leagueId, weekId);
+		versions.incrementAndGet(stripe(key));
+		if (weeks.remove(key) != null)
+			evictions.incrementAndGet();
+	}
+
+	/**
+	 * Changes read back from the change log, from this instance or any other.
+	 */
+	@EventListener
+	public void pickChanged(PickChangeEvent event)
+	{
+		if (event.getType() != PickChangeEvent.Type.DOUBLE_PICK_CHANGED)
+			evict(event.getLeagueId(), event.getWeekId());
+	}
+
+	@Scheduled(fixedDelayString = "${pick.week-cache.sweep-ms:60000}")
+	public void evictExpired()
+	{
+		long now = clock.millis();
+		for (Map.Entry<String, Entry> entry : weeks.entrySet())
+		{
+			if (now >= entry.getValue().expiresAt)
+				weeks.remove(entry.getKey(), entry.getValue());
+		}
+	}
+
+	public long getReads()
+	{
+		return reads.get();
+	}
+
+	public long getLoads()
+	{
+		return loads.getLoads();
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics()
+	{
+		long read = reads.get();
+		long loaded = loads.getLoads();
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<Long>("pickWeekCache.reads", read));
+		metrics.add(new Metric<Long>("pickWeekCache.hits", hits.get()));
+		metrics.add(new Metric<Long>("pickWeekCache.coalesced", loads.getCalls() - loaded));
+		metrics.add(new Metric<Long>("pickWeekCache.loads", loaded));
+		metrics.add(new Metric<Long>("pickWeekCache.evictions", evictions.get()));
+		metrics.add(new Metric<Integer>("pickWeekCache.size", weeks.size()));
+		metrics.add(new Metric<Double>("pickWeekCache.coalescingRatio", read == 0 ? 0.0 : 1.0 - (double) loaded / read));
+		return metrics;
+	}
+
+	private static class Entry {
+		private final Map<String, Map<String, Pick>> picks;
+		private final long weekVersion;
+		private final long expiresAt;
+
+		Entry(Map<String, Map<String, Pick>> picks, long weekVersion, long expiresAt)
+		{
+			this.picks = picks;
+			this.weekVersion = weekVersion;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private static class Load {
+		private final String key;
+		private final long weekVersion;
+
+		Load(String key, long weekVersion)
+		{
+			this.key = key;
+			this.weekVersion = weekVersion;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * key.hashCode() + Long.hashCode(weekVersion);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Load))
+				return false;
+			Load other = (Load) obj;
+			return key.equals(other.key) && weekVersion == other.weekVersion;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+-- Appends pick change events to the change log in one atomic step.
+-- KEYS[1] sequence counter, KEYS[2] change log sorted set
+-- ARGV[1] maximum events kept, ARGV[2..n] encoded events
+-- each event is stored as "<sequence>:<event>" scored by its sequence
+-- returns the sequence of the first event appended
+local first = 0
+for i = 2, #ARGV do
+	local sequence = redis.call('INCR', KEYS[1])
+	if first == 0 then
+		first = sequence
+	end
+	redis.call('ZADD', KEYS[2], sequence, sequence .. ':' .. ARGV[i])
+end
+local excess = redis.call('ZCARD', KEYS[2]) - tonumber(ARGV[1])
+if excess > 0 then
+	redis.call('ZREMRANGEBYRANK', KEYS[2], 0, excess - 1)
+end
+return first
@@ -0,0 +1,16 @@
+-- Claims a league week's player:game fields for picks in one atomic step.  A
+-- field that already holds a pick keeps it, so two saves racing to create the
+-- same player's pick on a game end up with one pick id between them.
+-- KEYS[1] league week index hash, KEYS[2] weeks by league set
+-- ARGV[1] week id, then pairs of player:game field and pick id
+-- returns the pick id each field holds afterwards, in argument order
+local ids = {}
+for i = 2, #ARGV, 2 do
+	if redis.call('HSETNX', KEYS[1], ARGV[i], ARGV[i + 1]) == 1 then
+		ids[#ids + 1] = ARGV[i + 1]
+	else
+		ids[#ids + 1] = redis.call('HGET', KEYS[1], ARGV[i])
+	end
+end
+redis.call('SADD', KEYS[2], ARGV[1])
+return ids
@@ -0,0 +1,15 @@
+-- Replaces a league week's pick counts in one atomic step.
+-- KEYS[1] counts hash, KEYS[2] pick id -> counted field hash
+-- ARGV[1] number of counts n, ARGV[2..2n+1] field/count pairs, the rest pick id/field pairs
+-- returns the number of picks counted
+redis.call('DEL', KEYS[1], KEYS[2])
+local counts = tonumber(ARGV[1])
+for i = 2, counts * 2, 2 do
+	redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+end
+local picks = 0
+for i = counts * 2 + 2, #ARGV, 2 do
+	redis.call('HSET', KEYS[2], ARGV[i], ARGV[i + 1])
+	picks = picks + 1
+end
+return picks
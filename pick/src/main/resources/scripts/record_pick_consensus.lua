@@ -0,0 +1,21 @@
+-- Counts picks for the team they are on, moving a pick off the team it was
+-- counted for before, so concurrent changes to the same pick stay exact.
+-- KEYS[1] counters hash, "<gameId>:<teamId>" -> picks on that team
+-- KEYS[2] pick id -> the counter field the pick is counted in
+-- ARGV pairs of pick id and "<gameId>:<teamId>"
+-- returns the number of picks that moved
+local moved = 0
+for i = 1, #ARGV, 2 do
+	local previous = redis.call('HGET', KEYS[2], ARGV[i])
+	if previous ~= ARGV[i + 1] then
+		if previous then
+			if redis.call('HINCRBY', KEYS[1], previous, -1) <= 0 then
+				redis.call('HDEL', KEYS[1], previous)
+			end
+		end
+		redis.call('HINCRBY', KEYS[1], ARGV[i + 1], 1)
+		redis.call('HSET', KEYS[2], ARGV[i], ARGV[i + 1])
+		moved = moved + 1
+	end
+end
+return moved
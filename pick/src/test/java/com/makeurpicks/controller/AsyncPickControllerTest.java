@@ -0,0 +1,140 @@
+package com.makeurpicks.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.makeurpicks.domain.DoublePick;
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+import com.makeurpicks.domain.PickResult;
+import com.makeurpicks.exception.PickValidationException;
+import com.makeurpicks.exception.PickValidationException.PickExceptions;
+import com.makeurpicks.service.AsyncPickService;
+import com.makeurpicks.service.PickService;
+
+public class AsyncPickControllerTest {
+
+	private PickService pickServiceMock = mock(PickService.class);
+
+	private AsyncPickController controller(Executor executor)
+	{
+		AsyncPickService asyncPickService = new AsyncPickService();
+		ReflectionTestUtils.setField(asyncPickService, "pickService", pickServiceMock);
+		ReflectionTestUtils.setField(asyncPickService, "executor", executor);
+		AsyncPickController controller = new AsyncPickController();
+		ReflectionTestUtils.setField(controller, "asyncPickService", asyncPickService);
+		return controller;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> ResponseEntity<T> response(DeferredResult<ResponseEntity<T>> result)
+	{
+		assertTrue(result.hasResult());
+		return (ResponseEntity<T>) result.getResult();
+	}
+
+	@Test
+	public void getPicksByWeek_staleEtag_picksWithTheWeekVersion() {
+		Map<String, Map<String, Pick>> picks = Collections.singletonMap("p1", Collections.singletonMap("g1", new PickBuilder().withGameId("g1").withTeamId("nyg").build()));
+		when(pickServiceMock.getWeekVersion("l1", "w1")).thenReturn(7L);
+		when(pickServiceMock.getPicksByWeek("l1", "w1", 7L)).thenReturn(picks);
+		AtomicInteger tasks = new AtomicInteger();
+
+		ResponseEntity<Map<String, Map<String, Pick>>> response = response(controller(runnable -> {
+			tasks.incrementAndGet();
+			runnable.run();
+		}).getPicksByWeek("l1", "w1", "\"w1:6\""));
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals("\"w1:7\"", response.getHeaders().getETag());
+		assertSame(picks, response.getBody());
+		assertEquals(1, tasks.get());
+	}
+
+	@Test
+	public void getPicksByWeek_currentEtag_notModifiedWithoutLoadingPicks() {
+		when(pickServiceMock.getWeekVersion("l1", "w1")).thenReturn(7L);
+
+		ResponseEntity<Map<String, Map<String, Pick>>> response = response(controller(Runnable::run).getPicksByWeek("l1", "w1", "W/\"w1:7\""));
+
+		assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+		assertNull(response.getBody());
+		verify(pickServiceMock, never()).getPicksByWeek(eq("l1"), eq("w1"), anyLong());
+	}
+
+	@Test
+	public void makePicks_validationFails_errorResultIsTheException() {
+		PickValidationException failure = new PickValidationException(PickExceptions.GAME_IS_NULL);
+		when(pickServiceMock.makePicks(Collections.<Pick>emptyList(), "p1")).thenThrow(failure);
+
+		DeferredResult<ResponseEntity<List<PickResult>>> result = controller(Runnable::run).makePicks(() -> "p1", Collections.<Pick>emptyList());
+
+		assertTrue(result.hasResult());
+		assertSame(failure, result.getResult());
+	}
+
+	@Test
+	public void getPicksByWeek_poolFull_serviceUnavailable() {
+		ResponseEntity<Map<String, Map<String, Pick>>> response = response(controller(runnable -> {
+			throw new RejectedExecutionException("full");
+		}).getPicksByWeek("l1", "w1", null));
+
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+		verify(pickServiceMock, never()).getWeekVersion("l1", "w1");
+	}
+
+	@Test
+	public void getPicksByWeekAndPlayer_self_privateTagForThePlayer() {
+		Map<String, Pick> picks = Collections.singletonMap("g1", new PickBuilder().withGameId("g1").withTeamId("nyg").build());
+		when(pickServiceMock.getWeekVersion("l1", "w1")).thenReturn(7L);
+		when(pickServiceMock.getPicksByWeekAndPlayer("l1", "w1", "p1")).thenReturn(picks);
+
+		ResponseEntity<Map<String, Pick>> response = response(controller(Runnable::run).getPicksByWeekAndPlayer(() -> "p1", "l1", "w1", "\"w1:7\""));
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals("\"w1:7:p1\"", response.getHeaders().getETag());
+		assertEquals("private", response.getHeaders().getCacheControl());
+		assertSame(picks, response.getBody());
+	}
+
+	@Test
+	public void getDoublePick_currentPlayerEtag_notModified() {
+		when(pickServiceMock.getWeekVersion("l1", "w1")).thenReturn(7L);
+
+		ResponseEntity<DoublePick> response = response(controller(Runnable::run).getDoublePick(() -> "p1", "l1", "w1", "\"w1:7:p1\""));
+
+		assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+		assertEquals("private", response.getHeaders().getCacheControl());
+		verify(pickServiceMock, never()).getDoublePickForPlayer("l1", "w1", "p1");
+	}
+
+	@Test
+	public void notModified_listOfEtags_anyMatches() {
+		assertTrue(WeekEtags.notModified("\"w1:1\", \"w1:2\"", "\"w1:2\""));
+		assertTrue(WeekEtags.notModified("*", "\"w1:2\""));
+		assertFalse(WeekEtags.notModified("\"w1:1\"", "\"w1:2\""));
+		assertFalse(WeekEtags.notModified(null, "\"w1:2\""));
+	}
+}
@@ -0,0 +1,125 @@
+package com.makeurpicks.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class GameCacheTest {
+
+	private static final Instant NOON = Instant.parse("2016-12-04T12:00:00Z");
+
+	private TestClock clock;
+	private GameCache gameCache;
+
+	@Before
+	public void setup()
+	{
+		clock = new TestClock(NOON);
+		gameCache = new GameCache(clock);
+	}
+
+	@Test
+	public void get_afterPut_countsHitsAndMisses() {
+		GameResponse game = game("game1", NOON.plusSeconds(3600*5));
+
+		assertNull(gameCache.get("game1"));
+		gameCache.put(game);
+
+		assertSame(game, gameCache.get("game1"));
+		assertSame(game, gameCache.get("game1"));
+		assertEquals(2, gameCache.getHits());
+		assertEquals(1, gameCache.getMisses());
+	}
+
+	@Test
+	public void expiresAt_farFromKickoff_normalTtl() {
+		GameResponse game = game("game1", NOON.plusSeconds(3600*5));
+
+		assertEquals(NOON.plusSeconds(600), gameCache.expiresAt(game, NOON));
+	}
+
+	@Test
+	public void expiresAt_justBeforeKickoffWindow_stopsAtWindow() {
+		GameResponse game = game("game1", NOON.plusSeconds(1200));
+
+		//window opens 15 minutes before kickoff, 5 minutes from now
+		assertEquals(NOON.plusSeconds(300), gameCache.expiresAt(game, NOON));
+	}
+
+	@Test
+	public void expiresAt_insideKickoffWindow_shortTtlNeverPastKickoff() {
+		assertEquals(NOON.plusSeconds(30), gameCache.expiresAt(game("game1", NOON.plusSeconds(600)), NOON));
+		assertEquals(NOON.plusSeconds(10), gameCache.expiresAt(game("game2", NOON.plusSeconds(10)), NOON));
+	}
+
+	@Test
+	public void expiresAt_afterKickoff_normalTtl() {
+		assertEquals(NOON.plusSeconds(600), gameCache.expiresAt(game("game1", NOON.minusSeconds(60)), NOON));
+	}
+
+	@Test
+	public void get_atKickoff_refetchesAndGameHasStarted() {
+		GameResponse game = game("game1", ZonedDateTime.now().plusSeconds(10).toInstant());
+		clock.now = Instant.now();
+		gameCache.put(game);
+		assertFalse(gameCache.get("game1").getHasGameStarted());
+
+		clock.now = game.getGameStart().toInstant();
+		assertNull(gameCache.get("game1"));
+	}
+
+	@Test
+	public void evictExpired_removesOnlyExpiredGames() {
+		gameCache.put(game("game1", NOON.plusSeconds(3600*5)));
+		gameCache.put(game("game2", NOON.plusSeconds(60)));
+
+		clock.now = NOON.plusSeconds(61);
+		gameCache.evictExpired();
+
+		assertEquals(1, gameCache.size());
+		assertTrue(gameCache.get("game1") != null);
+	}
+
+	private GameResponse game(String id, Instant kickoff)
+	{
+		GameResponse game = new GameResponse();
+		game.setId(id);
+		game.setGameStart(ZonedDateTime.ofInstant(kickoff, ZoneOffset.UTC));
+		return game;
+	}
+
+	private static class TestClock extends Clock {
+		private Instant now;
+
+		TestClock(Instant now)
+		{
+			this.now = now;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.makeurpicks.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GameIntegrationServiceTest {
+
+	@InjectMocks
+	private GameIntegrationService gameIntegrationService;
+
+	@Mock
+	private GameClient gameClientMock;
+
+	@Mock
+	private GameCache gameCacheMock;
+
+	private GameResponse game(String id)
+	{
+		return new GameResponse(id, ZonedDateTime.now().plusDays(1), "nyg", "dal", "week1");
+	}
+
+	@Test
+	public void getGamesByIds_onlyMissesGoToGameServiceInOneCall() {
+		GameResponse cached = game("game1");
+		GameResponse fetched = game("game2");
+		when(gameCacheMock.get("game1")).thenReturn(cached);
+		when(gameClientMock.getGamesByIds(Arrays.asList("game2", "game3"))).thenReturn(Collections.singletonMap("game2", fetched));
+
+		Map<String, GameResponse> games = gameIntegrationService.getGamesByIds(Arrays.asList("game1", "game2", "game3", "game2"));
+
+		assertEquals(2, games.size());
+		assertSame(cached, games.get("game1"));
+		assertSame(fetched, games.get("game2"));
+		verify(gameCacheMock).put(fetched);
+		verify(gameClientMock, never()).getGameById("game2");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void getGamesByIds_allCached_noCall() {
+		when(gameCacheMock.get("game1")).thenReturn(game("game1"));
+
+		assertEquals(1, gameIntegrationService.getGamesByIds(Collections.singletonList("game1")).size());
+		verify(gameClientMock, never()).getGamesByIds(any(Collection.class));
+	}
+}
@@ -0,0 +1,204 @@
+package com.makeurpicks.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KickoffLockSchedulerTest {
+
+	@InjectMocks
+	private KickoffLockScheduler scheduler = new KickoffLockScheduler();
+
+	@Mock
+	private ApplicationEventPublisher eventPublisherMock;
+
+	@Mock
+	private GameClient gameClientMock;
+
+	private String weekId = UUID.randomUUID().toString();
+
+	@After
+	public void tearDown()
+	{
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void isLocked_gameAlreadyStarted_lockedAndPublished() {
+		GameResponse game = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().minusMinutes(5), "nyg", "dal", weekId);
+
+		assertTrue(scheduler.isLocked(game));
+
+		ArgumentCaptor<ApplicationEvent> event = ArgumentCaptor.forClass(ApplicationEvent.class);
+		verify(eventPublisherMock, timeout(2000)).publishEvent(event.capture());
+		assertEquals(game.getId(), ((GameLockedEvent) event.getValue()).getGameId());
+		assertEquals(weekId, ((GameLockedEvent) event.getValue()).getWeekId());
+	}
+
+	@Test
+	public void isLocked_gameKicksOff_locksAtKickoff() {
+		GameResponse game = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().plusNanos(300_000_000), "nyg", "dal", weekId);
+
+		assertFalse(scheduler.isLocked(game));
+
+		verify(eventPublisherMock, timeout(2000)).publishEvent(any(GameLockedEvent.class));
+		assertTrue(scheduler.isLocked(game.getId()));
+	}
+
+	@Test
+	public void schedule_kickoffPushedBack_unlocksAndReschedules() {
+		String gameId = UUID.randomUUID().toString();
+		GameResponse game = new GameResponse(gameId, ZonedDateTime.now().minusMinutes(1), "nyg", "dal", weekId);
+		assertTrue(scheduler.isLocked(game));
+
+		//weather delay, kickoff moved an hour later
+		GameResponse delayed = new GameResponse(gameId, ZonedDateTime.now().plusHours(1), "nyg", "dal", weekId);
+		scheduler.schedule(delayed);
+
+		assertFalse(scheduler.isLocked(gameId));
+	}
+
+	@Test
+	public void isLocked_kickoffMovedForKnownGame_rescheduled() {
+		String gameId = UUID.randomUUID().toString();
+		GameResponse game = new GameResponse(gameId, ZonedDateTime.now().minusMinutes(1), "nyg", "dal", weekId);
+		assertTrue(scheduler.isLocked(game));
+
+		GameResponse delayed = new GameResponse(gameId, ZonedDateTime.now().plusHours(1), "nyg", "dal", weekId);
+
+		assertFalse(scheduler.isLocked(delayed));
+	}
+
+	@Test
+	public void refreshWeeks_gameLongOver_forgottenButStillLocked() {
+		GameResponse game = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().minusDays(3), "nyg", "dal", weekId);
+		scheduler.schedule(game);
+		assertTrue(scheduler.isTracked(game.getId()));
+
+		scheduler.refreshWeeks();
+
+		assertFalse(scheduler.isTracked(game.getId()));
+		assertTrue(scheduler.isLocked(game));
+		assertFalse(scheduler.isTracked(game.getId()));
+		verify(eventPublisherMock, timeout(2000)).publishEvent(any(GameLockedEvent.class));
+	}
+
+	@Test
+	public void refreshWeeks_reloadsKnownWeeks() {
+		GameResponse game = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().plusDays(1), "nyg", "dal", weekId);
+		GameResponse otherGame = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().minusMinutes(1), "phi", "was", weekId);
+		scheduler.schedule(game);
+		when(gameClientMock.getGamesByWeek(weekId)).thenReturn(Arrays.asList(game, otherGame));
+
+		scheduler.refreshWeeks();
+
+		assertTrue(scheduler.isLocked(otherGame.getId()));
+		assertFalse(scheduler.isLocked(game.getId()));
+	}
+
+	@Test
+	public void isLocked_noKickoff_lockedWithoutEvent() {
+		GameResponse game = new GameResponse(UUID.randomUUID().toString(), null, "nyg", "dal", weekId);
+
+		assertTrue(scheduler.isLocked(game));
+		verify(eventPublisherMock, never()).publishEvent(any(ApplicationEvent.class));
+	}
+
+	@Test
+	public void isLocked_kickoffPassedBeforeTaskRan_locked() {
+		Instant kickoff = Instant.now().plus(Duration.ofHours(1));
+		MovableClock clock = new MovableClock(kickoff.minusSeconds(1));
+		KickoffLockScheduler late = new KickoffLockScheduler(clock);
+		GameResponse game = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.ofInstant(kickoff, ZoneOffset.UTC), "nyg", "dal", weekId);
+
+		try {
+			assertFalse(late.isLocked(game));
+
+			//the timer still has the task an hour out, the clock says kickoff
+			clock.set(kickoff);
+			assertTrue(late.isLocked(game));
+			assertTrue(late.isLocked(game.getId()));
+		} finally {
+			late.shutdown();
+		}
+	}
+
+	@Test
+	public void isLocked_slowListener_stillLocksOtherGames() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			release.await();
+			return null;
+		}).when(eventPublisherMock).publishEvent(any(ApplicationEvent.class));
+		GameResponse first = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().minusMinutes(1), "nyg", "dal", weekId);
+		GameResponse second = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().plusNanos(200_000_000), "phi", "was", weekId);
+
+		try {
+			assertTrue(scheduler.isLocked(first));
+			assertFalse(scheduler.isLocked(second));
+			verify(eventPublisherMock, timeout(2000)).publishEvent(any(ApplicationEvent.class));
+
+			Thread.sleep(400);
+			assertTrue(scheduler.isLocked(second));
+		} finally {
+			release.countDown();
+		}
+	}
+
+	private static class MovableClock extends Clock {
+
+		private volatile Instant now;
+
+		MovableClock(Instant now)
+		{
+			this.now = now;
+		}
+
+		void set(Instant now)
+		{
+			this.now = now;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
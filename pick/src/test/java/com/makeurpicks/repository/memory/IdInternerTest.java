@@ -0,0 +1,62 @@
+package com.makeurpicks.repository.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class IdInternerTest {
+
+	private IdInterner ids = new IdInterner();
+
+	@Test
+	public void intern_manyUuids_denseIdsThatRoundTrip() {
+		List<String> uuids = new ArrayList<>();
+		for (int i=0; i<10_000; i++)
+			uuids.add(UUID.randomUUID().toString());
+
+		for (int i=0; i<uuids.size(); i++)
+			assertEquals(i, ids.intern(uuids.get(i)));
+
+		for (int i=0; i<uuids.size(); i++)
+		{
+			assertEquals(i, ids.intern(uuids.get(i)));
+			assertEquals(i, ids.find(uuids.get(i)));
+			assertEquals(uuids.get(i), ids.get(i));
+		}
+		assertEquals(uuids.size(), ids.size());
+	}
+
+	@Test
+	public void intern_otherIds_keptAsStrings() {
+		int team = ids.intern("nyg");
+		int upperCaseUuid = ids.intern("0A6A2B4E-4A0B-4C2E-9F3B-1A2B3C4D5E6F");
+
+		assertNotEquals(team, upperCaseUuid);
+		assertEquals("nyg", ids.get(team));
+		assertEquals("0A6A2B4E-4A0B-4C2E-9F3B-1A2B3C4D5E6F", ids.get(upperCaseUuid));
+	}
+
+	@Test
+	public void find_unknownOrNull_none() {
+		assertEquals(IdInterner.NONE, ids.find(UUID.randomUUID().toString()));
+		assertEquals(IdInterner.NONE, ids.find("nyg"));
+		assertEquals(IdInterner.NONE, ids.intern(null));
+		assertNull(ids.get(IdInterner.NONE));
+	}
+
+	@Test
+	public void isUuid_onlyCanonicalForm() {
+		assertTrue(IdInterner.isUuid("0a6a2b4e-4a0b-4c2e-9f3b-1a2b3c4d5e6f"));
+		assertFalse(IdInterner.isUuid("0a6a2b4e-4a0b-4c2e-9f3b-1a2b3c4d5e6"));
+		assertFalse(IdInterner.isUuid("0a6a2b4e04a0b-4c2e-9f3b-1a2b3c4d5e6f"));
+		assertFalse(IdInterner.isUuid("0a6a2b4e-4a0b-4c2e-9f3b-1a2b3c4d5e6g"));
+	}
+}
@@ -0,0 +1,65 @@
+package com.makeurpicks.repository.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongIntHashMapTest {
+
+	@Test
+	public void putGetRemove_randomOperations_matchesHashMap() {
+		LongIntHashMap map = new LongIntHashMap(4);
+		Map<Long, Integer> expected = new HashMap<>();
+		Random random = new Random(7);
+
+		for (int i=0; i<200_000; i++)
+		{
+			//a small key space so removes hit and probe runs wrap
+			long key = LongIntHashMap.pack(random.nextInt(64), random.nextInt(256));
+			if (random.nextInt(3) == 0)
+			{
+				Integer removed = expected.remove(key);
+				assertEquals(removed == null ? LongIntHashMap.MISSING : removed.intValue(), map.remove(key));
+			}
+			else
+			{
+				int value = random.nextInt(Integer.MAX_VALUE);
+				Integer previous = expected.put(key, value);
+				assertEquals(previous == null ? LongIntHashMap.MISSING : previous.intValue(), map.put(key, value));
+			}
+		}
+
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Long, Integer> entry : expected.entrySet())
+			assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+
+		Map<Long, Integer> visited = new HashMap<>();
+		map.forEach((key, value) -> visited.put(key, value));
+		assertEquals(expected, visited);
+	}
+
+	@Test
+	public void pack_negativeLow_roundTrips() {
+		long key = LongIntHashMap.pack(12, -5);
+
+		assertEquals(12, LongIntHashMap.high(key));
+		assertEquals(-5, LongIntHashMap.low(key));
+	}
+
+	@Test
+	public void clear_emptiesTheMap() {
+		LongIntHashMap map = new LongIntHashMap();
+		for (int i=0; i<100; i++)
+			map.put(i, i);
+
+		map.clear();
+
+		assertTrue(map.isEmpty());
+		assertEquals(LongIntHashMap.MISSING, map.get(5));
+	}
+}
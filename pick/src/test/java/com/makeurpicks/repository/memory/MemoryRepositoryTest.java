@@ -0,0 +1,251 @@
+package com.makeurpicks.repository.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.makeurpicks.domain.DoublePick;
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+import com.makeurpicks.domain.PickChangeEvent;
+import com.makeurpicks.domain.PickHistoryEntry;
+
+public class MemoryRepositoryTest {
+
+	private IdInterner ids = new IdInterner();
+	private MemoryPickRepository pickRepository = new MemoryPickRepository(ids);
+	private MemoryPicksByWeekRepository picksByWeekRepository = new MemoryPicksByWeekRepository(ids);
+	private MemoryDoublePickRepository doublePickRepository = new MemoryDoublePickRepository(ids);
+	private MemoryPickWriteBatch pickWriteBatch = new MemoryPickWriteBatch(pickRepository, picksByWeekRepository);
+
+	private String leagueId = UUID.randomUUID().toString();
+	private String weekId = UUID.randomUUID().toString();
+
+	private Pick pick(String playerId)
+	{
+		return new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withPlayerId(playerId).withGameId(UUID.randomUUID().toString()).withTeamId("nyg").build();
+	}
+
+	@Test
+	public void save_pick_readBackAsCopy() {
+		Pick pick = pick(UUID.randomUUID().toString());
+		pick.setAdminOverride(true);
+
+		pickRepository.save(pick);
+		Pick found = pickRepository.findOne(pick.getId());
+
+		assertEquals(pick.getId(), found.getId());
+		assertEquals("nyg", found.getTeamId());
+		assertEquals(pick.getLeagueId(), found.getLeagueId());
+		assertEquals(pick.getWeekId(), found.getWeekId());
+		assertEquals(pick.getPlayerId(), found.getPlayerId());
+		assertEquals(pick.getGameId(), found.getGameId());
+		assertEquals(pick.getPickLastUpdated(), found.getPickLastUpdated());
+		assertTrue(found.isAdminOverride());
+		assertFalse(found.isNoPick());
+		assertEquals(1, pickRepository.count());
+	}
+
+	@Test
+	public void findAll_ids_nullForMissingInOrder() {
+		Pick first = pick(UUID.randomUUID().toString());
+		Pick second = pick(UUID.randomUUID().toString());
+		pickRepository.save(Arrays.asList(first, second));
+
+		Iterator<Pick> picks = pickRepository.findAll(Arrays.asList(second.getId(), UUID.randomUUID().toString(), first.getId())).iterator();
+
+		assertEquals(second.getId(), picks.next().getId());
+		assertNull(picks.next());
+		assertEquals(first.getId(), picks.next().getId());
+	}
+
+	@Test
+	public void delete_pick_goneAndNotCounted() {
+		Pick pick = pick(UUID.randomUUID().toString());
+		pickRepository.save(pick);
+
+		pickRepository.delete(pick.getId());
+		pickRepository.delete(pick.getId());
+
+		assertNull(pickRepository.findOne(pick.getId()));
+		assertFalse(pickRepository.exists(pick.getId()));
+		assertEquals(0, pickRepository.count());
+	}
+
+	@Test
+	public void savePicks_week_indexedByPlayerAndGame() {
+		String player1 = UUID.randomUUID().toString();
+		String player2 = UUID.randomUUID().toString();
+		List<Pick> picks = new ArrayList<>();
+		for (int i=0; i<16; i++)
+		{
+			picks.add(pick(player1));
+			picks.add(pick(player2));
+		}
+
+		pickWriteBatch.savePicks(picks);
+
+		Map<String, Map<String, String>> players = picksByWeekRepository.findPlayersByWeek(leagueId, weekId);
+		assertEquals(2, players.size());
+		assertEquals(16, players.get(player1).size());
+		Map<String, String> games = picksByWeekRepository.findGamesByPlayer(leagueId, weekId, player2);
+		assertEquals(16, games.size());
+		for (Pick pick : picks)
+		{
+			assertEquals(pick.getId(), players.get(pick.getPlayerId()).get(pick.getGameId()));
+			assertEquals(pick.getId(), picksByWeekRepository.findPicksByGame(leagueId, weekId, pick.getPlayerId(), pick.getGameId()));
+			assertEquals(pick.getId(), pickRepository.findOne(pick.getId()).getId());
+		}
+		assertEquals(1, picksByWeekRepository.findWeeksByLeague(leagueId).size());
+	}
+
+	@Test
+	public void findPlayersByWeek_unknownWeek_empty() {
+		picksByWeekRepository.createPick(pick(UUID.randomUUID().toString()));
+
+		assertTrue(picksByWeekRepository.findPlayersByWeek(leagueId, UUID.randomUUID().toString()).isEmpty());
+		assertTrue(picksByWeekRepository.findGamesByPlayer(leagueId, weekId, UUID.randomUUID().toString()).isEmpty());
+		assertEquals("", picksByWeekRepository.findPicksByGame(leagueId, weekId, UUID.randomUUID().toString(), UUID.randomUUID().toString()));
+		assertTrue(picksByWeekRepository.findWeeksByLeague(UUID.randomUUID().toString()).isEmpty());
+	}
+
+	@Test
+	public void createPick_sameGameAgain_keepsFirstPickId() {
+		Pick pick = pick(UUID.randomUUID().toString());
+		picksByWeekRepository.createPick(pick);
+		Pick changed = new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withPlayerId(pick.getPlayerId()).withGameId(pick.getGameId()).withTeamId("dal").build();
+
+		picksByWeekRepository.createPick(changed);
+
+		assertEquals(pick.getId(), changed.getId());
+		assertEquals(pick.getId(), picksByWeekRepository.findPicksByGame(leagueId, weekId, pick.getPlayerId(), pick.getGameId()));
+		assertEquals(1, picksByWeekRepository.findGamesByPlayer(leagueId, weekId, pick.getPlayerId()).size());
+	}
+
+	@Test
+	public void doublePick_saveFindDelete() {
+		String playerId = UUID.randomUUID().toString();
+		Pick pick = pick(playerId);
+		DoublePick doublePick = new DoublePick(leagueId, weekId, playerId, pick.getId(), pick.getGameId(), false);
+		doublePick.setPreviousDoubleGameId(UUID.randomUUID().toString());
+
+		assertNull(doublePickRepository.findAllForLeagueAndWeek(leagueId, weekId));
+		doublePickRepository.save(doublePick);
+
+		DoublePick found = doublePickRepository.findDoubleForPlayer(leagueId, weekId, playerId);
+		assertEquals(doublePick.getId(), found.getId());
+		assertEquals(pick.getId(), found.getPickId());
+		assertEquals(pick.getGameId(), found.getGameId());
+		assertEquals(doublePick.getPreviousDoubleGameId(), found.getPreviousDoubleGameId());
+		assertEquals(1, doublePickRepository.findAllForLeagueAndWeek(leagueId, weekId).size());
+
+		doublePickRepository.delete(found);
+		assertNull(doublePickRepository.findDoubleForPlayer(leagueId, weekId, playerId));
+		assertNull(doublePickRepository.findAllForLeagueAndWeek(leagueId, weekId));
+	}
+
+	@Test
+	public void changeStream_readAfterAndTrim() {
+		MemoryPickChangeStream changeStream = new MemoryPickChangeStream(10);
+		List<PickChangeEvent> events = new ArrayList<>();
+		for (int i=0; i<25; i++)
+			events.add(PickChangeEvent.created(pick(UUID.randomUUID().toString())));
+
+		changeStream.append(events.subList(0, 5));
+		assertEquals(5, changeStream.lastSequence(0));
+		assertEquals(3, changeStream.readAfter(0, 2, 100).get(0).getSequence());
+		assertEquals(2, changeStream.readAfter(0, 2, 2).size());
+		assertTrue(changeStream.readAfter(0, 5, 100).isEmpty());
+
+		changeStream.append(events.subList(5, 25));
+		List<PickChangeEvent> read = changeStream.readAfter(0, 0, 100);
+		assertEquals(10, read.size());
+		assertEquals(16, read.get(0).getSequence());
+		assertEquals(events.get(24), read.get(9));
+	}
+
+	@Test
+	public void consensus_recordMoveAndRebuild() {
+		MemoryPickConsensusRepository consensusRepository = new MemoryPickConsensusRepository();
+		Pick first = pick(UUID.randomUUID().toString());
+		Pick second = pick(UUID.randomUUID().toString());
+		second.setGameId(first.getGameId());
+
+		consensusRepository.record(Arrays.asList(first, second, first));
+		assertEquals(Long.valueOf(2), consensusRepository.findByWeek(leagueId, weekId).get(first.getGameId()).get("nyg"));
+
+		first.setTeamId("dal");
+		consensusRepository.record(Arrays.asList(first));
+		Map<String, Long> teams = consensusRepository.findByWeek(leagueId, weekId).get(first.getGameId());
+		assertEquals(Long.valueOf(1), teams.get("nyg"));
+		assertEquals(Long.valueOf(1), teams.get("dal"));
+
+		consensusRepository.rebuild(leagueId, weekId, Arrays.asList(first));
+		teams = consensusRepository.findByWeek(leagueId, weekId).get(first.getGameId());
+		assertNull(teams.get("nyg"));
+		assertEquals(Long.valueOf(1), teams.get("dal"));
+	}
+
+	@Test
+	public void weekVersion_countsUpPerLeagueWeek() {
+		MemoryWeekVersionRepository versionRepository = new MemoryWeekVersionRepository();
+
+		assertEquals(0, versionRepository.findVersion(leagueId, weekId));
+		assertEquals(1, versionRepository.increment(leagueId, weekId));
+		assertEquals(2, versionRepository.increment(leagueId, weekId));
+		assertEquals(1, versionRepository.increment(leagueId, UUID.randomUUID().toString()));
+		assertEquals(2, versionRepository.findVersion(leagueId, weekId));
+	}
+
+	@Test
+	public void history_pagedByKickoffAcrossLeagues() {
+		MemoryPickHistoryRepository historyRepository = new MemoryPickHistoryRepository();
+		String playerId = UUID.randomUUID().toString();
+		Pick late = pick(playerId);
+		Pick early = pick(playerId);
+		early.setLeagueId(UUID.randomUUID().toString());
+		Pick moved = pick(playerId);
+
+		historyRepository.record("2016", Arrays.asList(late, early, moved), pick -> pick == late ? 300 : pick == early ? 100 : 200);
+		historyRepository.record("2016", Arrays.asList(early), pick -> 100);
+		historyRepository.remove("2016", moved);
+		moved.setGameId(UUID.randomUUID().toString());
+		historyRepository.record("2016", Arrays.asList(moved), pick -> 400);
+
+		assertEquals(3, historyRepository.countBySeason(playerId, "2016"));
+		List<PickHistoryEntry> page = historyRepository.findBySeason(playerId, "2016", 1, 5);
+		assertEquals(Arrays.asList(PickHistoryEntry.of(late), PickHistoryEntry.of(moved)), page);
+		assertEquals(PickHistoryEntry.of(early), historyRepository.findBySeason(playerId, "2016", 0, 1).get(0));
+		assertEquals(0, historyRepository.countBySeason(playerId, "2015"));
+	}
+
+	@Test
+	public void deleteWeek_dropsTheWeeksIndexAndDoublesOnly() {
+		Pick pick = pick(UUID.randomUUID().toString());
+		String otherWeek = UUID.randomUUID().toString();
+		Pick other = pick(pick.getPlayerId());
+		other.setWeekId(otherWeek);
+		pickWriteBatch.savePicks(Arrays.asList(pick, other));
+		doublePickRepository.save(new DoublePick(leagueId, weekId, pick.getPlayerId(), pick.getId(), pick.getGameId(), true));
+		doublePickRepository.save(new DoublePick(leagueId, otherWeek, pick.getPlayerId(), other.getId(), other.getGameId(), true));
+
+		picksByWeekRepository.deleteWeek(leagueId, weekId);
+		doublePickRepository.deleteWeek(leagueId, weekId);
+
+		assertTrue(picksByWeekRepository.findPlayersByWeek(leagueId, weekId).isEmpty());
+		assertEquals(other.getId(), picksByWeekRepository.findPicksByGame(leagueId, otherWeek, other.getPlayerId(), other.getGameId()));
+		assertEquals(Arrays.asList(otherWeek), new ArrayList<>(picksByWeekRepository.findWeeksByLeague(leagueId).keySet()));
+		assertNull(doublePickRepository.findAllForLeagueAndWeek(leagueId, weekId));
+		assertEquals(other.getId(), doublePickRepository.findDoubleForPlayer(leagueId, otherWeek, pick.getPlayerId()).getPickId());
+	}
+}
@@ -0,0 +1,233 @@
+package com.makeurpicks.repository.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Test;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.makeurpicks.domain.DoublePick;
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+import com.makeurpicks.domain.WeekSnapshot;
+import com.makeurpicks.game.GameResponse;
+
+public class CompactRedisSerializerTest {
+
+	private Log log = LogFactory.getLog(CompactRedisSerializerTest.class);
+
+	private static final int WEEKS = 17;
+	private static final int GAMES = 16;
+	private static final int PLAYERS = 100;
+
+	private Jackson2JsonRedisSerializer<Pick> pickJson = new Jackson2JsonRedisSerializer<>(Pick.class);
+	private CompactPickRedisSerializer compactPick = new CompactPickRedisSerializer(pickJson, true);
+	private CompactPickRedisSerializer jsonPick = new CompactPickRedisSerializer(pickJson, false);
+
+	@Test
+	public void pick_roundTrip_keepsEveryField() {
+		Pick pick = new PickBuilder().withLeagueId(uuid()).withWeekId(uuid()).withPlayerId("bob@example.com").withGameId(uuid()).withTeamId("nyg").build();
+		pick.setNoPick(true);
+		pick.setAdminOverride(true);
+
+		Pick read = compactPick.deserialize(compactPick.serialize(pick));
+
+		assertPick(pick, read);
+		assertTrue(read.isNoPick());
+		assertTrue(read.isAdminOverride());
+	}
+
+	@Test
+	public void doublePick_roundTrip_keepsEveryField() {
+		DoublePick doublePick = new DoublePick(uuid(), uuid(), "player1", uuid(), uuid(), true);
+		doublePick.setPreviousDoubleGameId(uuid());
+		CompactDoublePickRedisSerializer serializer = new CompactDoublePickRedisSerializer(true);
+
+		DoublePick read = serializer.deserialize(serializer.serialize(doublePick));
+
+		assertEquals(doublePick.getId(), read.getId());
+		assertEquals(doublePick.getPickId(), read.getPickId());
+		assertEquals(doublePick.getGameId(), read.getGameId());
+		assertEquals(doublePick.getPlayerId(), read.getPlayerId());
+		assertEquals(doublePick.getPreviousDoubleGameId(), read.getPreviousDoubleGameId());
+		assertTrue(read.isHasDoubleGameStarted());
+		assertFalse(read.isAdminOverride());
+	}
+
+	@Test
+	public void id_uuidAndOtherIds_roundTrip() {
+		CompactIdRedisSerializer serializer = new CompactIdRedisSerializer(true);
+		String uuid = uuid();
+
+		assertEquals(20, serializer.serialize(uuid).length);
+		assertEquals(uuid, serializer.deserialize(serializer.serialize(uuid)));
+		assertEquals("not-a-uuid", serializer.deserialize(serializer.serialize("not-a-uuid")));
+		//upper case would not come back the same from 16 bytes so it is kept as text
+		assertEquals(uuid.toUpperCase(), serializer.deserialize(serializer.serialize(uuid.toUpperCase())));
+	}
+
+	@Test
+	public void deserialize_jsonValue_readsThroughFallback() {
+		Pick pick = new PickBuilder().withLeagueId(uuid()).withWeekId(uuid()).withPlayerId(uuid()).withGameId(uuid()).withTeamId("dal").build();
+
+		byte[] json = jsonPick.serialize(pick);
+
+		assertFalse(CompactRedisSerializer.isCompact(json));
+		assertPick(pick, compactPick.deserialize(json));
+		assertPick(pick, jsonPick.deserialize(compactPick.serialize(pick)));
+
+		String pickId = uuid();
+		assertEquals(pickId, new CompactIdRedisSerializer(true).deserialize(pickId.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void deserialize_unknownTag_isSkipped() {
+		Pick pick = new PickBuilder().withLeagueId(uuid()).withGameId(uuid()).build();
+		byte[] bytes = compactPick.serialize(pick);
+
+		//tag 15 as length prefixed bytes, what a newer version might add
+		byte[] extra = new byte[] {(byte) ((15 << 3) | CompactRedisSerializer.WIRE_BYTES), 2, 'h', 'i'};
+		byte[] newer = Arrays.copyOf(bytes, bytes.length + extra.length);
+		System.arraycopy(extra, 0, newer, bytes.length, extra.length);
+
+		assertPick(pick, compactPick.deserialize(newer));
+	}
+
+	/**
+	 * A full league week frozen, read back and compared with the picks it was
+	 * frozen from, then its size against the same picks as json.
+	 */
+	@Test
+	public void weekSnapshot_roundTrip_keepsPicksDoublesAndPoints() {
+		String leagueId = uuid();
+		String weekId = uuid();
+		List<GameResponse> games = new ArrayList<>();
+		Map<String, Map<String, Pick>> picksByPlayer = new HashMap<>();
+		List<Pick> picks = new ArrayList<>();
+		for (int g=0; g<GAMES; g++)
+		{
+			GameResponse game = new GameResponse(uuid(), ZonedDateTime.now().minusDays(1).plusMinutes(g), "fav"+g, "dog"+g, weekId);
+			game.setFavScore(21);
+			game.setDogScore(g%2==0 ? 24 : 10);
+			games.add(game);
+			for (int p=0; p<PLAYERS; p++)
+			{
+				Pick pick = new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withPlayerId("player"+p).withGameId(game.getId())
+						.withTeamId(p%2==0 ? game.getFavId() : game.getDogId()).build();
+				picksByPlayer.computeIfAbsent(pick.getPlayerId(), key -> new HashMap<>()).put(game.getId(), pick);
+				picks.add(pick);
+			}
+		}
+		Map<String, DoublePick> doubles = new HashMap<>();
+		Pick doubled = picksByPlayer.get("player1").get(games.get(0).getId());
+		doubles.put("player1", new DoublePick(leagueId, weekId, "player1", doubled.getId(), doubled.getGameId(), true));
+
+		WeekSnapshot snapshot = WeekSnapshot.freeze(leagueId, weekId, picksByPlayer, doubles, games, 1000);
+		CompactWeekSnapshotRedisSerializer serializer = new CompactWeekSnapshotRedisSerializer();
+		byte[] bytes = serializer.serialize(snapshot);
+		WeekSnapshot read = serializer.deserialize(bytes);
+
+		Map<String, Map<String, Pick>> readPicks = read.toPicksByPlayer();
+		assertEquals(PLAYERS, readPicks.size());
+		for (Pick pick : picks)
+		{
+			Pick readPick = readPicks.get(pick.getPlayerId()).get(pick.getGameId());
+			assertEquals(pick.getId(), readPick.getId());
+			assertEquals(pick.getTeamId(), readPick.getTeamId());
+			assertEquals(pick.getLeagueId(), readPick.getLeagueId());
+			assertEquals(pick.getWeekId(), readPick.getWeekId());
+		}
+		assertEquals(doubled.getId(), read.toDoublePicks().get("player1").getPickId());
+		//the dog covers the even games, odd players took the dog and player1 doubled a dog win
+		assertEquals(Integer.valueOf(GAMES/2), read.getPoints().get("player0"));
+		assertEquals(Integer.valueOf(GAMES/2 + 1), read.getPoints().get("player1"));
+		assertEquals(snapshot.getPoints(), read.getPoints());
+		assertEquals("dog0", read.getWinners().get(games.get(0).getId()));
+
+		long jsonBytes = 0;
+		for (Pick pick : picks)
+			jsonBytes += jsonPick.serialize(pick).length;
+		log.info("week of "+picks.size()+" picks, json "+jsonBytes+" bytes, snapshot "+bytes.length+" bytes");
+		assertTrue(bytes.length * 5 < jsonBytes);
+	}
+
+	/**
+	 * One season for a 100 player league, every player picking every game.
+	 * Sizes are exact, the timings are only a rough guide from a single run.
+	 */
+	@Test
+	public void season_compactIsSmallerThanJson() {
+		List<Pick> season = new ArrayList<>();
+		for (int w=0; w<WEEKS; w++)
+		{
+			String leagueId = uuid();
+			String weekId = uuid();
+			for (int g=0; g<GAMES; g++)
+			{
+				String gameId = uuid();
+				for (int p=0; p<PLAYERS; p++)
+					season.add(new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withPlayerId(uuid()).withGameId(gameId).withTeamId(g%2==0 ? "nyg" : "dal").build());
+			}
+		}
+
+		long jsonBytes = measure("json", jsonPick, season);
+		long compactBytes = measure("compact", compactPick, season);
+
+		log.info("season of "+season.size()+" picks, json "+jsonBytes+" bytes, compact "+compactBytes+" bytes");
+		assertTrue(compactBytes * 2 < jsonBytes);
+	}
+
+	private long measure(String name, RedisSerializer<Pick> serializer, List<Pick> season)
+	{
+		//warm up so the timing isn't all class loading and jit
+		for (int i=0; i<3; i++)
+			for (Pick pick : season)
+				serializer.deserialize(serializer.serialize(pick));
+
+		long bytes = 0;
+		long start = System.nanoTime();
+		List<byte[]> values = new ArrayList<>(season.size());
+		for (Pick pick : season)
+		{
+			byte[] value = serializer.serialize(pick);
+			bytes += value.length;
+			values.add(value);
+		}
+		long written = System.nanoTime();
+		for (byte[] value : values)
+			serializer.deserialize(value);
+		long read = System.nanoTime();
+
+		log.info(name+": "+bytes/season.size()+" bytes per pick, write "+(written-start)/season.size()+"ns, read "+(read-written)/season.size()+"ns per pick");
+		return bytes;
+	}
+
+	private void assertPick(Pick expected, Pick actual)
+	{
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getTeamId(), actual.getTeamId());
+		assertEquals(expected.getLeagueId(), actual.getLeagueId());
+		assertEquals(expected.getPlayerId(), actual.getPlayerId());
+		assertEquals(expected.getWeekId(), actual.getWeekId());
+		assertEquals(expected.getGameId(), actual.getGameId());
+		assertEquals(expected.getPickLastUpdated(), actual.getPickLastUpdated());
+	}
+
+	private String uuid()
+	{
+		return UUID.randomUUID().toString();
+	}
+}
@@ -0,0 +1,314 @@
+package com.makeurpicks.repository.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import com.makeurpicks.domain.DoublePick;
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+import com.makeurpicks.domain.PickChangeEvent;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.util.JedisClusterCRC16;
+import redis.embedded.RedisServer;
+
+/**
+ * Runs the repositories against a three node cluster started on this machine,
+ * each node owning a third of the slots.  Skipped when the nodes can't start.
+ */
+public class RedisClusterTest {
+
+	private static final int[] PORTS = {16391, 16392, 16393};
+	private static final int SLOTS = 16384;
+
+	private static final List<RedisServer> nodes = new ArrayList<>();
+	private static File clusterDir;
+
+	private JedisConnectionFactory connectionFactory;
+	private RedisPickRepository pickRepository;
+	private RedisPicksByLeagueWeekRepository picksByWeekRepository;
+	private RedisPickWriteBatch pickWriteBatch;
+	private RedisDoublePlckRepository doublePickRepository;
+	private RedisPickConsensusRepository consensusRepository;
+	private RedisWeekVersionRepository weekVersionRepository;
+	private RedisPickChangeStream pickChangeStream;
+
+	@BeforeClass
+	public static void startCluster()
+	{
+		try {
+			clusterDir = Files.createTempDirectory("pick-cluster").toFile();
+			for (int port : PORTS)
+			{
+				RedisServer node = RedisServer.newRedisServer()
+						.port(port)
+						.setting("cluster-enabled yes")
+						.setting("cluster-config-file " + new File(clusterDir, "nodes-" + port + ".conf").getAbsolutePath())
+						.setting("cluster-node-timeout 5000")
+						.setting("appendonly no")
+						.build();
+				node.start();
+				nodes.add(node);
+			}
+
+			for (int i=0; i<PORTS.length; i++)
+			{
+				try (Jedis jedis = new Jedis("127.0.0.1", PORTS[i])) {
+					int from = SLOTS * i / PORTS.length;
+					int to = SLOTS * (i + 1) / PORTS.length;
+					jedis.clusterAddSlots(IntStream.range(from, to).toArray());
+					if (i > 0)
+						jedis.clusterMeet("127.0.0.1", PORTS[0]);
+				}
+			}
+			awaitClusterOk();
+		} catch (Exception e) {
+			stopNodes();
+		}
+		Assume.assumeTrue(nodes.size() == PORTS.length);
+	}
+
+	private static void awaitClusterOk() throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + 20000;
+		while (System.currentTimeMillis() < deadline)
+		{
+			boolean ok = true;
+			for (int port : PORTS)
+			{
+				try (Jedis jedis = new Jedis("127.0.0.1", port)) {
+					ok &= jedis.clusterInfo().contains("cluster_state:ok");
+				}
+			}
+			if (ok)
+				return;
+			Thread.sleep(100);
+		}
+		throw new IllegalStateException("cluster did not come up");
+	}
+
+	@AfterClass
+	public static void stopCluster()
+	{
+		stopNodes();
+	}
+
+	private static void stopNodes()
+	{
+		for (RedisServer node : nodes)
+		{
+			try {
+				node.stop();
+			} catch (IOException e) {
+				//nothing left to clean up
+			}
+		}
+		nodes.clear();
+	}
+
+	@Before
+	public void setup()
+	{
+		List<String> hosts = new ArrayList<>();
+		for (int port : PORTS)
+			hosts.add("127.0.0.1:" + port);
+		connectionFactory = new JedisConnectionFactory(new RedisClusterConfiguration(hosts));
+		connectionFactory.afterPropertiesSet();
+
+		RedisTemplate<String, Pick> pickTemplate = new RedisTemplate<>();
+		pickTemplate.setConnectionFactory(connectionFactory);
+		pickTemplate.setKeySerializer(new StringRedisSerializer());
+		pickTemplate.setHashKeySerializer(new StringRedisSerializer());
+		pickTemplate.setHashValueSerializer(new CompactPickRedisSerializer(new Jackson2JsonRedisSerializer<>(Pick.class), true));
+		pickTemplate.afterPropertiesSet();
+
+		RedisTemplate<String, String> indexTemplate = new RedisTemplate<>();
+		indexTemplate.setConnectionFactory(connectionFactory);
+		indexTemplate.setKeySerializer(new StringRedisSerializer());
+		indexTemplate.setValueSerializer(new StringRedisSerializer());
+		indexTemplate.setHashKeySerializer(new StringRedisSerializer());
+		indexTemplate.setHashValueSerializer(new CompactIdRedisSerializer(true));
+		indexTemplate.afterPropertiesSet();
+
+		RedisTemplate<String, DoublePick> doubleTemplate = new RedisTemplate<>();
+		doubleTemplate.setConnectionFactory(connectionFactory);
+		doubleTemplate.setKeySerializer(new StringRedisSerializer());
+		doubleTemplate.setHashKeySerializer(new StringRedisSerializer());
+		doubleTemplate.setHashValueSerializer(new CompactDoublePickRedisSerializer(true));
+		doubleTemplate.afterPropertiesSet();
+
+		pickRepository = new RedisPickRepository(pickTemplate);
+		picksByWeekRepository = new RedisPicksByLeagueWeekRepository(indexTemplate);
+		pickWriteBatch = new RedisPickWriteBatch(indexTemplate, pickRepository, picksByWeekRepository);
+		doublePickRepository = new RedisDoublePlckRepository(doubleTemplate);
+		consensusRepository = new RedisPickConsensusRepository(new StringRedisTemplate(connectionFactory));
+		weekVersionRepository = new RedisWeekVersionRepository(new StringRedisTemplate(connectionFactory));
+		pickChangeStream = new RedisPickChangeStream(indexTemplate, 1000);
+	}
+
+	@After
+	public void tearDown()
+	{
+		pickRepository.deleteAll();
+		picksByWeekRepository.deleteAll();
+		doublePickRepository.deleteAll();
+		consensusRepository.deleteAll();
+		weekVersionRepository.deleteAll();
+		pickChangeStream.deleteAll();
+		connectionFactory.destroy();
+	}
+
+	private List<Pick> week(String leagueId, String weekId, int players)
+	{
+		List<Pick> picks = new ArrayList<>();
+		for (int player=0; player<players; player++)
+		{
+			String playerId = UUID.randomUUID().toString();
+			for (int game=0; game<16; game++)
+				picks.add(new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withPlayerId(playerId).withGameId("game" + game).withTeamId(game % 2 == 0 ? "nyg" : "dal").build());
+		}
+		return picks;
+	}
+
+	@Test
+	public void isCluster_clusterConnectionFactory_true() {
+		assertTrue(RedisKeys.isCluster(connectionFactory));
+	}
+
+	@Test
+	public void savePicks_clusterCantPipeline_weekStillSavedAndRead() {
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		List<Pick> picks = week(leagueId, weekId, 10);
+
+		pickWriteBatch.savePicks(picks);
+
+		Map<String, Map<String, String>> players = picksByWeekRepository.findPlayersByWeek(leagueId, weekId);
+		assertEquals(10, players.size());
+		List<String> ids = new ArrayList<>();
+		for (Pick pick : picks)
+			ids.add(pick.getId());
+		for (Pick pick : pickRepository.findAll(leagueId, ids))
+			assertNotNull(pick);
+		for (Pick pick : pickRepository.findAll(ids))
+			assertNotNull(pick);
+		assertEquals("nyg", pickRepository.findOne(picks.get(0).getId()).getTeamId());
+		assertEquals(1, picksByWeekRepository.findWeeksByLeague(leagueId).size());
+		assertEquals(picks.size(), pickRepository.count());
+	}
+
+	@Test
+	public void scripts_runOnTheNodeOwningTheLeague() {
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		List<Pick> picks = week(leagueId, weekId, 3);
+
+		for (Pick pick : picks)
+			picksByWeekRepository.createPick(pick);
+		consensusRepository.record(picks);
+		Pick changed = picks.get(0);
+		changed.setTeamId("dal");
+		consensusRepository.record(Arrays.asList(changed));
+
+		assertEquals(48, picksByWeekRepository.findPlayersByWeek(leagueId, weekId).values().stream().mapToInt(Map::size).sum());
+		assertEquals(Long.valueOf(2), consensusRepository.findByWeek(leagueId, weekId).get("game0").get("nyg"));
+		assertEquals(Long.valueOf(1), consensusRepository.findByWeek(leagueId, weekId).get("game0").get("dal"));
+
+		consensusRepository.rebuild(leagueId, weekId, picks.subList(0, 16));
+		assertEquals(Long.valueOf(1), consensusRepository.findByWeek(leagueId, weekId).get("game0").get("dal"));
+		assertNull(consensusRepository.findByWeek(leagueId, weekId).get("game0").get("nyg"));
+
+		pickChangeStream.append(new ArrayList<>(Arrays.asList(PickChangeEvent.created(picks.get(1)), PickChangeEvent.created(picks.get(2)))));
+		int shard = pickChangeStream.shardOf(leagueId);
+		assertEquals(2, pickChangeStream.readAfter(shard, 0, 10).size());
+		assertEquals(2, pickChangeStream.lastSequence(shard));
+	}
+
+	@Test
+	public void leagueKeys_shareOneSlot() {
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		List<Pick> picks = week(leagueId, weekId, 2);
+
+		pickWriteBatch.savePicks(picks);
+		consensusRepository.record(picks);
+		weekVersionRepository.increment(leagueId, weekId);
+		doublePickRepository.save(new DoublePick(leagueId, weekId, picks.get(0).getPlayerId(), picks.get(0).getId(), picks.get(0).getGameId(), false));
+
+		List<String> keys = RedisKeys.findKeys(new StringRedisTemplate(connectionFactory), "*{" + leagueId + "}*");
+		assertEquals(7, keys.size());
+		Set<Integer> slots = new HashSet<>();
+		for (String key : keys)
+			slots.add(JedisClusterCRC16.getSlot(key));
+		assertEquals(1, slots.size());
+		assertNotNull(doublePickRepository.findDoubleForPlayer(leagueId, weekId, picks.get(0).getPlayerId()));
+		assertEquals(1, weekVersionRepository.findVersion(leagueId, weekId));
+	}
+
+	@Test
+	public void seasonHistory_leaguesOnOtherNodes_loadedTogether() {
+		RedisPickHistoryRepository historyRepository = new RedisPickHistoryRepository(new StringRedisTemplate(connectionFactory));
+		String playerId = UUID.randomUUID().toString();
+		Map<String, List<String>> byLeague = new HashMap<>();
+		List<Pick> season = new ArrayList<>();
+		for (int league=0; league<6; league++)
+		{
+			String leagueId = UUID.randomUUID().toString();
+			Pick pick = new PickBuilder().withLeagueId(leagueId).withWeekId("week1").withPlayerId(playerId).withGameId("game1").withTeamId("nyg").build();
+			pickRepository.save(pick);
+			season.add(pick);
+			byLeague.put(leagueId, Arrays.asList(pick.getId()));
+		}
+		historyRepository.record("2016", season, pick -> 1000);
+
+		try {
+			assertEquals(6, historyRepository.findBySeason(playerId, "2016", 0, 10).size());
+			assertEquals(6, pickRepository.findAllByLeague(byLeague).size());
+		} finally {
+			historyRepository.deleteAll();
+		}
+	}
+
+	@Test
+	public void leagues_spreadOverTheNodes() {
+		Set<Integer> nodesUsed = new HashSet<>();
+		for (int i=0; i<30; i++)
+		{
+			String leagueId = UUID.randomUUID().toString();
+			pickWriteBatch.savePicks(week(leagueId, "week1", 1));
+			int slot = JedisClusterCRC16.getSlot(RedisKeys.tag(RedisPickRepository.PICK_KEY, leagueId));
+			nodesUsed.add(slot * PORTS.length / SLOTS);
+		}
+
+		assertEquals(PORTS.length, nodesUsed.size());
+		assertEquals(30 * 16, pickRepository.count());
+	}
+}
@@ -0,0 +1,100 @@
+package com.makeurpicks.repository.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.makeurpicks.domain.DoublePick;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RedisDoublePlckRepositoryTest {
+
+	@Mock
+	private RedisTemplate<String, DoublePick> redisTemplateMock;
+
+	@Mock
+	private RedisTemplate<String, String> legacyTemplateMock;
+
+	@Mock
+	private HashOperations<String, Object, Object> legacyHashOpsMock;
+
+	@Mock
+	private HashOperations<String, Object, Object> hashOpsMock;
+
+	private RedisDoublePlckRepository repository;
+
+	private String leagueId = UUID.randomUUID().toString();
+	private String weekId = UUID.randomUUID().toString();
+
+	@Before
+	public void setup()
+	{
+		when(redisTemplateMock.opsForHash()).thenReturn(hashOpsMock);
+		repository = new RedisDoublePlckRepository(redisTemplateMock);
+	}
+
+	@Test
+	public void save_writesOneFieldForPlayer() {
+		DoublePick doublePick = new DoublePick(leagueId, weekId, "player1", "pick1", "game1", false);
+
+		repository.save(doublePick);
+
+		verify(hashOpsMock).put(RedisKeys.leagueWeek(RedisDoublePlckRepository.DOUBLE_PICK_KEY, leagueId, weekId), "player1", doublePick);
+	}
+
+	@Test
+	public void delete_removesOnlyPlayersField() {
+		DoublePick doublePick = new DoublePick(leagueId, weekId, "player1", "pick1", "game1", false);
+
+		repository.delete(doublePick);
+
+		verify(hashOpsMock).delete(RedisKeys.leagueWeek(RedisDoublePlckRepository.DOUBLE_PICK_KEY, leagueId, weekId), "player1");
+	}
+
+	@Test
+	public void findDoubleForPlayer_readsPlayersField() {
+		DoublePick doublePick = new DoublePick(leagueId, weekId, "player1", "pick1", "game1", false);
+		when(hashOpsMock.get(RedisKeys.leagueWeek(RedisDoublePlckRepository.DOUBLE_PICK_KEY, leagueId, weekId), "player1")).thenReturn(doublePick);
+
+		DoublePick found = repository.findDoubleForPlayer(leagueId, weekId, "player1");
+
+		assertEquals("pick1", found.getPickId());
+		assertEquals("game1", found.getGameId());
+		assertNull(repository.findDoubleForPlayer(leagueId, weekId, "player2"));
+	}
+
+	@Test
+	public void migrateLegacyLayout_splitsJsonMapIntoFields() throws Exception {
+		DoublePick doublePick1 = new DoublePick(leagueId, weekId, "player1", "pick1", "game1", false);
+		DoublePick doublePick2 = new DoublePick(leagueId, weekId, "player2", "pick2", "game2", false);
+		Map<String, DoublePick> legacyMap = new HashMap<>();
+		legacyMap.put("player1", doublePick1);
+		legacyMap.put("player2", doublePick2);
+
+		Map<Object, Object> legacyEntries = new HashMap<>();
+		legacyEntries.put(leagueId+"+"+weekId, new ObjectMapper().writeValueAsString(legacyMap));
+		when(legacyTemplateMock.opsForHash()).thenReturn(legacyHashOpsMock);
+		when(legacyHashOpsMock.entries(RedisDoublePlckRepository.LEGACY_KEY)).thenReturn(legacyEntries);
+
+		assertEquals(1, repository.migrateLegacyLayout(legacyTemplateMock));
+
+		String key = RedisKeys.leagueWeek(RedisDoublePlckRepository.DOUBLE_PICK_KEY, leagueId, weekId);
+		verify(hashOpsMock).putIfAbsent(key, "player1", doublePick1);
+		verify(hashOpsMock).putIfAbsent(key, "player2", doublePick2);
+		verify(legacyHashOpsMock).delete(RedisDoublePlckRepository.LEGACY_KEY, leagueId+"+"+weekId);
+	}
+}
@@ -0,0 +1,156 @@
+package com.makeurpicks.repository.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+import com.makeurpicks.domain.PickChangeEvent;
+
+import redis.embedded.RedisServer;
+
+public class RedisPickChangeStreamTest {
+
+	private static final int PORT = 16382;
+
+	private static RedisServer redisServer;
+
+	private JedisConnectionFactory connectionFactory;
+	private RedisPickChangeStream changeStream;
+
+	@BeforeClass
+	public static void startRedis()
+	{
+		try {
+			redisServer = new RedisServer(PORT);
+			redisServer.start();
+		} catch (Exception e) {
+			redisServer = null;
+		}
+		Assume.assumeNotNull(redisServer);
+	}
+
+	@AfterClass
+	public static void stopRedis() throws IOException
+	{
+		if (redisServer != null)
+			redisServer.stop();
+	}
+
+	@Before
+	public void setup()
+	{
+		connectionFactory = new JedisConnectionFactory();
+		connectionFactory.setPort(PORT);
+		connectionFactory.afterPropertiesSet();
+
+		RedisTemplate<String, String> template = new RedisTemplate<>();
+		template.setConnectionFactory(connectionFactory);
+		template.setKeySerializer(new StringRedisSerializer());
+		template.setValueSerializer(new StringRedisSerializer());
+		template.afterPropertiesSet();
+
+		changeStream = new RedisPickChangeStream(template, 10);
+		shard = changeStream.shardOf("l1");
+	}
+
+	@After
+	public void tearDown()
+	{
+		connectionFactory.getConnection().flushDb();
+		connectionFactory.destroy();
+	}
+
+	private int shard;
+
+	private List<PickChangeEvent> created(int count)
+	{
+		List<PickChangeEvent> events = new ArrayList<>();
+		for (int i=0; i<count; i++)
+		{
+			Pick pick = new PickBuilder().withLeagueId("l1").withWeekId("w1").withPlayerId(UUID.randomUUID().toString()).withGameId("g"+i).withTeamId("nyg").build();
+			events.add(PickChangeEvent.created(pick));
+		}
+		return events;
+	}
+
+	@Test
+	public void append_setsSequencesInOrder() {
+		List<PickChangeEvent> first = created(3);
+		List<PickChangeEvent> second = created(2);
+
+		changeStream.append(first);
+		changeStream.append(second);
+
+		assertEquals(1, first.get(0).getSequence());
+		assertEquals(3, first.get(2).getSequence());
+		assertEquals(4, second.get(0).getSequence());
+		assertEquals(5, changeStream.lastSequence(shard));
+	}
+
+	@Test
+	public void readAfter_returnsLaterEventsOldestFirst() {
+		List<PickChangeEvent> events = created(5);
+		Pick changed = new PickBuilder().withLeagueId("l1").withWeekId("w1").withPlayerId("p1").withGameId("g9").withTeamId("dal").build();
+		events.add(PickChangeEvent.updated(changed, "nyg"));
+		changeStream.append(events);
+
+		List<PickChangeEvent> read = changeStream.readAfter(shard, 2, 100);
+
+		assertEquals(4, read.size());
+		assertEquals(3, read.get(0).getSequence());
+		assertEquals("g2", read.get(0).getGameId());
+		PickChangeEvent update = read.get(3);
+		assertEquals(6, update.getSequence());
+		assertEquals(PickChangeEvent.Type.PICK_UPDATED, update.getType());
+		assertEquals("nyg", update.getOldTeamId());
+		assertEquals("dal", update.getNewTeamId());
+		assertEquals(2, changeStream.readAfter(shard, 2, 2).size());
+		assertTrue(changeStream.readAfter(shard, 6, 100).isEmpty());
+	}
+
+	@Test
+	public void append_pastMaxLength_trimsOldest() {
+		changeStream.append(created(25));
+
+		List<PickChangeEvent> read = changeStream.readAfter(shard, 0, 100);
+
+		assertEquals(10, read.size());
+		assertEquals(16, read.get(0).getSequence());
+		assertEquals(25, changeStream.lastSequence(shard));
+	}
+
+	@Test
+	public void append_leaguesInOtherShards_sequencedApart() {
+		String otherLeague = "l2";
+		for (int i=3; changeStream.shardOf(otherLeague) == shard; i++)
+			otherLeague = "l"+i;
+		Pick other = new PickBuilder().withLeagueId(otherLeague).withWeekId("w1").withPlayerId("p1").withGameId("g1").withTeamId("nyg").build();
+		List<PickChangeEvent> events = created(2);
+		events.add(PickChangeEvent.created(other));
+
+		changeStream.append(events);
+
+		int otherShard = changeStream.shardOf(otherLeague);
+		assertEquals(2, changeStream.lastSequence(shard));
+		assertEquals(1, changeStream.lastSequence(otherShard));
+		assertEquals(1, events.get(2).getSequence());
+		assertEquals(otherLeague, changeStream.readAfter(otherShard, 0, 10).get(0).getLeagueId());
+		assertEquals(2, changeStream.readAfter(shard, 0, 10).size());
+	}
+}
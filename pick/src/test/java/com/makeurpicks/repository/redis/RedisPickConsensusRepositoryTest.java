@@ -0,0 +1,159 @@
+package com.makeurpicks.repository.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+
+import redis.embedded.RedisServer;
+
+public class RedisPickConsensusRepositoryTest {
+
+	private static final int PORT = 16383;
+
+	private static RedisServer redisServer;
+
+	private JedisConnectionFactory connectionFactory;
+	private RedisPickConsensusRepository consensusRepository;
+
+	private String leagueId = UUID.randomUUID().toString();
+	private String weekId = UUID.randomUUID().toString();
+	private String gameId = UUID.randomUUID().toString();
+
+	@BeforeClass
+	public static void startRedis()
+	{
+		try {
+			redisServer = new RedisServer(PORT);
+			redisServer.start();
+		} catch (Exception e) {
+			redisServer = null;
+		}
+		Assume.assumeNotNull(redisServer);
+	}
+
+	@AfterClass
+	public static void stopRedis() throws IOException
+	{
+		if (redisServer != null)
+			redisServer.stop();
+	}
+
+	@Before
+	public void setup()
+	{
+		connectionFactory = new JedisConnectionFactory();
+		connectionFactory.setPort(PORT);
+		connectionFactory.afterPropertiesSet();
+
+		consensusRepository = new RedisPickConsensusRepository(new StringRedisTemplate(connectionFactory));
+	}
+
+	@After
+	public void tearDown()
+	{
+		connectionFactory.getConnection().flushDb();
+		connectionFactory.destroy();
+	}
+
+	private Pick pick(String pickId, String teamId)
+	{
+		return new PickBuilder(pickId).withLeagueId(leagueId).withWeekId(weekId).withPlayerId(UUID.randomUUID().toString()).withGameId(gameId).withTeamId(teamId).build();
+	}
+
+	@Test
+	public void record_pickMovesTeams_countsFollow() {
+		Pick first = pick(UUID.randomUUID().toString(), "nyg");
+		Pick second = pick(UUID.randomUUID().toString(), "nyg");
+		consensusRepository.record(Arrays.asList(first, second));
+		consensusRepository.record(Collections.singletonList(first));
+
+		assertEquals(Long.valueOf(2), consensusRepository.findByWeek(leagueId, weekId).get(gameId).get("nyg"));
+
+		first.setTeamId("dal");
+		consensusRepository.record(Collections.singletonList(first));
+
+		Map<String, Long> teams = consensusRepository.findByWeek(leagueId, weekId).get(gameId);
+		assertEquals(Long.valueOf(1), teams.get("nyg"));
+		assertEquals(Long.valueOf(1), teams.get("dal"));
+
+		second.setTeamId("dal");
+		consensusRepository.record(Collections.singletonList(second));
+
+		teams = consensusRepository.findByWeek(leagueId, weekId).get(gameId);
+		assertNull(teams.get("nyg"));
+		assertEquals(Long.valueOf(2), teams.get("dal"));
+	}
+
+	@Test
+	public void record_samePicksFlippedConcurrently_countsStayExact() throws Exception {
+		List<String> pickIds = new ArrayList<>();
+		for (int i=0; i<20; i++)
+			pickIds.add(UUID.randomUUID().toString());
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t=0; t<8; t++)
+		{
+			String teamId = t % 2 == 0 ? "nyg" : "dal";
+			futures.add(executor.submit(() -> {
+				for (int round=0; round<25; round++)
+				{
+					List<Pick> picks = new ArrayList<>();
+					for (String pickId : pickIds)
+						picks.add(pick(pickId, teamId));
+					consensusRepository.record(picks);
+				}
+			}));
+		}
+		for (Future<?> future : futures)
+			future.get();
+		executor.shutdown();
+
+		Map<String, Long> teams = consensusRepository.findByWeek(leagueId, weekId).get(gameId);
+		long nyg = teams.containsKey("nyg") ? teams.get("nyg") : 0;
+		long dal = teams.containsKey("dal") ? teams.get("dal") : 0;
+		assertEquals(pickIds.size(), nyg + dal);
+		assertTrue(nyg >= 0 && dal >= 0);
+	}
+
+	@Test
+	public void rebuild_replacesDriftedCounts() {
+		Pick first = pick(UUID.randomUUID().toString(), "nyg");
+		Pick second = pick(UUID.randomUUID().toString(), "dal");
+		consensusRepository.record(Arrays.asList(first, second, pick(UUID.randomUUID().toString(), "nyg")));
+
+		consensusRepository.rebuild(leagueId, weekId, Arrays.asList(first, second));
+
+		Map<String, Long> teams = consensusRepository.findByWeek(leagueId, weekId).get(gameId);
+		assertEquals(Long.valueOf(1), teams.get("nyg"));
+		assertEquals(Long.valueOf(1), teams.get("dal"));
+
+		first.setTeamId("dal");
+		consensusRepository.record(Collections.singletonList(first));
+		assertEquals(Long.valueOf(2), consensusRepository.findByWeek(leagueId, weekId).get(gameId).get("dal"));
+		assertNull(consensusRepository.findByWeek(leagueId, weekId).get(gameId).get("nyg"));
+	}
+}
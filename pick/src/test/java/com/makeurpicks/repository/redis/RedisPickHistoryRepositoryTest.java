@@ -0,0 +1,125 @@
+package com.makeurpicks.repository.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+import com.makeurpicks.domain.PickHistoryEntry;
+
+import redis.embedded.RedisServer;
+
+public class RedisPickHistoryRepositoryTest {
+
+	private static final int PORT = 16384;
+
+	private static RedisServer redisServer;
+
+	private JedisConnectionFactory connectionFactory;
+	private RedisPickHistoryRepository historyRepository;
+
+	private String playerId = UUID.randomUUID().toString();
+
+	@BeforeClass
+	public static void startRedis()
+	{
+		try {
+			redisServer = new RedisServer(PORT);
+			redisServer.start();
+		} catch (Exception e) {
+			redisServer = null;
+		}
+		Assume.assumeNotNull(redisServer);
+	}
+
+	@AfterClass
+	public static void stopRedis() throws IOException
+	{
+		if (redisServer != null)
+			redisServer.stop();
+	}
+
+	@Before
+	public void setup()
+	{
+		connectionFactory = new JedisConnectionFactory();
+		connectionFactory.setPort(PORT);
+		connectionFactory.afterPropertiesSet();
+
+		historyRepository = new RedisPickHistoryRepository(new StringRedisTemplate(connectionFactory));
+	}
+
+	@After
+	public void tearDown()
+	{
+		historyRepository.deleteAll();
+		connectionFactory.destroy();
+	}
+
+	private Pick pick(String leagueId, int week)
+	{
+		return new PickBuilder().withLeagueId(leagueId).withWeekId("week" + week).withPlayerId(playerId).withGameId(UUID.randomUUID().toString()).withTeamId("nyg").build();
+	}
+
+	@Test
+	public void findBySeason_picksFromEveryLeague_pagedInKickoffOrder() {
+		List<Pick> picks = new ArrayList<>();
+		for (int week=17; week>0; week--)
+		{
+			for (int league=0; league<3; league++)
+				picks.add(pick("league" + league, week));
+		}
+		historyRepository.record("2016", picks, pick -> Long.parseLong(pick.getWeekId().substring(4)) * 1000);
+
+		assertEquals(51, historyRepository.countBySeason(playerId, "2016"));
+		List<PickHistoryEntry> first = historyRepository.findBySeason(playerId, "2016", 0, 20);
+		assertEquals(20, first.size());
+		assertEquals("week1", first.get(0).getWeekId());
+		assertEquals("league0", first.get(0).getLeagueId());
+		List<PickHistoryEntry> last = historyRepository.findBySeason(playerId, "2016", 40, 20);
+		assertEquals(11, last.size());
+		assertEquals("week17", last.get(10).getWeekId());
+		assertEquals(51, historyRepository.findBySeason(playerId, "2016", 0, Integer.MAX_VALUE).size());
+	}
+
+	@Test
+	public void record_samePickAgain_keptOnce() {
+		Pick pick = pick("league0", 1);
+
+		historyRepository.record("2016", Arrays.asList(pick), p -> 1000);
+		pick.setTeamId("dal");
+		historyRepository.record("2016", Arrays.asList(pick), p -> 1000);
+
+		assertEquals(1, historyRepository.countBySeason(playerId, "2016"));
+		assertEquals(PickHistoryEntry.of(pick), historyRepository.findBySeason(playerId, "2016", 0, 10).get(0));
+	}
+
+	@Test
+	public void remove_onlyThatPickAndSeason() {
+		Pick kept = pick("league0", 1);
+		Pick removed = pick("league1", 1);
+		historyRepository.record("2016", Arrays.asList(kept, removed), p -> 1000);
+		historyRepository.record("2015", Arrays.asList(removed), p -> 1000);
+
+		historyRepository.remove("2016", removed);
+
+		assertEquals(Arrays.asList(PickHistoryEntry.of(kept)), historyRepository.findBySeason(playerId, "2016", 0, 10));
+		assertEquals(1, historyRepository.countBySeason(playerId, "2015"));
+		assertTrue(historyRepository.findBySeason(UUID.randomUUID().toString(), "2016", 0, 10).isEmpty());
+	}
+}
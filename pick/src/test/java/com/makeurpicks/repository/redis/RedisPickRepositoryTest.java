@@ -0,0 +1,224 @@
+package com.makeurpicks.repository.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.data.util.CloseableIterator;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+
+import redis.embedded.RedisServer;
+
+public class RedisPickRepositoryTest {
+
+	private static final int PORT = 16381;
+
+	//spans a few HMSET batches and HSCAN pages
+	private static final int SEASON = 1234;
+
+	private static RedisServer redisServer;
+
+	private JedisConnectionFactory connectionFactory;
+	private RedisTemplate<String, Pick> pickTemplate;
+	private RedisPickRepository pickRepository;
+
+	@BeforeClass
+	public static void startRedis()
+	{
+		try {
+			redisServer = new RedisServer(PORT);
+			redisServer.start();
+		} catch (Exception e) {
+			redisServer = null;
+		}
+		Assume.assumeNotNull(redisServer);
+	}
+
+	@AfterClass
+	public static void stopRedis() throws IOException
+	{
+		if (redisServer != null)
+			redisServer.stop();
+	}
+
+	@Before
+	public void setup()
+	{
+		connectionFactory = new JedisConnectionFactory();
+		connectionFactory.setPort(PORT);
+		connectionFactory.afterPropertiesSet();
+
+		pickTemplate = new RedisTemplate<>();
+		pickTemplate.setConnectionFactory(connectionFactory);
+		pickTemplate.setKeySerializer(new StringRedisSerializer());
+		pickTemplate.setHashKeySerializer(new StringRedisSerializer());
+		pickTemplate.setHashValueSerializer(new CompactPickRedisSerializer(new Jackson2JsonRedisSerializer<>(Pick.class), true));
+		pickTemplate.afterPropertiesSet();
+
+		pickRepository = new RedisPickRepository(pickTemplate);
+	}
+
+	@After
+	public void tearDown()
+	{
+		connectionFactory.getConnection().flushDb();
+		connectionFactory.destroy();
+	}
+
+	private List<Pick> season()
+	{
+		String leagueId = UUID.randomUUID().toString();
+		List<Pick> picks = new ArrayList<>();
+		for (int i=0; i<SEASON; i++)
+			picks.add(new PickBuilder(UUID.randomUUID().toString()).withLeagueId(leagueId).withWeekId(UUID.randomUUID().toString()).withPlayerId(UUID.randomUUID().toString()).withGameId(UUID.randomUUID().toString()).withTeamId("nyg").build());
+		return picks;
+	}
+
+	@Test
+	public void save_manyPicks_countAndFindAllSeeEveryPick() {
+		List<Pick> picks = season();
+
+		pickRepository.save(picks);
+
+		assertEquals(SEASON, pickRepository.count());
+		Set<String> ids = new HashSet<>();
+		for (Pick pick : pickRepository.findAll())
+			ids.add(pick.getId());
+		assertEquals(SEASON, ids.size());
+		assertNotNull(pickRepository.findOne(picks.get(SEASON - 1).getId()));
+	}
+
+	@Test
+	public void delete_manyPicks_removesOnlyThosePicks() {
+		List<Pick> picks = season();
+		pickRepository.save(picks);
+
+		pickRepository.delete(picks.subList(0, 1000));
+
+		assertEquals(SEASON - 1000, pickRepository.count());
+		assertNull(pickRepository.findOne(picks.get(0).getId()));
+		assertNotNull(pickRepository.findOne(picks.get(1000).getId()));
+	}
+
+	@Test
+	public void findAllByLeague_severalLeagues_foundPicksOnly() {
+		String otherLeague = UUID.randomUUID().toString();
+		Pick first = new PickBuilder().withLeagueId("l1").withWeekId("w1").withPlayerId("p1").withGameId("g1").withTeamId("nyg").build();
+		Pick second = new PickBuilder().withLeagueId(otherLeague).withWeekId("w1").withPlayerId("p1").withGameId("g1").withTeamId("dal").build();
+		pickRepository.save(Arrays.asList(first, second));
+
+		Map<String, List<String>> byLeague = new LinkedHashMap<>();
+		byLeague.put("l1", Arrays.asList("missing", first.getId()));
+		byLeague.put(otherLeague, Arrays.asList(second.getId()));
+		byLeague.put("empty", new ArrayList<>());
+		List<Pick> picks = pickRepository.findAllByLeague(byLeague);
+
+		assertEquals(2, picks.size());
+		assertEquals(first.getId(), picks.get(0).getId());
+		assertEquals("dal", picks.get(1).getTeamId());
+	}
+
+	@Test
+	public void deleteAll_removesTheHash() {
+		pickRepository.save(season());
+
+		pickRepository.deleteAll();
+
+		assertEquals(0, pickRepository.count());
+		assertFalse(pickRepository.findAll().iterator().hasNext());
+	}
+
+	@Test
+	public void scan_closedEarly_releasesConnection() throws Exception {
+		pickRepository.save(season());
+
+		//more abandoned scans than the pool has connections
+		for (int i=0; i<20; i++)
+		{
+			try (CloseableIterator<Pick> picks = pickRepository.scan(10).iterator()) {
+				assertNotNull(picks.next());
+			}
+		}
+
+		assertEquals(SEASON, pickRepository.count());
+	}
+
+	@Test
+	public void findAll_byLeague_readsOnlyThatLeaguesHash() {
+		List<Pick> picks = season();
+		pickRepository.save(picks);
+
+		List<String> ids = new ArrayList<>();
+		for (Pick pick : picks.subList(0, 50))
+			ids.add(pick.getId());
+		ids.add("missing");
+
+		List<Pick> found = new ArrayList<>();
+		pickRepository.findAll(picks.get(0).getLeagueId(), ids).forEach(found::add);
+		assertEquals(51, found.size());
+		assertEquals(picks.get(49).getId(), found.get(49).getId());
+		assertNull(found.get(50));
+		assertNull(pickRepository.findAll(UUID.randomUUID().toString(), ids).iterator().next());
+	}
+
+	@Test
+	public void migrateLegacyLayout_movesSingleHashIntoLeagueHashes() {
+		List<Pick> picks = season();
+		Map<String, Pick> legacy = new LinkedHashMap<>();
+		for (Pick pick : picks)
+			legacy.put(pick.getId(), pick);
+		pickTemplate.opsForHash().putAll(RedisPickRepository.LEGACY_KEY, legacy);
+		Pick newer = new PickBuilder(picks.get(0).getId()).withLeagueId(picks.get(0).getLeagueId()).withWeekId(picks.get(0).getWeekId())
+				.withPlayerId(picks.get(0).getPlayerId()).withGameId(picks.get(0).getGameId()).withTeamId("dal").build();
+		pickRepository.save(newer);
+
+		int migrated = pickRepository.migrateLegacyLayout();
+
+		assertEquals(SEASON - 1, migrated);
+		assertEquals(SEASON, pickRepository.count());
+		assertEquals("dal", pickRepository.findOne(newer.getId()).getTeamId());
+		assertNotNull(pickRepository.findOne(picks.get(SEASON - 1).getId()));
+		assertFalse(pickTemplate.hasKey(RedisPickRepository.LEGACY_KEY));
+	}
+
+	@Test
+	public void migrateUntaggedKeys_renamesOldKeysOnce() {
+		StringRedisTemplate template = new StringRedisTemplate(connectionFactory);
+		template.opsForValue().set(RedisWeekVersionRepository.VERSION_KEY + "league1+week1", "7");
+		template.opsForValue().set(RedisKeys.leagueWeek(RedisWeekVersionRepository.VERSION_KEY, "league2", "week1"), "3");
+		template.opsForValue().set(RedisWeekVersionRepository.VERSION_KEY + "league2+week1", "2");
+		RedisWeekVersionRepository versions = new RedisWeekVersionRepository(template);
+
+		assertEquals(1, versions.migrateUntaggedKeys());
+		assertEquals(0, versions.migrateUntaggedKeys());
+
+		assertEquals(7, versions.findVersion("league1", "week1"));
+		assertEquals(3, versions.findVersion("league2", "week1"));
+		assertTrue(template.hasKey(RedisWeekVersionRepository.VERSION_KEY + "league2+week1"));
+	}
+}
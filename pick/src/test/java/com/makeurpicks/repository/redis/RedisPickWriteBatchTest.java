@@ -0,0 +1,112 @@
+package com.makeurpicks.repository.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+
+import redis.embedded.RedisServer;
+
+public class RedisPickWriteBatchTest {
+
+	private static final int PORT = 16380;
+
+	private static RedisServer redisServer;
+
+	private JedisConnectionFactory connectionFactory;
+	private RedisPickRepository pickRepository;
+	private RedisPicksByLeagueWeekRepository picksByWeekRepository;
+	private RedisPickWriteBatch pickWriteBatch;
+
+	@BeforeClass
+	public static void startRedis()
+	{
+		try {
+			redisServer = new RedisServer(PORT);
+			redisServer.start();
+		} catch (Exception e) {
+			redisServer = null;
+		}
+		Assume.assumeNotNull(redisServer);
+	}
+
+	@AfterClass
+	public static void stopRedis() throws IOException
+	{
+		if (redisServer != null)
+			redisServer.stop();
+	}
+
+	@Before
+	public void setup()
+	{
+		connectionFactory = new JedisConnectionFactory();
+		connectionFactory.setPort(PORT);
+		connectionFactory.afterPropertiesSet();
+
+		RedisTemplate<String, Pick> pickTemplate = new RedisTemplate<>();
+		pickTemplate.setConnectionFactory(connectionFactory);
+		pickTemplate.setKeySerializer(new StringRedisSerializer());
+		pickTemplate.setHashKeySerializer(new StringRedisSerializer());
+		pickTemplate.setHashValueSerializer(new CompactPickRedisSerializer(new Jackson2JsonRedisSerializer<>(Pick.class), true));
+		pickTemplate.afterPropertiesSet();
+
+		RedisTemplate<String, String> indexTemplate = new RedisTemplate<>();
+		indexTemplate.setConnectionFactory(connectionFactory);
+		indexTemplate.setKeySerializer(new StringRedisSerializer());
+		indexTemplate.setValueSerializer(new StringRedisSerializer());
+		indexTemplate.setHashKeySerializer(new StringRedisSerializer());
+		indexTemplate.setHashValueSerializer(new CompactIdRedisSerializer(true));
+		indexTemplate.afterPropertiesSet();
+
+		pickRepository = new RedisPickRepository(pickTemplate);
+		picksByWeekRepository = new RedisPicksByLeagueWeekRepository(indexTemplate);
+		pickWriteBatch = new RedisPickWriteBatch(indexTemplate, pickRepository, picksByWeekRepository);
+	}
+
+	@After
+	public void tearDown()
+	{
+		connectionFactory.getConnection().flushDb();
+		connectionFactory.destroy();
+	}
+
+	@Test
+	public void savePicks_weekOfPicks_savesPicksAndIndex() {
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		String playerId = UUID.randomUUID().toString();
+
+		List<Pick> picks = new ArrayList<>();
+		for (int i=0; i<16; i++)
+			picks.add(new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withPlayerId(playerId).withGameId(UUID.randomUUID().toString()).withTeamId("nyg").build());
+
+		pickWriteBatch.savePicks(picks);
+
+		Map<String, String> games = picksByWeekRepository.findGamesByPlayer(leagueId, weekId, playerId);
+		assertEquals(16, games.size());
+		for (Pick pick : picks)
+		{
+			assertEquals(pick.getId(), games.get(pick.getGameId()));
+			assertNotNull(pickRepository.findOne(pick.getId()));
+		}
+	}
+}
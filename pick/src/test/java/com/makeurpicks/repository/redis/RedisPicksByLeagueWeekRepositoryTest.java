@@ -0,0 +1,120 @@
+package com.makeurpicks.repository.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RedisPicksByLeagueWeekRepositoryTest {
+
+	@Mock
+	private RedisTemplate<String, String> redisTemplateMock;
+
+	@Mock
+	private HashOperations<String, Object, Object> hashOpsMock;
+
+	@Mock
+	private SetOperations<String, String> setOpsMock;
+
+	private RedisPicksByLeagueWeekRepository repository;
+
+	@Before
+	public void setup()
+	{
+		when(redisTemplateMock.opsForHash()).thenReturn(hashOpsMock);
+		when(redisTemplateMock.opsForSet()).thenReturn(setOpsMock);
+		repository = new RedisPicksByLeagueWeekRepository(redisTemplateMock);
+	}
+
+	@Test
+	public void createPick_runsCreatePickScriptForPlayerAndGame() {
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		String playerId = UUID.randomUUID().toString();
+		String gameId = UUID.randomUUID().toString();
+
+		Pick pick = new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withPlayerId(playerId).withGameId(gameId).build();
+		String pickId = pick.getId();
+		when(redisTemplateMock.execute(eq(RedisScripts.CREATE_PICK), any(RedisSerializer.class), any(RedisSerializer.class), anyListOf(String.class), anyVararg()))
+			.thenReturn(Collections.singletonList(pickId));
+
+		repository.createPick(pick);
+
+		List<String> keys = Arrays.asList(RedisKeys.leagueWeek(RedisPicksByLeagueWeekRepository.PICKS_KEY, leagueId, weekId), RedisKeys.tag(RedisPicksByLeagueWeekRepository.WEEKS_KEY, leagueId));
+		verify(redisTemplateMock).execute(eq(RedisScripts.CREATE_PICK), any(RedisSerializer.class), any(RedisSerializer.class), eq(keys), 
+				eq(weekId), eq(playerId+":"+gameId), eq(pickId.getBytes(StandardCharsets.UTF_8)));
+		assertEquals(pickId, pick.getId());
+	}
+
+	@Test
+	public void createPick_gameAlreadyPicked_takesExistingPickId() {
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		String existingPickId = UUID.randomUUID().toString();
+
+		Pick pick = new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withPlayerId("player1").withGameId("game1").build();
+		when(redisTemplateMock.execute(eq(RedisScripts.CREATE_PICK), any(RedisSerializer.class), any(RedisSerializer.class), anyListOf(String.class), anyVararg()))
+			.thenReturn(Collections.singletonList(existingPickId));
+
+		repository.createPick(pick);
+
+		assertEquals(existingPickId, pick.getId());
+	}
+
+	@Test
+	public void findPlayersByWeek_groupsFieldsByPlayer() {
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+
+		Map<Object, Object> entries = new HashMap<>();
+		entries.put("player:one:game1", "pick1");
+		entries.put("player:one:game2", "pick2");
+		entries.put("player2:game1", "pick3");
+		when(hashOpsMock.entries(RedisKeys.leagueWeek(RedisPicksByLeagueWeekRepository.PICKS_KEY, leagueId, weekId))).thenReturn(entries);
+
+		Map<String, Map<String, String>> players = repository.findPlayersByWeek(leagueId, weekId);
+
+		assertEquals(2, players.size());
+		assertEquals("pick1", players.get("player:one").get("game1"));
+		assertEquals("pick2", players.get("player:one").get("game2"));
+		assertEquals("pick3", players.get("player2").get("game1"));
+	}
+
+	@Test
+	public void findPlayersByWeek_noPicks_returnEmptyMap() {
+		when(hashOpsMock.entries("missing")).thenReturn(new HashMap<>());
+
+		assertTrue(repository.findPlayersByWeek(UUID.randomUUID().toString(), UUID.randomUUID().toString()).isEmpty());
+	}
+
+	@Test
+	public void findPicksByGame_noPick_returnEmptyString() {
+		assertEquals("", repository.findPicksByGame("league", "week", "player", "game"));
+	}
+}
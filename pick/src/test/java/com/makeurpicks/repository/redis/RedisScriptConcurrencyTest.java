@@ -0,0 +1,220 @@
+package com.makeurpicks.repository.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import com.makeurpicks.domain.DoublePick;
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+
+import redis.embedded.RedisServer;
+
+/**
+ * Runs the repositories against a real redis and has many players write the
+ * same league week at once.  Picks are saved the way the pick service saves
+ * them, through the write batch and the index's lua script, and double picks
+ * are a field per player.  Before that every save was a read, modify, write
+ * from java and the last writer won.
+ */
+public class RedisScriptConcurrencyTest {
+
+	private static final int PORT = 16379;
+	private static final int PLAYERS = 50;
+	private static final int GAMES = 16;
+
+	private static RedisServer redisServer;
+
+	private JedisConnectionFactory connectionFactory;
+	private RedisTemplate<String, String> redisTemplate;
+	private RedisTemplate<String, Pick> pickRedisTemplate;
+	private RedisTemplate<String, DoublePick> doublePickRedisTemplate;
+
+	@BeforeClass
+	public static void startRedis()
+	{
+		try {
+			redisServer = new RedisServer(PORT);
+			redisServer.start();
+		} catch (Exception e) {
+			redisServer = null;
+		}
+		Assume.assumeNotNull(redisServer);
+	}
+
+	@AfterClass
+	public static void stopRedis() throws IOException
+	{
+		if (redisServer != null)
+			redisServer.stop();
+	}
+
+	@Before
+	public void setup()
+	{
+		connectionFactory = new JedisConnectionFactory();
+		connectionFactory.setPort(PORT);
+		connectionFactory.setUsePool(true);
+		connectionFactory.getPoolConfig().setMaxTotal(PLAYERS);
+		connectionFactory.afterPropertiesSet();
+
+		redisTemplate = new RedisTemplate<>();
+		redisTemplate.setConnectionFactory(connectionFactory);
+		redisTemplate.setKeySerializer(new StringRedisSerializer());
+		redisTemplate.setValueSerializer(new StringRedisSerializer());
+		redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+		redisTemplate.setHashValueSerializer(new CompactIdRedisSerializer(true));
+		redisTemplate.afterPropertiesSet();
+
+		pickRedisTemplate = new RedisTemplate<>();
+		pickRedisTemplate.setConnectionFactory(connectionFactory);
+		pickRedisTemplate.setKeySerializer(new StringRedisSerializer());
+		pickRedisTemplate.setHashKeySerializer(new StringRedisSerializer());
+		pickRedisTemplate.setHashValueSerializer(new CompactPickRedisSerializer(new Jackson2JsonRedisSerializer<>(Pick.class), true));
+		pickRedisTemplate.afterPropertiesSet();
+
+		doublePickRedisTemplate = new RedisTemplate<>();
+		doublePickRedisTemplate.setConnectionFactory(connectionFactory);
+		doublePickRedisTemplate.setKeySerializer(new StringRedisSerializer());
+		doublePickRedisTemplate.setHashKeySerializer(new StringRedisSerializer());
+		doublePickRedisTemplate.setHashValueSerializer(new CompactDoublePickRedisSerializer(true));
+		doublePickRedisTemplate.afterPropertiesSet();
+
+		RedisScripts.preload(redisTemplate);
+	}
+
+	@After
+	public void tearDown()
+	{
+		redisTemplate.getConnectionFactory().getConnection().flushDb();
+		connectionFactory.destroy();
+	}
+
+	@Test
+	public void savePicks_manyPlayersSameWeek_noPicksLost() throws Exception {
+		RedisPicksByLeagueWeekRepository repository = new RedisPicksByLeagueWeekRepository(redisTemplate);
+		RedisPickRepository pickRepository = new RedisPickRepository(pickRedisTemplate);
+		RedisPickWriteBatch pickWriteBatch = new RedisPickWriteBatch(redisTemplate, pickRepository, repository);
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int i=0; i<PLAYERS; i++)
+		{
+			String playerId = "player"+i;
+			tasks.add(() -> {
+				for (int g=0; g<GAMES; g++)
+				{
+					Pick pick = new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withPlayerId(playerId).withGameId("game"+g).withTeamId("nyg").build();
+					pickWriteBatch.savePicks(Collections.singletonList(pick));
+				}
+				return null;
+			});
+		}
+		runAll(tasks);
+
+		Map<String, Map<String, String>> players = repository.findPlayersByWeek(leagueId, weekId);
+		assertEquals(PLAYERS, players.size());
+		for (Map<String, String> games : players.values())
+			assertEquals(GAMES, games.size());
+		assertEquals(1, repository.findWeeksByLeague(leagueId).size());
+		assertEquals(PLAYERS * GAMES, pickRepository.count());
+	}
+
+	@Test
+	public void savePicks_samePickManySubmits_onePickId() throws Exception {
+		RedisPicksByLeagueWeekRepository repository = new RedisPicksByLeagueWeekRepository(redisTemplate);
+		RedisPickRepository pickRepository = new RedisPickRepository(pickRedisTemplate);
+		RedisPickWriteBatch pickWriteBatch = new RedisPickWriteBatch(redisTemplate, pickRepository, repository);
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+
+		List<Pick> submitted = Collections.synchronizedList(new ArrayList<>());
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int i=0; i<PLAYERS; i++)
+		{
+			tasks.add(() -> {
+				Pick pick = new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withPlayerId("player1").withGameId("game1").withTeamId("nyg").build();
+				pickWriteBatch.savePicks(Collections.singletonList(pick));
+				submitted.add(pick);
+				return null;
+			});
+		}
+		runAll(tasks);
+
+		String pickId = repository.findPicksByGame(leagueId, weekId, "player1", "game1");
+		assertNotNull(pickId);
+		for (Pick pick : submitted)
+			assertEquals(pickId, pick.getId());
+		assertEquals(1, pickRepository.count());
+	}
+
+	@Test
+	public void saveDoublePick_manyPlayersSameWeek_noDoublePicksLost() throws Exception {
+		RedisDoublePlckRepository repository = new RedisDoublePlckRepository(doublePickRedisTemplate);
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int i=0; i<PLAYERS; i++)
+		{
+			String playerId = "player"+i;
+			tasks.add(() -> {
+				DoublePick doublePick = new DoublePick(leagueId, weekId, playerId, UUID.randomUUID().toString(), "game1", false);
+				repository.save(doublePick);
+				return null;
+			});
+		}
+		runAll(tasks);
+
+		Map<String, DoublePick> doublePicks = repository.findAllForLeagueAndWeek(leagueId, weekId);
+		assertEquals(PLAYERS, doublePicks.size());
+		for (int i=0; i<PLAYERS; i++)
+			assertNotNull(doublePicks.get("player"+i));
+
+		tasks.clear();
+		for (int i=0; i<PLAYERS/2; i++)
+		{
+			DoublePick doublePick = doublePicks.get("player"+i);
+			tasks.add(() -> {
+				repository.delete(doublePick);
+				return null;
+			});
+		}
+		runAll(tasks);
+
+		assertEquals(PLAYERS - PLAYERS/2, repository.findAllForLeagueAndWeek(leagueId, weekId).size());
+	}
+
+	private void runAll(List<Callable<Void>> tasks) throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks))
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
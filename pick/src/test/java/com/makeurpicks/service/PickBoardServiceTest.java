@@ -0,0 +1,201 @@
+package com.makeurpicks.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.makeurpicks.domain.PickBuilder;
+import com.makeurpicks.domain.PickChangeEvent;
+import com.makeurpicks.game.GameLockedEvent;
+import com.makeurpicks.repository.PickChangeStream;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PickBoardServiceTest {
+
+	@InjectMocks
+	private PickBoardService boardService;
+
+	@Mock
+	private PickService pickServiceMock;
+
+	@Mock
+	private PickChangeStream pickChangeStreamMock;
+
+	@Mock
+	private ApplicationEventPublisher eventPublisherMock;
+
+	@Before
+	public void setup()
+	{
+		boardService.start();
+		when(pickChangeStreamMock.getShards()).thenReturn(1);
+	}
+
+	@After
+	public void tearDown()
+	{
+		boardService.stop();
+	}
+
+	private PickChangeEvent change(long sequence, String leagueId, String weekId)
+	{
+		PickChangeEvent event = PickChangeEvent.created(new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withGameId("g1").withTeamId("nyg").build());
+		event.setSequence(sequence);
+		return event;
+	}
+
+	@Test
+	public void poll_noSubscribers_stillPublishesChanges() {
+		when(pickChangeStreamMock.lastSequence(0)).thenReturn(42L);
+		PickChangeEvent change = change(43, "l1", "w1");
+		when(pickChangeStreamMock.readAfter(0, 42L, 1000)).thenReturn(Arrays.asList(change));
+		when(pickChangeStreamMock.readAfter(0, 43L, 1000)).thenReturn(Collections.<PickChangeEvent>emptyList());
+
+		boardService.poll();
+		boardService.poll();
+		boardService.poll();
+
+		verify(eventPublisherMock).publishEvent(change);
+		verify(pickChangeStreamMock).readAfter(0, 43L, 1000);
+	}
+
+	@Test
+	public void poll_severalShards_eachReadFromItsOwnPosition() {
+		when(pickChangeStreamMock.getShards()).thenReturn(2);
+		when(pickChangeStreamMock.lastSequence(0)).thenReturn(42L);
+		when(pickChangeStreamMock.lastSequence(1)).thenReturn(7L);
+		PickChangeEvent change = change(8, "l2", "w1");
+		when(pickChangeStreamMock.readAfter(1, 7L, 1000)).thenReturn(Arrays.asList(change));
+		when(pickChangeStreamMock.readAfter(0, 42L, 1000)).thenReturn(Collections.<PickChangeEvent>emptyList());
+		when(pickChangeStreamMock.readAfter(1, 8L, 1000)).thenReturn(Collections.<PickChangeEvent>emptyList());
+
+		boardService.poll();
+		boardService.poll();
+		boardService.poll();
+
+		verify(eventPublisherMock).publishEvent(change);
+		verify(pickChangeStreamMock, times(2)).readAfter(0, 42L, 1000);
+		verify(pickChangeStreamMock).readAfter(1, 8L, 1000);
+	}
+
+	@Test
+	public void subscribe_snapshotThenChangesAfterIt() {
+		when(pickChangeStreamMock.lastSequence(0)).thenReturn(10L);
+		when(pickChangeStreamMock.readAfter(0, 10L, 1000)).thenReturn(Arrays.asList(change(11, "l1", "w1"), change(12, "l2", "w1")));
+		when(pickChangeStreamMock.readAfter(0, 12L, 1000)).thenReturn(Collections.<PickChangeEvent>emptyList());
+
+		boardService.subscribe("l1", "w1");
+		boardService.poll();
+		boardService.poll();
+
+		verify(pickServiceMock).getPicksByWeek("l1", "w1");
+		verify(pickServiceMock).getDoublePicks("l1", "w1");
+		verify(pickChangeStreamMock).readAfter(0, 12L, 1000);
+		assertEquals(1, boardService.getSubscriberCount());
+	}
+
+	@Test
+	public void gameLocked_otherWeeks_subscribersKept() {
+		when(pickChangeStreamMock.lastSequence(0)).thenReturn(0L);
+		boardService.subscribe("l1", "w1");
+		boardService.subscribe("l1", "w2");
+
+		boardService.gameLocked(new GameLockedEvent(this, "g1", "w1", Instant.now()));
+		boardService.heartbeat();
+
+		assertEquals(2, boardService.getSubscriberCount());
+	}
+
+	@Test
+	public void scoreChanged_boardsOfTheWeek_subscribersKept() {
+		when(pickChangeStreamMock.lastSequence(0)).thenReturn(0L);
+		boardService.subscribe("l1", "w1");
+		boardService.subscribe("l2", "w2");
+
+		boardService.scoreChanged("{\"gameId\":\"g1\",\"weekId\":\"w1\",\"favScore\":7,\"dogScore\":3}");
+		boardService.scoreChanged("not json");
+
+		assertEquals(2, boardService.getSubscriberCount());
+	}
+
+	@Test
+	public void poll_blockedSubscriber_othersStillSentAndBlockedOneDropped() throws Exception {
+		ReflectionTestUtils.setField(boardService, "sendTimeout", 100L);
+
+		when(pickChangeStreamMock.lastSequence(0)).thenReturn(10L);
+		when(pickChangeStreamMock.readAfter(0, 10L, 1000)).thenReturn(Arrays.asList(change(11, "l1", "w1")));
+		when(pickChangeStreamMock.readAfter(0, 11L, 1000)).thenReturn(Arrays.asList(change(12, "l1", "w1")));
+		when(pickChangeStreamMock.readAfter(0, 12L, 1000)).thenReturn(Collections.<PickChangeEvent>emptyList());
+
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingEmitter blocked = new BlockingEmitter(release);
+		BlockingEmitter other = new BlockingEmitter(null);
+		boardService.subscribe("l1", "w1", blocked);
+		boardService.subscribe("l1", "w1", other);
+		try {
+			boardService.poll();
+			assertTrue(blocked.writing.await(2, TimeUnit.SECONDS));
+			Thread.sleep(150);
+			boardService.poll();
+
+			//snapshot and both changes
+			for (int i=0; i<100 && other.sent.get() < 3; i++)
+				Thread.sleep(20);
+			assertEquals(3, other.sent.get());
+			assertEquals(1, boardService.getSubscriberCount());
+		} finally {
+			release.countDown();
+		}
+	}
+
+	/**
+	 * Takes the snapshot, then holds every event until released.
+	 */
+	private static class BlockingEmitter extends SseEmitter {
+
+		private final CountDownLatch release;
+		private final CountDownLatch writing = new CountDownLatch(1);
+		private final AtomicInteger sent = new AtomicInteger();
+
+		BlockingEmitter(CountDownLatch release)
+		{
+			this.release = release;
+		}
+
+		@Override
+		public void send(SseEventBuilder event) throws IOException
+		{
+			if (sent.get() > 0 && release != null)
+			{
+				writing.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			sent.incrementAndGet();
+		}
+	}
+}
@@ -4,21 +4,35 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.ToLongFunction;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.SpringApplicationConfiguration;
@@ -26,13 +40,25 @@ import org.springframework.boot.test.SpringApplicationConfiguration;
 import com.makeurpicks.PicksApplication;
 import com.makeurpicks.domain.DoublePick;
 import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+import com.makeurpicks.domain.PickChangeEvent;
+import com.makeurpicks.domain.PickHistoryEntry;
+import com.makeurpicks.domain.PickResult;
+import com.makeurpicks.domain.WeekSnapshot;
 import com.makeurpicks.exception.PickValidationException;
 import com.makeurpicks.exception.PickValidationException.PickExceptions;
 import com.makeurpicks.game.GameIntegrationService;
 import com.makeurpicks.game.GameResponse;
+import com.makeurpicks.game.KickoffLockScheduler;
 import com.makeurpicks.repository.DoublePickRepository;
+import com.makeurpicks.repository.PickChangeStream;
+import com.makeurpicks.repository.PickConsensusRepository;
+import com.makeurpicks.repository.PickHistoryRepository;
 import com.makeurpicks.repository.PickRepository;
+import com.makeurpicks.repository.PickWriteBatch;
 import com.makeurpicks.repository.PicksByWeekRepository;
+import com.makeurpicks.repository.WeekSnapshotRepository;
+import com.makeurpicks.repository.WeekVersionRepository;
 
 @RunWith(MockitoJUnitRunner.class)
 @SpringApplicationConfiguration(classes = PicksApplication.class)
@@ -54,6 +80,30 @@ public class PickServiceTest {
 	@Mock
 	private PicksByWeekRepository picksByWeekRepositoryMock;
 	
+	@Mock
+	private PickWriteBatch pickWriteBatchMock;
+	
+	@Mock
+	private PickChangeStream pickChangeStreamMock;
+	
+	@Mock
+	private PickConsensusRepository pickConsensusRepositoryMock;
+	
+	@Mock
+	private WeekVersionRepository weekVersionRepositoryMock;
+	
+	@Mock
+	private PickHistoryRepository pickHistoryRepositoryMock;
+	
+	@Mock
+	private WeekSnapshotRepository weekSnapshotRepositoryMock;
+	
+	@Spy
+	private KickoffLockScheduler kickoffLockScheduler = new KickoffLockScheduler();
+	
+	@Spy
+	private WeekPicksCache weekPicksCache = new WeekPicksCache();
+	
 	@Rule
 	public ExpectedException expectedEx = ExpectedException.none();
 	
@@ -341,7 +391,10 @@ public class PickServiceTest {
 		
 		service.updatePick(pick);
 		
-		verify(pickRepositoryMock).save(pick);
+		InOrder order = inOrder(pickRepositoryMock, pickConsensusRepositoryMock, weekVersionRepositoryMock);
+		order.verify(pickRepositoryMock).save(pick);
+		order.verify(pickConsensusRepositoryMock).record(Arrays.asList(pick));
+		order.verify(weekVersionRepositoryMock).increment(leagueId, weekId);
 	}
 	
 	
@@ -390,7 +443,7 @@ public class PickServiceTest {
 		gamesMap.put(gameId, pickId);
 		
 		when(picksByWeekRepositoryMock.findPlayersByWeek(leagueId, weekId)).thenReturn(playersByWeekMap);
-		when(pickRepositoryMock.findOne(pickId)).thenReturn(pick);
+		when(pickRepositoryMock.findAll(leagueId, Arrays.asList(pickId))).thenReturn(Arrays.asList(pick));
 		
 		Map<String, Pick> map = service.getPicksByWeekAndPlayer(leagueId, weekId, playerId);
 		
@@ -399,7 +452,7 @@ public class PickServiceTest {
 		playersByWeekMap.put(secondPlayerId, gamesMap);
 		
 		when(picksByWeekRepositoryMock.findPlayersByWeek(leagueId, weekId)).thenReturn(playersByWeekMap);
-		when(pickRepositoryMock.findOne(pickId)).thenReturn(pick);
+		when(pickRepositoryMock.findAll(leagueId, Arrays.asList(pickId))).thenReturn(Arrays.asList(pick));
 		
 		map = service.getPicksByWeekAndPlayer(leagueId, weekId, playerId);
 		
@@ -430,7 +483,7 @@ public class PickServiceTest {
 		playersByWeekMap.put(playerId, gamesMap);
 		
 		when(picksByWeekRepositoryMock.findPlayersByWeek(leagueId, weekId)).thenReturn(playersByWeekMap);
-		when(pickRepositoryMock.findOne(pickId)).thenReturn(pick);
+		when(pickRepositoryMock.findAll(leagueId, Arrays.asList(pickId))).thenReturn(Arrays.asList(pick));
 		
 		Map<String, Pick> map = service.getPicksByWeekAndPlayer(leagueId, weekId, playerId);
 		
@@ -485,7 +538,7 @@ public class PickServiceTest {
 		playersByWeekMap.put(playerId, gamesMap);
 		
 		when(picksByWeekRepositoryMock.findPlayersByWeek(leagueId, weekId)).thenReturn(playersByWeekMap);
-		when(pickRepositoryMock.findOne(pickId)).thenReturn(pick);
+		when(pickRepositoryMock.findAll(leagueId, Arrays.asList(pickId))).thenReturn(Arrays.asList(pick));
 		
 		Map<String, Pick> map = service.getOtherPicksByWeekAndPlayer(leagueId, weekId, playerId);
 		
@@ -540,6 +593,38 @@ public class PickServiceTest {
 		assertTrue(map.size() > 0);
 	}
 	
+	@Test
+	public void findPicksByWeekTest_manyPlayers_loadsAllPicksWithOneMultiGet() {
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		
+		Map<String, Map<String, String>> playersByWeekMap = new HashMap<>();
+		List<Pick> picks = new ArrayList<>();
+		for (int p=0; p<3; p++)
+		{
+			String playerId = UUID.randomUUID().toString();
+			Map<String, String> gamesMap = new HashMap<>();
+			for (int g=0; g<4; g++)
+			{
+				Pick pick = new PickBuilder().withPlayerId(playerId).withGameId(UUID.randomUUID().toString()).build();
+				gamesMap.put(pick.getGameId(), pick.getId());
+				picks.add(pick);
+			}
+			playersByWeekMap.put(playerId, gamesMap);
+		}
+		
+		when(picksByWeekRepositoryMock.findPlayersByWeek(leagueId, weekId)).thenReturn(playersByWeekMap);
+		when(pickRepositoryMock.findAll(anyString(), anyListOf(String.class))).thenReturn(picks);
+		
+		Map<String, Map<String, Pick>> map = service.getPicksByWeek(leagueId, weekId);
+		
+		verify(pickRepositoryMock, times(1)).findAll(anyString(), anyListOf(String.class));
+		verify(pickRepositoryMock, never()).findOne(anyString());
+		assertEquals(3, map.size());
+		for (Pick pick : picks)
+			assertEquals(pick, map.get(pick.getPlayerId()).get(pick.getGameId()));
+	}
+	
 	@Test
 	public void getDoublePickForPlayerTest_noDoublePics_returnEmptyMap() {
 		
@@ -746,4 +831,301 @@ public class PickServiceTest {
 		
 		assertEquals(doublePick, doublePickReturned);
 	}
-}
\ No newline at end of file
+	
+	@Test
+	public void makePicksTest_validWeek_fetchesGamesOnceAndSavesInOneBatch() {
+		String playerId = UUID.randomUUID().toString();
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		
+		Map<String, GameResponse> games = new HashMap<>();
+		List<Pick> picks = new ArrayList<>();
+		for (int i=0; i<16; i++)
+		{
+			GameResponse game = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().plusDays(1), "fav"+i, "dog"+i, weekId);
+			games.put(game.getId(), game);
+			picks.add(new PickBuilder(null).withLeagueId(leagueId).withWeekId(weekId).withGameId(game.getId()).withTeamId("fav"+i).build());
+		}
+		when(gameIntegrationMock.getGamesByWeek(weekId)).thenReturn(games);
+		when(picksByWeekRepositoryMock.findGamesByPlayer(leagueId, weekId, playerId)).thenReturn(new HashMap<>());
+		
+		List<PickResult> results = service.makePicks(picks, playerId);
+		
+		assertEquals(16, results.size());
+		for (PickResult result : results)
+		{
+			assertTrue(result.isAccepted());
+			assertNotNull(result.getPick().getId());
+			assertEquals(playerId, result.getPick().getPlayerId());
+		}
+		verify(gameIntegrationMock, times(1)).getGamesByWeek(weekId);
+		verify(gameIntegrationMock, never()).getGameById(anyString());
+		//the version goes up once the counts it tags are written
+		InOrder order = inOrder(pickWriteBatchMock, pickConsensusRepositoryMock, weekVersionRepositoryMock);
+		order.verify(pickWriteBatchMock, times(1)).savePicks(picks);
+		order.verify(pickConsensusRepositoryMock).record(picks);
+		order.verify(weekVersionRepositoryMock).increment(leagueId, weekId);
+	}
+	
+	@Test
+	public void makePicksTest_badPicks_rejectedWithReasonsAndNotSaved() {
+		String playerId = UUID.randomUUID().toString();
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		
+		GameResponse game1 = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().plusDays(1), "nyg", "dal", weekId);
+		GameResponse startedGame = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().minusHours(1), "phi", "was", weekId);
+		Map<String, GameResponse> games = new HashMap<>();
+		games.put(game1.getId(), game1);
+		games.put(startedGame.getId(), startedGame);
+		when(gameIntegrationMock.getGamesByWeek(weekId)).thenReturn(games);
+		when(picksByWeekRepositoryMock.findGamesByPlayer(leagueId, weekId, playerId)).thenReturn(new HashMap<>());
+		
+		Pick good = new PickBuilder(null).withLeagueId(leagueId).withWeekId(weekId).withGameId(game1.getId()).withTeamId("nyg").build();
+		Pick twice = new PickBuilder(null).withLeagueId(leagueId).withWeekId(weekId).withGameId(game1.getId()).withTeamId("dal").build();
+		Pick started = new PickBuilder(null).withLeagueId(leagueId).withWeekId(weekId).withGameId(startedGame.getId()).withTeamId("phi").build();
+		Pick wrongTeam = new PickBuilder(null).withLeagueId(leagueId).withWeekId(weekId).withGameId(startedGame.getId()).withTeamId("nyg").build();
+		Pick otherWeek = new PickBuilder(null).withLeagueId(leagueId).withWeekId(UUID.randomUUID().toString()).withGameId(UUID.randomUUID().toString()).withTeamId("nyg").build();
+		Pick noTeam = new PickBuilder(null).withLeagueId(leagueId).withWeekId(weekId).withGameId(game1.getId()).build();
+		
+		List<PickResult> results = service.makePicks(Arrays.asList(good, twice, started, wrongTeam, otherWeek, noTeam), playerId);
+		
+		assertTrue(results.get(0).isAccepted());
+		assertTrue(results.get(1).getExceptions().contains(PickExceptions.GAME_PICKED_TWICE));
+		assertTrue(results.get(2).getExceptions().contains(PickExceptions.GAME_HAS_ALREADY_STARTED));
+		assertTrue(results.get(3).getExceptions().contains(PickExceptions.TEAM_NOT_PLAYING_IN_GAME));
+		assertTrue(results.get(4).getExceptions().contains(PickExceptions.WEEK_IS_NOT_VALID));
+		assertTrue(results.get(5).getExceptions().contains(PickExceptions.TEAM_IS_NULL));
+		for (int i=1; i<results.size(); i++)
+			assertTrue(!results.get(i).isAccepted());
+		verify(pickWriteBatchMock).savePicks(Arrays.asList(good));
+		verify(weekVersionRepositoryMock, times(1)).increment(leagueId, weekId);
+	}
+	
+	@Test
+	public void makePicksTest_gameAlreadyPicked_keepsExistingPickId() {
+		String playerId = UUID.randomUUID().toString();
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		String existingPickId = UUID.randomUUID().toString();
+		
+		GameResponse game = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().plusDays(1), "nyg", "dal", weekId);
+		Map<String, GameResponse> games = new HashMap<>();
+		games.put(game.getId(), game);
+		when(gameIntegrationMock.getGamesByWeek(weekId)).thenReturn(games);
+		Map<String, String> existingPicks = new HashMap<>();
+		existingPicks.put(game.getId(), existingPickId);
+		when(picksByWeekRepositoryMock.findGamesByPlayer(leagueId, weekId, playerId)).thenReturn(existingPicks);
+		when(pickRepositoryMock.findAll(leagueId, Arrays.asList(existingPickId))).thenReturn(Arrays.asList(new PickBuilder(existingPickId).withTeamId("nyg").build()));
+		
+		Pick pick = new PickBuilder(null).withLeagueId(leagueId).withWeekId(weekId).withGameId(game.getId()).withTeamId("dal").build();
+		List<PickResult> results = service.makePicks(Arrays.asList(pick), playerId);
+		
+		assertTrue(results.get(0).isAccepted());
+		assertEquals(existingPickId, results.get(0).getPick().getId());
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void makePicksTest_newAndChangedPicks_appendsOneChangeEach() {
+		String playerId = UUID.randomUUID().toString();
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		String existingPickId = UUID.randomUUID().toString();
+		String samePickId = UUID.randomUUID().toString();
+		
+		GameResponse newGame = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().plusDays(1), "nyg", "dal", weekId);
+		GameResponse changedGame = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().plusDays(1), "phi", "was", weekId);
+		GameResponse sameGame = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().plusDays(1), "ne", "nyj", weekId);
+		Map<String, GameResponse> games = new HashMap<>();
+		games.put(newGame.getId(), newGame);
+		games.put(changedGame.getId(), changedGame);
+		games.put(sameGame.getId(), sameGame);
+		when(gameIntegrationMock.getGamesByWeek(weekId)).thenReturn(games);
+		Map<String, String> existingPicks = new HashMap<>();
+		existingPicks.put(changedGame.getId(), existingPickId);
+		existingPicks.put(sameGame.getId(), samePickId);
+		when(picksByWeekRepositoryMock.findGamesByPlayer(leagueId, weekId, playerId)).thenReturn(existingPicks);
+		Pick changedFromDS = new PickBuilder(existingPickId).withTeamId("phi").build();
+		Pick sameFromDS = new PickBuilder(samePickId).withTeamId("ne").build();
+		when(pickRepositoryMock.findAll(leagueId, Arrays.asList(existingPickId, samePickId))).thenReturn(Arrays.asList(changedFromDS, sameFromDS));
+		
+		Pick created = new PickBuilder(null).withLeagueId(leagueId).withWeekId(weekId).withGameId(newGame.getId()).withTeamId("nyg").build();
+		Pick changed = new PickBuilder(null).withLeagueId(leagueId).withWeekId(weekId).withGameId(changedGame.getId()).withTeamId("was").build();
+		Pick same = new PickBuilder(null).withLeagueId(leagueId).withWeekId(weekId).withGameId(sameGame.getId()).withTeamId("ne").build();
+		service.makePicks(Arrays.asList(created, changed, same), playerId);
+		
+		ArgumentCaptor<List> changes = ArgumentCaptor.forClass(List.class);
+		verify(pickChangeStreamMock).append(changes.capture());
+		List<PickChangeEvent> events = changes.getValue();
+		assertEquals(2, events.size());
+		assertEquals(PickChangeEvent.Type.PICK_CREATED, events.get(0).getType());
+		assertEquals("nyg", events.get(0).getNewTeamId());
+		assertEquals(PickChangeEvent.Type.PICK_UPDATED, events.get(1).getType());
+		assertEquals(existingPickId, events.get(1).getPickId());
+		assertEquals("phi", events.get(1).getOldTeamId());
+		assertEquals("was", events.get(1).getNewTeamId());
+	}
+	
+	@Test
+	public void makePicksTest_changeStreamDown_picksStillSaved() {
+		String playerId = UUID.randomUUID().toString();
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		
+		GameResponse game = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().plusDays(1), "nyg", "dal", weekId);
+		Map<String, GameResponse> games = new HashMap<>();
+		games.put(game.getId(), game);
+		when(gameIntegrationMock.getGamesByWeek(weekId)).thenReturn(games);
+		when(picksByWeekRepositoryMock.findGamesByPlayer(leagueId, weekId, playerId)).thenReturn(new HashMap<>());
+		doThrow(new IllegalStateException("redis down")).when(pickChangeStreamMock).append(anyListOf(PickChangeEvent.class));
+		
+		Pick pick = new PickBuilder(null).withLeagueId(leagueId).withWeekId(weekId).withGameId(game.getId()).withTeamId("nyg").build();
+		List<PickResult> results = service.makePicks(Arrays.asList(pick), playerId);
+		
+		assertTrue(results.get(0).isAccepted());
+		verify(pickWriteBatchMock).savePicks(Arrays.asList(pick));
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void rebuildConsensus_countsEveryPickInTheWeek() {
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		Pick pick1 = new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withGameId("g1").withTeamId("nyg").build();
+		Pick pick2 = new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withGameId("g1").withTeamId("dal").build();
+		Map<String, Map<String, String>> players = new HashMap<>();
+		players.put("p1", new HashMap<>());
+		players.get("p1").put("g1", pick1.getId());
+		players.put("p2", new HashMap<>());
+		players.get("p2").put("g1", pick2.getId());
+		when(picksByWeekRepositoryMock.findPlayersByWeek(leagueId, weekId)).thenReturn(players);
+		when(pickRepositoryMock.findAll(anyString(), anyListOf(String.class))).thenReturn(Arrays.asList(pick1, pick2));
+		
+		service.rebuildConsensus(leagueId, weekId);
+		
+		ArgumentCaptor<List> picks = ArgumentCaptor.forClass(List.class);
+		InOrder order = inOrder(pickConsensusRepositoryMock, weekVersionRepositoryMock);
+		order.verify(pickConsensusRepositoryMock).rebuild(eq(leagueId), eq(weekId), picks.capture());
+		order.verify(weekVersionRepositoryMock).increment(leagueId, weekId);
+		assertEquals(2, picks.getValue().size());
+		assertTrue(picks.getValue().contains(pick1));
+		assertTrue(picks.getValue().contains(pick2));
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void makePicksTest_savedPicks_filedInTheSeasonHistoryByKickoff() {
+		String playerId = UUID.randomUUID().toString();
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		ZonedDateTime kickoff = ZonedDateTime.now().plusDays(1);
+		GameResponse game = new GameResponse(UUID.randomUUID().toString(), kickoff, "nyg", "dal", weekId);
+		game.setSeasonId("2016");
+		GameResponse noSeason = new GameResponse(UUID.randomUUID().toString(), kickoff, "phi", "was", weekId);
+		Map<String, GameResponse> games = new HashMap<>();
+		games.put(game.getId(), game);
+		games.put(noSeason.getId(), noSeason);
+		when(gameIntegrationMock.getGamesByWeek(weekId)).thenReturn(games);
+		when(picksByWeekRepositoryMock.findGamesByPlayer(leagueId, weekId, playerId)).thenReturn(new HashMap<>());
+		Pick pick = new PickBuilder(null).withLeagueId(leagueId).withWeekId(weekId).withGameId(game.getId()).withTeamId("nyg").build();
+		Pick unfiled = new PickBuilder(null).withLeagueId(leagueId).withWeekId(weekId).withGameId(noSeason.getId()).withTeamId("phi").build();
+		
+		service.makePicks(Arrays.asList(pick, unfiled), playerId);
+		
+		ArgumentCaptor<List> filed = ArgumentCaptor.forClass(List.class);
+		ArgumentCaptor<ToLongFunction> order = ArgumentCaptor.forClass(ToLongFunction.class);
+		verify(pickHistoryRepositoryMock).record(eq("2016"), filed.capture(), order.capture());
+		assertEquals(Arrays.asList(pick), filed.getValue());
+		assertEquals(kickoff.toInstant().toEpochMilli(), order.getValue().applyAsLong(pick));
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void getSeasonPicks_severalLeagues_oneReadInHistoryOrder() {
+		Pick week1 = new PickBuilder().withLeagueId("l1").withWeekId("w1").withGameId("g1").withTeamId("nyg").build();
+		Pick week1OtherLeague = new PickBuilder().withLeagueId("l2").withWeekId("w1").withGameId("g1").withTeamId("dal").build();
+		Pick week2 = new PickBuilder().withLeagueId("l1").withWeekId("w2").withGameId("g2").withTeamId("phi").build();
+		when(pickHistoryRepositoryMock.findBySeason("p1", "2016", 0, Integer.MAX_VALUE)).thenReturn(Arrays.asList(
+				PickHistoryEntry.of(week1), PickHistoryEntry.of(week1OtherLeague), PickHistoryEntry.of(week2)));
+		when(pickRepositoryMock.findAllByLeague(any(Map.class))).thenReturn(Arrays.asList(week1, week2, week1OtherLeague));
+		
+		List<Pick> picks = service.getSeasonPicks("p1", "2016");
+		
+		assertEquals(Arrays.asList(week1, week1OtherLeague, week2), picks);
+		ArgumentCaptor<Map> leagues = ArgumentCaptor.forClass(Map.class);
+		verify(pickRepositoryMock, times(1)).findAllByLeague(leagues.capture());
+		assertEquals(Arrays.asList(week1.getId(), week2.getId()), leagues.getValue().get("l1"));
+		assertEquals(Arrays.asList(week1OtherLeague.getId()), leagues.getValue().get("l2"));
+	}
+	
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void freezeWeek_finishedWeek_savesSnapshotAndEvictsRawPicks() {
+		String leagueId = UUID.randomUUID().toString();
+		String weekId = UUID.randomUUID().toString();
+		GameResponse game = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().minusDays(1), "nyg", "dal", weekId);
+		game.setFavScore(24);
+		game.setDogScore(10);
+		Map<String, GameResponse> games = new HashMap<>();
+		games.put(game.getId(), game);
+		when(gameIntegrationMock.getGamesByWeek(weekId)).thenReturn(games);
+		Pick won = new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withPlayerId("p1").withGameId(game.getId()).withTeamId("nyg").build();
+		Pick lost = new PickBuilder().withLeagueId(leagueId).withWeekId(weekId).withPlayerId("p2").withGameId(game.getId()).withTeamId("dal").build();
+		Map<String, Map<String, String>> players = new HashMap<>();
+		players.put("p1", new HashMap<>());
+		players.get("p1").put(game.getId(), won.getId());
+		players.put("p2", new HashMap<>());
+		players.get("p2").put(game.getId(), lost.getId());
+		when(picksByWeekRepositoryMock.findPlayersByWeek(leagueId, weekId)).thenReturn(players);
+		when(pickRepositoryMock.findAll(anyString(), anyListOf(String.class))).thenReturn(Arrays.asList(won, lost));
+		Map<String, DoublePick> doubles = new HashMap<>();
+		doubles.put("p1", new DoublePick(leagueId, weekId, "p1", won.getId(), game.getId(), true));
+		when(doublePickRepositoryMock.findAllForLeagueAndWeek(leagueId, weekId)).thenReturn(doubles);
+		when(weekSnapshotRepositoryMock.save(any(WeekSnapshot.class))).thenReturn(true);
+		
+		WeekSnapshot snapshot = service.freezeWeek(leagueId, weekId, true);
+		
+		verify(weekSnapshotRepositoryMock).save(snapshot);
+		assertEquals(Integer.valueOf(2), snapshot.getPoints().get("p1"));
+		assertEquals(Integer.valueOf(0), snapshot.getPoints().get("p2"));
+		assertEquals("dal", snapshot.toPicksByPlayer().get("p2").get(game.getId()).getTeamId());
+		ArgumentCaptor<Iterable> evicted = ArgumentCaptor.forClass(Iterable.class);
+		verify(pickRepositoryMock).delete(evicted.capture());
+		List<Object> evictedPicks = new ArrayList<>();
+		for (Object pick : evicted.getValue())
+			evictedPicks.add(pick);
+		assertTrue(evictedPicks.containsAll(Arrays.asList(won, lost)));
+		InOrder order = inOrder(doublePickRepositoryMock, picksByWeekRepositoryMock, weekVersionRepositoryMock);
+		order.verify(doublePickRepositoryMock).deleteWeek(leagueId, weekId);
+		order.verify(picksByWeekRepositoryMock).deleteWeek(leagueId, weekId);
+		order.verify(weekVersionRepositoryMock).increment(leagueId, weekId);
+		
+		//reads of the week now come from the snapshot
+		when(weekSnapshotRepositoryMock.findOne(leagueId, weekId)).thenReturn(snapshot);
+		assertEquals(won.getId(), service.getPicksByWeek(leagueId, weekId).get("p1").get(game.getId()).getId());
+		assertEquals(won.getId(), service.getDoublePicks(leagueId, weekId).get("p1").getPickId());
+	}
+	
+	@Test
+	public void freezeWeek_gameNotOver_throwsAndSavesNothing() {
+		String weekId = UUID.randomUUID().toString();
+		GameResponse over = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().minusDays(1), "nyg", "dal", weekId);
+		over.setFavScore(24);
+		GameResponse playing = new GameResponse(UUID.randomUUID().toString(), ZonedDateTime.now().minusHours(1), "phi", "was", weekId);
+		playing.setDogScore(7);
+		Map<String, GameResponse> games = new HashMap<>();
+		games.put(over.getId(), over);
+		games.put(playing.getId(), playing);
+		when(gameIntegrationMock.getGamesByWeek(weekId)).thenReturn(games);
+		
+		try {
+			service.freezeWeek("l1", weekId, true);
+			fail("the week isn't over");
+		} catch (PickValidationException e) {
+			assertTrue(e.hasSpecificException(PickExceptions.WEEK_IS_NOT_FINAL));
+		}
+		verify(weekSnapshotRepositoryMock, never()).save(any(WeekSnapshot.class));
+		verify(picksByWeekRepositoryMock, never()).deleteWeek(anyString(), anyString());
+	}
+}
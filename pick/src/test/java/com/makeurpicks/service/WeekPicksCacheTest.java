@@ -0,0 +1,164 @@
+package com.makeurpicks.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.makeurpicks.domain.Pick;
+import com.makeurpicks.domain.PickBuilder;
+import com.makeurpicks.domain.PickChangeEvent;
+
+public class WeekPicksCacheTest {
+
+	private static final Instant NOON = Instant.parse("2016-12-04T12:00:00Z");
+
+	private TestClock clock;
+	private WeekPicksCache cache;
+	private AtomicInteger loads = new AtomicInteger();
+
+	@Before
+	public void setup()
+	{
+		clock = new TestClock(NOON);
+		cache = new WeekPicksCache(clock);
+	}
+
+	private Map<String, Map<String, Pick>> load()
+	{
+		loads.incrementAndGet();
+		return new HashMap<>();
+	}
+
+	@Test
+	public void get_concurrentReads_shareOneLoad() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Map<String, Map<String, Pick>>>> reads = new ArrayList<>();
+		reads.add(executor.submit(() -> cache.get("l1", "w1", 0, () -> {
+			loading.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return load();
+		})));
+		loading.await();
+		for (int i=0; i<7; i++)
+			reads.add(executor.submit(() -> cache.get("l1", "w1", 0, this::load)));
+		//give the other readers time to queue up behind the running load
+		Thread.sleep(100);
+		release.countDown();
+
+		Map<String, Map<String, Pick>> first = reads.get(0).get(5, TimeUnit.SECONDS);
+		for (Future<Map<String, Map<String, Pick>>> read : reads)
+			assertSame(first, read.get(5, TimeUnit.SECONDS));
+		executor.shutdown();
+		assertEquals(1, loads.get());
+		assertEquals(8, cache.getReads());
+		assertEquals(1, cache.getLoads());
+	}
+
+	@Test
+	public void get_keptUntilPickChanges() {
+		Map<String, Map<String, Pick>> first = cache.get("l1", "w1", 0, this::load);
+		assertSame(first, cache.get("l1", "w1", 0, this::load));
+
+		Pick pick = new PickBuilder().withLeagueId("l1").withWeekId("w1").withGameId("g1").withTeamId("nyg").build();
+		cache.pickChanged(PickChangeEvent.doublePicked(pick, null));
+		assertSame(first, cache.get("l1", "w1", 0, this::load));
+
+		cache.pickChanged(PickChangeEvent.updated(pick, "dal"));
+		cache.get("l1", "w1", 0, this::load);
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void get_keptWeekOlderThanVersion_loadsAgain() {
+		Map<String, Map<String, Pick>> first = cache.get("l1", "w1", 3, this::load);
+		assertSame(first, cache.get("l1", "w1", 2, this::load));
+		assertSame(first, cache.get("l1", "w1", 3, this::load));
+
+		//saved on another instance, the change log hasn't evicted it yet
+		Map<String, Map<String, Pick>> second = cache.get("l1", "w1", 4, this::load);
+		assertEquals(2, loads.get());
+		assertSame(second, cache.get("l1", "w1", 3, this::load));
+	}
+
+	@Test
+	public void get_changeDuringLoad_resultNotKept() {
+		cache.get("l1", "w1", 0, () -> {
+			cache.evict("l1", "w1");
+			return load();
+		});
+		cache.get("l1", "w1", 0, this::load);
+
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void get_afterTtl_loadsAgain() {
+		cache.get("l1", "w1", 0, this::load);
+		clock.now = NOON.plusSeconds(11);
+		cache.get("l1", "w1", 0, this::load);
+
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void get_loadFails_everyWaiterSeesTheException() {
+		try {
+			cache.get("l1", "w1", 0, () -> {
+				throw new IllegalStateException("redis down");
+			});
+			fail("expected the load to fail");
+		} catch (IllegalStateException e) {
+			assertEquals("redis down", e.getMessage());
+		}
+		assertTrue(cache.get("l1", "w1", 0, this::load).isEmpty());
+	}
+
+	private static class TestClock extends Clock {
+		private Instant now;
+
+		TestClock(Instant now)
+		{
+			this.now = now;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}